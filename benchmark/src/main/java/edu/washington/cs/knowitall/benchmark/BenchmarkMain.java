@@ -0,0 +1,49 @@
+package edu.washington.cs.knowitall.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+/**
+ * Runs the benchmarks like <code>org.openjdk.jmh.Main</code>, which takes the
+ * same options, but with the GC profiler when benchmarks are run, so that the
+ * allocation rate of each benchmark is reported next to its throughput.
+ *
+ * For example, to run the extractor benchmarks over the long sentences and
+ * write the results as JSON:
+ *
+ * <pre>
+ * java -jar benchmark/target/benchmarks.jar Extractor -p bucket=long -rf json
+ * </pre>
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<String>(Arrays.asList(args));
+        if (runsBenchmarks(args)) {
+            jmhArgs.add("-prof");
+            jmhArgs.add("gc");
+        }
+        Main.main(jmhArgs.toArray(new String[jmhArgs.size()]));
+    }
+
+    // whether the arguments run benchmarks, rather than print the help or
+    // list the benchmarks, profilers or result formats
+    private static boolean runsBenchmarks(String[] args) {
+        CommandLineOptions options;
+        try {
+            options = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            // Main reports the error
+            return false;
+        }
+        return !options.shouldHelp() && !options.shouldList()
+                && !options.shouldListWithParams()
+                && !options.shouldListProfilers()
+                && !options.shouldListResultFormats();
+    }
+}
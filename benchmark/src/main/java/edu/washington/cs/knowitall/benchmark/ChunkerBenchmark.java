@@ -0,0 +1,33 @@
+package edu.washington.cs.knowitall.benchmark;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.ChunkerException;
+import edu.washington.cs.knowitall.nlp.OpenNlpSentenceChunker;
+
+/**
+ * Tokenizes, POS tags and chunks a sentence with the OpenNLP models.
+ */
+@State(Scope.Thread)
+public class ChunkerBenchmark extends StageBenchmark {
+
+    private OpenNlpSentenceChunker chunker;
+    private String[] sentences;
+
+    @Setup
+    public void setup(Corpus corpus) throws IOException {
+        chunker = new OpenNlpSentenceChunker();
+        sentences = corpus.getSentences();
+    }
+
+    @Benchmark
+    public ChunkedSentence chunkSentence() throws ChunkerException {
+        return chunker.chunkSentence(sentences[next(sentences.length)]);
+    }
+}
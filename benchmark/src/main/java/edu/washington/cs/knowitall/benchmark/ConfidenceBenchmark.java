@@ -0,0 +1,94 @@
+package edu.washington.cs.knowitall.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import edu.washington.cs.knowitall.argumentidentifier.ConfidenceMetric;
+import edu.washington.cs.knowitall.extractor.conf.ConfidenceFunction;
+import edu.washington.cs.knowitall.extractor.conf.ReVerbFeatures;
+import edu.washington.cs.knowitall.extractor.conf.ReVerbIndependentConfFunction;
+import edu.washington.cs.knowitall.extractor.conf.ReVerbOpenNlpConfFunction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+
+/**
+ * Scores the ReVerb extractions of a sentence with each confidence function:
+ * the OpenNLP model of ReVerb, the logistic regression of
+ * <code>ReVerbIndependentConfFunction</code> and the R2A2 confidence metric.
+ *
+ * No model is bundled for <code>ReVerbIndependentConfFunction</code>, so it
+ * is given one with the same small weight for every ReVerb feature, which
+ * costs as much to apply as a trained one.
+ */
+@State(Scope.Thread)
+public class ConfidenceBenchmark extends StageBenchmark {
+
+    private ConfidenceFunction reverb;
+    private ConfidenceFunction independent;
+    private ConfidenceFunction r2a2;
+    private List<List<ChunkedBinaryExtraction>> extractions;
+    private File weights;
+
+    @Setup
+    public void setup(Corpus corpus) throws Exception {
+        reverb = new ReVerbOpenNlpConfFunction();
+        weights = writeWeights();
+        independent = new ReVerbIndependentConfFunction(weights);
+        r2a2 = new ConfidenceMetric();
+        extractions = corpus.getExtractions();
+    }
+
+    @TearDown
+    public void tearDown() {
+        weights.delete();
+    }
+
+    private static File writeWeights() throws IOException {
+        File file = File.createTempFile("reverb-weights", ".txt");
+        Writer out = new OutputStreamWriter(new FileOutputStream(file),
+                "UTF-8");
+        try {
+            out.write("intercept\t-1.0\n");
+            for (String name : new ReVerbFeatures().getFeatureSet()
+                    .getFeatureNames()) {
+                out.write(name + "\t0.1\n");
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    @Benchmark
+    public double reverbOpenNlp() throws Exception {
+        return score(reverb);
+    }
+
+    @Benchmark
+    public double reverbIndependent() throws Exception {
+        return score(independent);
+    }
+
+    @Benchmark
+    public double r2a2() throws Exception {
+        return score(r2a2);
+    }
+
+    private double score(ConfidenceFunction confFunc) throws Exception {
+        double sum = 0;
+        for (ChunkedBinaryExtraction extr : extractions.get(next(extractions
+                .size()))) {
+            sum += confFunc.getConf(extr);
+        }
+        return sum;
+    }
+}
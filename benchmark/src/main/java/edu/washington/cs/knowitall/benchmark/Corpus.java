@@ -0,0 +1,146 @@
+package edu.washington.cs.knowitall.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.washington.cs.knowitall.extractor.ReVerbExtractor;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.OpenNlpSentenceChunker;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+
+/**
+ * The fixed sentences the benchmarks run over, in three buckets by length:
+ * short (up to 15 tokens), medium (16 to 30 tokens) and long (more than 30
+ * tokens). Each bucket has 100 tokenized sentences from the ReVerb confidence
+ * training data, checked in next to this class.
+ *
+ * The benchmarks of the later stages get the sentences chunked, the ReVerb
+ * extractions of the sentences that have some, or the sentences as HTML
+ * pages. Each is made once per trial, when first asked for.
+ */
+@State(Scope.Benchmark)
+public class Corpus {
+
+    @Param({ "short", "medium", "long" })
+    public String bucket;
+
+    private String[] sentences;
+    private ChunkedSentence[] chunked;
+    private List<List<ChunkedBinaryExtraction>> extractions;
+    private String[] pages;
+
+    @Setup
+    public void setup() throws IOException {
+        InputStream in = Corpus.class.getResourceAsStream(bucket + ".txt");
+        if (in == null) {
+            throw new IllegalArgumentException("Unknown bucket: " + bucket);
+        }
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in,
+                "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        sentences = lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * @return the sentences
+     */
+    public String[] getSentences() {
+        return sentences;
+    }
+
+    /**
+     * @return the sentences, chunked by <code>OpenNlpSentenceChunker</code>
+     * @throws Exception
+     */
+    public synchronized ChunkedSentence[] getChunkedSentences()
+            throws Exception {
+        if (chunked == null) {
+            OpenNlpSentenceChunker chunker = new OpenNlpSentenceChunker();
+            chunked = new ChunkedSentence[sentences.length];
+            for (int i = 0; i < sentences.length; i++) {
+                chunked[i] = chunker.chunkSentence(sentences[i]);
+            }
+        }
+        return chunked;
+    }
+
+    /**
+     * @return the extractions of <code>ReVerbExtractor</code> from each
+     *         sentence that has some
+     * @throws Exception
+     */
+    public synchronized List<List<ChunkedBinaryExtraction>> getExtractions()
+            throws Exception {
+        if (extractions == null) {
+            ReVerbExtractor extractor = new ReVerbExtractor();
+            extractions = new ArrayList<List<ChunkedBinaryExtraction>>();
+            for (ChunkedSentence sent : getChunkedSentences()) {
+                List<ChunkedBinaryExtraction> extrs =
+                        new ArrayList<ChunkedBinaryExtraction>();
+                for (ChunkedBinaryExtraction extr : extractor.extract(sent)) {
+                    extrs.add(extr);
+                }
+                if (!extrs.isEmpty()) {
+                    extractions.add(extrs);
+                }
+            }
+        }
+        return extractions;
+    }
+
+    /**
+     * @return a small HTML page for each sentence, with a script, a style
+     *         sheet, links and entities
+     */
+    public synchronized String[] getPages() {
+        if (pages == null) {
+            pages = new String[sentences.length];
+            for (int i = 0; i < sentences.length; i++) {
+                pages[i] = toPage(sentences[i]);
+            }
+        }
+        return pages;
+    }
+
+    private static String toPage(String sentence) {
+        StringBuilder page = new StringBuilder();
+        page.append("<!DOCTYPE html>\n<html>\n<head>\n");
+        page.append("<title>Benchmark</title>\n");
+        page.append("<script type=\"text/javascript\">var n = 0;</script>\n");
+        page.append("<style>p { margin: 0; }</style>\n");
+        page.append("</head>\n<body>\n<p>");
+        String[] tokens = sentence.split(" ");
+        for (int i = 0; i < tokens.length; i++) {
+            if (i > 0) {
+                page.append(' ');
+            }
+            String token = tokens[i].replace("&", "&amp;")
+                    .replace("<", "&lt;").replace(">", "&gt;");
+            if (i % 5 == 4) {
+                page.append("<a href=\"#").append(i).append("\">")
+                        .append(token).append("</a>");
+            } else {
+                page.append(token);
+            }
+        }
+        page.append("</p>\n</body>\n</html>\n");
+        return page.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package edu.washington.cs.knowitall.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.washington.cs.knowitall.extractor.ExtractorException;
+import edu.washington.cs.knowitall.extractor.R2A2;
+import edu.washington.cs.knowitall.extractor.ReVerbExtractor;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+
+/**
+ * Extracts the binary relations of a chunked sentence with ReVerb, using its
+ * default settings, and with R2A2.
+ */
+@State(Scope.Thread)
+public class ExtractorBenchmark extends StageBenchmark {
+
+    private ReVerbExtractor reverb;
+    private R2A2 r2a2;
+    private ChunkedSentence[] sentences;
+
+    @Setup
+    public void setup(Corpus corpus) throws Exception {
+        reverb = new ReVerbExtractor();
+        r2a2 = new R2A2();
+        sentences = corpus.getChunkedSentences();
+    }
+
+    @Benchmark
+    public void reverb(Blackhole bh) throws ExtractorException {
+        ChunkedSentence sent = sentences[next(sentences.length)];
+        for (ChunkedBinaryExtraction extr : reverb.extract(sent)) {
+            bh.consume(extr);
+        }
+    }
+
+    @Benchmark
+    public void r2a2(Blackhole bh) throws ExtractorException {
+        ChunkedSentence sent = sentences[next(sentences.length)];
+        for (ChunkedBinaryExtraction extr : r2a2.extract(sent)) {
+            bh.consume(extr);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package edu.washington.cs.knowitall.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.washington.cs.knowitall.util.HtmlUtils;
+
+/**
+ * Converts the HTML page of a sentence to plain text.
+ */
+@State(Scope.Thread)
+public class HtmlBenchmark extends StageBenchmark {
+
+    private String[] pages;
+
+    @Setup
+    public void setup(Corpus corpus) {
+        pages = corpus.getPages();
+    }
+
+    @Benchmark
+    public String removeHtml() {
+        return HtmlUtils.removeHtml(pages[next(pages.length)]);
+    }
+}
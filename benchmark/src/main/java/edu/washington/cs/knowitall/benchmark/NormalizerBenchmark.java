@@ -0,0 +1,69 @@
+package edu.washington.cs.knowitall.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedArgumentExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
+import edu.washington.cs.knowitall.normalization.BinaryExtractionNormalizer;
+
+/**
+ * Normalizes the ReVerb extractions of a sentence. The stems are cached
+ * between operations, as they are between the sentences of a run, but each
+ * operation normalizes new extraction objects, since a relation remembers
+ * its normalized phrase.
+ */
+@State(Scope.Thread)
+public class NormalizerBenchmark extends StageBenchmark {
+
+    private BinaryExtractionNormalizer normalizer;
+    private List<List<ChunkedBinaryExtraction>> extractions;
+    // copies of the extractions of the next sentence
+    private List<ChunkedBinaryExtraction> sentExtractions;
+
+    @Setup
+    public void setup(Corpus corpus) throws Exception {
+        normalizer = new BinaryExtractionNormalizer();
+        extractions = corpus.getExtractions();
+    }
+
+    @Setup(Level.Invocation)
+    public void copyExtractions() {
+        List<ChunkedBinaryExtraction> extrs = extractions.get(next(extractions
+                .size()));
+        sentExtractions = new ArrayList<ChunkedBinaryExtraction>(extrs.size());
+        for (ChunkedBinaryExtraction extr : extrs) {
+            sentExtractions.add(copy(extr));
+        }
+    }
+
+    private static ChunkedBinaryExtraction copy(ChunkedBinaryExtraction extr) {
+        ChunkedSentence sent = extr.getSentence();
+        ChunkedExtraction rel = new ChunkedExtraction(sent, extr
+                .getRelation().getRange(), extr.getRelation().getText());
+        return new ChunkedBinaryExtraction(rel, copy(extr.getArgument1(), rel),
+                copy(extr.getArgument2(), rel));
+    }
+
+    private static ChunkedArgumentExtraction copy(
+            ChunkedArgumentExtraction arg, ChunkedExtraction rel) {
+        return new ChunkedArgumentExtraction(arg.getSentence(),
+                arg.getRange(), rel, arg.getText(), arg.getConfidence());
+    }
+
+    @Benchmark
+    public void normalize(Blackhole bh) {
+        for (ChunkedBinaryExtraction extr : sentExtractions) {
+            bh.consume(normalizer.normalize(extr));
+        }
+    }
+}
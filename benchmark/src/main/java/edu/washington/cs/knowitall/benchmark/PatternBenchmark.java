@@ -0,0 +1,56 @@
+package edu.washington.cs.knowitall.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.washington.cs.knowitall.extractor.ExtractorException;
+import edu.washington.cs.knowitall.extractor.RegexExtractor;
+import edu.washington.cs.knowitall.extractor.ReVerbRelationExtractor;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
+import edu.washington.cs.knowitall.sequence.LayeredTokenMatcher;
+import edu.washington.cs.knowitall.sequence.LayeredTokenPattern;
+
+/**
+ * Matches the long relation pattern of ReVerb against a chunked sentence,
+ * with a <code>LayeredTokenPattern</code> and with a
+ * <code>RegexExtractor</code>, which also makes the candidate relations.
+ */
+@State(Scope.Thread)
+public class PatternBenchmark extends StageBenchmark {
+
+    private LayeredTokenPattern pattern;
+    private RegexExtractor extractor;
+    private ChunkedSentence[] sentences;
+
+    @Setup
+    public void setup(Corpus corpus) throws Exception {
+        pattern = new LayeredTokenPattern(
+                ReVerbRelationExtractor.LONG_RELATION_PATTERN);
+        extractor = new RegexExtractor(
+                ReVerbRelationExtractor.LONG_RELATION_PATTERN);
+        sentences = corpus.getChunkedSentences();
+    }
+
+    @Benchmark
+    public int layeredTokenPattern() throws Exception {
+        ChunkedSentence sent = sentences[next(sentences.length)];
+        LayeredTokenMatcher m = pattern.matcher(sent);
+        int numMatches = 0;
+        while (m.find()) {
+            numMatches++;
+        }
+        return numMatches;
+    }
+
+    @Benchmark
+    public void regexExtractor(Blackhole bh) throws ExtractorException {
+        ChunkedSentence sent = sentences[next(sentences.length)];
+        for (ChunkedExtraction extr : extractor.extract(sent)) {
+            bh.consume(extr);
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package edu.washington.cs.knowitall.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+/**
+ * Runs <code>CommandLineReVerb</code> end to end over a reference corpus, in
+ * each input format and with each extractor configuration, and compares the
+ * runs with a baseline. Run with -h to see the usage information.
+ *
+ * The corpus is the 991 distinct sentences of the ReVerb confidence training
+ * data, as text, as an HTML page and as pre-chunked CoNLL with the tags of
+ * the training data. Each run is a JVM of its own, see
+ * {@link RegressionRunner}. The report has a tab-separated row for each run,
+ * with its throughput, peak resident set size, time in each stage and the
+ * SHA-1 hash of its output (with the path of the corpus replaced by its
+ * name), so a report can serve as the baseline of later runs.
+ *
+ * A run fails if its output is not byte-identical to the baseline's. The
+ * bundled baseline only has the hashes, which hold on any machine. Timings
+ * and memory vary too much between machines to compare with, so they are
+ * only compared with a baseline given with <code>--baseline</code>, which
+ * should be a report recorded on the same machine: then a run also fails if
+ * its throughput is lower than the baseline's by more than the tolerance, or
+ * if its peak RSS is higher by more than the tolerance.
+ */
+public class RegressionHarness {
+
+    private static final String NAME = "RegressionHarness";
+
+    private static final String RESOURCES = "regression/";
+
+    /**
+     * The formats of the reference corpus.
+     */
+    enum Input {
+        TEXT("text", "reference.txt"),
+        HTML("html", "reference.html", "--strip-html"),
+        PRECHUNKED("prechunked", "reference.conll", "--prechunked", "conll");
+
+        final String name;
+        final String resource;
+        final String[] args;
+
+        private Input(String name, String resource, String... args) {
+            this.name = name;
+            this.resource = resource;
+            this.args = args;
+        }
+    }
+
+    /**
+     * The extractor configurations.
+     */
+    enum Config {
+        DEFAULT("default"),
+        ARG_LEARNER("argLearner", "--argLearner"),
+        KEEP_OVERLAP("keepOverlap", "-K"),
+        ALLOW_UNARY("allowUnary", "-U"),
+        NO_CONSTRAINTS("noConstraints", "-N");
+
+        final String name;
+        final String[] args;
+
+        private Config(String name, String... args) {
+            this.name = name;
+            this.args = args;
+        }
+    }
+
+    /**
+     * The columns of a report.
+     */
+    static final String[] COLUMNS = { "input", "config", "sentences",
+            "extractions", "seconds", "sentences_per_sec",
+            "extractions_per_sec", "peak_rss_kb", "chunk_seconds",
+            "extract_seconds", "conf_seconds", "output_sha1", "status" };
+
+    private static final Pattern SUMMARY = Pattern
+            .compile("Summary: (\\d+) extractions, (\\d+) sentences");
+    private static final Pattern TIMING = Pattern
+            .compile("Timing: chunking: ([\\d.]+) s, extraction: ([\\d.]+) s, confidence: ([\\d.]+) s");
+
+    private final List<Input> inputs = new ArrayList<Input>();
+    private final List<Config> configs = new ArrayList<Config>();
+    private final double tolerance;
+    private final File workDir;
+    private final boolean keepOutputs;
+    private final Map<String, Map<String, String>> baseline;
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption("h", "help", false, "Print help and exit");
+        options.addOption("b", "baseline", true,
+                "Report of earlier runs on this machine to compare with, including their throughput and peak RSS (default: the output hashes of the bundled baseline)");
+        options.addOption("n", "no-baseline", false,
+                "Do not compare with a baseline, e.g. when recording one");
+        options.addOption("r", "report", true,
+                "File to write the report to (default: standard output)");
+        options.addOption("t", "tolerance", true,
+                "Fraction by which the throughput may drop, and the peak RSS grow, before a run fails, with --baseline (default: 0.2)");
+        options.addOption("i", "inputs", true,
+                "Comma-separated list of the input formats to run: text, html, prechunked (default: all)");
+        options.addOption("c", "configs", true,
+                "Comma-separated list of the configurations to run: default, argLearner, keepOverlap, allowUnary, noConstraints (default: all)");
+        options.addOption("k", "keep-outputs", true,
+                "Directory to keep the corpus and the output of each run in (default: a temporary directory, deleted at the end)");
+
+        CommandLineParser parser = new PosixParser();
+        boolean passed;
+        try {
+            CommandLine params = parser.parse(options, args);
+            if (params.hasOption("help")) {
+                new HelpFormatter().printHelp(NAME + " [OPTIONS]", options);
+                return;
+            }
+            RegressionHarness harness = new RegressionHarness(params);
+            OutputStream out = params.hasOption("report")
+                    ? new FileOutputStream(params.getOptionValue("report"))
+                    : System.out;
+            passed = harness.run(new PrintWriter(new OutputStreamWriter(out,
+                    "UTF-8")));
+        } catch (ParseException e) {
+            System.err.println("Could not parse command line arguments: "
+                    + e.getMessage());
+            new HelpFormatter().printHelp(NAME + " [OPTIONS]", options);
+            passed = false;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            passed = false;
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    public RegressionHarness(CommandLine params) throws IOException {
+        for (String name : params.getOptionValue("inputs",
+                "text,html,prechunked").split(",")) {
+            inputs.add(parseInput(name.trim()));
+        }
+        for (String name : params.getOptionValue("configs",
+                "default,argLearner,keepOverlap,allowUnary,noConstraints")
+                .split(",")) {
+            configs.add(parseConfig(name.trim()));
+        }
+        tolerance = Double.parseDouble(params.getOptionValue("tolerance",
+                "0.2"));
+        if (params.hasOption("tolerance") && !params.hasOption("baseline")) {
+            throw new IllegalArgumentException(
+                    "The tolerance only applies to a --baseline recorded on this machine");
+        }
+
+        if (params.hasOption("keep-outputs")) {
+            workDir = new File(params.getOptionValue("keep-outputs"));
+            if (!workDir.isDirectory() && !workDir.mkdirs()) {
+                throw new IOException("Could not create " + workDir);
+            }
+            keepOutputs = true;
+        } else {
+            workDir = File.createTempFile("reverb-regression", "");
+            if (!workDir.delete() || !workDir.mkdir()) {
+                throw new IOException("Could not create " + workDir);
+            }
+            keepOutputs = false;
+        }
+
+        if (params.hasOption("no-baseline")) {
+            baseline = null;
+        } else if (params.hasOption("baseline")) {
+            baseline = readReport(new FileInputStream(params
+                    .getOptionValue("baseline")));
+        } else {
+            InputStream in = RegressionHarness.class
+                    .getResourceAsStream(RESOURCES + "baseline.tsv");
+            if (in == null) {
+                throw new IOException("No bundled baseline");
+            }
+            baseline = readReport(in);
+        }
+    }
+
+    private static Input parseInput(String name) {
+        for (Input input : Input.values()) {
+            if (input.name.equals(name)) {
+                return input;
+            }
+        }
+        throw new IllegalArgumentException("Unknown input format: " + name);
+    }
+
+    private static Config parseConfig(String name) {
+        for (Config config : Config.values()) {
+            if (config.name.equals(name)) {
+                return config;
+            }
+        }
+        throw new IllegalArgumentException("Unknown configuration: " + name);
+    }
+
+    /**
+     * Runs each configuration on each input, and writes the report.
+     *
+     * @param report
+     * @return whether every run passed
+     * @throws IOException
+     */
+    public boolean run(PrintWriter report) throws IOException {
+        boolean passed = true;
+        try {
+            report.println(join(Arrays.asList(COLUMNS)));
+            for (Input input : inputs) {
+                File corpus = copyResource(input.resource);
+                for (Config config : configs) {
+                    Map<String, String> row = runOne(input, config, corpus);
+                    String status = compare(row);
+                    row.put("status", status);
+                    passed &= status.equals("ok") || status.equals("new");
+                    report.println(join(row.values()));
+                    report.flush();
+                    System.err.println(input.name + "\t" + config.name + "\t"
+                            + row.get("sentences_per_sec")
+                            + " sentences/s\t" + status);
+                }
+                if (!keepOutputs) {
+                    corpus.delete();
+                }
+            }
+        } finally {
+            report.close();
+            if (!keepOutputs) {
+                workDir.delete();
+            }
+        }
+        return passed;
+    }
+
+    private Map<String, String> runOne(Input input, Config config,
+            File corpus) throws IOException {
+        File output = new File(workDir, input.name + "-" + config.name
+                + ".tsv");
+        List<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"),
+                "java").getPath());
+        // the timing message is formatted in the default locale
+        command.add("-Duser.language=en");
+        command.add("-Duser.country=US");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(RegressionRunner.class.getName());
+        command.add(output.getPath());
+        command.add("--timing");
+        command.add("--threads");
+        command.add("1");
+        command.addAll(Arrays.asList(input.args));
+        command.addAll(Arrays.asList(config.args));
+        command.add(corpus.getPath());
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+        StringBuilder messages = new StringBuilder();
+        BufferedReader in = new BufferedReader(new InputStreamReader(process
+                .getInputStream()));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                messages.append(line).append('\n');
+            }
+        } finally {
+            in.close();
+        }
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + input.name
+                    + " " + config.name);
+        }
+
+        Map<String, String> row = new LinkedHashMap<String, String>();
+        row.put("input", input.name);
+        row.put("config", config.name);
+        Matcher summary = SUMMARY.matcher(messages);
+        Matcher timing = TIMING.matcher(messages);
+        Matcher time = Pattern.compile(
+                RegressionRunner.EXTRACTION_TIME + "(\\d+) ns").matcher(
+                messages);
+        Matcher rss = Pattern.compile(RegressionRunner.PEAK_RSS + "(-?\\d+)")
+                .matcher(messages);
+        if (!summary.find() || !timing.find() || !time.find() || !rss.find()) {
+            throw new IOException("Run of " + input.name + " " + config.name
+                    + " failed:\n" + messages);
+        }
+        long extractions = Long.parseLong(summary.group(1));
+        long sentences = Long.parseLong(summary.group(2));
+        double seconds = Long.parseLong(time.group(1)) / 1e9;
+        row.put("sentences", String.valueOf(sentences));
+        row.put("extractions", String.valueOf(extractions));
+        row.put("seconds", format(seconds));
+        row.put("sentences_per_sec", format(sentences / seconds));
+        row.put("extractions_per_sec", format(extractions / seconds));
+        row.put("peak_rss_kb", rss.group(1));
+        row.put("chunk_seconds", timing.group(1));
+        row.put("extract_seconds", timing.group(2));
+        row.put("conf_seconds", timing.group(3));
+        row.put("output_sha1", sha1(output, corpus));
+        if (!keepOutputs) {
+            output.delete();
+        }
+        return row;
+    }
+
+    // the status of a run: ok, new if the baseline has no such run, or why
+    // it failed
+    private String compare(Map<String, String> row) {
+        if (baseline == null) {
+            return "new";
+        }
+        Map<String, String> base = baseline.get(row.get("input") + "\t"
+                + row.get("config"));
+        if (base == null) {
+            return "new";
+        }
+        List<String> failures = new ArrayList<String>();
+        if (!row.get("output_sha1").equals(base.get("output_sha1"))) {
+            failures.add("output differs");
+        }
+        // the bundled baseline has no timings or memory to compare with
+        if (base.containsKey("sentences_per_sec")) {
+            double speed = Double.parseDouble(row.get("sentences_per_sec"));
+            double baseSpeed = Double.parseDouble(base
+                    .get("sentences_per_sec"));
+            if (speed < baseSpeed * (1 - tolerance)) {
+                failures.add(percent(1 - speed / baseSpeed) + " slower");
+            }
+            long rss = Long.parseLong(row.get("peak_rss_kb"));
+            long baseRss = Long.parseLong(base.get("peak_rss_kb"));
+            if (rss > 0 && baseRss > 0 && rss > baseRss * (1 + tolerance)) {
+                failures.add(percent((double) rss / baseRss - 1)
+                        + " more memory");
+            }
+        }
+        return failures.isEmpty() ? "ok" : join(failures, "; ");
+    }
+
+    /**
+     * Reads a report, as written by {@link #run(PrintWriter)}.
+     *
+     * @param in
+     * @return the rows of the report, by input and configuration
+     * @throws IOException
+     */
+    static Map<String, Map<String, String>> readReport(InputStream in)
+            throws IOException {
+        Map<String, Map<String, String>> rows =
+                new LinkedHashMap<String, Map<String, String>>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in,
+                "UTF-8"));
+        try {
+            String header = reader.readLine();
+            if (header == null) {
+                return rows;
+            }
+            String[] columns = header.split("\t");
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != columns.length) {
+                    throw new IOException("Malformed report row: " + line);
+                }
+                Map<String, String> row = new LinkedHashMap<String, String>();
+                for (int i = 0; i < columns.length; i++) {
+                    row.put(columns[i], fields[i]);
+                }
+                rows.put(row.get("input") + "\t" + row.get("config"), row);
+            }
+        } finally {
+            reader.close();
+        }
+        return rows;
+    }
+
+    private File copyResource(String resource) throws IOException {
+        File file = new File(workDir, resource);
+        InputStream in = RegressionHarness.class.getResourceAsStream(RESOURCES
+                + resource);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            byte[] buffer = new byte[65536];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+        return file;
+    }
+
+    // the hash of the rows of a run, with the path of the corpus in the
+    // filename column replaced by its name, so it does not depend on workDir
+    private static String sha1(File output, File corpus) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        String path = corpus.getAbsolutePath() + "\t";
+        String name = corpus.getName() + "\t";
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(output), "UTF-8"));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith(path)) {
+                    line = name + line.substring(path.length());
+                }
+                digest.update((line + "\n").getBytes("UTF-8"));
+            }
+        } finally {
+            in.close();
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b & 0xff));
+        }
+        return hex.toString();
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, "%.3f", value);
+    }
+
+    private static String percent(double fraction) {
+        return String.format(Locale.US, "%.1f%%", fraction * 100);
+    }
+
+    private static String join(Iterable<String> fields) {
+        return join(fields, "\t");
+    }
+
+    private static String join(Iterable<String> fields, String separator) {
+        StringBuilder joined = new StringBuilder();
+        for (String field : fields) {
+            if (joined.length() > 0) {
+                joined.append(separator);
+            }
+            joined.append(field);
+        }
+        return joined.toString();
+    }
+}
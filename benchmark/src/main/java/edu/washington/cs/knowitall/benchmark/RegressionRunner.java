@@ -0,0 +1,76 @@
+package edu.washington.cs.knowitall.benchmark;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import edu.washington.cs.knowitall.util.CommandLineReVerb;
+
+/**
+ * Runs <code>CommandLineReVerb</code> for {@link RegressionHarness}, in a JVM
+ * of its own. The arguments are the file to write the rows to, followed by
+ * the arguments of <code>CommandLineReVerb</code>.
+ *
+ * After the messages of <code>CommandLineReVerb</code>, the time from the
+ * start to the end of its extraction, without loading the models, and the
+ * peak resident set size of the JVM are written to standard error.
+ */
+public class RegressionRunner {
+
+    static final String EXTRACTION_TIME = "Extraction time: ";
+    static final String PEAK_RSS = "Peak RSS: ";
+
+    private static final String START = "Starting extraction.";
+    private static final String DONE = "Done with extraction.";
+
+    private static long startTime;
+    private static long doneTime;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = new PrintStream(new FileOutputStream(args[0]));
+        System.setOut(out);
+        // notes when CommandLineReVerb starts and finishes extracting
+        System.setErr(new PrintStream(System.err, true) {
+            @Override
+            public void println(String line) {
+                if (START.equals(line)) {
+                    startTime = System.nanoTime();
+                } else if (DONE.equals(line)) {
+                    doneTime = System.nanoTime();
+                }
+                super.println(line);
+            }
+        });
+
+        CommandLineReVerb.main(Arrays.copyOfRange(args, 1, args.length));
+        out.close();
+
+        System.err.println(EXTRACTION_TIME + (doneTime - startTime) + " ns");
+        System.err.println(PEAK_RSS + getPeakRss() + " kB");
+    }
+
+    // the peak resident set size, in kB, or -1 if it is unknown
+    private static long getPeakRss() {
+        try {
+            BufferedReader in = new BufferedReader(new FileReader(
+                    "/proc/self/status"));
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith("VmHWM:")) {
+                        return Long.parseLong(line.substring(6).trim()
+                                .split("\\s+")[0]);
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // not Linux
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,38 @@
+package edu.washington.cs.knowitall.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The settings shared by the benchmarks of the pipeline stages. An operation
+ * is one sentence of the {@link Corpus} bucket, or its page or extractions,
+ * taken in turn, so the throughput is in sentences per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class StageBenchmark {
+
+    private int next = -1;
+
+    /**
+     * @param n
+     *            the number of sentences
+     * @return the index of the next sentence, cycling through them
+     */
+    protected int next(int n) {
+        next++;
+        if (next >= n) {
+            next = 0;
+        }
+        return next;
+    }
+}
@@ -3,6 +3,8 @@ package edu.washington.cs.knowitall.argumentidentifier;
 import java.util.List;
 
 import edu.washington.cs.knowitall.extractor.conf.classifier.DoubleFeatures;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.ChunkedSentenceToken;
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedArgumentExtraction;
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
 
@@ -56,78 +58,219 @@ public class Arg1LocationFeatureGenerator {
 
     public DoubleFeatures extractFeatures(ChunkedExtraction extr,
             ChunkedArgumentExtraction arg1, int current, boolean train) {
-        List<String> words = extr.getSentence().getTokens();
-        List<String> chunks = extr.getSentence().getChunkTags();
+        CandidateSweep sweep = sweep(extr);
+        while (sweep.advance()) {
+            if (current == -1) {
+                // the appositive feature is computed relative to the token
+                // before the predicate when no candidate is given
+                DoubleFeatures featureMap = sweep.getFeatures();
+                featureMap.put("app", toDouble(patternExtractor
+                        .matchesAppositiveClause(extr, extr.getStart() - 1)));
+                return featureMap;
+            }
+            else if (sweep.getCurrent() == current) {
+                return sweep.getFeatures();
+            }
+            else if (sweep.getCurrent() < current) {
+                break;
+            }
+        }
+
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Starts a sweep over the arg1 candidates of the given predicate.
+     */
+    public CandidateSweep sweep(ChunkedExtraction extr) {
+        return new CandidateSweep(extr);
+    }
+
+    /**
+     * Visits the arg1 candidates (the B-NP tokens) before a predicate from
+     * right to left. The counting features are updated incrementally as the
+     * sweep moves left, and the pattern features are matched against views of
+     * a single tokenization of the sentence, so visiting every candidate of a
+     * predicate is linear in the length of the sentence (apart from the
+     * pattern matches themselves) rather than quadratic.
+     */
+    public class CandidateSweep {
+        private final ChunkedExtraction extr;
+        private final ChunkedSentence sent;
+        private final List<ChunkedSentenceToken> tokens;
+        private final int predStart;
+
+        // last position <= i whose chunk is not a NP, PP or RB chunk
+        private final int[] lastNonNpPpRb;
+        // the candidate for the appositive clause preceding position i
+        private final int[] appositiveStart;
+
+        private final boolean wordBeforePredConj;
+        private final int npCount;
+
+        // the current candidate, all positions from k to the predicate have
+        // been visited
+        private int current = -1;
+        private int k;
 
-        int pred_start = extr.getRange().getStart();
+        private int npCountAfter = 0;
+        private int interveningNpCount = 0;
+        private int punctuationCount = 0;
+        private boolean interveningConj = false;
+        private int nextNonNpPp;
 
-        int end = current - 1;
-        if (current == -1) {
-            current = pred_start - 1;
-            end = -1;
+        private CandidateSweep(ChunkedExtraction extr) {
+            this.extr = extr;
+            this.sent = extr.getSentence();
+            this.tokens = ChunkedSentenceToken.tokenize(sent);
+            this.predStart = extr.getStart();
+            this.k = predStart;
+            this.nextNonNpPp = predStart;
+
+            this.wordBeforePredConj = predStart > 0
+                    && patternExtractor.wordBeforePredIsConj(extr, predStart);
+
+            // left to right pass over the tokens before the predicate
+            this.lastNonNpPpRb = new int[predStart];
+            this.appositiveStart = new int[predStart];
+            int npCount = 0;
+            int lastNonNpPpRb = -1;
+            int lastComma = -1;
+            int lastNp = 0;
+            int[] lastNpBefore = new int[predStart];
+            for (int i = 0; i < predStart; i++) {
+                String chunk = sent.getChunkTag(i);
+                if (chunk.equals("B-NP")) {
+                    npCount++;
+                }
+                if (!(chunk.contains("NP") || chunk.contains("PP") || chunk
+                        .contains("RB"))) {
+                    lastNonNpPpRb = i;
+                }
+                this.lastNonNpPpRb[i] = lastNonNpPpRb;
+
+                // see PatternExtractor.getAppositiveStart: the closest comma
+                // in [1, i - 1], then the closest B-NP before it (or 0)
+                appositiveStart[i] = -1;
+                if (lastComma > 0) {
+                    int np = lastNpBefore[lastComma - 1];
+                    if (sent.getChunkTag(np).equals("B-NP")) {
+                        appositiveStart[i] = np;
+                    }
+                }
+                if (i > 0 && sent.getToken(i).equals(",")) {
+                    lastComma = i;
+                }
+                if (i > 0 && chunk.equals("B-NP")) {
+                    lastNp = i;
+                }
+                lastNpBefore[i] = lastNp;
+            }
+            this.npCount = npCount;
         }
-        for (int k = current; k > end; k--) {
-            if (chunks.get(k).equals("B-NP")) {
-
-                boolean simple_subj = false;
-                boolean quotes_subj = patternExtractor.quotesSubj(extr, k);
-                boolean relative_subj = false;
-                boolean verb_conj = false;
-                boolean app_clause = false;
-                boolean which_who = false;
-                boolean capitalized = false;
-                boolean word_before_pred_conj = false;
-                boolean intervening_and = false;
-                boolean word_after_vp = false;
-                boolean word_before_vp = false;
-                int np_count_before = patternExtractor.getNPCountBefore(extr,
-                        k);
-                int intervening_np = patternExtractor.getInterveningNPCount(
-                        extr, k);
-                int punctuation_count = patternExtractor.getPunctuationCount(
-                        extr, k);
-
-                simple_subj = patternExtractor.simpleSubj(extr, k);
-                relative_subj = patternExtractor.relSubj(extr, k);
-                verb_conj = patternExtractor.matchesVerbConjSimple(extr, k);
-                app_clause = patternExtractor.matchesAppositiveClause(extr,
-                        current);
-
-                which_who = (words.get(k).equals("which")
-                        || words.get(k).equals("who") || words.get(k).equals(
-                        "that"));
-                capitalized = patternExtractor.getCapitalized(extr, k);
-                punctuation_count = patternExtractor.getPunctuationCount(extr,
-                        k);
-                word_before_pred_conj = patternExtractor.wordBeforePredIsConj(
-                        extr, k);
-                intervening_and = patternExtractor.getInterveningConj(extr, k);
-                word_after_vp = patternExtractor.wordAfterIsVP(extr, k);
-                np_count_before = patternExtractor.getNPCountBefore(extr, k);
-                word_before_vp = patternExtractor.wordBeforeIsVP(extr, k);
-                intervening_np = patternExtractor.getInterveningNPCount(extr,
-                        k);
-
-                DoubleFeatures featureMap = new DoubleFeatures();
-                featureMap.put("simple_subj", toDouble(simple_subj));
-                featureMap.put("quotes_subj", toDouble(quotes_subj));
-                featureMap.put("relative_subj", toDouble(relative_subj));
-                featureMap.put("verb_conj", toDouble(verb_conj));
-                featureMap.put("app", toDouble(app_clause));
-                featureMap.put("which_who", toDouble(which_who));
-                featureMap.put("capitalized", toDouble(capitalized));
-                featureMap.put("punct_count", toDouble(punctuation_count));
-                featureMap.put("intervening_np_count", toDouble(intervening_np));
-                featureMap.put("np_count_before", toDouble(np_count_before));
-                featureMap.put("word_before_pred_conj", toDouble(word_before_pred_conj));
-                featureMap.put("intervening_and", toDouble(intervening_and));
-                featureMap.put("word_after_vp", toDouble(word_after_vp));
-                featureMap.put("word_before_vp", toDouble(word_before_vp));
 
-                return featureMap;
+        /**
+         * Moves to the next candidate to the left.
+         *
+         * @return false if there are no more candidates
+         */
+        public boolean advance() {
+            while (k > 0) {
+                // position k moves out of the intervening range (k, predStart)
+                if (k < predStart && isInterveningNp(k)) {
+                    interveningNpCount++;
+                }
+                k--;
+                visit(k);
+                if (sent.getChunkTag(k).equals("B-NP")) {
+                    current = k;
+                    return true;
+                }
             }
+            current = -1;
+            return false;
         }
 
-        throw new IllegalStateException();
+        private boolean isInterveningNp(int i) {
+            String token = sent.getToken(i);
+            return sent.getChunkTag(i).equals("B-NP")
+                    && !(token.equals("which") || token.equals("who") || token
+                            .equals("that"));
+        }
+
+        private void visit(int i) {
+            String chunk = sent.getChunkTag(i);
+            if (chunk.equals("B-NP")) {
+                npCountAfter++;
+            }
+            if (PatternExtractor.isPunctuation(sent.getToken(i))) {
+                punctuationCount++;
+            }
+            if (sent.getPosTag(i).equals("CC")) {
+                interveningConj = true;
+            }
+            if (!(chunk.contains("NP") || chunk.contains("PP"))) {
+                nextNonNpPp = i;
+            }
+        }
+
+        /**
+         * @return the position of the current candidate
+         */
+        public int getCurrent() {
+            return current;
+        }
+
+        /**
+         * @return the features of the current candidate
+         */
+        public DoubleFeatures getFeatures() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+
+            List<String> words = sent.getTokens();
+            boolean quotes_subj = patternExtractor.quotesSubj(extr, current,
+                    tokens);
+            boolean simple_subj = patternExtractor.simpleSubj(extr, current,
+                    tokens);
+            boolean relative_subj = patternExtractor.relSubj(extr, current,
+                    tokens);
+            boolean verb_conj = patternExtractor.matchesVerbConjSimple(extr,
+                    current, tokens);
+            boolean app_clause = appositiveStart[current] >= 0
+                    && patternExtractor.matchesAppositiveClauseAt(extr,
+                            appositiveStart[current], tokens);
+            boolean which_who = (words.get(current).equals("which")
+                    || words.get(current).equals("who") || words.get(current)
+                    .equals("that"));
+            boolean capitalized = patternExtractor.getCapitalized(extr,
+                    current);
+            boolean word_after_vp = sent.getChunkTag(nextNonNpPp).contains(
+                    "VP");
+            int before = lastNonNpPpRb[current];
+            boolean word_before_vp = before > -1
+                    && sent.getChunkTag(before).contains("VP")
+                    && !sent.getChunkTag(before).contains("ADVP");
+            int np_count_before = npCount - npCountAfter;
+
+            DoubleFeatures featureMap = new DoubleFeatures();
+            featureMap.put("simple_subj", toDouble(simple_subj));
+            featureMap.put("quotes_subj", toDouble(quotes_subj));
+            featureMap.put("relative_subj", toDouble(relative_subj));
+            featureMap.put("verb_conj", toDouble(verb_conj));
+            featureMap.put("app", toDouble(app_clause));
+            featureMap.put("which_who", toDouble(which_who));
+            featureMap.put("capitalized", toDouble(capitalized));
+            featureMap.put("punct_count", toDouble(punctuationCount));
+            featureMap.put("intervening_np_count", toDouble(interveningNpCount));
+            featureMap.put("np_count_before", toDouble(np_count_before));
+            featureMap.put("word_before_pred_conj", toDouble(wordBeforePredConj));
+            featureMap.put("intervening_and", toDouble(interveningConj));
+            featureMap.put("word_after_vp", toDouble(word_after_vp));
+            featureMap.put("word_before_vp", toDouble(word_before_vp));
+
+            return featureMap;
+        }
     }
 }
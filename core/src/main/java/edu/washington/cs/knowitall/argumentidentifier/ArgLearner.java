@@ -11,7 +11,9 @@ import edu.washington.cs.knowitall.nlp.extraction.ChunkedArgumentExtraction;
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
 
 /**
- * ArgLearner main class. Extracts either left or right argument.
+ * ArgLearner main class. Extracts either left or right argument. All state
+ * needed to extract from a predicate is local to the call, so an ArgLearner
+ * can be used by several threads at once.
  *
  * @author janara
  *
@@ -7,6 +7,7 @@ import edu.washington.cs.knowitall.argumentidentifier.ArgLearner.Mode;
 import edu.washington.cs.knowitall.extractor.conf.classifier.DecisionTree;
 import edu.washington.cs.knowitall.extractor.conf.classifier.DoubleFeatures;
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
+import edu.washington.cs.knowitall.util.BinaryModels;
 
 /**
  * ArgLocationClassifier uses weka to classify the right bound for Arg1 and
@@ -16,16 +17,9 @@ import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
  *
  */
 public class ArgLocationClassifier {
-    private static URL modelUrl;
-
-    {
-        try {
-            modelUrl = ArgLocationClassifier.class.getResource("/r2a2-arg1loc.tree");
-        }
-        catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
+    private static final String MODEL_FILE = "/r2a2-arg1loc.tree";
+    private static final URL modelUrl = ArgLocationClassifier.class
+            .getResource(MODEL_FILE);
 
     private DecisionTree classifier;
     private Arg1LocationFeatureGenerator featuregenerator;
@@ -44,19 +38,16 @@ public class ArgLocationClassifier {
         if (mode == ArgLearner.Mode.LEFT) {
             double[] resultsclassifier = { -1, 1 };
             int classification = -1;
-            int k = predicate.getStart() - 1;
             int rightbound = -1;
 
-            // classify each np
-            while (k > -1 && classification == -1) {
-                if (predicate.getSentence().getChunkTag(k).equals("B-NP")) {
-                    DoubleFeatures features = featuregenerator.extractFeatures(
-                            predicate, null, k, false);
-                    String outcome = classifier.classify(features);
-                    classification = outcome.equals("closest_np") ? 0 : -1;
-                    rightbound = k;
-                }
-                k--;
+            // classify each np, from right to left
+            Arg1LocationFeatureGenerator.CandidateSweep sweep = featuregenerator
+                    .sweep(predicate);
+            while (classification == -1 && sweep.advance()) {
+                DoubleFeatures features = sweep.getFeatures();
+                String outcome = classifier.classify(features);
+                classification = outcome.equals("closest_np") ? 0 : -1;
+                rightbound = sweep.getCurrent();
             }
 
             // adjust the np to be the righbound
@@ -121,6 +112,12 @@ public class ArgLocationClassifier {
     }
 
     private void setupClassifier(URL modelUrl) throws IOException {
-        this.classifier = DecisionTree.fromModel(modelUrl);
+        URL binary = BinaryModels.findBinary(ArgLocationClassifier.class,
+                MODEL_FILE);
+        if (binary != null) {
+            this.classifier = DecisionTree.fromBinary(BinaryModels.load(binary));
+        } else {
+            this.classifier = DecisionTree.fromModel(modelUrl);
+        }
     }
 }
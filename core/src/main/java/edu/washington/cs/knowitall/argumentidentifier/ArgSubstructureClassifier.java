@@ -3,24 +3,25 @@ package edu.washington.cs.knowitall.argumentidentifier;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Vector;
 
 import cc.mallet.fst.CRF;
-import cc.mallet.fst.confidence.ViterbiConfidenceEstimator;
-import cc.mallet.pipe.Pipe;
-import cc.mallet.pipe.iterator.LineGroupIterator;
-import cc.mallet.types.Instance;
-import cc.mallet.types.InstanceList;
-import cc.mallet.types.Sequence;
 import edu.washington.cs.knowitall.argumentidentifier.ArgLearner.Mode;
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
 import edu.washington.cs.knowitall.commonlib.ResourceUtils;
+import edu.washington.cs.knowitall.util.BinaryModels;
 
 /**
  * ArgSubstructureClassifier uses a CRF to classify the left bound for Arg1 and
- * right bound for Arg2
+ * right bound for Arg2. The CRF is loaded from the binary model format when a
+ * binary version of the model is on the classpath, and from the serialized
+ * MALLET CRF otherwise. It is only read after it is loaded, so one instance can
+ * be shared by several threads.
  *
  * @author janara
  *
@@ -31,17 +32,7 @@ public class ArgSubstructureClassifier {
     private static final String ARG1_FILE = "arg1substructure-model";
     private static final String ARG2_FILE = "arg2substructure-model";
 
-    private CRF crf = null;
-    private Pipe crf_pipe = null;
-    private ViterbiConfidenceEstimator crf_estimator;
-    private ObjectInputStream crf_input;
-
-    private String[] startTags = { "B-ARG" }; // used by Transducer, indicate
-                                              // the start of an argument
-                                              // ("B-ARG");
-    private String[] inTags = { "I-ARG" }; // used by Transducer, indicate the
-                                           // continuation of an argument
-                                           // ("I-ARG");
+    private LinearChainCRF crf = null;
 
     private ArgSubstructureFeatureGenerator featuregenerator;
 
@@ -56,32 +47,70 @@ public class ArgSubstructureClassifier {
         }
     }
 
-    private Pair<Double, Sequence<?>> applyCRF(String testingdata) {
-        Sequence<?> input = null;
-        Sequence<?> output = null;
-        Double conf;
-
-        InstanceList testSequence = null;
-        crf_pipe.setTargetProcessing(true);
-        testSequence = new InstanceList(crf_pipe);
-        testSequence.addThruPipe(new LineGroupIterator(new StringReader(
-                testingdata), Pattern.compile("^\\s*$"), true));
+    /**
+     * Converts the feature instances into the input expected by the CRF. This
+     * mirrors what the CRF's input pipe does to the text format produced by
+     * <code>ArgSubstructureFeatureGenerator.extractCRFFeatures</code>: the
+     * label of each instance is left out, features are split on spaces, and
+     * the last remaining token of each instance is taken as its target. The
+     * feature indices at each position are sorted, like the indices of a
+     * MALLET feature vector.
+     */
+    private int[][] toFeatureIndices(Vector<Vector<String>> instances) {
+        int[][] input = new int[instances.size()][];
+        List<String> tokens = new ArrayList<String>();
+        for (int l = 0; l < instances.size(); l++) {
+            Vector<String> instance = instances.get(l);
+            String label = instance.lastElement();
+
+            tokens.clear();
+            for (String feature : instance) {
+                if (feature.equals(label)) {
+                    continue;
+                }
+                if (feature.length() > 0 && feature.indexOf(' ') < 0) {
+                    tokens.add(feature);
+                } else {
+                    Collections.addAll(tokens, feature.split(" ", -1));
+                }
+            }
+            while (!tokens.isEmpty()
+                    && tokens.get(tokens.size() - 1).length() == 0) {
+                tokens.remove(tokens.size() - 1);
+            }
 
-        if (testSequence.size() < 1) {
-            return new Pair<Double, Sequence<?>>(-1.0, null);
+            int nFeatures = Math.max(0, tokens.size() - 1);
+            int[] indices = new int[nFeatures];
+            int numIndices = 0;
+            for (int f = 0; f < nFeatures; f++) {
+                int index = crf.getFeatureIndex(tokens.get(f));
+                if (index >= 0) {
+                    indices[numIndices++] = index;
+                }
+            }
+            Arrays.sort(indices, 0, numIndices);
+            int numDistinct = 0;
+            for (int f = 0; f < numIndices; f++) {
+                if (numDistinct == 0 || indices[f] != indices[numDistinct - 1]) {
+                    indices[numDistinct++] = indices[f];
+                }
+            }
+            input[l] = numDistinct == nFeatures ? indices : Arrays.copyOf(
+                    indices, numDistinct);
         }
+        return input;
+    }
 
-        Instance inst = testSequence.get(0);
-        input = (Sequence<?>) inst.getData();
-
-        output = crf.transduce(input);
-        conf = crf_estimator.estimateConfidenceFor(inst, startTags, inTags);
-
-        return new Pair<Double, Sequence<?>>(conf, output);
+    private Pair<Double, String[]> applyCRF(Vector<Vector<String>> instances) {
+        int[][] input = toFeatureIndices(instances);
+        ViterbiConfidenceLattice lattice = new ViterbiConfidenceLattice(crf,
+                input);
+        return new Pair<Double, String[]>(lattice.getConfidence(),
+                lattice.getOutput());
     }
 
     private int readCRFOutputLeft(ChunkedExtraction extr, int start,
-            Sequence<?> output) {
+            String[] output) {
         int s = 0;
         int predstart = extr.getStart();
         int lastnp = -1;
@@ -95,7 +124,7 @@ public class ArgSubstructureClassifier {
             } else {
                 if (i < start || i == predstart) {
                     String crflabel = "";
-                    crflabel = output.get(s).toString();
+                    crflabel = output[s];
                     if (i != predstart && !crflabel.contains("O")) {
                         foundarg = true;
                         lastnp = i;
@@ -115,7 +144,7 @@ public class ArgSubstructureClassifier {
     }
 
     private int readCRFOutputRight(ChunkedExtraction extr, int start,
-            Sequence<?> output) {
+            String[] output) {
         int s = 1;
         int lastnp = -1;
         List<String> chunkLabels = extr.getSentence().getChunkTags();
@@ -125,7 +154,7 @@ public class ArgSubstructureClassifier {
                 continue;
             } else {
                 String crflabel = "";
-                crflabel = output.get(s).toString();
+                crflabel = output[s];
                 if (crflabel.equals("O")) {
                     lastnp = i;
                     break;
@@ -139,18 +168,18 @@ public class ArgSubstructureClassifier {
         return lastnp;
     }
 
-    private double[] classifyData(String testingdata, ChunkedExtraction extr,
-            int start) {
+    private double[] classifyData(Vector<Vector<String>> testingdata,
+            ChunkedExtraction extr, int start) {
 
         double[] toreturn = { -1.0, -1.0 };
-        if (testingdata == null || testingdata.equals("")) {
+        if (testingdata == null || testingdata.isEmpty()) {
             return toreturn;
         }
 
         // apply crf
-        Pair<Double, Sequence<?>> pair = applyCRF(testingdata);
+        Pair<Double, String[]> pair = applyCRF(testingdata);
         Double conf = pair.getFirst();
-        Sequence<?> output = pair.getSecond();
+        String[] output = pair.getSecond();
 
         if (conf == -1.0) {
             return toreturn;
@@ -171,10 +200,17 @@ public class ArgSubstructureClassifier {
 
     private void setupClassifier(String trainingdata) {
         try {
-            crf_input = new ObjectInputStream(ResourceUtils.loadResource(
-                    trainingdata, this.getClass()));
-            crf = (CRF) crf_input.readObject();
-            crf_input.close();
+            URL binary = BinaryModels.findBinary(this.getClass(), "/"
+                    + trainingdata);
+            if (binary != null) {
+                crf = LinearChainCRF.read(BinaryModels.load(binary));
+            } else {
+                ObjectInputStream crf_input = new ObjectInputStream(
+                        ResourceUtils.loadResource(trainingdata,
+                                this.getClass()));
+                crf = LinearChainCRF.fromCRF((CRF) crf_input.readObject());
+                crf_input.close();
+            }
         } catch (FileNotFoundException e1) {
             e1.printStackTrace();
         } catch (IOException e1) {
@@ -182,23 +218,18 @@ public class ArgSubstructureClassifier {
         } catch (ClassNotFoundException e) {
             e.printStackTrace();
         }
-        crf.getInputAlphabet().stopGrowth();
-        crf.getOutputAlphabet().stopGrowth();
-        crf_pipe = crf.getInputPipe();
-        crf_pipe.setTargetProcessing(false);
-        crf_estimator = new ViterbiConfidenceEstimator(crf);
     }
 
-    private String extractFeatures(ChunkedExtraction extr, int argstart,
-            int argend, boolean train) {
-        String features = featuregenerator.extractCRFFeatures(extr, argstart,
-                argend, train);
+    private Vector<Vector<String>> extractFeatures(ChunkedExtraction extr,
+            int argstart, int argend, boolean train) {
+        Vector<Vector<String>> features = featuregenerator
+                .extractCRFInstances(extr, argstart, argend, train);
         return features;
     }
 
     public double[] getArgBound(ChunkedExtraction predicate, int other_bound) {
-        String features = extractFeatures(predicate, other_bound, other_bound,
-                false);
+        Vector<Vector<String>> features = extractFeatures(predicate,
+                other_bound, other_bound, false);
         double[] resultsclassifier = classifyData(features, predicate,
                 other_bound);
         return resultsclassifier;
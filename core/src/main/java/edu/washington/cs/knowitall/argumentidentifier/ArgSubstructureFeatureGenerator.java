@@ -40,21 +40,14 @@ public class ArgSubstructureFeatureGenerator {
     private Vector<String> featureNames = null;
 
     // include words with certain POS tags (determiners, preps, etc)
-    private static HashSet<String> lexicalizeIfTag = null;
-    private static HashSet<String> lexicalizeIfWord = null;
-    private static HashSet<String> stopWord = null;
+    private static final HashSet<String> lexicalizeIfTag = new HashSet<String>();
+    private static final HashSet<String> lexicalizeIfWord = new HashSet<String>();
+    private static final HashSet<String> stopWord = new HashSet<String>();
 
     private PatternExtractor pattern_extractor;
 
-    public ArgSubstructureFeatureGenerator(Mode mode) {
-        this.mode = mode;
-        this.pattern_extractor = new PatternExtractor();
-        init();
-    }
-
-    private void init() {
+    static {
         // we use lexical features for these closed POS tag classes
-        lexicalizeIfTag = new HashSet<String>();
         lexicalizeIfTag.add("IN");
         lexicalizeIfTag.add("MD");
         lexicalizeIfTag.add("DT");
@@ -67,7 +60,6 @@ public class ArgSubstructureFeatureGenerator {
         lexicalizeIfTag.add("CC");
 
         // we use lexical features for these common words
-        lexicalizeIfWord = new HashSet<String>();
         lexicalizeIfWord.add("be");
         lexicalizeIfWord.add("been");
         lexicalizeIfWord.add("is");
@@ -89,11 +81,18 @@ public class ArgSubstructureFeatureGenerator {
         lexicalizeIfWord.add("say");
         lexicalizeIfWord.add("says");
 
-        stopWord = new HashSet<String>();
         stopWord.add("said");
         stopWord.add("say");
         stopWord.add("says");
+    }
 
+    public ArgSubstructureFeatureGenerator(Mode mode) {
+        this.mode = mode;
+        this.pattern_extractor = new PatternExtractor();
+        init();
+    }
+
+    private void init() {
         // regexp features -- same as Peng & McCallum
         patterns = new Vector<Pattern>();
         featureNames = new Vector<String>();
@@ -646,9 +645,9 @@ public class ArgSubstructureFeatureGenerator {
         return features;
     }
 
-    // Extract a list of features for this extraction
-    public String extractCRFFeatures(ChunkedExtraction extr, int argstart,
-            int argend, Boolean train) {
+    // Extract the features for this extraction, one vector per CRF position
+    public Vector<Vector<String>> extractCRFInstances(ChunkedExtraction extr,
+            int argstart, int argend, Boolean train) {
         Vector<PositionInstance> instances = createBaseInstances(extr,
                 argstart, argend, train);
         if (instances == null) {
@@ -659,7 +658,17 @@ public class ArgSubstructureFeatureGenerator {
         if (features.size() == 0) {
             return null;
         }
-        features = addPredicateFeatures(instances, features);
+        return addPredicateFeatures(instances, features);
+    }
+
+    // Extract a list of features for this extraction
+    public String extractCRFFeatures(ChunkedExtraction extr, int argstart,
+            int argend, Boolean train) {
+        Vector<Vector<String>> features = extractCRFInstances(extr, argstart,
+                argend, train);
+        if (features == null) {
+            return null;
+        }
 
         String featureString = convertInstancesToFeatures(features, train);
         return featureString;
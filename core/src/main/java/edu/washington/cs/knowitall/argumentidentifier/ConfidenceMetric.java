@@ -9,6 +9,7 @@ import edu.washington.cs.knowitall.extractor.conf.ConfidenceFunction;
 import edu.washington.cs.knowitall.extractor.conf.ConfidenceFunctionException;
 import edu.washington.cs.knowitall.extractor.conf.classifier.LogisticRegression;
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+import edu.washington.cs.knowitall.util.BinaryModels;
 
 /***
  * An extraction confidence function that uses a logistic regression classifier.
@@ -20,13 +21,14 @@ import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
  */
 
 public class ConfidenceMetric implements ConfidenceFunction {
-    private static URL MODEL_URL =
-            ConfidenceMetric.class.getResource("/r2a2-conf.weights");
+    private static final String MODEL_FILE = "/r2a2-conf.weights";
+    private static final URL MODEL_URL =
+            ConfidenceMetric.class.getResource(MODEL_FILE);
 
     private final LogisticRegression<ChunkedBinaryExtraction> logreg;
 
     public ConfidenceMetric() throws IOException {
-        this(MODEL_URL);
+        this(defaultModel());
     }
 
     public ConfidenceMetric(LogisticRegression<ChunkedBinaryExtraction> logreg) throws IOException {
@@ -34,13 +36,35 @@ public class ConfidenceMetric implements ConfidenceFunction {
     }
 
     public ConfidenceMetric(URL url) throws IOException {
+        this(loadModel(url));
+    }
+
+    /**
+     * Loads the default model, from its binary version when one is on the
+     * classpath.
+     */
+    private static LogisticRegression<ChunkedBinaryExtraction> defaultModel()
+            throws IOException {
+        URL binary = BinaryModels.findBinary(ConfidenceMetric.class, MODEL_FILE);
+        if (binary != null) {
+            return new LogisticRegression<ChunkedBinaryExtraction>(
+                    new ArgLearnerFeatureSet(),
+                    LogisticRegression.readBinaryFeatureWeightMap(BinaryModels
+                            .load(binary)));
+        } else {
+            return loadModel(MODEL_URL);
+        }
+    }
+
+    private static LogisticRegression<ChunkedBinaryExtraction> loadModel(URL url)
+            throws IOException {
         if (url == null) {
             throw new IllegalArgumentException("url cannot be null");
         }
 
         InputStream in = new BufferedInputStream(url.openStream());
         try {
-            this.logreg = new LogisticRegression<ChunkedBinaryExtraction>(new ArgLearnerFeatureSet(), in);
+            return new LogisticRegression<ChunkedBinaryExtraction>(new ArgLearnerFeatureSet(), in);
         }
         finally {
             in.close();
@@ -0,0 +1,372 @@
+package edu.washington.cs.knowitall.argumentidentifier;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import cc.mallet.fst.CRF;
+import cc.mallet.types.Alphabet;
+import cc.mallet.types.SparseVector;
+import edu.washington.cs.knowitall.util.BinaryModels;
+
+/**
+ * LinearChainCRF is a read-only copy of the parts of a MALLET CRF that are
+ * needed to decode with it. The transition weights are kept in one sparse row
+ * per input feature, so that scoring a transition does not need MALLET's
+ * sparse vectors, and a CRF read from a memory-mapped binary model uses the
+ * rows in place instead of copying them. The scores are added up in the same
+ * order as MALLET adds them, so decoding gives exactly the same results as
+ * the CRF it was built from.
+ */
+public class LinearChainCRF {
+    private static final String KIND = "crf";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final HashMap<String, Integer> featureIndices;
+    private final int numFeatures;
+
+    // the weights of feature f are the entries rowOffsets[f] to
+    // rowOffsets[f + 1], each the index of a weight vector and a non-zero
+    // weight in it
+    private final int numWeights;
+    private final double[] defaultWeights;
+    private final IntBuffer rowOffsets;
+    private final ByteBuffer rowWeightIndices;
+    private final DoubleBuffer rowWeights;
+
+    // indexed by state, and then by transition for the per-transition arrays
+    private final double[] initialWeights;
+    private final double[] finalWeights;
+    private final int[][] destinations;
+    private final String[][] labels;
+    private final int[][][] weightIndices;
+
+    private LinearChainCRF(HashMap<String, Integer> featureIndices,
+            double[] defaultWeights, IntBuffer rowOffsets,
+            ByteBuffer rowWeightIndices, DoubleBuffer rowWeights,
+            double[] initialWeights, double[] finalWeights,
+            int[][] destinations, String[][] labels, int[][][] weightIndices) {
+        this.featureIndices = featureIndices;
+        this.numFeatures = rowOffsets.limit() - 1;
+        this.numWeights = defaultWeights.length;
+        this.defaultWeights = defaultWeights;
+        this.rowOffsets = rowOffsets;
+        this.rowWeightIndices = rowWeightIndices;
+        this.rowWeights = rowWeights;
+        this.initialWeights = initialWeights;
+        this.finalWeights = finalWeights;
+        this.destinations = destinations;
+        this.labels = labels;
+        this.weightIndices = weightIndices;
+    }
+
+    /**
+     * @return the index of the given input feature, or -1 if the CRF has no
+     *         weights for it
+     */
+    public int getFeatureIndex(String feature) {
+        Integer index = featureIndices.get(feature);
+        return index == null ? -1 : index;
+    }
+
+    public int numFeatures() {
+        return numFeatures;
+    }
+
+    public int numWeights() {
+        return numWeights;
+    }
+
+    public int numStates() {
+        return initialWeights.length;
+    }
+
+    public double getInitialWeight(int state) {
+        return initialWeights[state];
+    }
+
+    public double getFinalWeight(int state) {
+        return finalWeights[state];
+    }
+
+    public int numTransitions(int state) {
+        return destinations[state].length;
+    }
+
+    public int getDestination(int state, int transition) {
+        return destinations[state][transition];
+    }
+
+    public String getLabel(int state, int transition) {
+        return labels[state][transition];
+    }
+
+    /**
+     * Computes the dot product of each weight vector with the input features
+     * at one position, which are shared by all the transitions at it.
+     *
+     * @param features
+     *            the feature indices at the position, sorted and without
+     *            duplicates
+     * @param dotProducts
+     *            set to the dot products, {@link #numWeights()} long
+     */
+    public void getDotProducts(int[] features, double[] dotProducts) {
+        Arrays.fill(dotProducts, 0, numWeights, 0);
+        for (int f : features) {
+            int end = rowOffsets.get(f + 1);
+            for (int l = rowOffsets.get(f); l < end; l++) {
+                dotProducts[rowWeightIndices.get(l) & 0xff] += rowWeights
+                        .get(l);
+            }
+        }
+    }
+
+    /**
+     * Scores a transition given the dot products at one position.
+     *
+     * @param dotProducts
+     *            computed by {@link #getDotProducts(int[], double[])}
+     */
+    public double getTransitionWeight(int state, int transition,
+            double[] dotProducts) {
+        double weight = 0;
+        for (int wi : weightIndices[state][transition]) {
+            weight += (dotProducts[wi] + defaultWeights[wi]);
+        }
+        return weight;
+    }
+
+    /**
+     * Copies the weights and the structure of a trained MALLET CRF.
+     */
+    public static LinearChainCRF fromCRF(CRF crf) {
+        Alphabet inputAlphabet = crf.getInputAlphabet();
+        int numFeatures = inputAlphabet.size();
+        HashMap<String, Integer> featureIndices = new HashMap<String, Integer>(
+                numFeatures * 4 / 3 + 1);
+        for (int f = 0; f < numFeatures; f++) {
+            featureIndices.put(inputAlphabet.lookupObject(f).toString(), f);
+        }
+
+        CRF.Factors parameters = crf.getParameters();
+        int numWeights = parameters.weights.length;
+        if (numWeights > 256) {
+            throw new IllegalArgumentException("Too many weight vectors: "
+                    + numWeights);
+        }
+        double[] defaultWeights = parameters.defaultWeights.clone();
+        double[] featureWeights = new double[numFeatures * numWeights];
+        for (int wi = 0; wi < numWeights; wi++) {
+            SparseVector weights = parameters.weights[wi];
+            for (int l = 0; l < weights.numLocations(); l++) {
+                int f = weights.indexAtLocation(l);
+                if (f < numFeatures) {
+                    featureWeights[f * numWeights + wi] = weights
+                            .valueAtLocation(l);
+                }
+            }
+        }
+        int numEntries = 0;
+        for (double weight : featureWeights) {
+            if (weight != 0) {
+                numEntries++;
+            }
+        }
+        IntBuffer rowOffsets = IntBuffer.allocate(numFeatures + 1);
+        ByteBuffer rowWeightIndices = ByteBuffer.allocate(numEntries);
+        DoubleBuffer rowWeights = DoubleBuffer.allocate(numEntries);
+        int l = 0;
+        for (int f = 0; f < numFeatures; f++) {
+            rowOffsets.put(f, l);
+            for (int wi = 0; wi < numWeights; wi++) {
+                double weight = featureWeights[f * numWeights + wi];
+                if (weight != 0) {
+                    rowWeightIndices.put(l, (byte) wi);
+                    rowWeights.put(l, weight);
+                    l++;
+                }
+            }
+        }
+        rowOffsets.put(numFeatures, l);
+
+        int numStates = crf.numStates();
+        double[] initialWeights = new double[numStates];
+        double[] finalWeights = new double[numStates];
+        int[][] destinations = new int[numStates][];
+        String[][] labels = new String[numStates][];
+        int[][][] weightIndices = new int[numStates][][];
+        for (int s = 0; s < numStates; s++) {
+            CRF.State state = (CRF.State) crf.getState(s);
+            initialWeights[s] = state.getInitialWeight();
+            finalWeights[s] = state.getFinalWeight();
+            int numTransitions = state.numDestinations();
+            destinations[s] = new int[numTransitions];
+            labels[s] = new String[numTransitions];
+            weightIndices[s] = new int[numTransitions][];
+            for (int t = 0; t < numTransitions; t++) {
+                destinations[s][t] = state.getDestinationState(t).getIndex();
+                labels[s][t] = state.getLabelName(t);
+                weightIndices[s][t] = weightIndicesOf(crf,
+                        state.getWeightNames(t));
+            }
+        }
+
+        return new LinearChainCRF(featureIndices, defaultWeights, rowOffsets,
+                rowWeightIndices, rowWeights, initialWeights, finalWeights,
+                destinations, labels, weightIndices);
+    }
+
+    private static int[] weightIndicesOf(CRF crf, String[] weightNames) {
+        int[] indices = new int[weightNames.length];
+        for (int i = 0; i < weightNames.length; i++) {
+            indices[i] = crf.getParameters().weightAlphabet.lookupIndex(
+                    weightNames[i], false);
+        }
+        return indices;
+    }
+
+    /**
+     * Writes the CRF in the binary model format. The input features are
+     * written in sorted order, each with its index and front-coded against
+     * the one before it, and the weights as they are kept in memory, so that
+     * {@link #read(ByteBuffer)} can use them in place.
+     *
+     * @param sourceKey
+     *            the key of the model the CRF was built from, see
+     *            {@link BinaryModels#writeHeader(DataOutputStream, String, long)}
+     */
+    public void write(DataOutputStream out, long sourceKey)
+            throws IOException {
+        BinaryModels.writeHeader(out, KIND, sourceKey);
+
+        String[] features = featureIndices.keySet().toArray(
+                new String[numFeatures]);
+        Arrays.sort(features);
+        out.writeInt(numFeatures);
+        byte[] previous = new byte[0];
+        for (String feature : features) {
+            byte[] bytes = feature.getBytes(UTF8);
+            int max = Math.min(255, Math.min(bytes.length, previous.length));
+            int shared = 0;
+            while (shared < max && bytes[shared] == previous[shared]) {
+                shared++;
+            }
+            if (bytes.length - shared > 0xffff) {
+                throw new IOException("Feature is too long: " + feature);
+            }
+            out.writeInt(featureIndices.get(feature));
+            out.writeByte(shared);
+            out.writeShort(bytes.length - shared);
+            out.write(bytes, shared, bytes.length - shared);
+            previous = bytes;
+        }
+
+        out.writeInt(numWeights);
+        for (double weight : defaultWeights) {
+            out.writeDouble(weight);
+        }
+        int numEntries = rowOffsets.get(numFeatures);
+        out.writeInt(numEntries);
+        for (int f = 0; f <= numFeatures; f++) {
+            out.writeInt(rowOffsets.get(f));
+        }
+        for (int l = 0; l < numEntries; l++) {
+            out.writeByte(rowWeightIndices.get(l));
+        }
+        // aligns the weights to 8 bytes from the start of the stream
+        int padding = (8 - (out.size() + 1) % 8) % 8;
+        out.writeByte(padding);
+        for (int i = 0; i < padding; i++) {
+            out.writeByte(0);
+        }
+        for (int l = 0; l < numEntries; l++) {
+            out.writeDouble(rowWeights.get(l));
+        }
+
+        out.writeInt(numStates());
+        for (int s = 0; s < numStates(); s++) {
+            out.writeDouble(initialWeights[s]);
+            out.writeDouble(finalWeights[s]);
+            out.writeInt(destinations[s].length);
+            for (int t = 0; t < destinations[s].length; t++) {
+                out.writeInt(destinations[s][t]);
+                BinaryModels.writeString(out, labels[s][t]);
+                out.writeInt(weightIndices[s][t].length);
+                for (int wi : weightIndices[s][t]) {
+                    out.writeInt(wi);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a CRF written by {@link #write(DataOutputStream, long)}. The
+     * weights are used in place, so those of a memory-mapped file are not
+     * copied; only the input features are read into memory.
+     */
+    public static LinearChainCRF read(ByteBuffer in) throws IOException {
+        BinaryModels.readHeader(in, KIND);
+
+        int numFeatures = in.getInt();
+        HashMap<String, Integer> featureIndices = new HashMap<String, Integer>(
+                numFeatures * 4 / 3 + 1);
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < numFeatures; i++) {
+            int index = in.getInt();
+            int shared = in.get() & 0xff;
+            int length = shared + (in.getShort() & 0xffff);
+            if (length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, length);
+            }
+            in.get(bytes, shared, length - shared);
+            featureIndices.put(new String(bytes, 0, length, UTF8), index);
+        }
+
+        int numWeights = in.getInt();
+        double[] defaultWeights = new double[numWeights];
+        for (int wi = 0; wi < numWeights; wi++) {
+            defaultWeights[wi] = in.getDouble();
+        }
+        int numEntries = in.getInt();
+        IntBuffer rowOffsets = BinaryModels.slice(in, (numFeatures + 1) * 4)
+                .asIntBuffer();
+        ByteBuffer rowWeightIndices = BinaryModels.slice(in, numEntries);
+        int padding = in.get() & 0xff;
+        in.position(in.position() + padding);
+        DoubleBuffer rowWeights = BinaryModels.slice(in, numEntries * 8)
+                .asDoubleBuffer();
+
+        int numStates = in.getInt();
+        double[] initialWeights = new double[numStates];
+        double[] finalWeights = new double[numStates];
+        int[][] destinations = new int[numStates][];
+        String[][] labels = new String[numStates][];
+        int[][][] weightIndices = new int[numStates][][];
+        for (int s = 0; s < numStates; s++) {
+            initialWeights[s] = in.getDouble();
+            finalWeights[s] = in.getDouble();
+            int numTransitions = in.getInt();
+            destinations[s] = new int[numTransitions];
+            labels[s] = new String[numTransitions];
+            weightIndices[s] = new int[numTransitions][];
+            for (int t = 0; t < numTransitions; t++) {
+                destinations[s][t] = in.getInt();
+                labels[s][t] = BinaryModels.readString(in);
+                weightIndices[s][t] = new int[in.getInt()];
+                for (int i = 0; i < weightIndices[s][t].length; i++) {
+                    weightIndices[s][t][i] = in.getInt();
+                }
+            }
+        }
+
+        return new LinearChainCRF(featureIndices, defaultWeights, rowOffsets,
+                rowWeightIndices, rowWeights, initialWeights, finalWeights,
+                destinations, labels, weightIndices);
+    }
+}
@@ -9,6 +9,7 @@ import java.util.regex.Pattern;
 import edu.washington.cs.knowitall.regex.Match;
 import edu.washington.cs.knowitall.regex.RegularExpression;
 import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
 import edu.washington.cs.knowitall.nlp.ChunkedSentencePattern;
 import edu.washington.cs.knowitall.nlp.ChunkedSentenceToken;
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
@@ -25,6 +26,7 @@ public class PatternExtractor {
     public static String ALPHA = "[A-Zçêòéñìa-z]";
     public static String ALPHANUM = "[A-Zçêòéñìa-z0-9]";
     public static String PUNT = "[,\\.;:?!()-]";
+    private static final Pattern puntPattern = Pattern.compile(PUNT);
 
     public static String np = "(?:<chunk='B-NP'> <chunk='I-NP'>*)";
     public static String vp = "(?:<chunk='B-VP'> <chunk='I-VP'>* <chunk='B-PRT'>?)";
@@ -47,18 +49,59 @@ public class PatternExtractor {
     public static String vp_np = "(?:" + advp + "? " + vp + " (?:" + pp_np2
             + " (?:<string=','>? <pos='CC'>? " + pp_np2 + ")*)*)";
 
-    private HashMap<String, String> patternMapArg1 = new HashMap<String, String>();
-    private HashMap<String, RegularExpression<ChunkedSentenceToken>> compiledPatternMapArg1 = new HashMap<String, RegularExpression<ChunkedSentenceToken>>();
+    private static final HashMap<String, String> patternMapArg1 = new HashMap<String, String>();
+    private static final HashMap<String, CompiledPattern> compiledPatternMapArg1 = new HashMap<String, CompiledPattern>();
 
-    private HashMap<String, String> patternMapArg2 = new HashMap<String, String>();
-    private HashMap<String, RegularExpression<ChunkedSentenceToken>> compiledPatternMapArg2 = new HashMap<String, RegularExpression<ChunkedSentenceToken>>();
+    private static final HashMap<String, String> patternMapArg2 = new HashMap<String, String>();
+    private static final HashMap<String, CompiledPattern> compiledPatternMapArg2 = new HashMap<String, CompiledPattern>();
 
-    public PatternExtractor() {
+    // the patterns are compiled once and shared, as they are never modified
+    static {
         initPatternMap();
         initCompiledPatternMap();
     }
 
-    private void initPatternMap() {
+    /**
+     * The match results for the sentence each thread is currently working
+     * on, see {@link #matches(ChunkedSentence, int, int, String, boolean)}.
+     */
+    private static final ThreadLocal<SentenceMatches> currentSentence = new ThreadLocal<SentenceMatches>();
+
+    /**
+     * A compiled pattern, numbered so that its results can be remembered.
+     */
+    private static class CompiledPattern {
+        final int id;
+        final RegularExpression<ChunkedSentenceToken> regex;
+
+        CompiledPattern(int id, RegularExpression<ChunkedSentenceToken> regex) {
+            this.id = id;
+            this.regex = regex;
+        }
+    }
+
+    /**
+     * The tokens of one sentence and the results of matching patterns against
+     * ranges of them, keyed by pattern and range.
+     */
+    private static class SentenceMatches {
+        final ChunkedSentence sentence;
+        final List<ChunkedSentenceToken> tokens;
+        final HashMap<Long, Boolean> results = new HashMap<Long, Boolean>();
+
+        SentenceMatches(ChunkedSentence sentence) {
+            this.sentence = sentence;
+            this.tokens = ChunkedSentenceToken.tokenize(sentence, new Range(0,
+                    sentence.getLength()));
+        }
+
+        Long key(CompiledPattern pattern, int start, int end) {
+            long n = tokens.size() + 1;
+            return (pattern.id * n + start) * n + end;
+        }
+    }
+
+    private static void initPatternMap() {
         patternMapArg1.put("between_commas", "<>* " + comma + " <>* " + comma
                 + " <>*");
         patternMapArg1.put("between_quotes",
@@ -224,14 +267,15 @@ public class PatternExtractor {
 
     }
 
-    private void initCompiledPatternMap() {
+    private static void initCompiledPatternMap() {
+        int id = 0;
         Set<String> keys = patternMapArg1.keySet();
         Iterator<String> iter = keys.iterator();
         while (iter.hasNext()) {
             String key = iter.next();
             String pattern = patternMapArg1.get(key);
-            compiledPatternMapArg1.put(key,
-                    ChunkedSentencePattern.compile(pattern));
+            compiledPatternMapArg1.put(key, new CompiledPattern(id++,
+                    ChunkedSentencePattern.compile(pattern)));
         }
 
         keys = patternMapArg2.keySet();
@@ -239,27 +283,22 @@ public class PatternExtractor {
         while (iter.hasNext()) {
             String key = iter.next();
             String pattern = patternMapArg2.get(key);
-            compiledPatternMapArg2.put(key,
-                    ChunkedSentencePattern.compile(pattern));
+            compiledPatternMapArg2.put(key, new CompiledPattern(id++,
+                    ChunkedSentencePattern.compile(pattern)));
         }
     }
 
     public boolean prevStop(ChunkedExtraction extr, int current) {
 
-        if (!matches(ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(0, extr.getStart())),
-                "between_commas", true)
-                && !matches(
-                        ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(0, extr.getStart())),
-                        "between_quotes", true)) {
+        ChunkedSentence sent = extr.getSentence();
+        if (!matches(sent, 0, extr.getStart(), "between_commas", true)
+                && !matches(sent, 0, extr.getStart(), "between_quotes", true)) {
             if ((!extr.getSentence().getPosTag(current).equals("WDT")
                     && !extr.getSentence().getPosTag(current).equals("WRB")
                     && !extr.getSentence().getPosTag(current).equals("WP") && matches(
-                        ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(0, current + 1)),
-                        "double_np", true))
-                    || matches(ChunkedSentenceToken.tokenize(extr.getSentence(),
-                            new Range(0, current + 1)), "if", true)
-                    || matches(ChunkedSentenceToken.tokenize(extr.getSentence(),
-                            new Range(0, current + 1)), "verb_np", true)) {
+                        sent, 0, current + 1, "double_np", true))
+                    || matches(sent, 0, current + 1, "if", true)
+                    || matches(sent, 0, current + 1, "verb_np", true)) {
                 return true;
             }
         }
@@ -280,16 +319,19 @@ public class PatternExtractor {
     }
 
     public int getPunctuationCount(ChunkedExtraction extr, int current) {
-        Pattern punt_pattern = Pattern.compile(PUNT);
         int punctuation_count = 0;
         for (int i = extr.getStart() - 1; i >= current; i--) {
-            if (punt_pattern.matcher(extr.getSentence().getToken(i)).matches()) {
+            if (isPunctuation(extr.getSentence().getToken(i))) {
                 punctuation_count++;
             }
         }
         return punctuation_count;
     }
 
+    public static boolean isPunctuation(String token) {
+        return puntPattern.matcher(token).matches();
+    }
+
     public boolean getCapitalized(ChunkedExtraction extr, int current) {
         char first = extr.getSentence().getToken(current).charAt(0);
         if (first > 64 && first < 91) {
@@ -410,17 +452,15 @@ public class PatternExtractor {
         if (!extr.getSentence().getChunkTag(current).equals("B-NP")) {
             return false;
         }
-        int length = extr.getStart() - current;
-        if (matches(ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(current, length)),
-                "app_3", true)) {
+        if (matches(extr.getSentence(), current, extr.getStart(), "app_3",
+                true)) {
             return true;
         }
         return false;
     }
 
     public boolean matchesRelativeClause(ChunkedExtraction extr, int argend) {
-        if (matches(ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(0, argend)),
-                "relative_clause", true)
+        if (matches(extr.getSentence(), 0, argend, "relative_clause", true)
                 && !(extr.getSentence().getChunkTag(argend - 1).contains("NP") && extr
                         .getSentence().getChunkTag(argend).equals("B-VP"))) {
             return true;
@@ -444,26 +484,23 @@ public class PatternExtractor {
             return false;
         }
         int length = extr.getSentence().getLength();
-        if (matches(ChunkedSentenceToken.tokenize(extr.getSentence().getSubSequence(0, length)), "statement",
-                true)) {
+        if (matches(extr.getSentence(), 0, length, "statement", true)) {
             return true;
         }
         return false;
     }
 
     public boolean matchesAppositiveStrict(ChunkedExtraction extr) {
-        if (matches(
-                ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(extr.getStart(),
-                        extr.getLength())), "app_strict", true)) {
+        if (matches(extr.getSentence(), extr.getStart(), extr.getStart()
+                + extr.getLength(), "app_strict", true)) {
             return true;
         }
         return false;
     }
 
     public boolean matchesListStrict(ChunkedExtraction extr) {
-        if (matches(
-                ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(extr.getStart(),
-                        extr.getLength())), "list_1", true)
+        if (matches(extr.getSentence(), extr.getStart(), extr.getStart()
+                + extr.getLength(), "list_1", true)
                 && !extr.getSentence()
                         .getSubSequence(extr.getStart(), extr.getLength())
                         .getPosTagsAsString().contains("IN")) {
@@ -479,13 +516,10 @@ public class PatternExtractor {
                                 .contains("PP")
                         || extr.getSentence().getPosTag(current).contains(",") || extr
                         .getSentence().getPosTag(current).contains("CC"))) {
-            int length = argend - current;
-            if ((matches(ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(current, length)),
-                    "list_1", true)
-                    || matches(
-                            ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(current, length)),
-                            "list_3", true) || matches(ChunkedSentenceToken.tokenize(extr.getSentence(),
-                    new Range(current, length)), "list_2", true))
+            ChunkedSentence sent = extr.getSentence();
+            if ((matches(sent, current, argend, "list_1", true)
+                    || matches(sent, current, argend, "list_3", true) || matches(
+                        sent, current, argend, "list_2", true))
                     && (current == 0
                             || extr.getSentence().getChunkTag(current)
                                     .equals(",")
@@ -504,8 +538,7 @@ public class PatternExtractor {
     }
 
     public boolean matchesObj(ChunkedExtraction extr, int current) {
-        int length = current + 1;
-        if ((matches(ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(0, length)), "obj", true))) {
+        if ((matches(extr.getSentence(), 0, current + 1, "obj", true))) {
             return true;
         }
         return false;
@@ -551,21 +584,44 @@ public class PatternExtractor {
     }
 
     public boolean vpStartsWithTo(ChunkedExtraction extr, int current) {
-        int length = extr.getStart() - current;
-        return (matches(ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(current, length)),
+        return (matches(extr.getSentence(), current, extr.getStart(),
                 "to_verb", true));
     }
 
     public boolean matchesVerbConjSimple(ChunkedExtraction extr, int current) {
-        if ((matches(
-                ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(current,
-                        extr.getStart() - current)), "verb_conj_simple1", true))) {
+        return matchesVerbConjSimple(extr, current,
+                sentenceTokens(extr.getSentence()));
+    }
+
+    /**
+     * Same as <code>matchesVerbConjSimple(extr, current)</code>, matching
+     * against a sublist of the tokens of the whole sentence.
+     */
+    public boolean matchesVerbConjSimple(ChunkedExtraction extr, int current,
+            List<ChunkedSentenceToken> sentenceTokens) {
+        if ((matches(sentenceTokens.subList(current, extr.getStart()),
+                "verb_conj_simple1", true))) {
             return true;
         }
         return false;
     }
 
     public boolean matchesAppositiveClause(ChunkedExtraction extr, int current) {
+        int i = getAppositiveStart(extr, current);
+        if (i < 0) {
+            return false;
+        }
+        return matchesAppositiveClauseAt(extr, i,
+                sentenceTokens(extr.getSentence()));
+    }
+
+    /**
+     * Finds the start of the noun phrase preceding the closest comma before
+     * <code>current</code>.
+     *
+     * @return the start of the noun phrase, or -1 if there is none
+     */
+    public int getAppositiveStart(ChunkedExtraction extr, int current) {
         // check if there's a comma before the next np
         int i = current - 1;
         boolean notseencomma = true;
@@ -580,42 +636,77 @@ public class PatternExtractor {
 
         if (i < 0 || notseencomma
                 || !extr.getSentence().getChunkTag(i).equals("B-NP")) {
-            return false;
+            return -1;
         }
+        return i;
+    }
 
-        int length = extr.getStart() - i;
-        if (matches(ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(i, length)), "app_1", true)
-                || matches(ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(i, length)),
-                        "app_2", true)) {
+    /**
+     * Checks whether the tokens from <code>start</code> up to the predicate
+     * form an appositive clause.
+     */
+    public boolean matchesAppositiveClauseAt(ChunkedExtraction extr,
+            int start, List<ChunkedSentenceToken> sentenceTokens) {
+        List<ChunkedSentenceToken> tocheck = sentenceTokens.subList(start,
+                extr.getStart());
+        if (matches(tocheck, "app_1", true) || matches(tocheck, "app_2", true)) {
             return true;
         }
         return false;
     }
 
     public boolean simpleSubj(ChunkedExtraction extr, int i) {
+        return simpleSubj(extr, i,
+                sentenceTokens(extr.getSentence()));
+    }
+
+    /**
+     * Same as <code>simpleSubj(extr, i)</code>, matching against a sublist of
+     * the tokens of the whole sentence.
+     */
+    public boolean simpleSubj(ChunkedExtraction extr, int i,
+            List<ChunkedSentenceToken> sentenceTokens) {
         if (!extr.getSentence().getPosTag(i).startsWith("W")
-                && (matches(
-                        ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(i,
-                                extr.getStart() - i)), "subj_simple", true))) {
+                && (matches(sentenceTokens.subList(i, extr.getStart()),
+                        "subj_simple", true))) {
             return true;
         }
         return false;
     }
 
     public boolean quotesSubj(ChunkedExtraction extr, int i) {
-        if (matches(ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(i, extr.getStart() - i)),
-                "subj_quotes1", true)
-                || matches(
-                        ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(i,
-                                extr.getStart() - i)), "subj_quotes2", true)) {
+        return quotesSubj(extr, i,
+                sentenceTokens(extr.getSentence()));
+    }
+
+    /**
+     * Same as <code>quotesSubj(extr, i)</code>, matching against a sublist of
+     * the tokens of the whole sentence.
+     */
+    public boolean quotesSubj(ChunkedExtraction extr, int i,
+            List<ChunkedSentenceToken> sentenceTokens) {
+        List<ChunkedSentenceToken> tocheck = sentenceTokens.subList(i,
+                extr.getStart());
+        if (matches(tocheck, "subj_quotes1", true)
+                || matches(tocheck, "subj_quotes2", true)) {
             return true;
         }
         return false;
     }
 
     public boolean relSubj(ChunkedExtraction extr, int i) {
-        if (matches(ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(i, extr.getStart() - i)),
-                "subj_rel", true)) {
+        return relSubj(extr, i,
+                sentenceTokens(extr.getSentence()));
+    }
+
+    /**
+     * Same as <code>relSubj(extr, i)</code>, matching against a sublist of the
+     * tokens of the whole sentence.
+     */
+    public boolean relSubj(ChunkedExtraction extr, int i,
+            List<ChunkedSentenceToken> sentenceTokens) {
+        if (matches(sentenceTokens.subList(i, extr.getStart()), "subj_rel",
+                true)) {
             return true;
         }
         return false;
@@ -631,25 +722,15 @@ public class PatternExtractor {
             index++;
         }
         while (i > -1) {
-            int start = i;
-            int length = extr.getStart() - i;
-            if ((matches(ChunkedSentenceToken.tokenize(extr.getSentence(),
-                    new Range(start, length)), "subj_4", true))
+            ChunkedSentence sent = extr.getSentence();
+            int end = extr.getStart();
+            if ((matches(sent, i, end, "subj_4", true))
                     || (extr.getSentence().getPosTag(extr.getStart())
                             .equals("VBN")
-                            && (matches(ChunkedSentenceToken.tokenize(
-                                    extr.getSentence(),
-                                    new Range(start, length)), "subj_6", true)) || (npcount < 1
-                            && (matches(ChunkedSentenceToken.tokenize(
-                                    extr.getSentence(),
-                                    new Range(start, length)), "subj_5a", true))
-                            || (matches(ChunkedSentenceToken.tokenize(
-                                    extr.getSentence(),
-                                    new Range(start, length)), "subj_5b", true)) || (matches(
-                                ChunkedSentenceToken.tokenize(extr
-                                        .getSentence(),
-                                        new Range(start, length)), "subj_5c",
-                                true))))) {
+                            && (matches(sent, i, end, "subj_6", true)) || (npcount < 1
+                            && (matches(sent, i, end, "subj_5a", true))
+                            || (matches(sent, i, end, "subj_5b", true)) || (matches(
+                                sent, i, end, "subj_5c", true))))) {
                 return true;
             }
             i--;
@@ -658,54 +739,56 @@ public class PatternExtractor {
     }
 
     public boolean appClause(ChunkedExtraction extr, int current) {
-        List<ChunkedSentenceToken> tocheck = ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(current,
-                extr.getSentence().getLength() - current));
+        ChunkedSentence sent = extr.getSentence();
+        int end = sent.getLength();
         // matches pattern
-        if (matches(tocheck, "app_1", false)
-                || matches(tocheck, "app_2", false)) {
+        if (matches(sent, current, end, "app_1", false)
+                || matches(sent, current, end, "app_2", false)) {
             return true;
         }
         return false;
     }
 
     public boolean vbgIsNext(ChunkedExtraction extr, int current) {
-        List<ChunkedSentenceToken> tocheck = ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(current,
-                extr.getSentence().getLength() - current));
+        ChunkedSentence sent = extr.getSentence();
+        int end = sent.getLength();
         // matches pattern
-        if (matches(tocheck, "vbg_1", false)
-                || matches(tocheck, "vbg_2", false)) {
+        if (matches(sent, current, end, "vbg_1", false)
+                || matches(sent, current, end, "vbg_2", false)) {
             return true;
         }
         return false;
     }
 
     public boolean relClause(ChunkedExtraction extr, int current) {
-        List<ChunkedSentenceToken> tocheck = ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(current,
-                extr.getSentence().getLength() - current));
+        ChunkedSentence sent = extr.getSentence();
+        int end = sent.getLength();
         // matches pattern
-        if (matches(tocheck, "relclause1", false)
-                || matches(tocheck, "relclause2", false)
-                || matches(tocheck, "relclause3", false)) {
+        if (matches(sent, current, end, "relclause1", false)
+                || matches(sent, current, end, "relclause2", false)
+                || matches(sent, current, end, "relclause3", false)) {
             return true;
         }
         return false;
     }
 
     public boolean ifClause(ChunkedExtraction extr) {
-        List<ChunkedSentenceToken> tocheck = getChunkedSentenceFromPredEnd(extr);
+        ChunkedSentence sent = extr.getSentence();
+        int start = getPredEnd(extr);
         // matches pattern
-        if (matches(tocheck, "ifclause1", false)
-                || matches(tocheck, "ifclause2", false)) {
+        if (matches(sent, start, sent.getLength(), "ifclause1", false)
+                || matches(sent, start, sent.getLength(), "ifclause2", false)) {
             return true;
         }
         return false;
     }
 
     public boolean compoundVerb(ChunkedExtraction extr) {
-        List<ChunkedSentenceToken> tocheck = getChunkedSentenceFromPredEnd(extr);
+        ChunkedSentence sent = extr.getSentence();
+        int start = getPredEnd(extr);
         // matches pattern
-        if (matches(tocheck, "compound1", false)
-                || matches(tocheck, "compound2", false)) {
+        if (matches(sent, start, sent.getLength(), "compound1", false)
+                || matches(sent, start, sent.getLength(), "compound2", false)) {
             return true;
         }
         return false;
@@ -713,10 +796,11 @@ public class PatternExtractor {
 
     public boolean startsList(ChunkedExtraction extr) {
         // find start of pattern
-        List<ChunkedSentenceToken> tocheck = getChunkedSentenceFromPredEnd(extr);
+        ChunkedSentence sent = extr.getSentence();
+        int start = getPredEnd(extr);
         // matches pattern
-        if (matches(tocheck, "list1", false)
-                || matches(tocheck, "list3", false)) {
+        if (matches(sent, start, sent.getLength(), "list1", false)
+                || matches(sent, start, sent.getLength(), "list3", false)) {
             return true;
         }
         return false;
@@ -724,9 +808,10 @@ public class PatternExtractor {
 
     public boolean adjRelation(ChunkedExtraction extr) {
         // find start of pattern
-        List<ChunkedSentenceToken> tocheck = getChunkedSentenceFromPred(extr);
+        ChunkedSentence sent = extr.getSentence();
+        int start = getPredVerbStart(extr);
         // matches pattern
-        if (matches(tocheck, "adj_relation", false)) {
+        if (matches(sent, start, sent.getLength(), "adj_relation", false)) {
             return true;
         }
         return false;
@@ -734,9 +819,10 @@ public class PatternExtractor {
 
     public boolean objNestedClause(ChunkedExtraction extr) {
         // find start of pattern
-        List<ChunkedSentenceToken> tocheck = getChunkedSentenceFromPred(extr);
+        ChunkedSentence sent = extr.getSentence();
+        int start = getPredVerbStart(extr);
         // matches pattern
-        if (matches(tocheck, "objNestedClause", false)) {
+        if (matches(sent, start, sent.getLength(), "objNestedClause", false)) {
             return true;
         }
         return false;
@@ -744,10 +830,11 @@ public class PatternExtractor {
 
     public boolean complementClause(ChunkedExtraction extr) {
         // find start of pattern
-        List<ChunkedSentenceToken> tocheck = getChunkedSentenceFromPred(extr);
+        ChunkedSentence sent = extr.getSentence();
+        int start = getPredVerbStart(extr);
         // matches pattern
-        if (matches(tocheck, "complement_clause1", false)
-                || matches(tocheck, "complement_clause2", false)) {
+        if (matches(sent, start, sent.getLength(), "complement_clause1", false)
+                || matches(sent, start, sent.getLength(), "complement_clause2", false)) {
             return true;
         }
         return false;
@@ -756,9 +843,10 @@ public class PatternExtractor {
 
     public boolean npInfinitiveClause(ChunkedExtraction extr) {
         // find start of pattern
-        List<ChunkedSentenceToken> tocheck = getChunkedSentenceFromPred(extr);
+        ChunkedSentence sent = extr.getSentence();
+        int start = getPredVerbStart(extr);
         // matches pattern
-        if (matches(tocheck, "np_infinitive_clause", false)) {
+        if (matches(sent, start, sent.getLength(), "np_infinitive_clause", false)) {
             return true;
         }
         return false;
@@ -767,9 +855,10 @@ public class PatternExtractor {
 
     public boolean infinitiveClause(ChunkedExtraction extr) {
         // find start of pattern
-        List<ChunkedSentenceToken> tocheck = getChunkedSentenceFromPred(extr);
+        ChunkedSentence sent = extr.getSentence();
+        int start = getPredVerbStart(extr);
         // matches pattern
-        if (matches(tocheck, "infinitive_clause", false)) {
+        if (matches(sent, start, sent.getLength(), "infinitive_clause", false)) {
             return true;
         }
         return false;
@@ -777,10 +866,11 @@ public class PatternExtractor {
 
     public boolean doubleNP(ChunkedExtraction extr) {
         // find start of pattern
-        List<ChunkedSentenceToken> tocheck = getChunkedSentenceFromPredEnd(extr);
+        ChunkedSentence sent = extr.getSentence();
+        int start = getPredEnd(extr);
         // matches pattern
-        if (matches(tocheck, "double_np1", false)
-                && !matches(tocheck, "double_np2", false)) {
+        if (matches(sent, start, sent.getLength(), "double_np1", false)
+                && !matches(sent, start, sent.getLength(), "double_np2", false)) {
             return true;
         }
         return false;
@@ -788,9 +878,10 @@ public class PatternExtractor {
 
     public boolean nestedRelation1(ChunkedExtraction extr) {
         // find start of pattern
-        List<ChunkedSentenceToken> tocheck = getChunkedSentenceFromPred(extr);
+        ChunkedSentence sent = extr.getSentence();
+        int start = getPredVerbStart(extr);
         // matches pattern
-        if (matches(tocheck, "nested_relation1", false)) {
+        if (matches(sent, start, sent.getLength(), "nested_relation1", false)) {
             int count = 0;
             for (int i = extr.getStart(); i < extr.getStart()
                     + extr.getLength(); i++) {
@@ -808,12 +899,13 @@ public class PatternExtractor {
 
     public boolean nestedRelation2(ChunkedExtraction extr) {
         // find start of pattern
-        List<ChunkedSentenceToken> tocheck = getChunkedSentenceFromPred(extr);
+        ChunkedSentence sent = extr.getSentence();
+        int start = getPredVerbStart(extr);
         // matches pattern
-        if (matches(tocheck, "nested_relation2", false)) {
+        if (matches(sent, start, sent.getLength(), "nested_relation2", false)) {
             return true;
         }
-        if (matches(tocheck, "nested_relation1", false)
+        if (matches(sent, start, sent.getLength(), "nested_relation1", false)
                 && !complementClause(extr)) {
             int count = 0;
             for (int i = extr.getStart(); i < extr.getStart()
@@ -832,9 +924,10 @@ public class PatternExtractor {
 
     public boolean npRelativeClause(ChunkedExtraction extr) {
         // find start of pattern
-        List<ChunkedSentenceToken> tocheck = getChunkedSentenceFromPred(extr);
+        ChunkedSentence sent = extr.getSentence();
+        int start = getPredVerbStart(extr);
         // match patterns
-        if (matches(tocheck, "relative_clause", false)) {
+        if (matches(sent, start, sent.getLength(), "relative_clause", false)) {
             return true;
         }
         return false;
@@ -855,13 +948,11 @@ public class PatternExtractor {
         if (start < 0) {
             return false;
         }
-        int length = extr.getSentence().getLength() - start;
-        List<ChunkedSentenceToken> tocheck = ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(start,
-                length));
+        ChunkedSentence sent = extr.getSentence();
 
         // match patterns
-        boolean matches1 = matches(tocheck, "np_list", false);
-        boolean matches2 = matches(tocheck, "np_list_cc", false);
+        boolean matches1 = matches(sent, start, sent.getLength(), "np_list", false);
+        boolean matches2 = matches(sent, start, sent.getLength(), "np_list_cc", false);
         if (matches1 || matches2) {
             innplist = true;
         }
@@ -870,6 +961,23 @@ public class PatternExtractor {
 
     public static List<ChunkedSentenceToken> getChunkedSentenceFromPred(
             ChunkedExtraction extr) {
+        int start = getPredVerbStart(extr);
+        int end = extr.getSentence().getLength();
+        return ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(start, end - start));
+    }
+
+    public static List<ChunkedSentenceToken> getChunkedSentenceFromPredEnd(
+            ChunkedExtraction extr) {
+        int start = getPredEnd(extr);
+        int end = extr.getSentence().getLength();
+        return ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(start, end - start));
+    }
+
+    /**
+     * @return the index of the last verb token in the predicate, or the start
+     *         of the predicate if it has none
+     */
+    private static int getPredVerbStart(ChunkedExtraction extr) {
         int pred_start_orig = extr.getStart();
         int start = pred_start_orig;
         for (int i = pred_start_orig; i < pred_start_orig + extr.getLength(); i++) {
@@ -878,27 +986,86 @@ public class PatternExtractor {
                 start = i;
             }
         }
-        int end = extr.getSentence().getLength();
-        return ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(start, end - start));
+        return start;
     }
 
-    public static List<ChunkedSentenceToken> getChunkedSentenceFromPredEnd(
-            ChunkedExtraction extr) {
-        int start = extr.getStart() + extr.getLength();
-        int end = extr.getSentence().getLength();
-        return ChunkedSentenceToken.tokenize(extr.getSentence(), new Range(start, end - start));
+    private static int getPredEnd(ChunkedExtraction extr) {
+        return extr.getStart() + extr.getLength();
     }
 
+    /**
+     * Matches a pattern against the given tokens, which must be consecutive
+     * tokens of one sentence, as returned by
+     * <code>ChunkedSentenceToken.tokenize</code>.
+     */
     public boolean matches(List<ChunkedSentenceToken> tokens, String type, boolean arg1) {
-        Match<ChunkedSentenceToken> match;
+        if (!tokens.isEmpty()) {
+            ChunkedSentenceToken first = tokens.get(0);
+            ChunkedSentenceToken last = tokens.get(tokens.size() - 1);
+            if (first.ChunkedSentence == last.ChunkedSentence
+                    && last.index - first.index == tokens.size() - 1) {
+                return matches(first.ChunkedSentence, first.index,
+                        last.index + 1, type, arg1);
+            }
+        }
+        return match(tokens, type, arg1);
+    }
+
+    /**
+     * Matches a pattern against the tokens of a sentence from
+     * <code>start</code> up to <code>end</code>.
+     *
+     * The results are remembered for the last sentence matched against on the
+     * current thread, so the features of a sentence can ask the same question
+     * about the same range as often as they like while only running the
+     * pattern once. They are thrown away when the thread moves on to another
+     * sentence.
+     */
+    public boolean matches(ChunkedSentence sent, int start, int end,
+            String type, boolean arg1) {
+        SentenceMatches sentence = sentenceMatches(sent);
+        Long key = sentence.key(getPattern(type, arg1), start, end);
+        Boolean result = sentence.results.get(key);
+        if (result == null) {
+            result = match(sentence.tokens.subList(start, end), type, arg1);
+            sentence.results.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Matches a pattern against the given tokens without remembering the
+     * result.
+     */
+    boolean match(List<ChunkedSentenceToken> tokens, String type, boolean arg1) {
+        Match<ChunkedSentenceToken> match = getPattern(type, arg1).regex
+                .match(tokens);
+        return match != null;
+    }
+
+    private static CompiledPattern getPattern(String type, boolean arg1) {
         if (arg1) {
-            match = compiledPatternMapArg1.get(type).match(
-                    tokens);
+            return compiledPatternMapArg1.get(type);
         } else {
-            match = compiledPatternMapArg2.get(type).match(
-                    tokens);
+            return compiledPatternMapArg2.get(type);
         }
-        return match != null;
+    }
+
+    private static SentenceMatches sentenceMatches(ChunkedSentence sent) {
+        SentenceMatches sentence = currentSentence.get();
+        if (sentence == null || sentence.sentence != sent) {
+            sentence = new SentenceMatches(sent);
+            currentSentence.set(sentence);
+        }
+        return sentence;
+    }
+
+    /**
+     * @return the tokens of the whole sentence
+     */
+    private static List<ChunkedSentenceToken> sentenceTokens(
+            ChunkedSentence sent) {
+        return sentenceMatches(sent).tokens;
     }
 
     public static boolean inNPList(ChunkedExtraction extr, int current) {
@@ -0,0 +1,124 @@
+package edu.washington.cs.knowitall.argumentidentifier;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.net.URL;
+
+import cc.mallet.fst.CRF;
+import edu.washington.cs.knowitall.extractor.conf.classifier.DecisionTree;
+import edu.washington.cs.knowitall.extractor.conf.classifier.LogisticRegression;
+import edu.washington.cs.knowitall.util.BinaryModels;
+
+/**
+ * Converts the R2A2 models to the binary model format. The binary files are
+ * named after the models they were built from, with a ".bin" suffix, and are
+ * used instead of them when they are on the classpath next to them, unless
+ * the models have changed since they were converted.
+ */
+public class R2A2ModelConverter {
+
+    private final File modelDir;
+
+    /**
+     * @param modelDir
+     *            the directory to read the models from, or null to read them
+     *            from the classpath
+     */
+    public R2A2ModelConverter(File modelDir) {
+        this.modelDir = modelDir;
+    }
+
+    private URL locate(String name) throws IOException {
+        URL url;
+        if (modelDir != null) {
+            File file = new File(modelDir, name);
+            url = file.exists() ? file.toURI().toURL() : null;
+        } else {
+            url = R2A2ModelConverter.class.getResource("/" + name);
+        }
+        if (url == null) {
+            throw new FileNotFoundException("Could not find model: " + name);
+        }
+        return url;
+    }
+
+    public LinearChainCRF convertCRF(String name) throws IOException {
+        ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+                locate(name).openStream()));
+        try {
+            return LinearChainCRF.fromCRF((CRF) in.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Could not read CRF " + name + ": " + e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Converts all of the R2A2 models and writes them to the given directory.
+     */
+    public void convertAll(File outputDir) throws IOException {
+        for (String name : new String[] { "arg1substructure-model",
+                "arg2substructure-model" }) {
+            DataOutputStream out = open(outputDir, name);
+            try {
+                convertCRF(name).write(out,
+                        BinaryModels.sourceKey(locate(name)));
+            } finally {
+                out.close();
+            }
+        }
+
+        String tree = "r2a2-arg1loc.tree";
+        DataOutputStream out = open(outputDir, tree);
+        try {
+            DecisionTree.fromModel(locate(tree)).writeBinary(out,
+                    BinaryModels.sourceKey(locate(tree)));
+        } finally {
+            out.close();
+        }
+
+        String weights = "r2a2-conf.weights";
+        InputStream in = locate(weights).openStream();
+        out = open(outputDir, weights);
+        try {
+            LogisticRegression.writeBinaryFeatureWeightMap(
+                    LogisticRegression.buildFeatureWeightMap(in), out,
+                    BinaryModels.sourceKey(locate(weights)));
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    private static DataOutputStream open(File outputDir, String name)
+            throws IOException {
+        File file = new File(outputDir, name + BinaryModels.SUFFIX);
+        System.err.println("Writing " + file);
+        return new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file)));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: R2A2ModelConverter OUTPUT_DIR [MODEL_DIR]");
+            System.err.println("Converts the R2A2 models in MODEL_DIR (or on the classpath) "
+                    + "to the binary model format.");
+            System.exit(1);
+        }
+
+        File outputDir = new File(args[0]);
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Could not create directory: " + outputDir);
+        }
+        File modelDir = args.length > 1 ? new File(args[1]) : null;
+        new R2A2ModelConverter(modelDir).convertAll(outputDir);
+    }
+}
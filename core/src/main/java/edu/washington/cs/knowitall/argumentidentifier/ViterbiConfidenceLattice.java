@@ -0,0 +1,227 @@
+package edu.washington.cs.knowitall.argumentidentifier;
+
+import cc.mallet.fst.Transducer;
+import cc.mallet.util.search.AStar;
+import cc.mallet.util.search.AStarNode;
+import cc.mallet.util.search.AStarState;
+import cc.mallet.util.search.SearchState;
+
+/**
+ * ViterbiConfidenceLattice decodes an input sequence with a CRF and scores the
+ * decoded sequence in a single pass over the lattice. It computes the same
+ * output as MALLET's <code>Transducer.transduce</code> and the same confidence
+ * as <code>ViterbiConfidenceEstimator</code>, but the transition weights at
+ * each position are only computed once and shared by the Viterbi and the
+ * forward recursions.
+ */
+public class ViterbiConfidenceLattice {
+    private final LinearChainCRF crf;
+    private final int latticeLength;
+    private final LatticeNode[][] nodes;
+    private final double[][][] weights;
+
+    private double totalWeight = Transducer.IMPOSSIBLE_WEIGHT;
+    private double viterbiWeight = Transducer.IMPOSSIBLE_WEIGHT;
+    private String[] output;
+
+    /**
+     * @param input
+     *            the feature indices at each position of the input, each
+     *            sorted and without duplicates
+     */
+    public ViterbiConfidenceLattice(LinearChainCRF crf, int[][] input) {
+        this.crf = crf;
+        this.latticeLength = input.length + 1;
+        int numStates = crf.numStates();
+        this.nodes = new LatticeNode[latticeLength][numStates];
+        this.weights = new double[latticeLength - 1][numStates][numStates];
+        for (int ip = 0; ip < latticeLength - 1; ip++) {
+            for (int i = 0; i < numStates; i++) {
+                for (int j = 0; j < numStates; j++) {
+                    weights[ip][i][j] = Transducer.IMPOSSIBLE_WEIGHT;
+                }
+            }
+        }
+
+        forward(input);
+        decode();
+    }
+
+    /**
+     * @return the most likely output sequence
+     */
+    public String[] getOutput() {
+        return output;
+    }
+
+    /**
+     * @return the probability of the most likely output sequence, normalized
+     *         by the weight of the entire lattice
+     */
+    public double getConfidence() {
+        return Math.exp(viterbiWeight - totalWeight);
+    }
+
+    private void forward(int[][] input) {
+        int numStates = crf.numStates();
+        for (int i = 0; i < numStates; i++) {
+            double initialWeight = crf.getInitialWeight(i);
+            if (initialWeight > Transducer.IMPOSSIBLE_WEIGHT) {
+                LatticeNode node = getLatticeNode(0, i);
+                node.delta = initialWeight;
+                node.alpha = initialWeight;
+            }
+        }
+
+        double[] dotProducts = new double[crf.numWeights()];
+        for (int ip = 0; ip < latticeLength - 1; ip++) {
+            crf.getDotProducts(input[ip], dotProducts);
+            for (int i = 0; i < numStates; i++) {
+                LatticeNode source = nodes[ip][i];
+                if (source == null
+                        || source.delta == Transducer.IMPOSSIBLE_WEIGHT) {
+                    continue;
+                }
+                for (int k = 0; k < crf.numTransitions(i); k++) {
+                    double transitionWeight = crf.getTransitionWeight(i, k,
+                            dotProducts);
+                    if (transitionWeight == Transducer.IMPOSSIBLE_WEIGHT) {
+                        continue;
+                    }
+                    int destination = crf.getDestination(i, k);
+                    LatticeNode destinationNode = getLatticeNode(ip + 1,
+                            destination);
+                    destinationNode.output = crf.getLabel(i, k);
+                    weights[ip][i][destination] = transitionWeight;
+
+                    // sum over all paths
+                    destinationNode.alpha = Transducer.sumLogProb(
+                            destinationNode.alpha, source.alpha
+                                    + transitionWeight);
+
+                    // best path
+                    double weight = source.delta + transitionWeight;
+                    if (ip == latticeLength - 2) {
+                        weight += crf.getFinalWeight(destination);
+                    }
+                    if (weight > destinationNode.delta) {
+                        destinationNode.delta = weight;
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < numStates; i++) {
+            if (nodes[latticeLength - 1][i] != null) {
+                totalWeight = Transducer.sumLogProb(totalWeight,
+                        nodes[latticeLength - 1][i].alpha
+                                + crf.getFinalWeight(i));
+            }
+        }
+    }
+
+    /**
+     * Searches backwards from the final states for the best path, the same way
+     * <code>MaxLatticeDefault</code> does, so that ties are broken identically.
+     */
+    private void decode() {
+        int numStates = crf.numStates();
+        int numFinal = 0;
+        for (int i = 0; i < numStates; i++) {
+            LatticeNode node = nodes[latticeLength - 1][i];
+            if (node != null && node.delta > Transducer.IMPOSSIBLE_WEIGHT) {
+                numFinal++;
+            }
+        }
+        LatticeNode[] finalNodes = new LatticeNode[numFinal];
+        int f = 0;
+        for (int i = 0; i < numStates; i++) {
+            LatticeNode node = nodes[latticeLength - 1][i];
+            if (node != null && node.delta > Transducer.IMPOSSIBLE_WEIGHT) {
+                finalNodes[f++] = node;
+            }
+        }
+
+        AStar search = new AStar(finalNodes, latticeLength * numStates);
+        if (!search.hasNext()) {
+            throw new IllegalStateException("No path through the lattice");
+        }
+        AStarNode ans = search.next();
+        viterbiWeight = -ans.getCost();
+
+        // ans is at the start of the path, each parent is one position later
+        output = new String[latticeLength - 1];
+        ans = (AStarNode) ans.getParent();
+        for (int j = 0; j < latticeLength - 1; j++) {
+            output[j] = ((LatticeNode) ans.getState()).output;
+            ans = (AStarNode) ans.getParent();
+        }
+    }
+
+    private LatticeNode getLatticeNode(int ip, int stateIndex) {
+        if (nodes[ip][stateIndex] == null) {
+            nodes[ip][stateIndex] = new LatticeNode(ip, stateIndex);
+        }
+        return nodes[ip][stateIndex];
+    }
+
+    private class LatticeNode implements AStarState {
+        private final int inputPosition;
+        private final int stateIndex;
+        private String output;
+        private double alpha = Transducer.IMPOSSIBLE_WEIGHT;
+        private double delta = Transducer.IMPOSSIBLE_WEIGHT;
+
+        private LatticeNode(int inputPosition, int stateIndex) {
+            this.inputPosition = inputPosition;
+            this.stateIndex = stateIndex;
+        }
+
+        public double completionCost() {
+            return -delta;
+        }
+
+        public boolean isFinal() {
+            return inputPosition == 0
+                    && crf.getInitialWeight(stateIndex) > Transducer.IMPOSSIBLE_WEIGHT;
+        }
+
+        public SearchState.NextStateIterator getNextStates() {
+            return new PreviousStateIterator();
+        }
+
+        private class PreviousStateIterator extends
+                SearchState.NextStateIterator {
+            private int prev = 0;
+            private double weight;
+
+            private void lookAhead() {
+                if (inputPosition > 0) {
+                    while (prev < nodes[0].length
+                            && weights[inputPosition - 1][prev][stateIndex] == Transducer.IMPOSSIBLE_WEIGHT) {
+                        prev++;
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                lookAhead();
+                return inputPosition > 0 && prev < nodes[0].length;
+            }
+
+            @Override
+            public SearchState nextState() {
+                lookAhead();
+                weight = weights[inputPosition - 1][prev][stateIndex];
+                prev++;
+                return getLatticeNode(inputPosition - 1, prev - 1);
+            }
+
+            @Override
+            public double cost() {
+                return -weight;
+            }
+        }
+    }
+}
@@ -4,16 +4,24 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import opennlp.tools.sentdetect.SentenceDetector;
 
+import com.google.common.base.Predicate;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+
 import edu.washington.cs.knowitall.extractor.mapper.BracketsRemover;
 import edu.washington.cs.knowitall.extractor.mapper.SentenceEndFilter;
 import edu.washington.cs.knowitall.extractor.mapper.SentenceLengthFilter;
 import edu.washington.cs.knowitall.extractor.mapper.SentenceStartFilter;
+import edu.washington.cs.knowitall.util.AbstractNestedIterator;
+import edu.washington.cs.knowitall.util.HtmlTextReader;
 import edu.washington.cs.knowitall.util.HtmlUtils;
 
 /**
@@ -25,6 +33,12 @@ import edu.washington.cs.knowitall.util.HtmlUtils;
  */
 public class HtmlSentenceExtractor extends SentenceExtractor {
 
+    private static final Predicate<String> NOT_BLANK = new Predicate<String>() {
+        public boolean apply(String sent) {
+            return !sent.trim().equals("");
+        }
+    };
+
     /**
      * Constructs a new <code>SentenceExtractor</code> object using the given OpenNLP <code>SentenceDetector</code>
      * object.
@@ -52,10 +66,9 @@ public class HtmlSentenceExtractor extends SentenceExtractor {
         String content = HtmlUtils.removeHtml(htmlBlock);
         String[] lines = content.split("\n");
         List<String> results = new ArrayList<String>();
-        SentenceDetector detector = getSentenceDetector();
         for (String line : lines) {
             line = line.trim();
-            for (String sent : detector.sentDetect(line)) {
+            for (String sent : detectSentences(line)) {
                 if (!sent.trim().equals("")) {
                     results.add(sent);
                 }
@@ -65,6 +78,34 @@ public class HtmlSentenceExtractor extends SentenceExtractor {
 
     }
 
+    /**
+     * Extracts sentences from the HTML read from the given <code>Reader</code>, a
+     * line of its text at a time, with the text of
+     * <code>HtmlUtils.removeHtml</code>.
+     */
+    @Override
+    protected Iterator<String> extractCandidates(Reader in) {
+        final BufferedReader text = new BufferedReader(new HtmlTextReader(in));
+        Iterator<String> lines = new AbstractIterator<String>() {
+            @Override
+            protected String computeNext() {
+                try {
+                    String line = text.readLine();
+                    return line != null ? line : endOfData();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        return new AbstractNestedIterator<String, String>(lines) {
+            @Override
+            protected Iterator<String> computeInnerIterator(String line) {
+                return Iterators.filter(detectSentences(line.trim())
+                        .iterator(), NOT_BLANK);
+            }
+        };
+    }
+
     /**
      * Extracts sentences from HTML passed via standard input, or through a file given as an argument
      * to the program. Removes brackets from sentences using the <code>BracketsRemover</code> mapper class,
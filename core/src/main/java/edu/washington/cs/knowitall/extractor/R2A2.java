@@ -11,6 +11,13 @@ import edu.washington.cs.knowitall.nlp.ChunkedSentenceReader;
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
 import edu.washington.cs.knowitall.util.DefaultObjects;
 
+/**
+ * A relation extractor that finds relations with the ReVerb patterns and
+ * their arguments with {@link ArgLearner}. The models are loaded once, when
+ * the extractor is constructed, and are never modified afterwards, so a
+ * single instance can be shared by any number of threads. The same holds for
+ * {@link ConfidenceMetric}.
+ */
 public class R2A2 extends ReVerbRelationExtractor {
 
     protected void initializeArgumentExtractors() {
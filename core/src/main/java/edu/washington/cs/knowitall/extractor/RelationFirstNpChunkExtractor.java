@@ -3,10 +3,15 @@ package edu.washington.cs.knowitall.extractor;
 import java.util.ArrayList;
 import java.util.Collection;
 
+import com.google.common.collect.Lists;
+
+import edu.washington.cs.knowitall.extractor.mapper.MapperList;
 import edu.washington.cs.knowitall.nlp.ChunkedSentence;
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedArgumentExtraction;
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
+import edu.washington.cs.knowitall.util.PipelineMetrics;
+import edu.washington.cs.knowitall.util.PipelineMetrics.Stage;
 
 /**
  * <p>
@@ -43,6 +48,8 @@ public abstract class RelationFirstNpChunkExtractor
     protected Extractor<ChunkedExtraction, ChunkedArgumentExtraction> arg1Extr;
     protected Extractor<ChunkedExtraction, ChunkedArgumentExtraction> arg2Extr;
 
+    private PipelineMetrics metrics;
+
     /**
      * @return the extractor used to extract relations.
      */
@@ -98,6 +105,37 @@ public abstract class RelationFirstNpChunkExtractor
         this.allowUnary = allowUnary;
     }
 
+    /**
+     * @return the metrics the relation and argument extraction of each
+     * sentence are recorded in, or null if they are not.
+     */
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the metrics to record the relation and argument extraction of each
+     * sentence in, or null to not record them.
+     * @param metrics
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Records the selectivity and cost of the mappers of the relation
+     * extractor, the argument extractors and this extractor in the given
+     * metrics, under the prefixes relation, arg1, arg2 and extraction. See
+     * {@link MapperList#instrument(PipelineMetrics, String)}.
+     * @param metrics
+     */
+    public void instrumentMappers(PipelineMetrics metrics) {
+        getRelationExtractor().getMappers().instrument(metrics, "relation");
+        getArgument1Extractor().getMappers().instrument(metrics, "arg1");
+        getArgument2Extractor().getMappers().instrument(metrics, "arg2");
+        getMappers().instrument(metrics, "extraction");
+    }
+
 
     @Override
     /**
@@ -117,7 +155,16 @@ public abstract class RelationFirstNpChunkExtractor
         Extractor<ChunkedExtraction, ChunkedArgumentExtraction> arg2Extr =
             getArgument2Extractor();
 
+        long start = System.nanoTime();
         Iterable<? extends ChunkedExtraction> rels = relExtr.extract(source);
+        if (metrics != null) {
+            // the mappers are lazy, so apply them while the relations are
+            // timed
+            rels = Lists.newArrayList(rels);
+            long extracted = System.nanoTime();
+            metrics.record(Stage.RELATION, extracted - start);
+            start = extracted;
+        }
         Collection<ChunkedBinaryExtraction> extrs =
             new ArrayList<ChunkedBinaryExtraction>();
         for (ChunkedExtraction rel : rels) {
@@ -130,6 +177,9 @@ public abstract class RelationFirstNpChunkExtractor
                 ChunkedBinaryExtraction.productOfArgs(rel, arg1s, arg2s, allowUnary));
 
         }
+        if (metrics != null) {
+            metrics.record(Stage.ARGUMENT, System.nanoTime() - start);
+        }
 
         return extrs;
     }
@@ -1,10 +1,13 @@
 package edu.washington.cs.knowitall.extractor;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Iterator;
 
+import edu.washington.cs.knowitall.nlp.SlidingWindowSentenceIterator;
 import edu.washington.cs.knowitall.util.DefaultObjects;
+import edu.washington.cs.knowitall.util.IterableAdapter;
 
 import opennlp.tools.sentdetect.SentenceDetector;
 
@@ -16,7 +19,11 @@ import opennlp.tools.sentdetect.SentenceDetector;
  */
 public class SentenceExtractor extends Extractor<String, String> {
 
+    /** The window size used by the extractors of <code>DefaultObjects</code> */
+    public static final int DEFAULT_WINDOW_SIZE = 10000;
+
     private SentenceDetector detector;
+    private int windowSize = 0;
 
     /**
      * Constructs a new <code>SentenceExtractor</code> object using the default OpenNLP
@@ -43,11 +50,75 @@ public class SentenceExtractor extends Extractor<String, String> {
         return detector;
     }
 
+    /**
+     * @return the number of characters sentences are detected in at a time, or
+     * 0 if they are detected in the whole source at once.
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Makes the extractor detect the sentences of sources longer than
+     * <code>windowSize</code> characters a window at a time, returning them as
+     * they are detected, with a <code>SlidingWindowSentenceIterator</code>.
+     * @param windowSize the window size, or 0 to detect sentences in the whole
+     * source at once.
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize < 0) {
+            throw new IllegalArgumentException("Invalid window size: "
+                    + windowSize);
+        }
+        this.windowSize = windowSize;
+    }
+
     /**
      * Runs the OpenNLP <code>SentenceDetector</code> object on the given <code>String</code> source,
      * and returns an <code>Iterable<String></code> object over the detected sentences.
      */
-    protected Collection<String> extractCandidates(String source) {
-        return Arrays.asList(detector.sentDetect(source));
+    protected Iterable<String> extractCandidates(String source) {
+        return detectSentences(source);
+    }
+
+    /**
+     * Extracts sentences from the text read from the given <code>Reader</code>,
+     * reading it as the returned iterator needs it, and applies the mappers
+     * to them. The source is never held in memory all at once.
+     * @param in the reader to read the source from.
+     * @return an iterator over the sentences, which throws an
+     * <code>IllegalStateException</code> if the source cannot be read.
+     */
+    public Iterator<String> extract(Reader in) {
+        Iterable<String> candidates = new IterableAdapter<String>(
+                extractCandidates(in));
+        return getMappers().map(candidates).iterator();
+    }
+
+    /**
+     * Runs the OpenNLP <code>SentenceDetector</code> object on the text read from
+     * the given <code>Reader</code> a window at a time, using
+     * <code>DEFAULT_WINDOW_SIZE</code> if the window size is 0.
+     */
+    protected Iterator<String> extractCandidates(Reader in) {
+        int size = windowSize > 0 ? windowSize : DEFAULT_WINDOW_SIZE;
+        return new SlidingWindowSentenceIterator(detector, in, size);
+    }
+
+    /**
+     * Detects the sentences in the given text, a window at a time if it is
+     * longer than the window size.
+     */
+    protected Iterable<String> detectSentences(final String text) {
+        if (windowSize > 0 && text.length() > windowSize) {
+            return new Iterable<String>() {
+                public Iterator<String> iterator() {
+                    return new SlidingWindowSentenceIterator(detector, text,
+                            windowSize);
+                }
+            };
+        } else {
+            return Arrays.asList(detector.sentDetect(text));
+        }
     }
 }
@@ -1,8 +1,10 @@
 package edu.washington.cs.knowitall.extractor.conf.classifier;
 
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -12,6 +14,8 @@ import java.util.regex.Pattern;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 
+import edu.washington.cs.knowitall.util.BinaryModels;
+
 public class DecisionTree {
     private Tree root;
 
@@ -111,24 +115,25 @@ public class DecisionTree {
     private static final Pattern outcomePattern = Pattern.compile("(\\w+) ([=<>]+) ([^\\s]+) : (\\w+) .*");
     private static final Pattern testPattern = Pattern.compile("(\\w+) ([=<>]+) ([^\\s]+)");
 
-    private static Predicate<DoubleFeatures> predicate(final String feature, final String comparison, final String value) {
+    private static Predicate<DoubleFeatures> predicate(final String feature, final String comparison, String value) {
+        final double threshold = Double.parseDouble(value);
         return new Predicate<DoubleFeatures>() {
             @Override
             public boolean apply(DoubleFeatures features) {
                 if (comparison.equals("=")) {
-                    return features.get(feature) == Double.parseDouble(value);
+                    return features.get(feature) == threshold;
                 }
                 else if (comparison.equals("<=")) {
-                    return features.get(feature) <= Double.parseDouble(value);
+                    return features.get(feature) <= threshold;
                 }
                 else if (comparison.equals(">=")) {
-                    return features.get(feature) >= Double.parseDouble(value);
+                    return features.get(feature) >= threshold;
                 }
                 else if (comparison.equals("<")) {
-                    return features.get(feature) < Double.parseDouble(value);
+                    return features.get(feature) < threshold;
                 }
                 else if (comparison.equals(">")) {
-                    return features.get(feature) < Double.parseDouble(value);
+                    return features.get(feature) < threshold;
                 }
                 else {
                     throw new IllegalArgumentException("unknown comparison: " + comparison);
@@ -186,6 +191,78 @@ public class DecisionTree {
         }
     }
 
+    private static final String KIND = "tree";
+
+    /**
+     * Writes the tree in the binary model format. Each node is written before
+     * its children, as the feature, comparison and value of its test, its
+     * outcome (empty for inner nodes) and its number of children.
+     *
+     * @param sourceKey
+     *            the key of the model the tree was read from, see
+     *            {@link BinaryModels#writeHeader(DataOutputStream, String, long)}
+     */
+    public void writeBinary(DataOutputStream out, long sourceKey)
+            throws IOException {
+        BinaryModels.writeHeader(out, KIND, sourceKey);
+        writeBinary(root, out);
+    }
+
+    private static void writeBinary(Tree tree, DataOutputStream out) throws IOException {
+        if (tree.predicateString.equals("root")) {
+            BinaryModels.writeString(out, "root");
+            BinaryModels.writeString(out, "");
+            BinaryModels.writeString(out, "");
+        }
+        else {
+            String[] test = tree.predicateString.split(" ");
+            BinaryModels.writeString(out, test[0]);
+            BinaryModels.writeString(out, test[1]);
+            BinaryModels.writeString(out, test[2]);
+        }
+        BinaryModels.writeString(out, tree.outcome == null ? "" : tree.outcome);
+        out.writeInt(tree.children == null ? 0 : tree.children.size());
+        if (tree.children != null) {
+            for (Tree child : tree.children) {
+                writeBinary(child, out);
+            }
+        }
+    }
+
+    /**
+     * Reads a tree written by {@link #writeBinary(DataOutputStream, long)}.
+     */
+    public static DecisionTree fromBinary(ByteBuffer in) throws IOException {
+        BinaryModels.readHeader(in, KIND);
+        return new DecisionTree(readBinary(in));
+    }
+
+    private static Tree readBinary(ByteBuffer in) {
+        String feature = BinaryModels.readString(in);
+        String comparison = BinaryModels.readString(in);
+        String value = BinaryModels.readString(in);
+        String outcome = BinaryModels.readString(in);
+        int numChildren = in.getInt();
+
+        List<Tree> children = null;
+        if (outcome.length() == 0) {
+            children = new ArrayList<Tree>(numChildren);
+            for (int i = 0; i < numChildren; i++) {
+                children.add(readBinary(in));
+            }
+        }
+
+        if (comparison.length() == 0) {
+            return new Tree(Predicates.<DoubleFeatures>alwaysTrue(), "root", children);
+        }
+        else if (children == null) {
+            return new Tree(predicate(feature, comparison, value), feature+" "+comparison+" "+value, outcome);
+        }
+        else {
+            return new Tree(predicate(feature, comparison, value), feature+" "+comparison+" "+value, children);
+        }
+    }
+
     public String classify(DoubleFeatures features) {
         Tree loc = root;
 
@@ -1,12 +1,16 @@
 package edu.washington.cs.knowitall.extractor.conf.classifier;
 
+import java.io.DataOutputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
 
 import edu.washington.cs.knowitall.extractor.conf.featureset.FeatureSet;
+import edu.washington.cs.knowitall.util.BinaryModels;
 
 public class LogisticRegression<E> {
     private final FeatureSet<E> featureSet;
@@ -42,6 +46,44 @@ public class LogisticRegression<E> {
         return featureWeights;
     }
 
+    private static final String KIND = "logreg";
+
+    /**
+     * Writes feature weights in the binary model format: the number of
+     * features followed by each feature name and its weight.
+     *
+     * @param sourceKey
+     *            the key of the file the weights were read from, see
+     *            {@link BinaryModels#writeHeader(DataOutputStream, String, long)}
+     */
+    public static void writeBinaryFeatureWeightMap(
+            Map<String, Double> featureWeights, DataOutputStream out,
+            long sourceKey) throws IOException {
+        BinaryModels.writeHeader(out, KIND, sourceKey);
+        out.writeInt(featureWeights.size());
+        for (Map.Entry<String, Double> entry : featureWeights.entrySet()) {
+            BinaryModels.writeString(out, entry.getKey());
+            out.writeDouble(entry.getValue());
+        }
+    }
+
+    /**
+     * Reads feature weights written by
+     * {@link #writeBinaryFeatureWeightMap(Map, DataOutputStream, long)}.
+     */
+    public static Map<String, Double> readBinaryFeatureWeightMap(ByteBuffer in)
+            throws IOException {
+        BinaryModels.readHeader(in, KIND);
+        int size = in.getInt();
+        Map<String, Double> featureWeights = new HashMap<String, Double>(
+                size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            String featureName = BinaryModels.readString(in);
+            featureWeights.put(featureName, in.getDouble());
+        }
+        return featureWeights;
+    }
+
     public double confidence(E extraction) {
         double z = intercept;
         for (String featureName : this.featureSet.getFeatureNames()) {
@@ -0,0 +1,46 @@
+package edu.washington.cs.knowitall.extractor.mapper;
+
+import edu.washington.cs.knowitall.util.FingerprintCache;
+
+/**
+ * A mapper used to filter out the sentences that have been seen recently,
+ * like the boilerplate repeated on the pages of a site. The fingerprints of
+ * the last <code>maxSize</code> distinct sentences are kept, so a repeat is
+ * only missed if many other sentences were seen since its last copy.
+ *
+ * The filter can be shared by several threads. Apply it to the sentences as
+ * they will be chunked, e.g. by calling {@link #doFilter(String)} on each
+ * one before chunking it.
+ */
+public class DuplicateSentenceFilter extends FilterMapper<String> {
+
+    private final FingerprintCache<Boolean> seen;
+
+    /**
+     * @param maxSize
+     *            the number of distinct sentences to remember
+     */
+    public DuplicateSentenceFilter(int maxSize) {
+        seen = new FingerprintCache<Boolean>(maxSize);
+    }
+
+    /**
+     * @return the number of sentences filtered out
+     */
+    public long getNumDuplicates() {
+        return seen.getHits();
+    }
+
+    /**
+     * @return the number of sentences kept
+     */
+    public long getNumKept() {
+        return seen.getMisses();
+    }
+
+    @Override
+    public boolean doFilter(String sent) {
+        return seen.putIfAbsent(FingerprintCache.fingerprint(sent),
+                Boolean.TRUE) == null;
+    }
+}
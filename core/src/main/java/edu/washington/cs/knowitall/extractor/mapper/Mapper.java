@@ -16,6 +16,7 @@ package edu.washington.cs.knowitall.extractor.mapper;
 public abstract class Mapper<T> {
 
     private boolean enabled = true;
+    private String name;
 
     /**
      * @param objects
@@ -59,4 +60,25 @@ public abstract class Mapper<T> {
         enabled = true;
     }
 
+    /**
+     * @return the name of this mapper in metrics, which is the name of its
+     *         class, without the package, unless it has been set.
+     */
+    public String getName() {
+        if (name != null) {
+            return name;
+        }
+        String className = getClass().getName();
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Sets the name of this mapper in metrics, e.g. to tell apart anonymous
+     * mappers.
+     * @param name
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
 }
@@ -3,9 +3,19 @@ package edu.washington.cs.knowitall.extractor.mapper;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.common.collect.Lists;
+
+import edu.washington.cs.knowitall.util.MapperStats;
+import edu.washington.cs.knowitall.util.PipelineMetrics;
+
 /**
  * A list of <code>Mapper<T></code> objects. Applies each mapper in the list to an input
  * stream of <code>T</code> objects in order.
+ *
+ * A list can be instrumented with {@link #instrument(PipelineMetrics, String)},
+ * to record the number of objects that go into and come out of each mapper,
+ * and the time each takes, in {@link MapperStats}. Since mappers are lazy, an
+ * instrumented list applies each mapper to the whole stream before the next.
  * @author afader
  *
  * @param <T>
@@ -14,6 +24,12 @@ public class MapperList<T> extends Mapper<T> {
 
     private List<Mapper<T>> mappers;
 
+    // the metrics and prefix of an instrumented list, and the stats of each
+    // mapper, or null for a nested list, which records its own
+    private PipelineMetrics metrics;
+    private String prefix;
+    private List<MapperStats> stats;
+
     /**
      * Constructs an empty list of mappers.
      */
@@ -47,6 +63,35 @@ public class MapperList<T> extends Mapper<T> {
      */
     public void addMapper(Mapper<T> mapper) {
         mappers.add(mapper);
+        if (stats != null) {
+            stats.add(instrument(mapper));
+        }
+    }
+
+    /**
+     * Records the stats of each mapper in this list, including the mappers
+     * added to it later, in the given metrics, under the name of the mapper
+     * prefixed with <code>prefix/</code>. The mappers of nested lists are
+     * recorded under the same prefix.
+     * @param metrics
+     * @param prefix the name of this list, e.g. <code>relation</code>
+     */
+    public void instrument(PipelineMetrics metrics, String prefix) {
+        this.metrics = metrics;
+        this.prefix = prefix;
+        stats = new ArrayList<MapperStats>(mappers.size());
+        for (Mapper<T> mapper : mappers) {
+            stats.add(instrument(mapper));
+        }
+    }
+
+    private MapperStats instrument(Mapper<T> mapper) {
+        if (mapper instanceof MapperList<?>) {
+            ((MapperList<T>) mapper).instrument(metrics, prefix);
+            return null;
+        } else {
+            return metrics.getMapperStats(prefix + "/" + mapper.getName());
+        }
     }
 
     @Override
@@ -54,10 +99,29 @@ public class MapperList<T> extends Mapper<T> {
      * Applies each mapper in order to the input stream of objects.
      */
     protected Iterable<T> doMap(Iterable<T> objects) {
+        if (stats != null) {
+            return doMapInstrumented(objects);
+        }
         for (Mapper<T> mapper : this.mappers) {
             objects = mapper.map(objects);
         }
         return objects;
     }
 
+    private Iterable<T> doMapInstrumented(Iterable<T> objects) {
+        List<T> in = Lists.newArrayList(objects);
+        for (int i = 0; i < mappers.size(); i++) {
+            Mapper<T> mapper = mappers.get(i);
+            MapperStats mapperStats = stats.get(i);
+            long start = System.nanoTime();
+            List<T> out = Lists.newArrayList(mapper.map(in));
+            if (mapperStats != null && mapper.isEnabled()) {
+                mapperStats.record(in.size(), out.size(), System.nanoTime()
+                        - start);
+            }
+            in = out;
+        }
+        return in;
+    }
+
 }
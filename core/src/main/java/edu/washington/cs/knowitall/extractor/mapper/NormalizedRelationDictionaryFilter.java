@@ -18,6 +18,8 @@ public class NormalizedRelationDictionaryFilter extends
         FilterMapper<ChunkedExtraction> {
 
     private HashSet<String> relations;
+    private RelationDictionary dictionary;
+    private int minFreq;
     private VerbalRelationNormalizer normalizer;
 
     /**
@@ -33,12 +35,31 @@ public class NormalizedRelationDictionaryFilter extends
         normalizer.stripBeAdj(true);
     }
 
+    /**
+     * Constructs a new filter using the relations in the given dictionary that
+     * have a frequency of at least <code>minFreq</code>. The dictionary is not
+     * copied, so it can be shared by many filters with different thresholds.
+     *
+     * @param dictionary
+     * @param minFreq
+     */
+    public NormalizedRelationDictionaryFilter(RelationDictionary dictionary,
+            int minFreq) {
+        this.dictionary = dictionary;
+        this.minFreq = minFreq;
+        normalizer = new VerbalRelationNormalizer();
+        normalizer.stripBeAdj(true);
+    }
+
     /**
      * Returns true if the tokens in the given extraction appear in the set of
      * relations passed to the constructor.
      */
     public boolean doFilter(ChunkedExtraction extr) {
-        NormalizedField normField = normalizer.normalizeField(extr);
+        NormalizedField normField = extr.getNormalized(normalizer);
+        if (dictionary != null) {
+            return dictionary.contains(normField.toString(), minFreq);
+        }
         return relations.contains(normField.toString());
     }
 
@@ -56,20 +56,26 @@ public class ReVerbArgument1Mappers extends
 
     private void addFirstPosTagNotEqualsFilter(String posTag) {
         final String posTagCopy = posTag;
-        addMapper(new FilterMapper<ChunkedArgumentExtraction>() {
-            public boolean doFilter(ChunkedArgumentExtraction extr) {
-                return !extr.getPosTags().get(0).equals(posTagCopy);
-            }
-        });
+        FilterMapper<ChunkedArgumentExtraction> filter =
+            new FilterMapper<ChunkedArgumentExtraction>() {
+                public boolean doFilter(ChunkedArgumentExtraction extr) {
+                    return !extr.getPosTags().get(0).equals(posTagCopy);
+                }
+            };
+        filter.setName("FirstPosTagNotEqualsFilter(" + posTagCopy + ")");
+        addMapper(filter);
     }
 
     private void addFirstTokenNotEqualsFilter(String token) {
         final String tokenCopy = token;
-        addMapper(new FilterMapper<ChunkedArgumentExtraction>() {
-            public boolean doFilter(ChunkedArgumentExtraction extr) {
-                return !extr.getTokens().get(0).equals(tokenCopy);
-            }
-        });
+        FilterMapper<ChunkedArgumentExtraction> filter =
+            new FilterMapper<ChunkedArgumentExtraction>() {
+                public boolean doFilter(ChunkedArgumentExtraction extr) {
+                    return !extr.getTokens().get(0).equals(tokenCopy);
+                }
+            };
+        filter.setName("FirstTokenNotEqualsFilter(" + tokenCopy + ")");
+        addMapper(filter);
     }
 
 }
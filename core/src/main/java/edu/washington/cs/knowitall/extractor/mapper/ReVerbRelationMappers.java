@@ -85,15 +85,18 @@ public class ReVerbRelationMappers extends MapperList<ChunkedExtraction> {
          * happens due to errors in the various NLP tools (sentence detector,
          * tokenizer, POS tagger, chunker).
          */
-        addMapper(new FilterMapper<ChunkedExtraction>() {
-            public boolean doFilter(ChunkedExtraction rel) {
-                if (rel.getLength() == 1) {
-                    return rel.getToken(0).length() > 1;
-                } else {
-                    return true;
+        FilterMapper<ChunkedExtraction> singleChar =
+            new FilterMapper<ChunkedExtraction>() {
+                public boolean doFilter(ChunkedExtraction rel) {
+                    if (rel.getLength() == 1) {
+                        return rel.getToken(0).length() > 1;
+                    } else {
+                        return true;
+                    }
                 }
-            }
-        });
+            };
+        singleChar.setName("NotSingleCharacterFilter");
+        addMapper(singleChar);
 
         // These pos tags and tokens cannot appear in the relation
         StopListFilter relStopList = new StopListFilter();
@@ -106,33 +109,39 @@ public class ReVerbRelationMappers extends MapperList<ChunkedExtraction> {
         addMapper(relStopList);
 
         // The POS tag of the first verb in the relation cannot be VBG or VBN
-        addMapper(new FilterMapper<ChunkedExtraction>() {
-            public boolean doFilter(ChunkedExtraction rel) {
-                ChunkedSentence sent = rel.getSentence();
-                int start = rel.getStart();
-                int length = rel.getLength();
-                for (int i = start; i < start + length; i++) {
-                    String posTag = sent.getPosTags().get(i);
-
-                    if (posTag.startsWith("VB")) {
-                        return !posTag.equals("VBG") && !posTag.equals("VBN");
+        FilterMapper<ChunkedExtraction> firstVerb =
+            new FilterMapper<ChunkedExtraction>() {
+                public boolean doFilter(ChunkedExtraction rel) {
+                    ChunkedSentence sent = rel.getSentence();
+                    int start = rel.getStart();
+                    int length = rel.getLength();
+                    for (int i = start; i < start + length; i++) {
+                        String posTag = sent.getPosTags().get(i);
+
+                        if (posTag.startsWith("VB")) {
+                            return !posTag.equals("VBG") && !posTag.equals("VBN");
+                        }
                     }
+                    return true;
                 }
-                return true;
-            }
-        });
+            };
+        firstVerb.setName("FirstVerbNotVbgOrVbnFilter");
+        addMapper(firstVerb);
 
         // The previous tag can't be an existential "there" or a TO
-        addMapper(new FilterMapper<ChunkedExtraction>() {
-            public boolean doFilter(ChunkedExtraction rel) {
-                int s = rel.getStart();
-                if (s == 0) {
-                    return true;
-                } else {
-                    String posTag = rel.getSentence().getPosTag(s - 1);
-                    return !posTag.equals("EX") && !posTag.equals("TO");
+        FilterMapper<ChunkedExtraction> previousTag =
+            new FilterMapper<ChunkedExtraction>() {
+                public boolean doFilter(ChunkedExtraction rel) {
+                    int s = rel.getStart();
+                    if (s == 0) {
+                        return true;
+                    } else {
+                        String posTag = rel.getSentence().getPosTag(s - 1);
+                        return !posTag.equals("EX") && !posTag.equals("TO");
+                    }
                 }
-            }
-        });
+            };
+        previousTag.setName("PreviousTagNotExOrToFilter");
+        addMapper(previousTag);
     }
 }
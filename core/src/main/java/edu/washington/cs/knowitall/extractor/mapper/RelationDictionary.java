@@ -0,0 +1,309 @@
+package edu.washington.cs.knowitall.extractor.mapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import edu.washington.cs.knowitall.commonlib.ResourceUtils;
+import edu.washington.cs.knowitall.util.BinaryModels;
+
+/**
+ * A read-only dictionary of normalized relations and the number of distinct
+ * arguments each takes in a large corpus. The relations are kept as a sorted
+ * table of UTF-8 strings, so the dictionary can be memory-mapped from a binary
+ * file and answers frequency queries for any threshold.
+ *
+ * The default dictionary is built from <code>freq_rel.txt.gz</code> on the
+ * classpath, or from its binary version <code>freq_rel.txt.gz.bin</code> if
+ * there is one, and is shared by everything in the JVM that uses it. Run
+ * {@link #main(String[])} to write the binary version.
+ */
+public class RelationDictionary {
+    private static final String KIND = "reldict";
+    private static final String DEFAULT_FILE = "freq_rel.txt.gz";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static RelationDictionary defaultDictionary;
+
+    private final int size;
+    private final IntBuffer frequencies;
+    // offsets[i] to offsets[i + 1] is the i-th relation in strings
+    private final IntBuffer offsets;
+    private final ByteBuffer strings;
+
+    private RelationDictionary(ByteBuffer in) throws IOException {
+        BinaryModels.readHeader(in, KIND);
+        size = in.getInt();
+        frequencies = BinaryModels.slice(in, size * 4).asIntBuffer();
+        offsets = BinaryModels.slice(in, (size + 1) * 4).asIntBuffer();
+        strings = BinaryModels.slice(in, offsets.get(size));
+    }
+
+    /**
+     * @return the dictionary built from <code>freq_rel.txt.gz</code>, which is
+     *         loaded the first time it is asked for.
+     * @throws IOException
+     */
+    public static synchronized RelationDictionary getDefault()
+            throws IOException {
+        if (defaultDictionary == null) {
+            URL binary = BinaryModels.findBinary(RelationDictionary.class, "/"
+                    + DEFAULT_FILE);
+            if (binary != null) {
+                defaultDictionary = read(BinaryModels.load(binary));
+            } else {
+                InputStream in = getDefaultStream();
+                try {
+                    defaultDictionary = fromText(in);
+                } finally {
+                    in.close();
+                }
+            }
+        }
+        return defaultDictionary;
+    }
+
+    private static InputStream getDefaultStream() throws IOException {
+        InputStream in = ResourceUtils.loadResource(DEFAULT_FILE,
+                RelationDictionary.class);
+        if (in != null) {
+            return new GZIPInputStream(in);
+        } else {
+            throw new IOException("Could not load file " + DEFAULT_FILE
+                    + " from classpath.");
+        }
+    }
+
+    /**
+     * @return the number of relations in the dictionary
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of distinct arguments of the given normalized
+     *         relation, or 0 if it is not in the dictionary
+     */
+    public int getFrequency(String relation) {
+        byte[] key = relation.getBytes(UTF8);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareTo(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return frequencies.get(mid);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return true if the given normalized relation takes at least
+     *         <code>minFreq</code> distinct arguments
+     */
+    public boolean contains(String relation, int minFreq) {
+        return getFrequency(relation) >= Math.max(minFreq, 1);
+    }
+
+    // compares the i-th relation with key, byte by byte
+    private int compareTo(int i, byte[] key) {
+        int start = offsets.get(i);
+        int length = offsets.get(i + 1) - start;
+        int n = Math.min(length, key.length);
+        for (int j = 0; j < n; j++) {
+            int cmp = (strings.get(start + j) & 0xff) - (key[j] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Reads a dictionary in the tab-delimited format (#arg2s, relation). If a
+     * relation is listed more than once, its highest frequency is kept.
+     *
+     * @throws IOException
+     */
+    public static RelationDictionary fromText(InputStream in)
+            throws IOException {
+        List<Entry> entries = readText(in);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                binarySize(entries));
+        write(entries, new DataOutputStream(bytes), BinaryModels.NO_SOURCE);
+        return read(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    private static List<Entry> readText(InputStream in) throws IOException {
+        List<Entry> entries = new ArrayList<Entry>();
+        String line;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in,
+                UTF8));
+        Pattern delim = Pattern.compile("\t");
+        int lineNum = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNum++;
+            String[] fields = delim.split(line);
+            if (fields.length != 2) {
+                System.err.println("Could not read line " + lineNum + ": '"
+                        + line + "'");
+                continue;
+            }
+            int freq = Integer.parseInt(fields[0]);
+            entries.add(new Entry(fields[1].getBytes(UTF8), freq));
+        }
+        return entries;
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        final byte[] key;
+        final int freq;
+
+        Entry(byte[] key, int freq) {
+            this.key = key;
+            this.freq = freq;
+        }
+
+        // unsigned byte order of UTF-8 is the code point order of the strings
+        public int compareTo(Entry other) {
+            int n = Math.min(key.length, other.key.length);
+            for (int j = 0; j < n; j++) {
+                int cmp = (key[j] & 0xff) - (other.key[j] & 0xff);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return key.length - other.key.length;
+        }
+    }
+
+    /**
+     * Writes relations and their frequencies in the binary model format.
+     *
+     * @throws IOException
+     */
+    public static void write(Map<String, Integer> relations,
+            DataOutputStream out) throws IOException {
+        List<Entry> entries = new ArrayList<Entry>(relations.size());
+        for (Map.Entry<String, Integer> relation : relations.entrySet()) {
+            entries.add(new Entry(relation.getKey().getBytes(UTF8), relation
+                    .getValue()));
+        }
+        write(entries, out, BinaryModels.NO_SOURCE);
+    }
+
+    // sorts the entries and keeps the highest frequency of each relation
+    private static void write(List<Entry> entries, DataOutputStream out,
+            long sourceKey) throws IOException {
+        Collections.sort(entries);
+        int n = 0;
+        for (Entry entry : entries) {
+            if (n > 0 && entries.get(n - 1).compareTo(entry) == 0) {
+                if (entries.get(n - 1).freq < entry.freq) {
+                    entries.set(n - 1, entry);
+                }
+            } else {
+                entries.set(n++, entry);
+            }
+        }
+        entries = entries.subList(0, n);
+
+        BinaryModels.writeHeader(out, KIND, sourceKey);
+        out.writeInt(n);
+        for (Entry entry : entries) {
+            out.writeInt(entry.freq);
+        }
+        int offset = 0;
+        out.writeInt(offset);
+        for (Entry entry : entries) {
+            offset += entry.key.length;
+            out.writeInt(offset);
+        }
+        for (Entry entry : entries) {
+            out.write(entry.key);
+        }
+        out.flush();
+    }
+
+    // an upper bound on the size of the binary format of the entries
+    private static int binarySize(List<Entry> entries) {
+        int size = 64 + 8 * entries.size();
+        for (Entry entry : entries) {
+            size += entry.key.length;
+        }
+        return size;
+    }
+
+    /**
+     * Reads a dictionary written by {@link #write(Map, DataOutputStream)}.
+     * The buffer is used as it is, so a memory-mapped file is not copied.
+     *
+     * @throws IOException
+     */
+    public static RelationDictionary read(ByteBuffer in) throws IOException {
+        return new RelationDictionary(in);
+    }
+
+    /**
+     * Writes the binary version of a dictionary in the tab-delimited format.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: RelationDictionary OUTPUT [INPUT]");
+            System.err.println("Converts INPUT (default: " + DEFAULT_FILE
+                    + " on the classpath) to the binary model format.");
+            System.exit(1);
+        }
+
+        URL source;
+        InputStream in;
+        if (args.length > 1) {
+            source = new File(args[1]).toURI().toURL();
+            in = new BufferedInputStream(new FileInputStream(args[1]));
+            if (args[1].endsWith(".gz")) {
+                in = new GZIPInputStream(in);
+            }
+        } else {
+            source = RelationDictionary.class.getResource("/" + DEFAULT_FILE);
+            in = getDefaultStream();
+        }
+        List<Entry> relations;
+        try {
+            relations = readText(in);
+        } finally {
+            in.close();
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(new File(args[0]))));
+        try {
+            write(relations, out, BinaryModels.sourceKey(source));
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,557 @@
+package edu.washington.cs.knowitall.extractor.mapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+import edu.washington.cs.knowitall.extractor.ExtractorException;
+import edu.washington.cs.knowitall.extractor.ReVerbExtractor;
+import edu.washington.cs.knowitall.io.BinaryExtractionReader;
+import edu.washington.cs.knowitall.io.SentenceExtractions;
+import edu.washington.cs.knowitall.io.TsvExtractionReader;
+import edu.washington.cs.knowitall.io.TsvExtractionSink.Column;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.ChunkedSentenceReader;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
+import edu.washington.cs.knowitall.normalization.ArgumentNormalizer;
+import edu.washington.cs.knowitall.normalization.NormalizedBinaryExtraction;
+import edu.washington.cs.knowitall.normalization.VerbalRelationNormalizer;
+import edu.washington.cs.knowitall.util.BinaryModels;
+import edu.washington.cs.knowitall.util.DefaultObjects;
+import edu.washington.cs.knowitall.util.HyperLogLog;
+
+/***
+ * Builds a relation dictionary, in the tab-delimited format (#arg2s, relation)
+ * read by {@link ReVerbRelationDictionaryFilter}, from extractions of a corpus.
+ * Relations are normalized like the filter normalizes them, and the number of
+ * distinct normalized arg2s of each relation is estimated with a
+ * {@link HyperLogLog} sketch.
+ *
+ * When the sketches take more than the given amount of memory, they are
+ * written to a temporary file sorted by relation and the builder starts over;
+ * the files are merged at the end. The sketches can also be written out as a
+ * shard, so that a large corpus can be counted in pieces and the shards merged
+ * into one dictionary. Run with -h to see the usage information.
+ */
+public class RelationDictionaryBuilder {
+
+    private static final String NAME = "RelationDictionaryBuilder";
+    private static final String KIND = "relsketch";
+
+    /** The default memory budget of the sketches, in bytes. */
+    public static final long DEFAULT_MAX_MEMORY = 256L * 1024 * 1024;
+
+    // the bytes taken by a relation apart from its characters and sketch
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final int precision;
+    private final long maxMemory;
+    private final File tempDir;
+    private final VerbalRelationNormalizer relNormalizer;
+    private final ArgumentNormalizer argNormalizer;
+
+    private Map<String, HyperLogLog> sketches = new HashMap<String, HyperLogLog>();
+    private long memory = 0;
+    private final List<File> runs = new ArrayList<File>();
+    private final List<File> tempRuns = new ArrayList<File>();
+
+    /**
+     * Constructs a builder with the default sketch precision and memory
+     * budget, which writes its temporary files to the default temporary
+     * directory.
+     */
+    public RelationDictionaryBuilder() {
+        this(HyperLogLog.DEFAULT_PRECISION, DEFAULT_MAX_MEMORY, null);
+    }
+
+    /**
+     * @param precision
+     *            the precision of the sketches, see {@link HyperLogLog}
+     * @param maxMemory
+     *            the number of bytes the sketches may take before they are
+     *            written to a temporary file
+     * @param tempDir
+     *            the directory of the temporary files, or null for the default
+     *            temporary directory
+     */
+    public RelationDictionaryBuilder(int precision, long maxMemory,
+            File tempDir) {
+        this.precision = precision;
+        this.maxMemory = maxMemory;
+        this.tempDir = tempDir;
+        relNormalizer = new VerbalRelationNormalizer();
+        relNormalizer.stripBeAdj(true);
+        argNormalizer = new ArgumentNormalizer();
+    }
+
+    /**
+     * Adds the normalized arg2 of the given extraction to its relation.
+     *
+     * @throws IOException
+     *             if the sketches could not be written to a temporary file
+     */
+    public void add(ChunkedBinaryExtraction extr) throws IOException {
+        add(extr.getRelation(), argNormalizer.normalizeField(
+                extr.getArgument2()).toString());
+    }
+
+    /**
+     * Adds the given normalized argument to the relation, which is normalized
+     * with a {@link VerbalRelationNormalizer}.
+     *
+     * @throws IOException
+     *             if the sketches could not be written to a temporary file
+     */
+    public void add(ChunkedExtraction relation, String argument)
+            throws IOException {
+        add(relation.getNormalized(relNormalizer).toString(), argument);
+    }
+
+    /**
+     * Adds an argument to an already normalized relation.
+     *
+     * @throws IOException
+     *             if the sketches could not be written to a temporary file
+     */
+    public void add(String relation, String argument) throws IOException {
+        if (relation.length() == 0) {
+            return;
+        }
+        HyperLogLog sketch = getSketch(relation);
+        int size = sketch.sizeInBytes();
+        sketch.add(argument);
+        memory += sketch.sizeInBytes() - size;
+        if (memory > maxMemory) {
+            spill();
+        }
+    }
+
+    private HyperLogLog getSketch(String relation) {
+        HyperLogLog sketch = sketches.get(relation);
+        if (sketch == null) {
+            sketch = new HyperLogLog(precision);
+            sketches.put(relation, sketch);
+            memory += ENTRY_OVERHEAD + 2 * relation.length()
+                    + sketch.sizeInBytes();
+        }
+        return sketch;
+    }
+
+    /**
+     * Adds the sketches in a shard written by
+     * {@link #writeSketches(OutputStream)}. The shard is read when the
+     * dictionary or sketches are written.
+     *
+     * @throws IOException
+     *             if the file is not a shard
+     */
+    public void addSketches(File shard) throws IOException {
+        DataInputStream in = openRun(shard);
+        in.close();
+        runs.add(shard);
+    }
+
+    /**
+     * Writes the relations with an estimated frequency of at least
+     * <code>minFreq</code>, one per line in the format (#arg2s, relation),
+     * sorted by relation. The builder cannot be used afterwards.
+     *
+     * @throws IOException
+     */
+    public void writeDictionary(Writer out, final int minFreq)
+            throws IOException {
+        final BufferedWriter writer = new BufferedWriter(out);
+        mergeAll(new SketchHandler() {
+            public void handle(String relation, HyperLogLog sketch)
+                    throws IOException {
+                long freq = sketch.cardinality();
+                if (freq >= minFreq) {
+                    writer.write(freq + "\t" + relation);
+                    writer.newLine();
+                }
+            }
+        });
+        writer.flush();
+    }
+
+    /**
+     * Writes the sketches of all relations as a shard, which can be merged
+     * with other shards by {@link #addSketches(File)}. The builder cannot be
+     * used afterwards.
+     *
+     * @throws IOException
+     */
+    public void writeSketches(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+                out));
+        BinaryModels.writeHeader(data, KIND);
+        mergeAll(runWriter(data));
+        data.writeBoolean(false);
+        data.flush();
+    }
+
+    /**
+     * Deletes the temporary files of the builder.
+     */
+    public void close() {
+        for (File run : tempRuns) {
+            run.delete();
+        }
+        tempRuns.clear();
+    }
+
+    private interface SketchHandler {
+        void handle(String relation, HyperLogLog sketch) throws IOException;
+    }
+
+    /*
+     * Iterates over relations and their sketches in the order of the
+     * relations, either from memory or from a file.
+     */
+    private static class SketchIterator implements Comparable<SketchIterator> {
+        private final DataInputStream in;
+        private final List<String> relations;
+        private final Map<String, HyperLogLog> sketches;
+        private int index = 0;
+
+        String relation;
+        HyperLogLog sketch;
+
+        SketchIterator(DataInputStream in) {
+            this.in = in;
+            this.relations = null;
+            this.sketches = null;
+        }
+
+        SketchIterator(Map<String, HyperLogLog> sketches) {
+            this.in = null;
+            this.relations = new ArrayList<String>(sketches.keySet());
+            Collections.sort(this.relations);
+            this.sketches = sketches;
+        }
+
+        boolean next() throws IOException {
+            if (in != null) {
+                if (!in.readBoolean()) {
+                    in.close();
+                    return false;
+                }
+                relation = BinaryModels.readString(in);
+                sketch = HyperLogLog.read(in);
+                return true;
+            } else if (index < relations.size()) {
+                relation = relations.get(index++);
+                sketch = sketches.get(relation);
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        public int compareTo(SketchIterator other) {
+            return relation.compareTo(other.relation);
+        }
+    }
+
+    // writes the sketches in memory to a temporary file and clears them
+    private void spill() throws IOException {
+        File run = File.createTempFile("reldict", ".run", tempDir);
+        run.deleteOnExit();
+        tempRuns.add(run);
+        runs.add(run);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(run)));
+        try {
+            BinaryModels.writeHeader(out, KIND);
+            SketchHandler writer = runWriter(out);
+            SketchIterator it = new SketchIterator(sketches);
+            while (it.next()) {
+                writer.handle(it.relation, it.sketch);
+            }
+            out.writeBoolean(false);
+        } finally {
+            out.close();
+        }
+        sketches = new HashMap<String, HyperLogLog>();
+        memory = 0;
+    }
+
+    private static SketchHandler runWriter(final DataOutputStream out) {
+        return new SketchHandler() {
+            public void handle(String relation, HyperLogLog sketch)
+                    throws IOException {
+                out.writeBoolean(true);
+                BinaryModels.writeString(out, relation);
+                sketch.write(out);
+            }
+        };
+    }
+
+    private static DataInputStream openRun(File run) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(run)));
+        try {
+            BinaryModels.readHeader(in, KIND);
+        } catch (IOException e) {
+            in.close();
+            throw new IOException(run + ": " + e.getMessage());
+        }
+        return in;
+    }
+
+    // merges the sketches in memory and in the runs, relation by relation
+    private void mergeAll(SketchHandler handler) throws IOException {
+        PriorityQueue<SketchIterator> queue = new PriorityQueue<SketchIterator>();
+        List<SketchIterator> sources = new ArrayList<SketchIterator>();
+        sources.add(new SketchIterator(sketches));
+        try {
+            for (File run : runs) {
+                sources.add(new SketchIterator(openRun(run)));
+            }
+            for (SketchIterator source : sources) {
+                if (source.next()) {
+                    queue.add(source);
+                }
+            }
+            while (!queue.isEmpty()) {
+                SketchIterator source = queue.poll();
+                String relation = source.relation;
+                HyperLogLog sketch = source.sketch;
+                if (source.next()) {
+                    queue.add(source);
+                }
+                while (!queue.isEmpty()
+                        && queue.peek().relation.equals(relation)) {
+                    source = queue.poll();
+                    sketch.merge(source.sketch);
+                    if (source.next()) {
+                        queue.add(source);
+                    }
+                }
+                handler.handle(relation, sketch);
+            }
+        } finally {
+            for (SketchIterator source : sources) {
+                if (source.in != null) {
+                    source.in.close();
+                }
+            }
+            sketches = new HashMap<String, HyperLogLog>();
+            memory = 0;
+            close();
+        }
+    }
+
+    /**
+     * Adds the extractions in the output of <code>CommandLineReVerb</code>,
+     * either the tsv rows or the binary format, which is detected. The
+     * relations are normalized again from the sentence, since the normalized
+     * relations in the output do not strip "be" and adjectives like the filter
+     * does.
+     *
+     * @param input
+     * @param columns
+     *            the columns of the tsv rows, if they were written with
+     *            --columns, or null for the default columns
+     * @throws IOException
+     *             if the input cannot be read or is malformed, or the
+     *             sketches could not be written to a temporary file
+     */
+    public void addReVerbOutput(InputStream input, List<Column> columns)
+            throws IOException {
+        InputStream in = new BufferedInputStream(input);
+        if (BinaryExtractionReader.isBinary(in)) {
+            BinaryExtractionReader reader = new BinaryExtractionReader(in);
+            try {
+                SentenceExtractions<NormalizedBinaryExtraction> sentExtrs;
+                while ((sentExtrs = reader.read()) != null) {
+                    for (NormalizedBinaryExtraction extr : sentExtrs
+                            .getExtractions()) {
+                        add(extr.getRelation(), extr.getArgument2Norm()
+                                .toString());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } else {
+            Reader text = new InputStreamReader(in, "UTF-8");
+            TsvExtractionReader reader = columns == null
+                    ? new TsvExtractionReader(text)
+                    : new TsvExtractionReader(text, columns);
+            try {
+                SentenceExtractions<ChunkedBinaryExtraction> sentExtrs;
+                while ((sentExtrs = reader.read()) != null) {
+                    for (ChunkedBinaryExtraction extr : sentExtrs
+                            .getExtractions()) {
+                        add(extr);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private void addText(BufferedReader in, ReVerbExtractor extractor)
+            throws IOException, ExtractorException {
+        ChunkedSentenceReader reader = DefaultObjects
+                .getDefaultSentenceReader(in);
+        for (ChunkedSentence sent : reader) {
+            for (ChunkedBinaryExtraction extr : extractor.extract(sent)) {
+                add(extr);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException,
+            ExtractorException {
+        Options options = new Options();
+        options.addOption("h", "help", false, "Print help and exit");
+        options.addOption("f", "format", true,
+                "Input format: reverb (CommandLineReVerb tsv or binary output, the default), text or sketches");
+        options.addOption("c", "columns", true,
+                "Comma-separated list of the columns of the reverb input, if it was written with --columns. It must include the file name, sentence number, offsets and sentence columns.");
+        options.addOption("o", "output", true,
+                "Write to this file instead of standard output");
+        options.addOption("s", "sketches", false,
+                "Write the sketches as a shard instead of a dictionary");
+        options.addOption("m", "minFreq", true,
+                "Only write relations with at least this many distinct arguments (default 1)");
+        options.addOption("M", "memory", true,
+                "Memory for the sketches in MB before they are written to temporary files (default "
+                        + DEFAULT_MAX_MEMORY / 1024 / 1024 + ")");
+        options.addOption("p", "precision", true,
+                "Precision of the sketches, between "
+                        + HyperLogLog.MIN_PRECISION + " and "
+                        + HyperLogLog.MAX_PRECISION + " (default "
+                        + HyperLogLog.DEFAULT_PRECISION + ")");
+
+        CommandLine params;
+        try {
+            params = new PosixParser().parse(options, args);
+        } catch (ParseException e) {
+            System.err.println("Could not parse command line arguments: "
+                    + e.getMessage());
+            usage(options);
+            System.exit(1);
+            return;
+        }
+        if (params.hasOption("help")) {
+            usage(options);
+            return;
+        }
+
+        String format = params.getOptionValue("format", "reverb");
+        if (!format.equals("sketches") && !format.equals("reverb")
+                && !format.equals("text")) {
+            System.err.println("Unknown input format: " + format);
+            usage(options);
+            System.exit(1);
+        }
+        if (format.equals("sketches") && params.getArgs().length == 0) {
+            System.err.println("Sketches must be read from files.");
+            System.exit(1);
+        }
+        List<Column> columns = null;
+        if (params.hasOption("columns")) {
+            try {
+                columns = Column.parseList(params.getOptionValue("columns"));
+                // checks that the columns needed to read the rows are there
+                new TsvExtractionReader(new StringReader(""), columns);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+        }
+        int minFreq = Integer.parseInt(params.getOptionValue("minFreq", "1"));
+        long maxMemory = Long.parseLong(params.getOptionValue("memory",
+                String.valueOf(DEFAULT_MAX_MEMORY / 1024 / 1024))) * 1024 * 1024;
+        int precision = Integer.parseInt(params.getOptionValue("precision",
+                String.valueOf(HyperLogLog.DEFAULT_PRECISION)));
+
+        RelationDictionaryBuilder builder = new RelationDictionaryBuilder(
+                precision, maxMemory, null);
+        try {
+            if (format.equals("sketches")) {
+                for (String file : params.getArgs()) {
+                    builder.addSketches(new File(file));
+                }
+            } else {
+                ReVerbExtractor extractor = null;
+                if (format.equals("text")) {
+                    extractor = new ReVerbExtractor(0, true, true, false);
+                    DefaultObjects.initializeNlpTools();
+                }
+                List<InputStream> inputs = new ArrayList<InputStream>();
+                for (String file : params.getArgs()) {
+                    inputs.add(new FileInputStream(file));
+                }
+                if (inputs.isEmpty()) {
+                    inputs.add(System.in);
+                }
+                for (InputStream input : inputs) {
+                    if (extractor != null) {
+                        BufferedReader in = new BufferedReader(
+                                new InputStreamReader(input, "UTF-8"));
+                        try {
+                            builder.addText(in, extractor);
+                        } finally {
+                            in.close();
+                        }
+                    } else {
+                        builder.addReVerbOutput(input, columns);
+                    }
+                }
+            }
+
+            OutputStream out = params.hasOption("output") ? new FileOutputStream(
+                    params.getOptionValue("output")) : System.out;
+            try {
+                if (params.hasOption("sketches")) {
+                    builder.writeSketches(out);
+                } else {
+                    builder.writeDictionary(new OutputStreamWriter(out,
+                            "UTF-8"), minFreq);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            builder.close();
+        }
+    }
+
+    private static void usage(Options options) {
+        HelpFormatter help = new HelpFormatter();
+        help.printHelp(String.format("%s [OPTIONS] [FILES]", NAME), options);
+    }
+}
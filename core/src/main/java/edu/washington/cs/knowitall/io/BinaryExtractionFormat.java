@@ -0,0 +1,59 @@
+package edu.washington.cs.knowitall.io;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/*
+ * The binary extraction format of BinaryExtractionSink and
+ * BinaryExtractionReader. A file starts with MAGIC and VERSION as ints,
+ * followed by a record for each sentence: its length as a varint, then
+ *
+ *   flags                        FLAG_FILE_NAME if a new file name follows
+ *   [file name]                  string
+ *   sentence number              varint
+ *   n                            varint
+ *   n tokens, n POS tags, n chunk tags
+ *   m                            varint
+ *   m extractions, each
+ *     rel, arg1, arg2            start and length as varints, a flags byte,
+ *                                then the text if FIELD_TEXT (it is not the
+ *                                tokens of the range) and the argument
+ *                                confidence as a double if FIELD_CONF (it is
+ *                                not DEFAULT_ARG_CONF)
+ *     conf                       double
+ *     arg1, rel, arg2 normalized k as a varint, k tokens, k POS tags
+ *
+ * Varints are unsigned, 7 bits a byte, low bits first. Strings are a varint
+ * byte length and UTF-8. Tags are symbols: a varint that is 0 for a new tag,
+ * followed by the tag as a string, or 1 + the number of a tag seen before,
+ * numbered in order up to MAX_SYMBOLS.
+ */
+final class BinaryExtractionFormat {
+
+    static final int MAGIC = 0x52564258; // "RVBX"
+    static final int VERSION = 1;
+
+    static final int FLAG_FILE_NAME = 1;
+
+    static final int FIELD_TEXT = 1;
+    static final int FIELD_CONF = 2;
+
+    // the confidence of a ChunkedArgumentExtraction that is not given one
+    static final double DEFAULT_ARG_CONF = .5;
+
+    static final int MAX_SYMBOLS = 4096;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private BinaryExtractionFormat() {
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
@@ -0,0 +1,336 @@
+package edu.washington.cs.knowitall.io;
+
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.DEFAULT_ARG_CONF;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.FIELD_CONF;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.FIELD_TEXT;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.FLAG_FILE_NAME;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.MAGIC;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.MAX_SYMBOLS;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.UTF8;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.VERSION;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedArgumentExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
+import edu.washington.cs.knowitall.normalization.NormalizedBinaryExtraction;
+import edu.washington.cs.knowitall.normalization.NormalizedField;
+import edu.washington.cs.knowitall.sequence.SequenceException;
+
+/**
+ * Reads the extractions written by {@link BinaryExtractionSink}, a sentence
+ * at a time. The sentences and extractions are rebuilt as the objects they
+ * were written from, except that the sentences have no character offsets, so
+ * they can be written to another sink or given to a confidence function.
+ *
+ * Run as a program, converts binary files (or standard input) to the rows of
+ * {@link TsvExtractionSink} on standard output.
+ */
+public class BinaryExtractionReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final DataInputStream in;
+
+    private final List<String> symbols = new ArrayList<String>();
+    private String fileName;
+
+    // the record being read
+    private byte[] record = new byte[4096];
+    private int pos;
+    private int limit;
+
+    // the range, text and confidence of the last field read
+    private Range fieldRange;
+    private String fieldText;
+    private double fieldConf;
+
+    /**
+     * @param in
+     *            the stream to read from
+     * @throws IOException
+     *             if it is not in the binary extraction format
+     */
+    public BinaryExtractionReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+        if (this.in.readInt() != MAGIC) {
+            throw new IOException("Not a binary extraction file");
+        }
+        int version = this.in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary extraction version: "
+                    + version);
+        }
+    }
+
+    /**
+     * @param in
+     *            a stream that supports <code>mark</code> and
+     *            <code>reset</code>
+     * @return whether the stream starts like a binary extraction file. Its
+     *         position is left where it was.
+     * @throws IOException
+     */
+    public static boolean isBinary(InputStream in) throws IOException {
+        in.mark(4);
+        try {
+            int magic = 0;
+            for (int i = 0; i < 4; i++) {
+                int b = in.read();
+                if (b < 0) {
+                    return false;
+                }
+                magic = (magic << 8) | b;
+            }
+            return magic == MAGIC;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * @return the extractions of the next sentence, or null if there are no
+     *         more
+     * @throws IOException
+     *             if the input cannot be read, or is truncated or corrupt
+     */
+    public SentenceExtractions<NormalizedBinaryExtraction> read()
+            throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        limit = readLength(first);
+        if (record.length < limit) {
+            record = new byte[Math.max(limit, record.length * 2)];
+        }
+        try {
+            in.readFully(record, 0, limit);
+        } catch (EOFException e) {
+            throw new IOException("Truncated binary extraction record");
+        }
+        pos = 0;
+        try {
+            return readRecord();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupt binary extraction record");
+        } catch (SequenceException e) {
+            throw new IOException("Corrupt binary extraction record", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private SentenceExtractions<NormalizedBinaryExtraction> readRecord()
+            throws SequenceException, IOException {
+        if ((readByte() & FLAG_FILE_NAME) != 0) {
+            fileName = readString();
+        } else if (fileName == null) {
+            throw new IOException("Binary extraction record has no file name");
+        }
+        int sentNum = readVarInt();
+
+        int n = readVarInt();
+        String[] tokens = readStrings(n);
+        String[] posTags = readSymbols(n);
+        String[] chunkTags = readSymbols(n);
+        ChunkedSentence sent = new ChunkedSentence(tokens, posTags, chunkTags);
+
+        int m = readVarInt();
+        List<NormalizedBinaryExtraction> extrs =
+                new ArrayList<NormalizedBinaryExtraction>(m);
+        double[] confs = new double[m];
+        for (int i = 0; i < m; i++) {
+            ChunkedExtraction rel = readRelation(sent);
+            ChunkedArgumentExtraction arg1 = readArgument(sent, rel);
+            ChunkedArgumentExtraction arg2 = readArgument(sent, rel);
+            ChunkedBinaryExtraction extr = new ChunkedBinaryExtraction(rel,
+                    arg1, arg2);
+            confs[i] = readDouble();
+            NormalizedField arg1Norm = readNormalized(arg1);
+            NormalizedField relNorm = readNormalized(rel);
+            NormalizedField arg2Norm = readNormalized(arg2);
+            extrs.add(new NormalizedBinaryExtraction(extr, arg1Norm, relNorm,
+                    arg2Norm));
+        }
+        if (pos != limit) {
+            throw new IOException("Corrupt binary extraction record");
+        }
+        return new SentenceExtractions<NormalizedBinaryExtraction>(fileName,
+                sentNum, sent, extrs, confs);
+    }
+
+    private void readField() throws IOException {
+        int start = readVarInt();
+        fieldRange = new Range(start, readVarInt());
+        int flags = readByte();
+        fieldText = (flags & FIELD_TEXT) != 0 ? readString() : null;
+        fieldConf = (flags & FIELD_CONF) != 0 ? readDouble()
+                : DEFAULT_ARG_CONF;
+    }
+
+    private ChunkedExtraction readRelation(ChunkedSentence sent)
+            throws IOException {
+        readField();
+        if (fieldText != null) {
+            return new ChunkedExtraction(sent, fieldRange, fieldText);
+        } else {
+            return new ChunkedExtraction(sent, fieldRange);
+        }
+    }
+
+    private ChunkedArgumentExtraction readArgument(ChunkedSentence sent,
+            ChunkedExtraction rel) throws IOException {
+        readField();
+        if (fieldText != null) {
+            return new ChunkedArgumentExtraction(sent, fieldRange, rel,
+                    fieldText, fieldConf);
+        } else {
+            return new ChunkedArgumentExtraction(sent, fieldRange, rel,
+                    fieldConf);
+        }
+    }
+
+    private NormalizedField readNormalized(ChunkedExtraction original)
+            throws IOException, SequenceException {
+        int k = readVarInt();
+        String[] tokens = readStrings(k);
+        String[] posTags = readSymbols(k);
+        return new NormalizedField(original, tokens, posTags);
+    }
+
+    private String[] readStrings(int n) throws IOException {
+        String[] strings = new String[n];
+        for (int i = 0; i < n; i++) {
+            strings[i] = readString();
+        }
+        return strings;
+    }
+
+    private String[] readSymbols(int n) throws IOException {
+        String[] strings = new String[n];
+        for (int i = 0; i < n; i++) {
+            int symbol = readVarInt();
+            if (symbol == 0) {
+                strings[i] = readString();
+                if (symbols.size() < MAX_SYMBOLS) {
+                    symbols.add(strings[i]);
+                }
+            } else if (symbol <= symbols.size()) {
+                strings[i] = symbols.get(symbol - 1);
+            } else {
+                throw new IOException("Unknown symbol in binary extractions: "
+                        + symbol);
+            }
+        }
+        return strings;
+    }
+
+    private int readByte() throws IOException {
+        if (pos >= limit) {
+            throw new IOException("Corrupt binary extraction record");
+        }
+        return record[pos++] & 0xff;
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt varint in binary extractions");
+    }
+
+    private double readDouble() throws IOException {
+        if (limit - pos < 8) {
+            throw new IOException("Corrupt binary extraction record");
+        }
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | readByte();
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    private String readString() throws IOException {
+        int length = readVarInt();
+        if (length > limit - pos) {
+            throw new IOException("Corrupt binary extraction record");
+        }
+        String s = new String(record, pos, length, UTF8);
+        pos += length;
+        return s;
+    }
+
+    // reads the varint length of a record, whose first byte has been read
+    private int readLength(int first) throws IOException {
+        int value = first & 0x7f;
+        int shift = 7;
+        int b = first;
+        while ((b & 0x80) != 0) {
+            if (shift >= 32) {
+                throw new IOException("Corrupt binary extraction record");
+            }
+            b = in.read();
+            if (b < 0) {
+                throw new IOException("Truncated binary extraction record");
+            }
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        }
+        if (value < 0) {
+            throw new IOException("Corrupt binary extraction record");
+        }
+        return value;
+    }
+
+    /**
+     * Converts the binary extraction files given as arguments, or standard
+     * input, to tab-separated rows on standard output.
+     *
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        TsvExtractionSink sink = new TsvExtractionSink(System.out);
+        if (args.length == 0) {
+            convert(System.in, sink);
+        } else {
+            for (String arg : args) {
+                convert(new FileInputStream(arg), sink);
+            }
+        }
+        sink.flush();
+    }
+
+    private static void convert(InputStream in, ExtractionSink sink)
+            throws IOException {
+        BinaryExtractionReader reader = new BinaryExtractionReader(in);
+        try {
+            SentenceExtractions<NormalizedBinaryExtraction> sentExtrs;
+            while ((sentExtrs = reader.read()) != null) {
+                sentExtrs.writeTo(sink);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+}
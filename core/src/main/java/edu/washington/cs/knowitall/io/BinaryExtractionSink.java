@@ -0,0 +1,277 @@
+package edu.washington.cs.knowitall.io;
+
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.DEFAULT_ARG_CONF;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.FIELD_CONF;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.FIELD_TEXT;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.FLAG_FILE_NAME;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.MAGIC;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.MAX_SYMBOLS;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.UTF8;
+import static edu.washington.cs.knowitall.io.BinaryExtractionFormat.VERSION;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedArgumentExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
+import edu.washington.cs.knowitall.normalization.BinaryExtractionNormalizer;
+import edu.washington.cs.knowitall.normalization.NormalizedBinaryExtraction;
+import edu.washington.cs.knowitall.normalization.NormalizedField;
+
+/**
+ * Writes extractions in a compact binary format, which
+ * {@link BinaryExtractionReader} reads back. Each sentence is written once,
+ * as a length-prefixed record with its tokens, POS tags and chunk tags in
+ * columns, followed by its extractions as token offsets. Tags are written as
+ * numbers once they have been seen.
+ *
+ * The extractions of a sentence are held until an extraction of another
+ * sentence is written, or the sink is flushed.
+ */
+public class BinaryExtractionSink implements ExtractionSink {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final DataOutputStream out;
+    private final BinaryExtractionNormalizer normalizer;
+
+    // the record being written
+    private byte[] record = new byte[4096];
+    private int size;
+
+    private final Map<String, Integer> symbols = new HashMap<String, Integer>();
+    private String lastFileName;
+
+    // the sentence whose extractions are held
+    private String fileName;
+    private int sentNum;
+    private ChunkedSentence sent;
+    private final List<NormalizedBinaryExtraction> extrs =
+            new ArrayList<NormalizedBinaryExtraction>();
+    private final List<Double> confs = new ArrayList<Double>();
+
+    /**
+     * @param out
+     *            the stream to write to
+     * @param normalizer
+     *            the normalizer for extractions that are not normalized
+     *            already
+     * @throws IOException
+     */
+    public BinaryExtractionSink(OutputStream out,
+            BinaryExtractionNormalizer normalizer) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out,
+                BUFFER_SIZE));
+        this.normalizer = normalizer;
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+    }
+
+    /**
+     * @param out
+     *            the stream to write to
+     * @throws IOException
+     */
+    public BinaryExtractionSink(OutputStream out) throws IOException {
+        this(out, new BinaryExtractionNormalizer());
+    }
+
+    @Override
+    public void write(String fileName, int sentNum,
+            ChunkedBinaryExtraction extr, double conf) throws IOException {
+        if (sent != null
+                && (extr.getSentence() != sent || sentNum != this.sentNum
+                        || !fileName.equals(this.fileName))) {
+            writeRecord();
+        }
+        this.fileName = fileName;
+        this.sentNum = sentNum;
+        this.sent = extr.getSentence();
+        if (extr instanceof NormalizedBinaryExtraction) {
+            extrs.add((NormalizedBinaryExtraction) extr);
+        } else {
+            extrs.add(normalizer.normalize(extr));
+        }
+        confs.add(conf);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (sent != null) {
+            writeRecord();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+
+    private void writeRecord() throws IOException {
+        size = 0;
+        if (fileName.equals(lastFileName)) {
+            writeByte(0);
+        } else {
+            writeByte(FLAG_FILE_NAME);
+            writeString(fileName);
+            lastFileName = fileName;
+        }
+        writeVarInt(sentNum);
+
+        writeVarInt(sent.getLength());
+        for (String token : sent.getTokens()) {
+            writeString(token);
+        }
+        for (String tag : sent.getPosTags()) {
+            writeSymbol(tag);
+        }
+        for (String tag : sent.getChunkTags()) {
+            writeSymbol(tag);
+        }
+
+        writeVarInt(extrs.size());
+        for (int i = 0; i < extrs.size(); i++) {
+            NormalizedBinaryExtraction extr = extrs.get(i);
+            writeField(extr.getRelation());
+            writeField(extr.getArgument1());
+            writeField(extr.getArgument2());
+            writeDouble(confs.get(i));
+            writeNormalized(extr.getArgument1Norm());
+            writeNormalized(extr.getRelationNorm());
+            writeNormalized(extr.getArgument2Norm());
+        }
+
+        BinaryExtractionFormat.writeVarInt(out, size);
+        out.write(record, 0, size);
+
+        sent = null;
+        extrs.clear();
+        confs.clear();
+    }
+
+    private void writeField(ChunkedExtraction field) {
+        Range range = field.getRange();
+        writeVarInt(range.getStart());
+        writeVarInt(range.getLength());
+
+        String text = field.getText();
+        boolean hasText = !isTokens(text, range);
+        boolean hasConf = field instanceof ChunkedArgumentExtraction
+                && ((ChunkedArgumentExtraction) field).getConfidence()
+                        != DEFAULT_ARG_CONF;
+        writeByte((hasText ? FIELD_TEXT : 0) | (hasConf ? FIELD_CONF : 0));
+        if (hasText) {
+            writeString(text);
+        }
+        if (hasConf) {
+            writeDouble(((ChunkedArgumentExtraction) field).getConfidence());
+        }
+    }
+
+    // whether the text is the tokens of the range joined by spaces
+    private boolean isTokens(String text, Range range) {
+        List<String> tokens = sent.getTokens();
+        int pos = 0;
+        int start = range.getStart();
+        for (int i = start; i < start + range.getLength(); i++) {
+            if (i > start) {
+                if (pos == text.length() || text.charAt(pos) != ' ') {
+                    return false;
+                }
+                pos++;
+            }
+            String token = tokens.get(i);
+            if (!text.startsWith(token, pos)) {
+                return false;
+            }
+            pos += token.length();
+        }
+        return pos == text.length();
+    }
+
+    private void writeNormalized(NormalizedField field) {
+        List<String> tokens = field.getTokens();
+        writeVarInt(tokens.size());
+        for (String token : tokens) {
+            writeString(token);
+        }
+        for (String tag : field.getPosTags()) {
+            writeSymbol(tag);
+        }
+    }
+
+    private void writeString(String s) {
+        int length = s.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = s.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            writeVarInt(length);
+            ensure(length);
+            for (int i = 0; i < length; i++) {
+                record[size++] = (byte) s.charAt(i);
+            }
+        } else {
+            byte[] bytes = s.getBytes(UTF8);
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, record, size, bytes.length);
+            size += bytes.length;
+        }
+    }
+
+    private void writeSymbol(String s) {
+        Integer symbol = symbols.get(s);
+        if (symbol != null) {
+            writeVarInt(symbol + 1);
+        } else {
+            writeVarInt(0);
+            writeString(s);
+            if (symbols.size() < MAX_SYMBOLS) {
+                symbols.put(s, symbols.size());
+            }
+        }
+    }
+
+    private void writeByte(int b) {
+        ensure(1);
+        record[size++] = (byte) b;
+    }
+
+    private void writeVarInt(int value) {
+        ensure(5);
+        while ((value & ~0x7f) != 0) {
+            record[size++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        record[size++] = (byte) value;
+    }
+
+    private void writeDouble(double value) {
+        ensure(8);
+        long bits = Double.doubleToLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            record[size++] = (byte) (bits >>> shift);
+        }
+    }
+
+    private void ensure(int n) {
+        if (size + n > record.length) {
+            record = Arrays.copyOf(record, Math.max(record.length * 2, size
+                    + n));
+        }
+    }
+}
@@ -0,0 +1,535 @@
+package edu.washington.cs.knowitall.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.sequence.SequenceException;
+
+/**
+ * An append-only file of chunked sentences, each stored under a key of
+ * {@link #KEY_LENGTH} bytes, like the hash of the sentence and the chunker
+ * that chunked it used by <code>CachingSentenceChunker</code>. A sentence is
+ * only stored once under a key, and is never changed or removed.
+ *
+ * The file starts with a magic number and a version, followed by records of
+ * the form:
+ *
+ * <pre>
+ * key | payload length (int) | payload | CRC32 of the payload (int)
+ * </pre>
+ *
+ * where the payload is the number of tokens n (varint), a flags byte (1 if
+ * the sentence has offsets), the tokens, POS tags and chunk tags (each a
+ * varint length and UTF-8 bytes), and the offsets (varint start and length)
+ * if any.
+ *
+ * The keys are indexed in memory when the file is opened. The records that
+ * were in the file then are read through memory-mapped segments of it; the
+ * records added since are buffered, and read back from the file. A record
+ * that was cut off at the end of the file, e.g. by a crash, is discarded when
+ * the file is opened, and a record whose checksum does not match is treated
+ * as missing.
+ *
+ * A cache is thread-safe, but a file can only be opened by one cache at a
+ * time, which is enforced with a file lock.
+ */
+public class ChunkCache implements Closeable, Flushable {
+
+    /** The length of a key */
+    public static final int KEY_LENGTH = 20;
+
+    private static final int MAGIC = 0x52564343; // "RVCC"
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 8;
+
+    private static final int MAX_PAYLOAD_LENGTH = 1024 * 1024;
+    private static final int MAX_RECORD_LENGTH = KEY_LENGTH + 4
+            + MAX_PAYLOAD_LENGTH + 4;
+
+    // the records in a segment start in its first SEGMENT_SIZE bytes, and
+    // the segment is mapped far enough past them to hold the last record
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int FLAG_OFFSETS = 1;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final FileLock lock;
+
+    private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+    private final long mappedLength;
+
+    // the records that have not been written to the file yet, which go at
+    // its end
+    private final ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+    private long fileLength;
+
+    private final OffsetIndex index = new OffsetIndex();
+
+    // the record being read or written
+    private byte[] record = new byte[4096];
+    private int pos;
+    private final CRC32 crc = new CRC32();
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Opens the cache in <code>cacheFile</code>, creating it if it does not
+     * exist.
+     *
+     * @param cacheFile
+     * @throws IOException
+     *             if the file cannot be read or locked, or is not a chunk
+     *             cache
+     */
+    public ChunkCache(File cacheFile) throws IOException {
+        file = new RandomAccessFile(cacheFile, "rw");
+        channel = file.getChannel();
+        try {
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                throw new IOException("Chunk cache is in use: " + cacheFile);
+            }
+            if (lock == null) {
+                throw new IOException("Chunk cache is in use: " + cacheFile);
+            }
+            long length = channel.size();
+            if (length == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                write(header, 0);
+                fileLength = HEADER_LENGTH;
+            } else {
+                fileLength = readIndex(length);
+                if (fileLength < length) {
+                    channel.truncate(fileLength);
+                }
+            }
+            mappedLength = fileLength;
+            for (long start = 0; start < mappedLength; start += SEGMENT_SIZE) {
+                segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(mappedLength - start, SEGMENT_SIZE
+                                + MAX_RECORD_LENGTH)));
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param key
+     * @return the sentence stored under <code>key</code>, or null if there is
+     *         none
+     * @throws IOException
+     */
+    public synchronized ChunkedSentence get(byte[] key) throws IOException {
+        long offset = index.get(prefix(key));
+        ChunkedSentence sent = null;
+        if (offset > 0) {
+            sent = readRecord(key, offset);
+        }
+        if (sent == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return sent;
+    }
+
+    /**
+     * Stores <code>sent</code> under <code>key</code>, unless there is a
+     * sentence stored under it already, or the sentence is too long to store.
+     *
+     * @param key
+     * @param sent
+     * @throws IOException
+     */
+    public synchronized void put(byte[] key, ChunkedSentence sent)
+            throws IOException {
+        long prefix = prefix(key);
+        if (index.get(prefix) > 0) {
+            return;
+        }
+        pos = 0;
+        writeBytes(key, 0, KEY_LENGTH);
+        writeInt(0);
+        writePayload(sent);
+        int payloadLength = pos - KEY_LENGTH - 4;
+        if (payloadLength > MAX_PAYLOAD_LENGTH) {
+            return;
+        }
+        crc.reset();
+        crc.update(record, KEY_LENGTH + 4, payloadLength);
+        writeInt((int) crc.getValue());
+        setInt(KEY_LENGTH, payloadLength);
+
+        if (pending.remaining() < pos) {
+            flushPending();
+        }
+        long offset = fileLength + pending.position();
+        if (pending.remaining() < pos) {
+            write(ByteBuffer.wrap(record, 0, pos), fileLength);
+            fileLength += pos;
+        } else {
+            pending.put(record, 0, pos);
+        }
+        index.put(prefix, offset);
+    }
+
+    /**
+     * @return the number of sentences in the cache
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * @return the number of calls to {@link #get(byte[])} that found a
+     *         sentence
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of calls to {@link #get(byte[])} that did not find a
+     *         sentence
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Writes the sentences added since the last flush to the file.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        flushPending();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flushPending();
+            lock.release();
+        } finally {
+            file.close();
+        }
+    }
+
+    private void flushPending() throws IOException {
+        if (pending.position() > 0) {
+            pending.flip();
+            int length = pending.remaining();
+            write(pending, fileLength);
+            fileLength += length;
+            pending.clear();
+        }
+    }
+
+    private void write(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /*
+     * Indexes the records in the first length bytes of the file, and returns
+     * where the last whole record ends.
+     */
+    private long readIndex(long length) throws IOException {
+        channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel), BUFFER_SIZE));
+        if (length < HEADER_LENGTH || in.readInt() != MAGIC) {
+            throw new IOException("Not a chunk cache");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported chunk cache version: "
+                    + version);
+        }
+        long offset = HEADER_LENGTH;
+        byte[] key = new byte[KEY_LENGTH];
+        while (offset + KEY_LENGTH + 4 <= length) {
+            in.readFully(key);
+            int payloadLength = in.readInt();
+            if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_LENGTH
+                    || offset + KEY_LENGTH + 4 + payloadLength + 4 > length) {
+                break;
+            }
+            in.skipBytes(payloadLength + 4);
+            index.put(prefix(key), offset);
+            offset += KEY_LENGTH + 4 + payloadLength + 4;
+        }
+        return offset;
+    }
+
+    // reads the record at offset, or returns null if it is not for key
+    private ChunkedSentence readRecord(byte[] key, long offset)
+            throws IOException {
+        if (offset + KEY_LENGTH + 4 > fileLength) {
+            flushPending();
+        }
+        readBytes(offset, KEY_LENGTH + 4);
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            if (record[i] != key[i]) {
+                return null;
+            }
+        }
+        int payloadLength = getInt(KEY_LENGTH);
+        if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_LENGTH) {
+            return null;
+        }
+        int length = KEY_LENGTH + 4 + payloadLength + 4;
+        if (offset + length > fileLength) {
+            flushPending();
+        }
+        readBytes(offset, length);
+        crc.reset();
+        crc.update(record, KEY_LENGTH + 4, payloadLength);
+        if (getInt(length - 4) != (int) crc.getValue()) {
+            return null;
+        }
+        pos = KEY_LENGTH + 4;
+        try {
+            return readPayload();
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        } catch (NegativeArraySizeException e) {
+            return null;
+        } catch (SequenceException e) {
+            return null;
+        }
+    }
+
+    // reads length bytes at offset into the record buffer
+    private void readBytes(long offset, int length) throws IOException {
+        if (record.length < length) {
+            record = new byte[Math.max(length, 2 * record.length)];
+        }
+        if (offset + length <= mappedLength) {
+            int segment = (int) (offset / SEGMENT_SIZE);
+            ByteBuffer buffer = segments.get(segment).duplicate();
+            buffer.position((int) (offset - segment * SEGMENT_SIZE));
+            buffer.get(record, 0, length);
+        } else {
+            ByteBuffer buffer = ByteBuffer.wrap(record, 0, length);
+            while (buffer.hasRemaining()) {
+                int n = channel.read(buffer, offset + buffer.position());
+                if (n < 0) {
+                    throw new IOException("Truncated chunk cache");
+                }
+            }
+        }
+    }
+
+    private void writePayload(ChunkedSentence sent) {
+        int n = sent.getLength();
+        List<Range> offsets = sent.getOffsets();
+        writeVarInt(n);
+        writeByte(offsets != null ? FLAG_OFFSETS : 0);
+        for (String token : sent.getTokens()) {
+            writeString(token);
+        }
+        for (String posTag : sent.getPosTags()) {
+            writeString(posTag);
+        }
+        for (String chunkTag : sent.getChunkTags()) {
+            writeString(chunkTag);
+        }
+        if (offsets != null) {
+            for (Range range : offsets) {
+                writeVarInt(range.getStart());
+                writeVarInt(range.getLength());
+            }
+        }
+    }
+
+    private ChunkedSentence readPayload() throws SequenceException {
+        int n = readVarInt();
+        int flags = record[pos++];
+        String[] tokens = readStrings(n);
+        String[] posTags = readStrings(n);
+        String[] chunkTags = readStrings(n);
+        if ((flags & FLAG_OFFSETS) != 0) {
+            Range[] offsets = new Range[n];
+            for (int i = 0; i < n; i++) {
+                int start = readVarInt();
+                offsets[i] = new Range(start, readVarInt());
+            }
+            return new ChunkedSentence(offsets, tokens, posTags, chunkTags);
+        } else {
+            return new ChunkedSentence(tokens, posTags, chunkTags);
+        }
+    }
+
+    private String[] readStrings(int n) {
+        String[] strings = new String[n];
+        for (int i = 0; i < n; i++) {
+            int length = readVarInt();
+            strings[i] = new String(record, pos, length, UTF8);
+            pos += length;
+        }
+        return strings;
+    }
+
+    private int readVarInt() {
+        int value = 0;
+        for (int shift = 0;; shift += 7) {
+            int b = record[pos++];
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private int getInt(int at) {
+        return ((record[at] & 0xff) << 24) | ((record[at + 1] & 0xff) << 16)
+                | ((record[at + 2] & 0xff) << 8) | (record[at + 3] & 0xff);
+    }
+
+    private void ensure(int n) {
+        if (pos + n > record.length) {
+            record = Arrays.copyOf(record, Math.max(pos + n,
+                    2 * record.length));
+        }
+    }
+
+    private void writeByte(int b) {
+        ensure(1);
+        record[pos++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, record, pos, length);
+        pos += length;
+    }
+
+    private void writeInt(int value) {
+        ensure(4);
+        setInt(pos, value);
+        pos += 4;
+    }
+
+    private void setInt(int at, int value) {
+        record[at] = (byte) (value >>> 24);
+        record[at + 1] = (byte) (value >>> 16);
+        record[at + 2] = (byte) (value >>> 8);
+        record[at + 3] = (byte) value;
+    }
+
+    private void writeVarInt(int value) {
+        ensure(5);
+        while ((value & ~0x7f) != 0) {
+            record[pos++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        record[pos++] = (byte) value;
+    }
+
+    private void writeString(String s) {
+        byte[] bytes = s.getBytes(UTF8);
+        writeVarInt(bytes.length);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    // the first eight bytes of a key, which index it
+    private static long prefix(byte[] key) {
+        if (key.length != KEY_LENGTH) {
+            throw new IllegalArgumentException("Chunk cache keys must be "
+                    + KEY_LENGTH + " bytes long");
+        }
+        long prefix = 0;
+        for (int i = 0; i < 8; i++) {
+            prefix = (prefix << 8) | (key[i] & 0xff);
+        }
+        return prefix;
+    }
+
+    /*
+     * A map from the prefixes of keys to the offsets of their records, with
+     * open addressing, so that it takes 16 bytes per record rather than the
+     * hundred or so of a HashMap<Long, Long>. The offsets are positive, so 0
+     * marks an empty slot.
+     */
+    private static class OffsetIndex {
+        private long[] prefixes = new long[1024];
+        private long[] offsets = new long[1024];
+        private int size = 0;
+
+        int size() {
+            return size;
+        }
+
+        long get(long prefix) {
+            int mask = prefixes.length - 1;
+            for (int i = slot(prefix, mask);; i = (i + 1) & mask) {
+                if (offsets[i] == 0 || prefixes[i] == prefix) {
+                    return offsets[i];
+                }
+            }
+        }
+
+        void put(long prefix, long offset) {
+            if (2 * (size + 1) > prefixes.length) {
+                resize();
+            }
+            int mask = prefixes.length - 1;
+            for (int i = slot(prefix, mask);; i = (i + 1) & mask) {
+                if (offsets[i] == 0) {
+                    prefixes[i] = prefix;
+                    offsets[i] = offset;
+                    size++;
+                    return;
+                } else if (prefixes[i] == prefix) {
+                    return;
+                }
+            }
+        }
+
+        private void resize() {
+            long[] oldPrefixes = prefixes;
+            long[] oldOffsets = offsets;
+            prefixes = new long[2 * oldPrefixes.length];
+            offsets = new long[2 * oldOffsets.length];
+            size = 0;
+            for (int i = 0; i < oldPrefixes.length; i++) {
+                if (oldOffsets[i] != 0) {
+                    put(oldPrefixes[i], oldOffsets[i]);
+                }
+            }
+        }
+
+        private static int slot(long prefix, int mask) {
+            return (int) (prefix ^ (prefix >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package edu.washington.cs.knowitall.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+import edu.washington.cs.knowitall.normalization.NormalizedBinaryExtraction;
+
+/**
+ * Where extractions are written to, one at a time, in the order of their
+ * sentences. The extractions of a sentence are written one after another and
+ * share its <code>ChunkedSentence</code> object, so a sink can write a
+ * sentence once for all of them.
+ *
+ * A sink normalizes the extractions it needs the normalized fields of,
+ * unless they are {@link NormalizedBinaryExtraction} objects already.
+ *
+ * @see TsvExtractionSink
+ * @see BinaryExtractionSink
+ */
+public interface ExtractionSink extends Closeable, Flushable {
+
+    /**
+     * Writes an extraction.
+     *
+     * @param fileName
+     *            the name of the file or page the sentence is from
+     * @param sentNum
+     *            the number of the sentence in its file or page
+     * @param extr
+     *            the extraction, which may be a
+     *            {@link NormalizedBinaryExtraction}
+     * @param conf
+     *            the confidence of the extraction
+     * @throws IOException
+     */
+    public void write(String fileName, int sentNum,
+            ChunkedBinaryExtraction extr, double conf) throws IOException;
+}
@@ -0,0 +1,92 @@
+package edu.washington.cs.knowitall.io;
+
+import java.io.IOException;
+import java.util.List;
+
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+
+/**
+ * The extractions of a sentence and their confidences, as read by
+ * {@link BinaryExtractionReader}, which rebuilds their normalized fields, or
+ * {@link TsvExtractionReader}, which does not.
+ *
+ * @param <E>
+ *            the type of the extractions
+ */
+public class SentenceExtractions<E extends ChunkedBinaryExtraction> {
+
+    private final String fileName;
+    private final int sentNum;
+    private final ChunkedSentence sent;
+    private final List<E> extrs;
+    private final double[] confs;
+
+    /**
+     * @param fileName
+     *            the name of the file or page the sentence is from
+     * @param sentNum
+     *            the number of the sentence in its file or page
+     * @param sent
+     * @param extrs
+     *            the extractions of the sentence
+     * @param confs
+     *            the confidences of the extractions
+     */
+    public SentenceExtractions(String fileName, int sentNum,
+            ChunkedSentence sent, List<E> extrs, double[] confs) {
+        this.fileName = fileName;
+        this.sentNum = sentNum;
+        this.sent = sent;
+        this.extrs = extrs;
+        this.confs = confs;
+    }
+
+    /**
+     * @return the name of the file or page the sentence is from
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return the number of the sentence in its file or page
+     */
+    public int getSentenceNumber() {
+        return sentNum;
+    }
+
+    /**
+     * @return the sentence
+     */
+    public ChunkedSentence getSentence() {
+        return sent;
+    }
+
+    /**
+     * @return the extractions of the sentence
+     */
+    public List<E> getExtractions() {
+        return extrs;
+    }
+
+    /**
+     * @param i
+     * @return the confidence of the ith extraction
+     */
+    public double getConf(int i) {
+        return confs[i];
+    }
+
+    /**
+     * Writes the extractions to the sink.
+     *
+     * @param sink
+     * @throws IOException
+     */
+    public void writeTo(ExtractionSink sink) throws IOException {
+        for (int i = 0; i < extrs.size(); i++) {
+            sink.write(fileName, sentNum, extrs.get(i), confs[i]);
+        }
+    }
+}
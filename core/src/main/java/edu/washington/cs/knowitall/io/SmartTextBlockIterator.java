@@ -1,8 +1,8 @@
 package edu.washington.cs.knowitall.io;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.util.Iterator;
-import java.util.regex.Pattern;
 
 import com.google.common.collect.AbstractIterator;
 
@@ -16,8 +16,7 @@ import com.google.common.collect.AbstractIterator;
  */
 public class SmartTextBlockIterator extends AbstractIterator<String> {
 
-    private Iterator<String> lineIter;
-    private String blockBreak = "";
+    private TextBlockReader reader;
 
     /**
      * @param reader
@@ -26,7 +25,7 @@ public class SmartTextBlockIterator extends AbstractIterator<String> {
      *            the value that represents a block break.
      */
     public SmartTextBlockIterator(BufferedReader reader, String blockBreak) {
-        init(new BufferedReaderIterator(reader), blockBreak);
+        init(new TextBlockReader(reader, blockBreak, Integer.MAX_VALUE));
     }
 
     /**
@@ -37,7 +36,7 @@ public class SmartTextBlockIterator extends AbstractIterator<String> {
      *            the reader to extract blocks from.
      */
     public SmartTextBlockIterator(BufferedReader reader) {
-        init(new BufferedReaderIterator(reader), "");
+        init(new TextBlockReader(reader, "", Integer.MAX_VALUE));
     }
 
     /**
@@ -48,7 +47,7 @@ public class SmartTextBlockIterator extends AbstractIterator<String> {
      * @param blockBreak
      */
     public SmartTextBlockIterator(Iterator<String> lineIter, String blockBreak) {
-        init(lineIter, blockBreak);
+        init(new TextBlockReader(lineIter, blockBreak, Integer.MAX_VALUE));
     }
 
     /**
@@ -58,7 +57,7 @@ public class SmartTextBlockIterator extends AbstractIterator<String> {
      * @param lineIter
      */
     public SmartTextBlockIterator(Iterator<String> lineIter) {
-        init(lineIter, "");
+        init(new TextBlockReader(lineIter, "", Integer.MAX_VALUE));
     }
 
     /**
@@ -69,7 +68,8 @@ public class SmartTextBlockIterator extends AbstractIterator<String> {
      * @param blockBreak
      */
     public SmartTextBlockIterator(Iterable<String> iter, String blockBreak) {
-        init(iter.iterator(), blockBreak);
+        init(new TextBlockReader(iter.iterator(), blockBreak,
+                Integer.MAX_VALUE));
     }
 
     /**
@@ -79,35 +79,21 @@ public class SmartTextBlockIterator extends AbstractIterator<String> {
      * @param iter
      */
     public SmartTextBlockIterator(Iterable<String> iter) {
-        init(iter.iterator(), "");
+        init(new TextBlockReader(iter.iterator(), "", Integer.MAX_VALUE));
     }
 
-    private void init(Iterator<String> lineIter, String blockBreak) {
-        this.lineIter = lineIter;
-        this.blockBreak = blockBreak;
-    }
-
-    // remove non-breaking whitespace at this level because
-    // they do not even get matched by the regex \s
-    Pattern convertToSpace = Pattern.compile("\\xa0");
-
-    private String cleanupLine(String line) {
-        return convertToSpace.matcher(line).replaceAll(" ").trim();
+    private void init(TextBlockReader reader) {
+        this.reader = reader;
     }
 
     protected String computeNext() {
-        while (lineIter.hasNext()) {
-            String line = cleanupLine(lineIter.next());
-
-            StringBuffer buf = new StringBuffer(line).append(" ");
-            while (lineIter.hasNext() && !line.equals(blockBreak)) {
-                line = cleanupLine(lineIter.next());
-                buf.append(line).append(" ");
-            }
-            String result = buf.toString();
-            if (!result.equals("")) {
-                return result.trim();
+        try {
+            CharSequence block = reader.readBlock();
+            if (block != null) {
+                return block.toString();
             }
+        } catch (IOException e) {
+            // like BufferedReaderIterator, end at the first error
         }
         return endOfData();
     }
@@ -1,8 +1,8 @@
 package edu.washington.cs.knowitall.io;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.util.Iterator;
-import java.util.regex.Pattern;
 
 import com.google.common.collect.AbstractIterator;
 
@@ -16,9 +16,9 @@ import com.google.common.collect.AbstractIterator;
  */
 public class TextBlockIterator extends AbstractIterator<String> {
 
+    // the number of lines a block can have after its first line
     private static final int MAX_BLOCK_SIZE = 10000;
-    private Iterator<String> lineIter;
-    private String blockBreak = "";
+    private TextBlockReader reader;
 
     /**
      * @param reader
@@ -27,7 +27,7 @@ public class TextBlockIterator extends AbstractIterator<String> {
      *            the value that represents a block break.
      */
     public TextBlockIterator(BufferedReader reader, String blockBreak) {
-        init(new BufferedReaderIterator(reader), blockBreak);
+        init(new TextBlockReader(reader, blockBreak, MAX_BLOCK_SIZE + 1));
     }
 
     /**
@@ -38,7 +38,7 @@ public class TextBlockIterator extends AbstractIterator<String> {
      *            the reader to extract blocks from.
      */
     public TextBlockIterator(BufferedReader reader) {
-        init(new BufferedReaderIterator(reader), "");
+        init(new TextBlockReader(reader, "", MAX_BLOCK_SIZE + 1));
     }
 
     /**
@@ -49,7 +49,7 @@ public class TextBlockIterator extends AbstractIterator<String> {
      * @param blockBreak
      */
     public TextBlockIterator(Iterator<String> lineIter, String blockBreak) {
-        init(lineIter, blockBreak);
+        init(new TextBlockReader(lineIter, blockBreak, MAX_BLOCK_SIZE + 1));
     }
 
     /**
@@ -59,7 +59,7 @@ public class TextBlockIterator extends AbstractIterator<String> {
      * @param lineIter
      */
     public TextBlockIterator(Iterator<String> lineIter) {
-        init(lineIter, "");
+        init(new TextBlockReader(lineIter, "", MAX_BLOCK_SIZE + 1));
     }
 
     /**
@@ -70,7 +70,8 @@ public class TextBlockIterator extends AbstractIterator<String> {
      * @param blockBreak
      */
     public TextBlockIterator(Iterable<String> iter, String blockBreak) {
-        init(iter.iterator(), blockBreak);
+        init(new TextBlockReader(iter.iterator(), blockBreak,
+                MAX_BLOCK_SIZE + 1));
     }
 
     /**
@@ -80,38 +81,21 @@ public class TextBlockIterator extends AbstractIterator<String> {
      * @param iter
      */
     public TextBlockIterator(Iterable<String> iter) {
-        init(iter.iterator(), "");
+        init(new TextBlockReader(iter.iterator(), "", MAX_BLOCK_SIZE + 1));
     }
 
-    private void init(Iterator<String> lineIter, String blockBreak) {
-        this.lineIter = lineIter;
-        this.blockBreak = blockBreak;
-    }
-
-    // remove non-breaking whitespace at this level because
-    // they do not even get matched by the regex \s
-    Pattern convertToSpace = Pattern.compile("\\xa0");
-
-    private String cleanupLine(String line) {
-        return convertToSpace.matcher(line).replaceAll(" ").trim();
+    private void init(TextBlockReader reader) {
+        this.reader = reader;
     }
 
     protected String computeNext() {
-        while (lineIter.hasNext()) {
-            String line = cleanupLine(lineIter.next());
-
-            StringBuffer buf = new StringBuffer(line).append(" ");
-            int linesRead = 0;
-            while (lineIter.hasNext() && !line.equals(blockBreak)
-                    && linesRead < MAX_BLOCK_SIZE) {
-                line = cleanupLine(lineIter.next());
-                buf.append(line).append(" ");
-                linesRead++;
-            }
-            String result = buf.toString();
-            if (!result.equals("")) {
-                return result.trim();
+        try {
+            CharSequence block = reader.readBlock();
+            if (block != null) {
+                return block.toString();
             }
+        } catch (IOException e) {
+            // like BufferedReaderIterator, end at the first error
         }
         return endOfData();
     }
@@ -0,0 +1,248 @@
+package edu.washington.cs.knowitall.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Iterator;
+
+/**
+ * Reads text "blocks" from a <code>Reader</code>. A block is a run of lines
+ * that ends with a line equal to the block break (an empty line by default),
+ * or after a maximum number of lines. Each line is trimmed, non-breaking
+ * spaces become spaces, and the lines are joined with spaces.
+ *
+ * The input is scanned in a single pass over a large buffer, and the text of
+ * a block is copied once, into a buffer that is reused for the next block.
+ *
+ * @see TextBlockIterator
+ */
+public class TextBlockReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader in;
+    private final String blockBreak;
+    private final int maxLines;
+
+    private char[] buffer = new char[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+    private boolean eof = false;
+    // the last line ended with \r, so a \n that follows belongs to it
+    private boolean skipLf = false;
+
+    private char[] block = new char[BUFFER_SIZE];
+    private int blockLength = 0;
+
+    /**
+     * @param in
+     *            the reader to read blocks from
+     * @param blockBreak
+     *            the line, after trimming, that ends a block
+     * @param maxLines
+     *            the maximum number of lines in a block
+     */
+    public TextBlockReader(Reader in, String blockBreak, int maxLines) {
+        this.in = in;
+        this.blockBreak = blockBreak;
+        this.maxLines = maxLines;
+    }
+
+    /**
+     * Reads blocks from empty lines to empty lines, of any length.
+     *
+     * @param in
+     */
+    public TextBlockReader(Reader in) {
+        this(in, "", Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads blocks from the given lines, which should not contain line
+     * breaks.
+     */
+    public TextBlockReader(Iterator<String> lines, String blockBreak,
+            int maxLines) {
+        this(new LineIteratorReader(lines), blockBreak, maxLines);
+    }
+
+    /**
+     * @return the next block, or null if there are no more lines. A block of
+     *         empty lines is empty. The block is only valid until the next
+     *         call, which reuses its buffer; use <code>toString()</code> to
+     *         keep it.
+     * @throws IOException
+     */
+    public CharSequence readBlock() throws IOException {
+        blockLength = 0;
+        int lines = 0;
+        while (lines < maxLines) {
+            int end = findLineEnd();
+            if (end < 0) {
+                break;
+            }
+            lines++;
+            if (appendLine(end)) {
+                break;
+            }
+        }
+        if (lines == 0) {
+            return null;
+        }
+
+        // the lines are trimmed, so this only trims empty lines
+        int start = 0;
+        int end = blockLength;
+        while (start < end && block[start] <= ' ') {
+            start++;
+        }
+        while (end > start && block[end - 1] <= ' ') {
+            end--;
+        }
+        return CharBuffer.wrap(block, start, end - start);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // appends the line that ends at the index and a space to the block, and
+    // returns whether it is the block break
+    private boolean appendLine(int end) {
+        int start = pos;
+        pos = end;
+        if (pos < limit) {
+            skipLf = buffer[pos] == '\r';
+            pos++;
+        }
+
+        while (start < end && isSpace(buffer[start])) {
+            start++;
+        }
+        while (end > start && isSpace(buffer[end - 1])) {
+            end--;
+        }
+        int length = end - start;
+        if (blockLength + length + 1 > block.length) {
+            char[] bigger = new char[Math.max(block.length * 2, blockLength
+                    + length + 1)];
+            System.arraycopy(block, 0, bigger, 0, blockLength);
+            block = bigger;
+        }
+        int lineStart = blockLength;
+        for (int i = start; i < end; i++) {
+            char c = buffer[i];
+            block[blockLength++] = c == '\u00a0' ? ' ' : c;
+        }
+        block[blockLength++] = ' ';
+
+        if (length != blockBreak.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (block[lineStart + i] != blockBreak.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // returns the index of the line break that ends the line at pos, or the
+    // limit if the input ends first, reading more input as needed; returns
+    // -1 if there are no more lines
+    private int findLineEnd() throws IOException {
+        if (skipLf) {
+            if (pos == limit) {
+                fill();
+            }
+            if (pos < limit && buffer[pos] == '\n') {
+                pos++;
+            }
+            skipLf = false;
+        }
+        int i = pos;
+        while (true) {
+            while (i < limit) {
+                char c = buffer[i];
+                if (c == '\n' || c == '\r') {
+                    return i;
+                }
+                i++;
+            }
+            if (eof) {
+                return i > pos ? i : -1;
+            }
+            i -= pos;
+            fill();
+            i += pos;
+        }
+    }
+
+    // moves the unread input to the start of the buffer, growing it if it is
+    // full, and reads more
+    private void fill() throws IOException {
+        int size = limit - pos;
+        if (size == buffer.length) {
+            char[] bigger = new char[buffer.length * 2];
+            System.arraycopy(buffer, pos, bigger, 0, size);
+            buffer = bigger;
+        } else if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, size);
+        }
+        pos = 0;
+        limit = size;
+        int n = in.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+
+    // the characters removed by String.trim(), and non-breaking spaces
+    private static boolean isSpace(char c) {
+        return c <= ' ' || c == '\u00a0';
+    }
+
+    /*
+     * A reader over lines, each followed by a line break.
+     */
+    private static class LineIteratorReader extends Reader {
+        private final Iterator<String> lines;
+        private String line;
+        private int linePos;
+
+        LineIteratorReader(Iterator<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (line == null) {
+                if (!lines.hasNext()) {
+                    return -1;
+                }
+                line = lines.next();
+                linePos = 0;
+            }
+            int n = Math.min(len, line.length() - linePos);
+            line.getChars(linePos, linePos + n, cbuf, off);
+            linePos += n;
+            if (n < len) {
+                cbuf[off + n] = '\n';
+                n++;
+                line = null;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package edu.washington.cs.knowitall.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.io.TsvExtractionSink.Column;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedArgumentExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
+import edu.washington.cs.knowitall.sequence.SequenceException;
+
+/**
+ * Reads the rows written by {@link TsvExtractionSink}, a sentence at a time.
+ * The consecutive rows of a sentence are grouped, and its
+ * <code>ChunkedSentence</code> is rebuilt once from the words and tags of the
+ * first, so the sentences and extractions can be written to another sink or
+ * given to a confidence function without chunking the sentences again.
+ *
+ * The rows must have the file name, sentence number, argument and relation
+ * offsets, and sentence words, POS tags and chunk tags columns. The text of
+ * the arguments and relation, and the confidence, are read if they are
+ * there. The normalized columns are ignored, since a sink normalizes the
+ * extractions again if it needs to.
+ */
+public class TsvExtractionReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final Column[] REQUIRED = { Column.FILENAME,
+            Column.SENTENCE_NUMBER, Column.ARG1_START, Column.ARG1_END,
+            Column.REL_START, Column.REL_END, Column.ARG2_START,
+            Column.ARG2_END, Column.SENTENCE_WORDS, Column.SENTENCE_POS_TAGS,
+            Column.SENTENCE_CHUNK_TAGS };
+
+    private final BufferedReader in;
+    private final int numColumns;
+    // the index of each column in a row, or -1 if it is not there
+    private final int[] index = new int[Column.values().length];
+
+    // the next row, which has been read but not grouped yet
+    private String[] next;
+    private int lineNum = 0;
+
+    /**
+     * Reads rows with the columns of <code>CommandLineReVerb</code>'s default
+     * output.
+     *
+     * @param in
+     */
+    public TsvExtractionReader(Reader in) {
+        this(in, Arrays.asList(Column.values()));
+    }
+
+    /**
+     * @param in
+     * @param columns
+     *            the columns of the rows, in order
+     * @throws IllegalArgumentException
+     *             if a column needed to rebuild the extractions is missing
+     */
+    public TsvExtractionReader(Reader in, List<Column> columns) {
+        Arrays.fill(index, -1);
+        for (int i = 0; i < columns.size(); i++) {
+            index[columns.get(i).ordinal()] = i;
+        }
+        for (Column column : REQUIRED) {
+            if (index[column.ordinal()] < 0) {
+                throw new IllegalArgumentException("Missing column: "
+                        + column.getName());
+            }
+        }
+        this.in = new BufferedReader(in, BUFFER_SIZE);
+        this.numColumns = columns.size();
+    }
+
+    /**
+     * @return the extractions of the next sentence, or null if there are no
+     *         more. Their confidences are 0 if there is no confidence column.
+     * @throws IOException
+     *             if the input cannot be read, or a row is malformed
+     */
+    public SentenceExtractions<ChunkedBinaryExtraction> read()
+            throws IOException {
+        if (next == null) {
+            next = readRow();
+            if (next == null) {
+                return null;
+            }
+        }
+        String[] first = next;
+        List<String[]> rows = new ArrayList<String[]>();
+        do {
+            rows.add(next);
+            next = readRow();
+        } while (next != null && sameSentence(first, next));
+
+        try {
+            ChunkedSentence sent = new ChunkedSentence(split(first,
+                    Column.SENTENCE_WORDS), split(first,
+                    Column.SENTENCE_POS_TAGS), split(first,
+                    Column.SENTENCE_CHUNK_TAGS));
+            List<ChunkedBinaryExtraction> extrs =
+                    new ArrayList<ChunkedBinaryExtraction>(rows.size());
+            double[] confs = new double[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                String[] row = rows.get(i);
+                extrs.add(readExtraction(sent, row));
+                if (index[Column.CONF.ordinal()] >= 0) {
+                    confs[i] = Double.parseDouble(get(row, Column.CONF));
+                }
+            }
+            return new SentenceExtractions<ChunkedBinaryExtraction>(get(first,
+                    Column.FILENAME), Integer.parseInt(get(first,
+                    Column.SENTENCE_NUMBER)), sent, extrs, confs);
+        } catch (IllegalArgumentException e) {
+            throw malformed(e);
+        } catch (IndexOutOfBoundsException e) {
+            throw malformed(e);
+        } catch (SequenceException e) {
+            throw malformed(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private ChunkedBinaryExtraction readExtraction(ChunkedSentence sent,
+            String[] row) {
+        Range relRange = getRange(row, Column.REL_START, Column.REL_END);
+        ChunkedExtraction rel = index[Column.REL.ordinal()] >= 0
+                ? new ChunkedExtraction(sent, relRange, get(row, Column.REL))
+                : new ChunkedExtraction(sent, relRange);
+        ChunkedArgumentExtraction arg1 = readArgument(sent, rel, row,
+                Column.ARG1, Column.ARG1_START, Column.ARG1_END);
+        ChunkedArgumentExtraction arg2 = readArgument(sent, rel, row,
+                Column.ARG2, Column.ARG2_START, Column.ARG2_END);
+        return new ChunkedBinaryExtraction(rel, arg1, arg2);
+    }
+
+    private ChunkedArgumentExtraction readArgument(ChunkedSentence sent,
+            ChunkedExtraction rel, String[] row, Column text, Column start,
+            Column end) {
+        Range range = getRange(row, start, end);
+        if (index[text.ordinal()] >= 0) {
+            return new ChunkedArgumentExtraction(sent, range, rel, get(row,
+                    text));
+        } else {
+            return new ChunkedArgumentExtraction(sent, range, rel);
+        }
+    }
+
+    private Range getRange(String[] row, Column start, Column end) {
+        return Range.fromInterval(Integer.parseInt(get(row, start)),
+                Integer.parseInt(get(row, end)));
+    }
+
+    // whether two rows are from the same sentence
+    private boolean sameSentence(String[] row1, String[] row2) {
+        return get(row1, Column.SENTENCE_NUMBER).equals(
+                get(row2, Column.SENTENCE_NUMBER))
+                && get(row1, Column.SENTENCE_WORDS).equals(
+                        get(row2, Column.SENTENCE_WORDS))
+                && get(row1, Column.FILENAME).equals(
+                        get(row2, Column.FILENAME));
+    }
+
+    private String get(String[] row, Column column) {
+        return row[index[column.ordinal()]];
+    }
+
+    private String[] split(String[] row, Column column) {
+        return get(row, column).split(" ");
+    }
+
+    // reads the next row that is not blank
+    private String[] readRow() throws IOException {
+        String line;
+        do {
+            line = in.readLine();
+            lineNum++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.length() == 0);
+        String[] row = line.split("\t", -1);
+        if (row.length != numColumns) {
+            throw new IOException("Expected " + numColumns
+                    + " columns, found " + row.length + " on line " + lineNum);
+        }
+        return row;
+    }
+
+    private IOException malformed(Exception cause) {
+        return new IOException("Malformed extraction row before line "
+                + lineNum, cause);
+    }
+}
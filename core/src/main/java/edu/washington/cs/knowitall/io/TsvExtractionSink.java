@@ -0,0 +1,310 @@
+package edu.washington.cs.knowitall.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+import edu.washington.cs.knowitall.normalization.BinaryExtractionNormalizer;
+import edu.washington.cs.knowitall.normalization.NormalizedBinaryExtraction;
+import edu.washington.cs.knowitall.normalization.NormalizedField;
+
+/**
+ * Writes extractions as the tab-separated rows of
+ * <code>CommandLineReVerb</code>, one per line, through a large buffer. The
+ * fields are written straight to the buffer, and the POS and chunk tags of a
+ * sentence are joined once for all of its extractions.
+ *
+ * Only the selected columns are written, and only what they need is
+ * computed: the normalizer is not run unless a normalized column is selected,
+ * and then only on the fields whose normalized columns are. The normalized
+ * fields of a {@link NormalizedBinaryExtraction} are used as they are, unless
+ * they are null.
+ */
+public class TsvExtractionSink implements ExtractionSink {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * The columns of a row, in their default order.
+     */
+    public enum Column {
+        FILENAME("filename"),
+        SENTENCE_NUMBER("sentence number"),
+        ARG1("arg1"),
+        REL("rel"),
+        ARG2("arg2"),
+        ARG1_START("arg1 start"),
+        ARG1_END("arg1 end"),
+        REL_START("rel start"),
+        REL_END("rel end"),
+        ARG2_START("arg2 start"),
+        ARG2_END("arg2 end"),
+        CONF("conf"),
+        SENTENCE_WORDS("sentence words"),
+        SENTENCE_POS_TAGS("sentence pos tags"),
+        SENTENCE_CHUNK_TAGS("sentence chunk tags"),
+        ARG1_NORMALIZED("arg1 normalized"),
+        REL_NORMALIZED("rel normalized"),
+        ARG2_NORMALIZED("arg2 normalized");
+
+        private final String description;
+
+        private Column(String description) {
+            this.description = description;
+        }
+
+        /**
+         * @return the description of the column, e.g. "arg1 normalized"
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * @return the name of the column, e.g. "arg1_normalized"
+         */
+        public String getName() {
+            return description.replace(' ', '_');
+        }
+
+        /**
+         * Parses a comma-separated list of columns, each given by its name
+         * or its number, starting at 1.
+         *
+         * @param spec
+         * @return the columns, in the order given
+         * @throws IllegalArgumentException
+         *             if a column is unknown
+         */
+        public static List<Column> parseList(String spec) {
+            List<Column> columns = new ArrayList<Column>();
+            for (String name : spec.split(",")) {
+                columns.add(parse(name.trim()));
+            }
+            return columns;
+        }
+
+        private static Column parse(String name) {
+            Column[] values = values();
+            if (name.matches("[0-9]+")) {
+                int i = Integer.parseInt(name);
+                if (i >= 1 && i <= values.length) {
+                    return values[i - 1];
+                }
+            } else {
+                String canonical = name.replace('-', '_').replace(' ', '_');
+                for (Column column : values) {
+                    if (column.getName().equalsIgnoreCase(canonical)) {
+                        return column;
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Unknown column: " + name);
+        }
+    }
+
+    private final BufferedWriter out;
+    private final Column[] columns;
+    private final Set<Column> selected;
+    private final BinaryExtractionNormalizer normalizer;
+
+    // the sentence of the last extraction, and its joined words and tags if
+    // needed
+    private ChunkedSentence lastSent;
+    private String tokens;
+    private String posTags;
+    private String chunkTags;
+
+    /**
+     * @param out
+     *            the writer to write rows to
+     * @param columns
+     *            the columns to write, in order
+     * @param normalizer
+     *            the normalizer for the normalized columns of extractions
+     *            that are not normalized already
+     */
+    public TsvExtractionSink(Writer out, List<Column> columns,
+            BinaryExtractionNormalizer normalizer) {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("No columns");
+        }
+        this.out = new BufferedWriter(out, BUFFER_SIZE);
+        this.columns = columns.toArray(new Column[columns.size()]);
+        this.selected = EnumSet.copyOf(columns);
+        this.normalizer = normalizer;
+    }
+
+    /**
+     * Writes all of the columns.
+     *
+     * @param out
+     *            the writer to write rows to
+     */
+    public TsvExtractionSink(Writer out) {
+        this(out, Arrays.asList(Column.values()),
+                new BinaryExtractionNormalizer());
+    }
+
+    /**
+     * Writes all of the columns to the stream in the default encoding, like
+     * <code>System.out</code>.
+     *
+     * @param out
+     */
+    public TsvExtractionSink(OutputStream out) {
+        this(new OutputStreamWriter(out));
+    }
+
+    /**
+     * @param column
+     * @return whether the column is written
+     */
+    public boolean isSelected(Column column) {
+        return selected.contains(column);
+    }
+
+    @Override
+    public void write(String fileName, int sentNum,
+            ChunkedBinaryExtraction extr, double conf) throws IOException {
+        ChunkedSentence sent = extr.getSentence();
+        if (sent != lastSent) {
+            lastSent = sent;
+            tokens = null;
+            posTags = null;
+            chunkTags = null;
+        }
+
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                out.write('\t');
+            }
+            writeColumn(columns[i], fileName, sentNum, extr, conf);
+        }
+        out.newLine();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeColumn(Column column, String fileName, int sentNum,
+            ChunkedBinaryExtraction extr, double conf) throws IOException {
+        switch (column) {
+        case FILENAME:
+            out.write(fileName);
+            break;
+        case SENTENCE_NUMBER:
+            out.write(Integer.toString(sentNum));
+            break;
+        case ARG1:
+            out.write(extr.getArgument1().toString());
+            break;
+        case REL:
+            out.write(extr.getRelation().toString());
+            break;
+        case ARG2:
+            out.write(extr.getArgument2().toString());
+            break;
+        case ARG1_START:
+            out.write(Integer.toString(extr.getArgument1().getRange()
+                    .getStart()));
+            break;
+        case ARG1_END:
+            out.write(Integer.toString(extr.getArgument1().getRange()
+                    .getEnd()));
+            break;
+        case REL_START:
+            out.write(Integer.toString(extr.getRelation().getRange()
+                    .getStart()));
+            break;
+        case REL_END:
+            out.write(Integer.toString(extr.getRelation().getRange()
+                    .getEnd()));
+            break;
+        case ARG2_START:
+            out.write(Integer.toString(extr.getArgument2().getRange()
+                    .getStart()));
+            break;
+        case ARG2_END:
+            out.write(Integer.toString(extr.getArgument2().getRange()
+                    .getEnd()));
+            break;
+        case CONF:
+            out.write(String.valueOf(conf));
+            break;
+        case SENTENCE_WORDS:
+            if (tokens == null) {
+                tokens = lastSent.getTokensAsString();
+            }
+            out.write(tokens);
+            break;
+        case SENTENCE_POS_TAGS:
+            if (posTags == null) {
+                posTags = lastSent.getPosTagsAsString();
+            }
+            out.write(posTags);
+            break;
+        case SENTENCE_CHUNK_TAGS:
+            if (chunkTags == null) {
+                chunkTags = lastSent.getChunkTagsAsString();
+            }
+            out.write(chunkTags);
+            break;
+        case ARG1_NORMALIZED:
+        case REL_NORMALIZED:
+        case ARG2_NORMALIZED:
+            writeTokens(getNormalized(column, extr));
+            break;
+        }
+    }
+
+    // the normalized field of the extraction, if it has it, or else the
+    // field normalized now
+    private NormalizedField getNormalized(Column column,
+            ChunkedBinaryExtraction extr) {
+        NormalizedBinaryExtraction normalized =
+                extr instanceof NormalizedBinaryExtraction
+                        ? (NormalizedBinaryExtraction) extr : null;
+        NormalizedField field;
+        if (column == Column.ARG1_NORMALIZED) {
+            field = normalized == null ? null : normalized.getArgument1Norm();
+            return field != null ? field : normalizer.normalizeArgument(extr
+                    .getArgument1());
+        } else if (column == Column.REL_NORMALIZED) {
+            field = normalized == null ? null : normalized.getRelationNorm();
+            return field != null ? field : normalizer.normalizeRelation(extr
+                    .getRelation());
+        } else {
+            field = normalized == null ? null : normalized.getArgument2Norm();
+            return field != null ? field : normalizer.normalizeArgument(extr
+                    .getArgument2());
+        }
+    }
+
+    // writes the tokens joined by spaces
+    private void writeTokens(NormalizedField field) throws IOException {
+        List<String> tokens = field.getTokens();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) {
+                out.write(' ');
+            }
+            out.write(tokens.get(i));
+        }
+    }
+}
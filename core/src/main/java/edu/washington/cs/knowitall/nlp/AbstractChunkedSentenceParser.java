@@ -0,0 +1,147 @@
+package edu.washington.cs.knowitall.nlp;
+
+import java.text.ParseException;
+import java.util.Arrays;
+
+import edu.washington.cs.knowitall.sequence.SequenceException;
+
+/**
+ * A base class for parsers of pre-chunked sentences. A subclass scans its
+ * input, adding the tokens of a sentence one at a time with
+ * {@link #addToken(String, String, String)}, and then builds the sentence
+ * with {@link #toSentence()}, which attaches (or detaches) NPs beginning with
+ * "of" or a possessive like <code>OpenNlpSentenceChunker</code> does.
+ *
+ * The tokens are added to buffers that are reused from sentence to sentence,
+ * and the tags can be looked up with {@link #symbol(CharSequence, int, int)}
+ * so that each distinct tag is only allocated once. A parser is therefore not
+ * thread-safe: use one per thread.
+ */
+public abstract class AbstractChunkedSentenceParser implements
+        ChunkedSentenceParser {
+
+    private boolean attachOfs = true;
+    private boolean attachPossessives = true;
+
+    private final StringPool symbols = new StringPool();
+
+    private String[] tokens = new String[64];
+    private String[] posTags = new String[64];
+    private String[] chunkTags = new String[64];
+    private int length = 0;
+
+    /**
+     * @return true if this object will attach NPs beginning with "of" with the
+     *         previous NP.
+     */
+    public boolean attachOfs() {
+        return attachOfs;
+    }
+
+    /**
+     * @return true if this object will attach NPs beginning with the tag POS
+     *         with the previous NP.
+     */
+    public boolean attachPossessives() {
+        return attachPossessives;
+    }
+
+    /**
+     * @param attachOfs
+     */
+    public void attachOfs(boolean attachOfs) {
+        this.attachOfs = attachOfs;
+    }
+
+    /**
+     * @param attachPossessives
+     */
+    public void attachPossessives(boolean attachPossessives) {
+        this.attachPossessives = attachPossessives;
+    }
+
+    /**
+     * @param s
+     * @param start
+     * @param end
+     * @return the characters of <code>s</code> from <code>start</code> to
+     *         <code>end</code>, as a string shared with the previous sentences
+     *         if they have been seen before
+     */
+    protected String symbol(CharSequence s, int start, int end) {
+        return symbols.get(s, start, end);
+    }
+
+    /**
+     * Starts a new sentence, discarding the tokens added so far.
+     */
+    protected void clear() {
+        length = 0;
+    }
+
+    /**
+     * @return the number of tokens added to the sentence so far
+     */
+    protected int getLength() {
+        return length;
+    }
+
+    /**
+     * @param i
+     * @return the chunk tag of the i-th token added to the sentence
+     */
+    protected String getChunkTag(int i) {
+        return chunkTags[i];
+    }
+
+    /**
+     * Adds a token to the sentence.
+     *
+     * @param token
+     * @param posTag
+     * @param chunkTag
+     */
+    protected void addToken(String token, String posTag, String chunkTag) {
+        if (length == tokens.length) {
+            tokens = Arrays.copyOf(tokens, 2 * length);
+            posTags = Arrays.copyOf(posTags, 2 * length);
+            chunkTags = Arrays.copyOf(chunkTags, 2 * length);
+        }
+        tokens[length] = token;
+        posTags[length] = posTag;
+        chunkTags[length] = chunkTag;
+        length++;
+    }
+
+    /**
+     * @return the sentence of the tokens added since the last call to
+     *         {@link #clear()}
+     * @throws ParseException
+     *             if no tokens were added
+     */
+    protected ChunkedSentence toSentence() throws ParseException {
+        if (length == 0) {
+            throw new ParseException("Empty sentence", 0);
+        }
+        String[] tokens = Arrays.copyOf(this.tokens, length);
+        String[] posTags = Arrays.copyOf(this.posTags, length);
+        String[] npChunkTags = Arrays.copyOf(this.chunkTags, length);
+
+        if (attachOfs) {
+            OpenNlpUtils.attachOfs(tokens, npChunkTags);
+        } else {
+            OpenNlpUtils.detatchOfs(tokens, npChunkTags);
+        }
+        if (attachPossessives) {
+            OpenNlpUtils.attachPossessives(posTags, npChunkTags);
+        } else {
+            OpenNlpUtils.detatchPossessives(posTags, npChunkTags);
+        }
+
+        try {
+            return new ChunkedSentence(tokens, posTags, npChunkTags);
+        } catch (SequenceException e) {
+            throw new ParseException(e.getMessage(), 0);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package edu.washington.cs.knowitall.nlp;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import edu.washington.cs.knowitall.io.ChunkCache;
+
+/**
+ * A {@link SentenceChunker} that looks sentences up in a {@link ChunkCache}
+ * before chunking them with another chunker, and adds the sentences it
+ * chunks to the cache. A sentence is stored under the SHA-1 hash of its text
+ * and a version string, which must identify the models and settings of the
+ * chunker, since the cache may outlive them.
+ *
+ * The cache can be shared by the chunkers of several threads, but like the
+ * chunker it wraps, a caching chunker should only be used by one thread. If
+ * the cache cannot be read or written, an <code>IllegalStateException</code>
+ * is thrown rather than a <code>ChunkerException</code>, which would only
+ * skip the sentence.
+ */
+public class CachingSentenceChunker implements SentenceChunker {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final SentenceChunker chunker;
+    private final ChunkCache cache;
+    private final byte[] version;
+    private final MessageDigest digest;
+
+    /**
+     * @param chunker
+     *            the chunker of the sentences that are not in the cache
+     * @param cache
+     * @param version
+     *            the version of the chunker's models and settings
+     */
+    public CachingSentenceChunker(SentenceChunker chunker, ChunkCache cache,
+            String version) {
+        this.chunker = chunker;
+        this.cache = cache;
+        this.version = version.getBytes(UTF8);
+        try {
+            this.digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the cache of this chunker
+     */
+    public ChunkCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public ChunkedSentence chunkSentence(String sent) throws ChunkerException {
+        byte[] key = getKey(sent);
+        try {
+            ChunkedSentence result = cache.get(key);
+            if (result == null) {
+                result = chunker.chunkSentence(sent);
+                cache.put(key, result);
+            }
+            return result;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not use chunk cache", e);
+        }
+    }
+
+    private byte[] getKey(String sent) {
+        digest.reset();
+        digest.update(version);
+        digest.update((byte) 0);
+        digest.update(sent.getBytes(UTF8));
+        return digest.digest();
+    }
+}
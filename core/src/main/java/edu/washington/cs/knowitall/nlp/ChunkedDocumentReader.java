@@ -1,16 +1,27 @@
 package edu.washington.cs.knowitall.nlp;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.StringWriter;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
-import com.google.common.collect.Iterables;
+import com.google.common.collect.AbstractIterator;
 
-import edu.washington.cs.knowitall.commonlib.FileUtils;
 import edu.washington.cs.knowitall.extractor.ExtractorException;
 import edu.washington.cs.knowitall.extractor.SentenceExtractor;
 import edu.washington.cs.knowitall.util.DefaultObjects;
@@ -22,6 +33,11 @@ import edu.washington.cs.knowitall.util.DefaultObjects;
  * {@link SentenceChunker} object, which converts a String sentence into a
  * {@link ChunkedSentence} object.
  *
+ * The <code>readDocument</code> methods return whole documents. The
+ * <code>readSentences</code> methods read a document as its sentences are
+ * needed instead, and can chunk them in parallel, see
+ * {@link #setParallelChunkers(ExecutorService, Collection)}.
+ *
  * @author afader
  *
  */
@@ -30,6 +46,11 @@ public class ChunkedDocumentReader {
     private SentenceExtractor sentExtractor;
     private SentenceChunker sentChunker;
 
+    // chunks sentences in parallel if not null
+    private ExecutorService executor;
+    private BlockingQueue<SentenceChunker> chunkerPool;
+    private int maxPending;
+
     /**
      * @param sentExtractor
      *            the object responsible for converting a String to String
@@ -102,6 +123,87 @@ public class ChunkedDocumentReader {
         return sentChunker;
     }
 
+    /**
+     * Makes the reader chunk the sentences of a document in parallel, using
+     * one of the given chunkers at a time in each task. The sentences are
+     * still returned in order. Chunkers are not thread safe, so each should
+     * only be used here.
+     *
+     * @param executor
+     *            the executor to chunk sentences with, or null to chunk them
+     *            with the sentence chunker of the reader, one at a time
+     * @param chunkers
+     */
+    public void setParallelChunkers(ExecutorService executor,
+            Collection<? extends SentenceChunker> chunkers) {
+        if (executor == null) {
+            this.executor = null;
+            this.chunkerPool = null;
+            return;
+        }
+        if (chunkers.isEmpty()) {
+            throw new IllegalArgumentException("No chunkers");
+        }
+        this.chunkerPool = new ArrayBlockingQueue<SentenceChunker>(
+                chunkers.size(), false, chunkers);
+        this.maxPending = 4 * chunkers.size();
+        this.executor = executor;
+    }
+
+    /**
+     * Reads the sentences of a document from the reader as they are needed,
+     * assigning it the given id. Unlike {@link #readDocument(String, String)},
+     * the document is never held in memory all at once, see
+     * {@link SentenceExtractor#extract(Reader)}. The reader is not closed.
+     *
+     * @param reader
+     * @param id
+     * @return an iterator over the chunked sentences, which throws an
+     *         <code>IllegalStateException</code> caused by an
+     *         {@link ExtractorException} if a sentence cannot be chunked, or by
+     *         an <code>IOException</code> if the document cannot be read
+     */
+    public Iterator<ChunkedDocumentSentence> readSentences(Reader reader,
+            String id) {
+        return chunk(sentExtractor.extract(reader), id, null);
+    }
+
+    /**
+     * Reads the sentences of a document from the input as they are needed,
+     * assigning it the given id, see {@link #readSentences(Reader, String)}.
+     *
+     * @param input
+     * @param id
+     * @return an iterator over the chunked sentences
+     */
+    public Iterator<ChunkedDocumentSentence> readSentences(InputStream input,
+            String id) {
+        return readSentences(new InputStreamReader(input), id);
+    }
+
+    /**
+     * Reads the sentences of a document from the given file as they are
+     * needed, using {@link File#getAbsolutePath()} as the id of the document,
+     * see {@link #readSentences(Reader, String)}. The file is closed when the
+     * iterator reaches its end.
+     *
+     * @param file
+     * @return an iterator over the chunked sentences
+     * @throws ExtractorException
+     *             if the file cannot be opened
+     */
+    public Iterator<ChunkedDocumentSentence> readSentences(File file)
+            throws ExtractorException {
+        try {
+            Reader reader = new FileReader(file);
+            return chunk(sentExtractor.extract(reader),
+                    file.getAbsolutePath(), reader);
+        } catch (IOException e) {
+            String msg = String.format("Could not extract from %s", file);
+            throw new ExtractorException(msg, e);
+        }
+    }
+
     /**
      * Reads a document from the input, assigning it the given id
      *
@@ -112,11 +214,17 @@ public class ChunkedDocumentReader {
      */
     public ChunkedDocument readDocument(InputStream input, String id)
             throws ExtractorException {
-        StringWriter writer = new StringWriter();
+        StringBuilder doc = new StringBuilder();
         InputStreamReader reader = new InputStreamReader(input);
+        char[] buffer = new char[8192];
         try {
-            FileUtils.pipe(reader, writer);
-            return readDocument(writer.toString(), id);
+            // FileUtils.pipe writes all of its buffer after the last read,
+            // which repeated the end of the document
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                doc.append(buffer, 0, n);
+            }
+            return readDocument(doc.toString(), id);
         } catch (IOException e) {
             String msg = String.format("Could not read document %s", id);
             throw new ExtractorException(msg, e);
@@ -152,24 +260,138 @@ public class ChunkedDocumentReader {
      */
     public ChunkedDocument readDocument(String docStr, String id)
             throws ExtractorException {
-        ArrayList<String> sents = new ArrayList<String>();
-        Iterables.addAll(sents, sentExtractor.extract(docStr));
-        ArrayList<ChunkedSentence> chunkedSents = new ArrayList<ChunkedSentence>(
-                sents.size());
+        ArrayList<ChunkedSentence> chunkedSents = new ArrayList<ChunkedSentence>();
+        Iterator<ChunkedDocumentSentence> sents = chunk(sentExtractor
+                .extract(docStr).iterator(), id, null);
+        try {
+            while (sents.hasNext()) {
+                chunkedSents.add(sents.next().getSentence());
+            }
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof ExtractorException) {
+                throw (ExtractorException) e.getCause();
+            }
+            throw e;
+        }
+        return new ChunkedDocument(id, chunkedSents);
+    }
 
-        int sentNum = 1;
-        for (String sent : sents) {
+    private Iterator<ChunkedDocumentSentence> chunk(Iterator<String> sents,
+            String id, Closeable source) {
+        if (executor == null) {
+            return new ChunkingIterator(sents, id, source);
+        } else {
+            return new ParallelChunkingIterator(sents, id, source, executor,
+                    chunkerPool, maxPending);
+        }
+    }
+
+    /*
+     * Chunks the sentences of a document with the sentence chunker of the
+     * reader, one at a time.
+     */
+    private class ChunkingIterator extends
+            AbstractIterator<ChunkedDocumentSentence> {
+
+        protected final Iterator<String> sents;
+        protected final String id;
+        private final Closeable source;
+        private int sentNum = 0;
+
+        ChunkingIterator(Iterator<String> sents, String id, Closeable source) {
+            this.sents = sents;
+            this.id = id;
+            this.source = source;
+        }
+
+        @Override
+        protected ChunkedDocumentSentence computeNext() {
+            if (!hasMoreSentences()) {
+                if (source != null) {
+                    try {
+                        source.close();
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return endOfData();
+            }
+            sentNum++;
             try {
-                chunkedSents.add(sentChunker.chunkSentence(sent));
-                sentNum++;
+                return new ChunkedDocumentSentence(id, sentNum, nextChunked());
             } catch (ChunkerException e) {
                 String msg = String.format(
                         "Could not chunk sentence %s in document %s", sentNum,
                         id);
-                throw new ExtractorException(msg);
+                throw new IllegalStateException(new ExtractorException(msg, e));
+            }
+        }
+
+        protected boolean hasMoreSentences() {
+            return sents.hasNext();
+        }
+
+        protected ChunkedSentence nextChunked() throws ChunkerException {
+            return sentChunker.chunkSentence(sents.next());
+        }
+    }
+
+    /*
+     * Chunks the sentences of a document in parallel, keeping a bounded
+     * number of them pending, in order.
+     */
+    private class ParallelChunkingIterator extends ChunkingIterator {
+
+        private final ExecutorService executor;
+        private final BlockingQueue<SentenceChunker> chunkerPool;
+        private final int maxPending;
+        private final Queue<Future<ChunkedSentence>> pending = new LinkedList<Future<ChunkedSentence>>();
+
+        ParallelChunkingIterator(Iterator<String> sents, String id,
+                Closeable source, ExecutorService executor,
+                BlockingQueue<SentenceChunker> chunkerPool, int maxPending) {
+            super(sents, id, source);
+            this.executor = executor;
+            this.chunkerPool = chunkerPool;
+            this.maxPending = maxPending;
+        }
+
+        @Override
+        protected boolean hasMoreSentences() {
+            while (pending.size() < maxPending && sents.hasNext()) {
+                final String sent = sents.next();
+                pending.add(executor.submit(new Callable<ChunkedSentence>() {
+                    public ChunkedSentence call() throws Exception {
+                        SentenceChunker chunker = chunkerPool.take();
+                        try {
+                            return chunker.chunkSentence(sent);
+                        } finally {
+                            chunkerPool.put(chunker);
+                        }
+                    }
+                }));
+            }
+            return !pending.isEmpty();
+        }
+
+        @Override
+        protected ChunkedSentence nextChunked() throws ChunkerException {
+            try {
+                return pending.remove().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof ChunkerException) {
+                    throw (ChunkerException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else {
+                    throw new IllegalStateException(cause);
+                }
             }
         }
-        return new ChunkedDocument(id, chunkedSents);
     }
 
 }
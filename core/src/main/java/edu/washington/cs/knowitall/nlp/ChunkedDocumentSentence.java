@@ -0,0 +1,52 @@
+package edu.washington.cs.knowitall.nlp;
+
+/***
+ * A {@link ChunkedSentence} read from a document, with the id of the document
+ * and the number of the sentence in it, as returned by
+ * {@link ChunkedDocumentReader#readSentences(java.io.Reader, String)}.
+ */
+public class ChunkedDocumentSentence {
+
+    private final String documentId;
+    private final int sentenceNumber;
+    private final ChunkedSentence sentence;
+
+    /**
+     * @param documentId
+     * @param sentenceNumber
+     *            the number of the sentence in the document, starting at 1
+     * @param sentence
+     */
+    public ChunkedDocumentSentence(String documentId, int sentenceNumber,
+            ChunkedSentence sentence) {
+        this.documentId = documentId;
+        this.sentenceNumber = sentenceNumber;
+        this.sentence = sentence;
+    }
+
+    /**
+     * @return the id of the document
+     */
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    /**
+     * @return the number of the sentence in the document, starting at 1
+     */
+    public int getSentenceNumber() {
+        return sentenceNumber;
+    }
+
+    /**
+     * @return the sentence
+     */
+    public ChunkedSentence getSentence() {
+        return sentence;
+    }
+
+    @Override
+    public String toString() {
+        return documentId + "\t" + sentenceNumber + "\t" + sentence;
+    }
+}
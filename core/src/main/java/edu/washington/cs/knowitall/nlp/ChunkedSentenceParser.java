@@ -0,0 +1,21 @@
+package edu.washington.cs.knowitall.nlp;
+
+import java.text.ParseException;
+
+/**
+ * Parses the string representation of a sentence that has already been
+ * tokenized, POS tagged and chunked into a {@link ChunkedSentence}.
+ *
+ * @see OpenNlpChunkedSentenceParser
+ * @see ConllChunkedSentenceParser
+ */
+public interface ChunkedSentenceParser {
+
+    /**
+     * @param sent
+     * @return the chunked representation of <code>sent</code>
+     * @throws ParseException
+     *             if sent is malformed.
+     */
+    public ChunkedSentence parseSentence(String sent) throws ParseException;
+}
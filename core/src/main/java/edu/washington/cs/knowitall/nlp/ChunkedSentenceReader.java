@@ -1,12 +1,12 @@
 package edu.washington.cs.knowitall.nlp;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 
 import com.google.common.base.Predicate;
 
 import edu.washington.cs.knowitall.extractor.SentenceExtractor;
-import edu.washington.cs.knowitall.io.BufferedReaderIterator;
 import edu.washington.cs.knowitall.io.TextBlockIterator;
 import edu.washington.cs.knowitall.util.IterableAdapter;
 
@@ -89,8 +89,8 @@ public class ChunkedSentenceReader implements Iterable<ChunkedSentence> {
             SentenceChunker sentChunker) {
         this.sentChunker = sentChunker;
         this.sentExtractor = sentExtractor;
-        BufferedReaderIterator bri = new BufferedReaderIterator(reader);
-        TextBlockIterator tbi = new TextBlockIterator(bri);
+        TextBlockIterator tbi = new TextBlockIterator(new BufferedReader(
+                reader));
         SentenceBlocksIterator sbi = new SentenceBlocksIterator(tbi,
                 sentExtractor);
         chunkedSentIter = new ChunkedSentenceIterator(sbi, sentChunker);
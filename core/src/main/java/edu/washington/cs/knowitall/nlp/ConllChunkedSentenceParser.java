@@ -0,0 +1,120 @@
+package edu.washington.cs.knowitall.nlp;
+
+import java.text.ParseException;
+
+/**
+ * <p>
+ * A class for parsing sentences in the column format of the CoNLL-2000
+ * chunking task, one token per line, with its POS tag and chunk tag in the
+ * next columns:
+ * </p>
+ *
+ * <pre>
+ * JFK NNP B-NP
+ * was VBD B-VP
+ * elected VBN I-VP
+ * </pre>
+ * <p>
+ * The columns are separated by spaces or tabs, and any columns after the
+ * third are ignored, as are blank lines and <code>-DOCSTART-</code> lines. A
+ * chunk that starts with an I- tag (as in the IOB1 scheme of CoNLL-2003) is
+ * treated as if it started with a B- tag.
+ * </p>
+ * <p>
+ * The lines are scanned in place, and the tags of its tokens are shared with
+ * the previous sentences, so a parser is not thread-safe.
+ * </p>
+ */
+public class ConllChunkedSentenceParser extends AbstractChunkedSentenceParser {
+
+    public static final String DOCSTART = "-DOCSTART-";
+
+    private final StringBuilder beginTag = new StringBuilder();
+
+    /**
+     * Converts the lines of sent into a {@link ChunkedSentence} object.
+     *
+     * @param sent
+     * @return the chunked representation
+     * @throws ParseException
+     *             if a line of sent is malformed.
+     */
+    @Override
+    public ChunkedSentence parseSentence(String sent) throws ParseException {
+        clear();
+        int n = sent.length();
+        int i = 0;
+        while (i < n) {
+            int lineEnd = sent.indexOf('\n', i);
+            if (lineEnd < 0) {
+                lineEnd = n;
+            }
+            parseLine(sent, i, lineEnd);
+            i = lineEnd + 1;
+        }
+        return toSentence();
+    }
+
+    private void parseLine(String sent, int start, int end)
+            throws ParseException {
+        int tokenStart = skipSpace(sent, start, end);
+        if (tokenStart == end) {
+            return;
+        }
+        int tokenEnd = skipNonSpace(sent, tokenStart, end);
+        if (sent.startsWith(DOCSTART, tokenStart)
+                && tokenEnd - tokenStart == DOCSTART.length()) {
+            return;
+        }
+        int posStart = skipSpace(sent, tokenEnd, end);
+        int posEnd = skipNonSpace(sent, posStart, end);
+        int chunkStart = skipSpace(sent, posEnd, end);
+        int chunkEnd = skipNonSpace(sent, chunkStart, end);
+        if (chunkStart == chunkEnd) {
+            throw new ParseException("Couldn't parse line: "
+                    + sent.substring(start, end), start);
+        }
+
+        addToken(sent.substring(tokenStart, tokenEnd),
+                symbol(sent, posStart, posEnd),
+                getChunkTag(sent, chunkStart, chunkEnd));
+    }
+
+    private String getChunkTag(String sent, int start, int end) {
+        if (sent.startsWith(OpenNlpUtils.IN_CHUNK, start)
+                && !continuesChunk(sent, start + 2, end)) {
+            beginTag.setLength(0);
+            beginTag.append(OpenNlpUtils.START_CHUNK).append(sent, start + 2,
+                    end);
+            return symbol(beginTag, 0, beginTag.length());
+        }
+        return symbol(sent, start, end);
+    }
+
+    // whether the previous token is in a chunk of the given type
+    private boolean continuesChunk(String sent, int typeStart, int typeEnd) {
+        if (getLength() == 0) {
+            return false;
+        }
+        String previous = getChunkTag(getLength() - 1);
+        int typeLength = typeEnd - typeStart;
+        return previous.length() == typeLength + 2
+                && previous.regionMatches(2, sent, typeStart, typeLength)
+                && (previous.startsWith(OpenNlpUtils.START_CHUNK) || previous
+                        .startsWith(OpenNlpUtils.IN_CHUNK));
+    }
+
+    private static int skipSpace(String s, int i, int end) {
+        while (i < end && s.charAt(i) <= ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipNonSpace(String s, int i, int end) {
+        while (i < end && s.charAt(i) > ' ') {
+            i++;
+        }
+        return i;
+    }
+}
@@ -1,9 +1,8 @@
 package edu.washington.cs.knowitall.nlp;
 
 import java.text.ParseException;
-import java.util.ArrayList;
-
-import edu.washington.cs.knowitall.sequence.SequenceException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * <p>
@@ -17,44 +16,21 @@ import edu.washington.cs.knowitall.sequence.SequenceException;
  * This class converts that String representation into a {@link ChunkedSentence}
  * object.
  * </p>
+ * <p>
+ * The sentence is scanned in place, and the tags of its tokens are shared
+ * with the previous sentences, so a parser is not thread-safe.
+ * </p>
  *
  * @author afader
  *
  */
-public class OpenNlpChunkedSentenceParser {
+public class OpenNlpChunkedSentenceParser extends
+        AbstractChunkedSentenceParser {
 
-    private boolean attachOfs = true;
-    private boolean attachPossessives = true;
-
-    /**
-     * @return true if this object will attach NPs beginning with "of" with the
-     *         previous NP.
-     */
-    public boolean attachOfs() {
-        return attachOfs;
-    }
+    private static final int MAX_CHUNK_TYPES = 256;
 
-    /**
-     * @return true if this object will attach NPs beginning with the tag POS
-     *         with the previous NP.
-     */
-    public boolean attachPossessives() {
-        return attachPossessives;
-    }
-
-    /**
-     * @param attachOfs
-     */
-    public void attachOfs(boolean attachOfs) {
-        this.attachOfs = attachOfs;
-    }
-
-    /**
-     * @param attachPossessives
-     */
-    public void attachPossessives(boolean attachPossessives) {
-        this.attachPossessives = attachPossessives;
-    }
+    // the begin and in tags of the chunk types seen so far
+    private final Map<String, String[]> chunkTags = new HashMap<String, String[]>();
 
     /**
      * Converts sent into a {@link ChunkedSentence} object.
@@ -64,93 +40,97 @@ public class OpenNlpChunkedSentenceParser {
      * @throws ParseException
      *             if sent is malformed.
      */
+    @Override
     public ChunkedSentence parseSentence(String sent) throws ParseException {
+        clear();
 
-        // Spaces before square brackets goof things up for some reason
-        sent = sent.replace(" ]", "]");
-
-        ArrayList<String> tokensList = new ArrayList<String>();
-        ArrayList<String> posTagsList = new ArrayList<String>();
-        ArrayList<String> npChunkTagsList = new ArrayList<String>();
-
-        String[] parts = sent.trim().split(" ");
-        String currentChunk = null;
+        // the begin and in tags of the current chunk, if any
+        String[] currentChunk = null;
         boolean atChunkStart = false;
-        for (String part : parts) {
 
-            if (isChunk(part)) {
-                currentChunk = getChunkType(part);
+        int n = sent.length();
+        int i = 0;
+        while (i < n) {
+            while (i < n && isSpace(sent.charAt(i))) {
+                i++;
+            }
+            if (i == n) {
+                break;
+            }
+            int start = i;
+            while (i < n && !isSpace(sent.charAt(i))) {
+                i++;
+            }
+            int end = i;
+
+            if (isChunk(sent, start, end)) {
+                currentChunk = getChunkTags(sent, start, end);
                 atChunkStart = true;
+            } else if (end - start == 1 && sent.charAt(start) == ']') {
+                // a space before the closing bracket
+                currentChunk = null;
             } else {
-                String[] tokTag = getTokenTag(part);
-                String token = tokTag[0];
-                String posTag = tokTag[1];
-                tokensList.add(token);
-                posTagsList.add(posTag);
+                boolean isEndChunk = sent.charAt(end - 1) == ']';
+                int tokenEnd = isEndChunk ? end - 1 : end;
+                int slash = lastSlash(sent, start, tokenEnd);
+                if (slash <= start) {
+                    throw new ParseException("Couldn't get token/tag: "
+                            + sent.substring(start, tokenEnd), start);
+                }
+                String chunkTag;
                 if (currentChunk == null) {
-                    npChunkTagsList.add("O");
+                    chunkTag = OpenNlpUtils.OUT;
                 } else if (atChunkStart) {
-                    npChunkTagsList.add("B-" + currentChunk);
+                    chunkTag = currentChunk[0];
                     atChunkStart = false;
                 } else {
-                    npChunkTagsList.add("I-" + currentChunk);
+                    chunkTag = currentChunk[1];
                 }
-                if (isEndChunk(part))
+                addToken(sent.substring(start, slash),
+                        symbol(sent, slash + 1, tokenEnd), chunkTag);
+                if (isEndChunk) {
                     currentChunk = null;
+                }
             }
-
         }
 
-        String[] tokens = tokensList.toArray(new String[0]);
-        String[] posTags = posTagsList.toArray(new String[0]);
-        String[] npChunkTags = npChunkTagsList.toArray(new String[0]);
-
-        if (attachOfs) {
-            OpenNlpUtils.attachOfs(tokens, npChunkTags);
-        } else {
-            OpenNlpUtils.detatchOfs(tokens, npChunkTags);
-        }
-        if (attachPossessives) {
-            OpenNlpUtils.attachPossessives(posTags, npChunkTags);
-        } else {
-            OpenNlpUtils.detatchPossessives(posTags, npChunkTags);
-        }
-
-        try {
-            return new ChunkedSentence(tokens, posTags, npChunkTags);
-        } catch (SequenceException e) {
-            throw new ParseException(e.getMessage(), 0);
-        }
+        return toSentence();
     }
 
-    private boolean isChunk(String part) {
-        return part.startsWith("[");
+    private static boolean isSpace(char c) {
+        return c <= ' ';
     }
 
-    private String getChunkType(String part) throws ParseException {
-        if (part.length() >= 2) {
-            return part.subSequence(1, part.length()).toString();
-        } else {
-            throw new ParseException("Couldn't parse part: " + part, 0);
-        }
+    // a chunk starts with a bracket, and has no slash unlike a token
+    private static boolean isChunk(String sent, int start, int end) {
+        return sent.charAt(start) == '[' && lastSlash(sent, start, end) < 0;
     }
 
-    private boolean isEndChunk(String part) {
-        return part.endsWith("]");
+    private String[] getChunkTags(String sent, int start, int end)
+            throws ParseException {
+        if (end - start < 2) {
+            throw new ParseException("Couldn't parse part: "
+                    + sent.substring(start, end), start);
+        }
+        String type = symbol(sent, start + 1, end);
+        String[] tags = chunkTags.get(type);
+        if (tags == null) {
+            tags = new String[] { OpenNlpUtils.START_CHUNK + type,
+                    OpenNlpUtils.IN_CHUNK + type };
+            if (chunkTags.size() < MAX_CHUNK_TYPES) {
+                chunkTags.put(type, tags);
+            }
+        }
+        return tags;
     }
 
-    private String[] getTokenTag(String piece) throws ParseException {
-        if (piece.endsWith("]")) {
-            piece = piece.substring(0, piece.length() - 1);
-        }
-        int i = piece.lastIndexOf("/");
-        if (i > 0) {
-            String token = piece.substring(0, i);
-            String posTag = piece.substring(i + 1);
-            return new String[] { token, posTag };
-        } else {
-            throw new ParseException("Couldn't get token/tag: " + piece, 0);
+    private static int lastSlash(String sent, int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (sent.charAt(i) == '/') {
+                return i;
+            }
         }
+        return -1;
     }
 
 }
@@ -10,6 +10,8 @@ import opennlp.tools.tokenize.Tokenizer;
 import opennlp.tools.util.Span;
 import edu.washington.cs.knowitall.commonlib.Range;
 import edu.washington.cs.knowitall.util.DefaultObjects;
+import edu.washington.cs.knowitall.util.PipelineMetrics;
+import edu.washington.cs.knowitall.util.PipelineMetrics.Stage;
 
 /**
  * A class that combines OpenNLP tokenizer, POS tagger, and chunker objects into
@@ -30,6 +32,8 @@ public class OpenNlpSentenceChunker implements SentenceChunker {
     private boolean attachOfs = true;
     private boolean attachPossessives = true;
 
+    private PipelineMetrics metrics;
+
     Pattern convertToSpace = Pattern.compile("\\xa0");
 
     /**
@@ -90,6 +94,23 @@ public class OpenNlpSentenceChunker implements SentenceChunker {
         this.attachPossessives = attachPossessives;
     }
 
+    /**
+     * @return the metrics the tokenizing, tagging and chunking of each
+     *         sentence are recorded in, or null if they are not
+     */
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param metrics
+     *            the metrics to record the tokenizing, tagging and chunking
+     *            of each sentence in, or null to not record them
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @Override
     /**
      * Chunks the given sentence and returns it as an {@link ChunkedSentence}
@@ -108,6 +129,7 @@ public class OpenNlpSentenceChunker implements SentenceChunker {
         // TODO: try to figure out what caused the NPE and actually fix the
         // problem
         try {
+            long start = System.nanoTime();
             Span[] offsets = tokenizer.tokenizePos(sent);
             ranges = new ArrayList<Range>(offsets.length);
             ArrayList<String> tokenList = new ArrayList<String>(offsets.length);
@@ -117,8 +139,15 @@ public class OpenNlpSentenceChunker implements SentenceChunker {
             }
 
             tokens = tokenList.toArray(new String[] {});
+            long tokenized = System.nanoTime();
             posTags = posTagger.tag(tokens);
+            long tagged = System.nanoTime();
             npChunkTags = chunker.chunk(tokens, posTags);
+            if (metrics != null) {
+                metrics.record(Stage.TOKENIZE, tokenized - start);
+                metrics.record(Stage.TAG, tagged - tokenized);
+                metrics.record(Stage.CHUNK, System.nanoTime() - tagged);
+            }
         } catch (NullPointerException e) {
             throw new ChunkerException("OpenNLP threw NPE on '" + sent + "'", e);
         }
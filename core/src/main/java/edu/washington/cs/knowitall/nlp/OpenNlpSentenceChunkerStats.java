@@ -1,5 +1,10 @@
 package edu.washington.cs.knowitall.nlp;
 
+/**
+ * @deprecated Not used by the chunker, whose stage latencies are reported by
+ *             {@link edu.washington.cs.knowitall.util.PipelineMetrics}.
+ */
+@Deprecated
 public class OpenNlpSentenceChunkerStats {
     protected long totalTime;
     protected long tokenizeTime;
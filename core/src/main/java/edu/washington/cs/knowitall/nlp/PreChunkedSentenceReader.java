@@ -8,32 +8,103 @@ import java.util.Iterator;
 import com.google.common.collect.AbstractIterator;
 
 /***
- * A class for reading in sentences that have already been chunked by the
- * OpenNLP sentence chunker.
+ * A class for reading in sentences that have already been chunked, by
+ * default in the format of the OpenNLP sentence chunker, one per line.
+ *
+ * The text of the sentences can also be read with {@link #readSentence()}
+ * and parsed elsewhere, e.g. by other threads, each with its own parser from
+ * {@link #createParser()}.
  *
  * @author afader
  *
  */
 public class PreChunkedSentenceReader implements Iterable<ChunkedSentence> {
 
+    /**
+     * The formats of pre-chunked sentences.
+     */
+    public enum Format {
+        /**
+         * The format of {@link OpenNlpChunkedSentenceParser}, one sentence per
+         * line.
+         */
+        OPENNLP,
+        /**
+         * The format of {@link ConllChunkedSentenceParser}, one token per line,
+         * with a blank line after each sentence.
+         */
+        CONLL;
+
+        /**
+         * @return a new parser for sentences in this format
+         */
+        public AbstractChunkedSentenceParser createParser() {
+            if (this == CONLL) {
+                return new ConllChunkedSentenceParser();
+            } else {
+                return new OpenNlpChunkedSentenceParser();
+            }
+        }
+    }
+
     private final BufferedReader input;
+    private final Format format;
+    private final StringBuilder lines = new StringBuilder();
 
     public PreChunkedSentenceReader(BufferedReader input) {
+        this(input, Format.OPENNLP);
+    }
+
+    public PreChunkedSentenceReader(BufferedReader input, Format format) {
         this.input = input;
+        this.format = format;
+    }
+
+    /**
+     * @return a new parser for the sentences read
+     */
+    public AbstractChunkedSentenceParser createParser() {
+        return format.createParser();
+    }
+
+    /**
+     * @return the text of the next sentence, or null if there are no more
+     * @throws IOException
+     */
+    public String readSentence() throws IOException {
+        if (format == Format.OPENNLP) {
+            return input.readLine();
+        }
+
+        // the lines up to the next blank line, or -DOCSTART- line
+        lines.setLength(0);
+        String line;
+        while ((line = input.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.length() == 0
+                    || trimmed.startsWith(ConllChunkedSentenceParser.DOCSTART)) {
+                if (lines.length() > 0) {
+                    break;
+                }
+            } else {
+                lines.append(line).append('\n');
+            }
+        }
+        return lines.length() > 0 ? lines.toString() : null;
     }
 
     @Override
     public Iterator<ChunkedSentence> iterator() {
 
-        final OpenNlpChunkedSentenceParser parser = new OpenNlpChunkedSentenceParser();
+        final ChunkedSentenceParser parser = createParser();
 
         return new AbstractIterator<ChunkedSentence>() {
             protected ChunkedSentence computeNext() {
-                String line;
+                String sent;
                 try {
-                    while ((line = input.readLine()) != null) {
+                    while ((sent = readSentence()) != null) {
                         try {
-                            return parser.parseSentence(line);
+                            return parser.parseSentence(sent);
                         } catch (ParseException e) {
                             continue;
                         }
@@ -0,0 +1,184 @@
+package edu.washington.cs.knowitall.nlp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import opennlp.tools.sentdetect.SentenceDetector;
+import opennlp.tools.util.Span;
+import opennlp.tools.util.StringUtil;
+
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Iterates over the sentences of a text, running an OpenNLP
+ * <code>SentenceDetector</code> on a window of the text at a time instead of
+ * on all of it at once. Sentences are returned as soon as their window has
+ * been detected, and memory is bounded by the window rather than by the text,
+ * which can be read from a <code>Reader</code> as it is needed.
+ *
+ * Each window starts a few words before the first sentence that has not been
+ * returned, and only the breaks that are at least a few words from its edges
+ * are used. <code>SentenceDetectorME</code> decides each break from the two
+ * words on either side of it, so the sentences are the same as those returned
+ * by <code>sentDetect</code> on the whole text. A window that does not
+ * contain a break grows until it does.
+ *
+ * An <code>IOException</code> reading the text is thrown as an
+ * <code>IllegalStateException</code>.
+ */
+public class SlidingWindowSentenceIterator extends AbstractIterator<String> {
+
+    // the number of words of context kept at the edges of a window
+    private static final int CONTEXT_WORDS = 3;
+
+    private final SentenceDetector detector;
+    private final Reader in;
+    private final int windowSize;
+
+    // the text that has been read, from the offset in the text of its start
+    private final StringBuilder text = new StringBuilder();
+    private int textOffset = 0;
+    private final char[] readBuffer = new char[8192];
+    private boolean eof = false;
+
+    // where the sentences that have not been detected yet start
+    private int start = 0;
+    private final Queue<String> sentences = new LinkedList<String>();
+
+    /**
+     * @param detector
+     * @param text
+     * @param windowSize
+     *            the number of characters to detect sentences in at a time
+     */
+    public SlidingWindowSentenceIterator(SentenceDetector detector,
+            String text, int windowSize) {
+        this(detector, new StringReader(text), windowSize);
+    }
+
+    /**
+     * @param detector
+     * @param in
+     *            the reader to read the text from
+     * @param windowSize
+     *            the number of characters to detect sentences in at a time
+     */
+    public SlidingWindowSentenceIterator(SentenceDetector detector,
+            Reader in, int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Invalid window size: "
+                    + windowSize);
+        }
+        this.detector = detector;
+        this.in = in;
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    protected String computeNext() {
+        while (sentences.isEmpty()) {
+            if (read(start + 1) == start) {
+                return endOfData();
+            }
+            detectWindow();
+        }
+        return sentences.remove();
+    }
+
+    private void detectWindow() {
+        int size = windowSize;
+        while (true) {
+            int end = read((int) Math.min(Integer.MAX_VALUE, (long) start
+                    + size));
+            boolean isLast = eof && end == textOffset + text.length();
+            // the last break that can be used
+            int last = isLast ? end : wordsBefore(end, CONTEXT_WORDS);
+            if (last > start) {
+                int contextStart = wordsBefore(start, CONTEXT_WORDS);
+                Span[] spans = detector.sentPosDetect(text.substring(
+                        contextStart - textOffset, end - textOffset));
+                int from = start;
+                for (Span span : spans) {
+                    int pos = contextStart + span.getStart();
+                    if (pos > from && pos <= last) {
+                        addSentence(from, pos, true);
+                        from = pos;
+                    }
+                }
+                if (isLast) {
+                    // whether the whitespace at the end of the text is
+                    // trimmed depends on the last break, so use the end of
+                    // the last span
+                    int to = end;
+                    if (spans.length > 0) {
+                        to = Math.max(from, contextStart
+                                + spans[spans.length - 1].getEnd());
+                    }
+                    addSentence(from, to, false);
+                    start = end;
+                    return;
+                } else if (from > start) {
+                    start = from;
+                    // forget the text before the context of the next window
+                    int forget = wordsBefore(start, CONTEXT_WORDS) - textOffset;
+                    text.delete(0, forget);
+                    textOffset += forget;
+                    return;
+                }
+            }
+            size = (int) Math.min(Integer.MAX_VALUE, 2L * size);
+        }
+    }
+
+    private void addSentence(int from, int to, boolean trimEnd) {
+        while (from < to && isWhitespace(from)) {
+            from++;
+        }
+        while (trimEnd && to > from && isWhitespace(to - 1)) {
+            to--;
+        }
+        if (to > from) {
+            sentences.add(text.substring(from - textOffset, to - textOffset));
+        }
+    }
+
+    // reads the text up to the offset, unless it ends first, and returns the
+    // offset or the end of the text
+    private int read(int offset) {
+        try {
+            while (textOffset + text.length() < offset && !eof) {
+                int n = in.read(readBuffer);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    text.append(readBuffer, 0, n);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return Math.min(offset, textOffset + text.length());
+    }
+
+    // returns where the nth word before the index starts, counting a word
+    // that the index is in
+    private int wordsBefore(int index, int n) {
+        for (int i = 0; i < n; i++) {
+            while (index > textOffset && isWhitespace(index - 1)) {
+                index--;
+            }
+            while (index > textOffset && !isWhitespace(index - 1)) {
+                index--;
+            }
+        }
+        return index;
+    }
+
+    // whitespace as the detector sees it
+    private boolean isWhitespace(int offset) {
+        return StringUtil.isWhitespace(text.charAt(offset - textOffset));
+    }
+}
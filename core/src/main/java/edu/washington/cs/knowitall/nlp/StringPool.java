@@ -0,0 +1,58 @@
+package edu.washington.cs.knowitall.nlp;
+
+/**
+ * A pool of the strings that recur from sentence to sentence, like POS and
+ * chunk tags, which are looked up by the characters they are parsed from so
+ * that a tag is only allocated the first time it is seen. Once the pool is
+ * full, new strings are no longer pooled. Not thread-safe.
+ */
+class StringPool {
+
+    private static final int CAPACITY = 4096;
+    private static final int MAX_SIZE = CAPACITY / 2;
+
+    private final String[] table = new String[CAPACITY];
+    private final int[] hashes = new int[CAPACITY];
+    private int size = 0;
+
+    /**
+     * @param s
+     * @param start
+     * @param end
+     * @return the characters of <code>s</code> from <code>start</code> to
+     *         <code>end</code>, from the pool if they are in it
+     */
+    public String get(CharSequence s, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + s.charAt(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (CAPACITY - 1);
+        while (table[slot] != null) {
+            if (hashes[slot] == hash && matches(table[slot], s, start, end)) {
+                return table[slot];
+            }
+            slot = (slot + 1) & (CAPACITY - 1);
+        }
+        String string = s.subSequence(start, end).toString();
+        if (size < MAX_SIZE) {
+            table[slot] = string;
+            hashes[slot] = hash;
+            size++;
+        }
+        return string;
+    }
+
+    private static boolean matches(String string, CharSequence s, int start,
+            int end) {
+        if (string.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (string.charAt(i - start) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -43,6 +43,13 @@ public class ChunkedArgumentExtraction extends ChunkedExtraction {
         this.relation = relation;
     }
 
+    public ChunkedArgumentExtraction(ChunkedSentence sent, Range range,
+            ChunkedExtraction relation, String string, double confidence) {
+        super(sent, range, string);
+        this.relation = relation;
+        this.confidence = confidence;
+    }
+
     /**
      * @return the relation this is an argument to.
      */
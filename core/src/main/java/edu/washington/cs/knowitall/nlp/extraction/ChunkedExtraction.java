@@ -1,7 +1,12 @@
 package edu.washington.cs.knowitall.nlp.extraction;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 import edu.washington.cs.knowitall.commonlib.Range;
 import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.normalization.FieldNormalizer;
+import edu.washington.cs.knowitall.normalization.NormalizedField;
 
 /**
  * An extraction object that represents a contiguous subsequence of a
@@ -16,6 +21,9 @@ public class ChunkedExtraction extends ChunkedSentence {
     private final ChunkedSentence sent;
     private String string;
 
+    // the normalized forms of this extraction, by normalizer
+    private Map<FieldNormalizer, NormalizedField> normalized;
+
     /**
      * Constructs a new {@link ChunkedExtraction} object representing range in
      * the sentence sent. range must be a subset of [0, {@code sent.getLength()}
@@ -124,6 +132,30 @@ public class ChunkedExtraction extends ChunkedSentence {
         return true;
     }
 
+    /**
+     * Normalizes this extraction with the given normalizer, or returns the
+     * result of doing so earlier. Normalizers are told apart by identity, so
+     * everything that normalizes this extraction with the same normalizer
+     * (for example a mapper of an extractor and the code writing its output)
+     * shares one result.
+     *
+     * @param normalizer
+     * @return the normalized extraction
+     */
+    public synchronized NormalizedField getNormalized(
+            FieldNormalizer normalizer) {
+        if (normalized == null) {
+            normalized = new IdentityHashMap<FieldNormalizer, NormalizedField>(
+                    4);
+        }
+        NormalizedField field = normalized.get(normalizer);
+        if (field == null) {
+            field = normalizer.normalizeField(this);
+            normalized.put(normalizer, field);
+        }
+        return field;
+    }
+
     public String getText() {
         if (string == null) {
             string = this.sent.getTokensAsString(this.getRange());
@@ -1,10 +1,5 @@
 package edu.washington.cs.knowitall.normalization;
 
-import java.io.ByteArrayInputStream;
-import java.io.StringReader;
-
-import uk.ac.susx.informatics.Morpha;
-
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
 
 /**
@@ -16,13 +11,6 @@ import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
  */
 public class BasicFieldNormalizer implements FieldNormalizer {
 
-    private Morpha lexer;
-
-    public BasicFieldNormalizer() {
-
-        lexer = new Morpha(new ByteArrayInputStream("".getBytes()));
-    }
-
     @Override
     public NormalizedField normalizeField(ChunkedExtraction field) {
 
@@ -46,19 +34,11 @@ public class BasicFieldNormalizer implements FieldNormalizer {
      * @return
      */
     private String stem(String token, String posTag) {
-        token = token.toLowerCase();
-        String wordTag = token + "_" + posTag;
-        try {
-            lexer.yyreset(new StringReader(wordTag));
-            lexer.yybegin(Morpha.scan);
-            String tokenNorm = lexer.next();
-            if (tokenNorm == null) {
-                return token;
-            } else {
-                return tokenNorm;
-            }
-        } catch (Throwable e) {
-            return token;
+        String tokenNorm = StemCache.morpha().stem(token, posTag);
+        if (tokenNorm == null) {
+            return token.toLowerCase();
+        } else {
+            return tokenNorm;
         }
     }
 
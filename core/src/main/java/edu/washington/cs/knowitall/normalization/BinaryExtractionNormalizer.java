@@ -35,13 +35,14 @@ public class BinaryExtractionNormalizer {
     }
 
     /**
-     * Normalizes the given relation phrase
+     * Normalizes the given relation phrase. The result is remembered by the
+     * relation, see {@link ChunkedExtraction#getNormalized(FieldNormalizer)}.
      * 
      * @param rel
      * @return the normalized phrase
      */
     public NormalizedField normalizeRelation(ChunkedExtraction rel) {
-        return relNormalizer.normalizeField(rel);
+        return rel.getNormalized(relNormalizer);
     }
 
     /**
@@ -57,4 +58,28 @@ public class BinaryExtractionNormalizer {
         return new NormalizedBinaryExtraction(extr, arg1Norm, relNorm, arg2Norm);
     }
 
+    /**
+     * Normalizes the given fields of the extraction
+     * 
+     * @param extr
+     * @param arg1
+     *            whether to normalize arg1
+     * @param rel
+     *            whether to normalize rel
+     * @param arg2
+     *            whether to normalize arg2
+     * @return the extraction, with null in place of the fields that are not
+     *         normalized
+     */
+    public NormalizedBinaryExtraction normalize(ChunkedBinaryExtraction extr,
+            boolean arg1, boolean rel, boolean arg2) {
+        NormalizedField arg1Norm = arg1 ? normalizeArgument(extr
+                .getArgument1()) : null;
+        NormalizedField arg2Norm = arg2 ? normalizeArgument(extr
+                .getArgument2()) : null;
+        NormalizedField relNorm = rel ? normalizeRelation(extr.getRelation())
+                : null;
+        return new NormalizedBinaryExtraction(extr, arg1Norm, relNorm, arg2Norm);
+    }
+
 }
@@ -1,10 +1,5 @@
 package edu.washington.cs.knowitall.normalization;
 
-import java.io.ByteArrayInputStream;
-import java.io.StringReader;
-
-import uk.ac.susx.informatics.Morpha;
-
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
 import edu.washington.cs.knowitall.sequence.SequenceException;
 
@@ -25,12 +20,6 @@ import edu.washington.cs.knowitall.sequence.SequenceException;
  */
 public class HeadNounNormalizer implements FieldNormalizer {
 
-    private static Morpha lexer;
-
-    public HeadNounNormalizer() {
-        lexer = new Morpha(new ByteArrayInputStream("".getBytes()));
-    }
-
     @Override
     public NormalizedField normalizeField(ChunkedExtraction field) {
 
@@ -78,16 +67,7 @@ public class HeadNounNormalizer implements FieldNormalizer {
     }
 
     private String stem(String token, String posTag) {
-        token = token.toLowerCase();
-        String wordTag = token + "_" + posTag;
-        try {
-            lexer.yyreset(new StringReader(wordTag));
-            lexer.yybegin(Morpha.scan);
-            String tokenNorm = lexer.next();
-            return tokenNorm;
-        } catch (Throwable e) {
-            return token;
-        }
+        return StemCache.morpha().stem(token, posTag);
     }
 
 }
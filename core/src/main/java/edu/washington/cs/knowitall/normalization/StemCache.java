@@ -0,0 +1,181 @@
+package edu.washington.cs.knowitall.normalization;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+import uk.ac.susx.informatics.Morpha;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+import edu.washington.cs.knowitall.morpha.MorphaStemmer;
+
+/**
+ * A thread-safe cache of stems, keyed by lowercased token and POS tag. Tokens
+ * are Zipf distributed, so a cache of a modest size answers most lookups
+ * without running the stemmer. When the cache is full, the entries that have
+ * not been used recently are evicted.
+ *
+ * There is one shared cache for each of the stemmers used by the
+ * normalizers, see {@link #morpha()} and {@link #morphaStemmer()}. Their hit
+ * rates are published by
+ * {@link edu.washington.cs.knowitall.util.PipelineMetrics}.
+ */
+public abstract class StemCache implements StemCacheMBean {
+
+    /** The maximum number of stems kept by the shared caches. */
+    public static final int DEFAULT_MAXIMUM_SIZE = 100000;
+
+    private static final StemCache morpha = new StemCache(
+            DEFAULT_MAXIMUM_SIZE) {
+        // Morpha is a scanner with mutable state, so each thread gets its own
+        private final ThreadLocal<Morpha> lexer = new ThreadLocal<Morpha>() {
+            @Override
+            protected Morpha initialValue() {
+                return new Morpha(new ByteArrayInputStream("".getBytes()));
+            }
+        };
+
+        @Override
+        protected String computeStem(String token, String posTag)
+                throws Exception {
+            Morpha morpha = lexer.get();
+            morpha.yyreset(new StringReader(token + "_" + posTag));
+            morpha.yybegin(Morpha.scan);
+            return morpha.next();
+        }
+    };
+
+    private static final StemCache morphaStemmer = new StemCache(
+            DEFAULT_MAXIMUM_SIZE) {
+        @Override
+        protected String computeStem(String token, String posTag) {
+            return MorphaStemmer.stemToken(token, posTag);
+        }
+    };
+
+    /**
+     * @return the shared cache of stems computed by the Morpha lexer. The stem
+     *         of a token that Morpha does not recognize is null.
+     */
+    public static StemCache morpha() {
+        return morpha;
+    }
+
+    /**
+     * @return the shared cache of stems computed by
+     *         {@link MorphaStemmer#stemToken(String, String)}
+     */
+    public static StemCache morphaStemmer() {
+        return morphaStemmer;
+    }
+
+    private static class Key {
+        private final String token;
+        private final String posTag;
+        private final int hash;
+
+        Key(String token, String posTag) {
+            this.token = token;
+            this.posTag = posTag;
+            this.hash = 31 * token.hashCode() + posTag.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && token.equals(other.token)
+                    && posTag.equals(other.posTag);
+        }
+    }
+
+    private final LoadingCache<Key, Optional<String>> stems;
+
+    /**
+     * @param maximumSize
+     *            the maximum number of stems to keep
+     */
+    protected StemCache(int maximumSize) {
+        stems = CacheBuilder.newBuilder().maximumSize(maximumSize)
+                .recordStats().build(new CacheLoader<Key, Optional<String>>() {
+                    @Override
+                    public Optional<String> load(Key key) {
+                        try {
+                            return Optional.fromNullable(computeStem(
+                                    key.token, key.posTag));
+                        } catch (Throwable e) {
+                            return Optional.of(key.token);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Computes the stem of a lowercased token. Called at most once per entry
+     * while it is in the cache, possibly from several threads at once for
+     * different entries.
+     */
+    protected abstract String computeStem(String token, String posTag)
+            throws Exception;
+
+    /**
+     * Stems the lowercased token. If the stemmer fails, the lowercased token
+     * is returned.
+     *
+     * @return the stem, which can be null if the stemmer returns null
+     */
+    public String stem(String token, String posTag) {
+        return stems.getUnchecked(new Key(token.toLowerCase(), posTag))
+                .orNull();
+    }
+
+    /**
+     * @return the number of lookups answered from the cache and the number
+     *         that ran the stemmer, among other statistics
+     */
+    public CacheStats stats() {
+        return stems.stats();
+    }
+
+    /**
+     * @return the number of stems currently in the cache
+     */
+    public long size() {
+        return stems.size();
+    }
+
+    @Override
+    public long getHits() {
+        return stems.stats().hitCount();
+    }
+
+    @Override
+    public long getMisses() {
+        return stems.stats().missCount();
+    }
+
+    /**
+     * @return the fraction of the lookups answered from the cache, or 1 if
+     *         there were none
+     */
+    @Override
+    public double getHitRate() {
+        return stems.stats().hitRate();
+    }
+
+    @Override
+    public long getSize() {
+        return size();
+    }
+}
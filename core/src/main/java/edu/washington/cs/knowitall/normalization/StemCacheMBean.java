@@ -0,0 +1,15 @@
+package edu.washington.cs.knowitall.normalization;
+
+/**
+ * The JMX view of a {@link StemCache}.
+ */
+public interface StemCacheMBean {
+
+    public long getHits();
+
+    public long getMisses();
+
+    public double getHitRate();
+
+    public long getSize();
+}
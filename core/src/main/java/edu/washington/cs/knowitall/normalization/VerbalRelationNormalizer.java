@@ -6,7 +6,6 @@ import java.util.List;
 
 import uk.ac.susx.informatics.Morpha;
 
-import edu.washington.cs.knowitall.morpha.MorphaStemmer;
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
 import edu.washington.cs.knowitall.sequence.SequenceException;
 
@@ -23,6 +22,31 @@ import edu.washington.cs.knowitall.sequence.SequenceException;
  */
 public class VerbalRelationNormalizer implements FieldNormalizer {
 
+    /**
+     * Stems every token. Its results are remembered by the extractions, so
+     * normalizers with different settings stem each relation only once.
+     */
+    private static final FieldNormalizer stemmer = new FieldNormalizer() {
+        public NormalizedField normalizeField(ChunkedExtraction field) {
+            List<String> tokens = field.getTokens();
+            List<String> posTags = field.getPosTags();
+            String[] stems = new String[tokens.size()];
+            for (int i = 0; i < stems.length; i++) {
+                stems[i] = StemCache.morphaStemmer().stem(tokens.get(i),
+                        posTags.get(i));
+            }
+            try {
+                return new NormalizedField(field, stems,
+                        posTags.toArray(new String[stems.length]));
+            } catch (SequenceException e) {
+                String msg = String.format(
+                        "tokens and posTags are not the same length for field %s",
+                        field);
+                throw new IllegalStateException(msg, e);
+            }
+        }
+    };
+
     private boolean stripBeAdj = false;
     private HashSet<String> ignorePosTags;
     private HashSet<String> auxVerbs;
@@ -49,7 +73,9 @@ public class VerbalRelationNormalizer implements FieldNormalizer {
 
     /**
      * If set to true, then will not remove adjectives in phrases like
-     * "is happy about".
+     * "is happy about". Set this before normalizing anything with
+     * {@link ChunkedExtraction#getNormalized(FieldNormalizer)}, which
+     * remembers the results.
      *
      * @param value
      */
@@ -62,8 +88,9 @@ public class VerbalRelationNormalizer implements FieldNormalizer {
      */
     public NormalizedField normalizeField(ChunkedExtraction field) {
 
-        List<String> tokens = field.getTokens();
-        List<String> posTags = field.getPosTags();
+        NormalizedField stemmed = field.getNormalized(stemmer);
+        List<String> tokens = stemmed.getTokens();
+        List<String> posTags = stemmed.getPosTags();
 
         ArrayList<String> tokensCopy = new ArrayList<String>(tokens.size());
         tokensCopy.addAll(tokens);
@@ -83,29 +110,10 @@ public class VerbalRelationNormalizer implements FieldNormalizer {
     }
 
     private void normalizeModify(List<String> tokens, List<String> posTags) {
-        stemAll(tokens, posTags);
         removeIgnoredPosTags(tokens, posTags);
         removeLeadingBeHave(tokens, posTags);
     }
 
-    private String stem(String token, String posTag) {
-        token = token.toLowerCase();
-        try {
-            return MorphaStemmer.stemToken(token, posTag);
-        } catch (Throwable e) {
-            return token;
-        }
-    }
-
-    private void stemAll(List<String> tokens, List<String> posTags) {
-        for (int i = 0; i < tokens.size(); i++) {
-            String tok = tokens.get(i);
-            String tag = posTags.get(i);
-            String newTok = stem(tok, tag);
-            tokens.set(i, newTok);
-        }
-    }
-
     private void removeIgnoredPosTags(List<String> tokens, List<String> posTags) {
 
         boolean noNoun = true;
@@ -0,0 +1,267 @@
+package edu.washington.cs.knowitall.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ * Helpers for the binary model files written by
+ * {@link edu.washington.cs.knowitall.argumentidentifier.R2A2ModelConverter}.
+ * Every file starts with a magic number, a format version, the kind of model
+ * it holds and the key of the resource it was built from (see
+ * {@link #sourceKey(URL)}); all numbers are
+ * big-endian, as written by {@link DataOutputStream}, and strings are a length
+ * followed by their UTF-8 bytes.
+ */
+public class BinaryModels {
+
+    /** "RVBM" */
+    public static final int MAGIC = 0x5256424d;
+    public static final int VERSION = 3;
+
+    /** The source key of a model that was not built from a resource. */
+    public static final long NO_SOURCE = 0;
+
+    /** The number of bytes at the start of a resource in its key. */
+    public static final int KEY_BYTES = 64 * 1024;
+
+    /** The suffix of a binary model next to the resource it was built from. */
+    public static final String SUFFIX = ".bin";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private BinaryModels() {
+    }
+
+    /**
+     * @return the binary version of the given classpath resource, or null if
+     *         there is none, or if it is out of date (see
+     *         {@link #isUpToDate(URL, URL)}) or can not be read, in which case
+     *         the resource should be read instead.
+     */
+    public static URL findBinary(Class<?> cls, String resource) {
+        URL binary = cls.getResource(resource + SUFFIX);
+        if (binary == null) {
+            return null;
+        }
+        try {
+            return isUpToDate(binary, cls.getResource(resource)) ? binary
+                    : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param binary
+     *            a binary model
+     * @param source
+     *            the resource it was built from, or null if there is none
+     * @return true if the binary model is in the current format version, and
+     *         was built from a source with the same key. A model that records
+     *         no source, or whose source is missing, is up to date.
+     * @throws IOException
+     *             if either can not be read
+     */
+    public static boolean isUpToDate(URL binary, URL source)
+            throws IOException {
+        long key;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                binary.openStream()));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a binary model file");
+            }
+            if (in.readInt() != VERSION) {
+                return false;
+            }
+            readString(in);
+            key = in.readLong();
+        } finally {
+            in.close();
+        }
+        return key == NO_SOURCE || source == null
+                || key == sourceKey(source);
+    }
+
+    /**
+     * @return the key of the given resource, as recorded in the header of a
+     *         binary model built from it: its size in the high 32 bits, and
+     *         the CRC-32 of its first {@link #KEY_BYTES} bytes in the low
+     *         ones. Unlike a checksum of the whole resource, it is cheap
+     *         enough to check every time a model is loaded.
+     */
+    public static long sourceKey(URL source) throws IOException {
+        URLConnection connection = source.openConnection();
+        long size = connection.getContentLength();
+        CRC32 crc = new CRC32();
+        InputStream in = connection.getInputStream();
+        try {
+            byte[] buffer = new byte[KEY_BYTES];
+            int n = 0;
+            int read;
+            while (n < buffer.length
+                    && (read = in.read(buffer, n, buffer.length - n)) != -1) {
+                n += read;
+            }
+            crc.update(buffer, 0, n);
+            if (size < 0) {
+                // the size is unknown, so count the rest
+                size = n;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return size << 32 | crc.getValue();
+    }
+
+    /**
+     * Loads a binary model. Files are memory-mapped; other resources (for
+     * example entries in a jar) are read into memory.
+     */
+    public static ByteBuffer load(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            File file;
+            try {
+                file = new File(url.toURI());
+            } catch (URISyntaxException e) {
+                file = new File(url.getPath());
+            }
+            FileInputStream in = new FileInputStream(file);
+            try {
+                FileChannel channel = in.getChannel();
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        channel.size());
+            } finally {
+                in.close();
+            }
+        }
+
+        InputStream in = url.openStream();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        } finally {
+            in.close();
+        }
+    }
+
+    public static void writeHeader(DataOutputStream out, String kind)
+            throws IOException {
+        writeHeader(out, kind, NO_SOURCE);
+    }
+
+    /**
+     * @param sourceKey
+     *            the {@link #sourceKey(URL)} of the resource the model was
+     *            built from, or {@link #NO_SOURCE}
+     */
+    public static void writeHeader(DataOutputStream out, String kind,
+            long sourceKey) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, kind);
+        out.writeLong(sourceKey);
+    }
+
+    /**
+     * Reads the header of a binary model and checks that it holds a model of
+     * the given kind in a version this class can read.
+     */
+    public static void readHeader(ByteBuffer in, String kind)
+            throws IOException {
+        if (in.remaining() < 8 || in.getInt() != MAGIC) {
+            throw new IOException("Not a binary model file");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary model version: "
+                    + version);
+        }
+        String found = readString(in);
+        if (!found.equals(kind)) {
+            throw new IOException("Expected a " + kind + " model but found a "
+                    + found + " model");
+        }
+        in.getLong();
+    }
+
+    /**
+     * Reads the header of a binary model from a stream, see
+     * {@link #readHeader(ByteBuffer, String)}.
+     */
+    public static void readHeader(DataInputStream in, String kind)
+            throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a binary model file");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary model version: "
+                    + version);
+        }
+        String found = readString(in);
+        if (!found.equals(kind)) {
+            throw new IOException("Expected a " + kind + " model but found a "
+                    + found + " model");
+        }
+        in.readLong();
+    }
+
+    /**
+     * @return the next <code>length</code> bytes of the buffer, which are
+     *         shared with it, not copied, and skipped in it
+     */
+    public static ByteBuffer slice(ByteBuffer in, int length) {
+        ByteBuffer slice = in.slice();
+        slice.limit(length);
+        in.position(in.position() + length);
+        return slice;
+    }
+
+    public static void writeString(DataOutputStream out, String string)
+            throws IOException {
+        byte[] bytes = string.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (in.hasArray()) {
+            int offset = in.arrayOffset() + in.position();
+            in.position(in.position() + length);
+            return new String(in.array(), offset, length, UTF8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            return new String(bytes, UTF8);
+        }
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+}
@@ -5,9 +5,27 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -16,25 +34,36 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.PosixParser;
 
-import com.google.common.base.Joiner;
-
 import edu.washington.cs.knowitall.argumentidentifier.ConfidenceMetric;
-import edu.washington.cs.knowitall.commonlib.Range;
 import edu.washington.cs.knowitall.extractor.ExtractorException;
 import edu.washington.cs.knowitall.extractor.R2A2;
 import edu.washington.cs.knowitall.extractor.ReVerbExtractor;
 import edu.washington.cs.knowitall.extractor.ReVerbRelationExtractor;
+import edu.washington.cs.knowitall.extractor.SentenceExtractor;
 import edu.washington.cs.knowitall.extractor.conf.ConfidenceFunction;
 import edu.washington.cs.knowitall.extractor.conf.ConfidenceFunctionException;
 import edu.washington.cs.knowitall.extractor.conf.ReVerbOpenNlpConfFunction;
+import edu.washington.cs.knowitall.extractor.mapper.DuplicateSentenceFilter;
 import edu.washington.cs.knowitall.extractor.mapper.PronounArgumentFilter;
+import edu.washington.cs.knowitall.io.BinaryExtractionSink;
 import edu.washington.cs.knowitall.io.BufferedReaderIterator;
+import edu.washington.cs.knowitall.io.ChunkCache;
+import edu.washington.cs.knowitall.io.ExtractionSink;
+import edu.washington.cs.knowitall.io.TextBlockIterator;
+import edu.washington.cs.knowitall.io.TsvExtractionSink;
+import edu.washington.cs.knowitall.io.TsvExtractionSink.Column;
+import edu.washington.cs.knowitall.nlp.CachingSentenceChunker;
 import edu.washington.cs.knowitall.nlp.ChunkedSentence;
-import edu.washington.cs.knowitall.nlp.ChunkedSentenceIterator;
-import edu.washington.cs.knowitall.nlp.ChunkedSentenceReader;
+import edu.washington.cs.knowitall.nlp.ChunkedSentenceParser;
+import edu.washington.cs.knowitall.nlp.ChunkerException;
+import edu.washington.cs.knowitall.nlp.OpenNlpSentenceChunker;
+import edu.washington.cs.knowitall.nlp.PreChunkedSentenceReader;
+import edu.washington.cs.knowitall.nlp.SentenceBlocksIterator;
+import edu.washington.cs.knowitall.nlp.SentenceChunker;
 import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
 import edu.washington.cs.knowitall.normalization.BinaryExtractionNormalizer;
-import edu.washington.cs.knowitall.normalization.NormalizedBinaryExtraction;
+import edu.washington.cs.knowitall.normalization.StemCache;
+import edu.washington.cs.knowitall.util.PipelineMetrics.Stage;
 
 /***
  * A command line wrapper for ReVerbExtractor. Run with -h to see the usage
@@ -47,10 +76,31 @@ public class CommandLineReVerb {
 
     private static final String NAME = "CommandLineReVerb";
 
+    // the number of pre-chunked sentences given to a thread at a time
+    private static final int BATCH_SIZE = 256;
+
     private ReVerbRelationExtractor extractor;
     private ConfidenceFunction confFunc;
     private BufferedReaderIterator stdinLineIterator;
     private BinaryExtractionNormalizer normalizer;
+    private ExtractionSink sink;
+    private ChunkCache chunkCache;
+    private String chunkerVersion;
+    private ExtractionWorker textWorker;
+    // the filter of duplicate sentences in skip mode, or the rows of the
+    // sentences seen recently in re-emit mode
+    private DuplicateSentenceFilter duplicateFilter;
+    private FingerprintCache<List<Row>> sentenceRows;
+    // the latencies of the stages of the pipeline, if they are reported, and
+    // the file they are written to every statsInterval seconds
+    private PipelineMetrics metrics;
+    private File statsFile;
+    private int statsInterval = 10;
+    // whether the sink needs confidences, and which normalized fields
+    private boolean needConf = true;
+    private boolean needArg1Norm = true;
+    private boolean needRelNorm = true;
+    private boolean needArg2Norm = true;
 
     private long startAtTime;
     private boolean dataStdin = false;
@@ -63,25 +113,21 @@ public class CommandLineReVerb {
     private boolean useSynLexConstraints = false;
     private boolean allowUnary = false;
     private boolean useArgLearner = false;
+    private boolean warc = false;
+    private PreChunkedSentenceReader.Format prechunkedFormat = null;
+    private int numThreads = 1;
     private int minFreq = 20;
+    private int dedupSize = 100000;
 
     private int messageEvery = 1000;
     private int numSents = 0;
     private int numExtrs = 0;
     private int numFiles = 0;
+    private int numPages = 0;
+    private int numUnparsed = 0;
     private String currentFile;
     private Queue<String> fileArgs;
 
-    long chunkTime = 0;
-    long extractTime = 0;
-    long confTime = 0;
-
-    private static String[] colNames = { "filename", "sentence number", "arg1",
-            "rel", "arg2", "arg1 start", "arg1 end", "rel start", "rel end",
-            "arg2 start", "arg2 end", "conf", "sentence words",
-            "sentence pos tags", "sentence chunk tags", "arg1 normalized",
-            "rel normalized", "arg2 normalized" };
-
     public static void main(String[] args) throws ExtractorException {
 
         Options options = new Options();
@@ -95,7 +141,7 @@ public class CommandLineReVerb {
         options.addOption("q", "quiet", false,
                 "Quiet mode (don't print messages to standard error)");
         options.addOption("t", "timing", false,
-                "Provide detailed timing information");
+                "Provide detailed timing information, including the number of candidates each mapper of the extractor drops and the time it takes");
         options.addOption(
                 "m",
                 "minFreq",
@@ -115,6 +161,49 @@ public class CommandLineReVerb {
                 "Allow relations with a single argument to be output. (Default setting is to disallow unary relations.)");
         options.addOption("N", "noConstraints", false,
                 "Do not enforce the syntactic and lexical constraints that are part of ReVerb.");
+        options.addOption(
+                "w",
+                "warc",
+                false,
+                "Read WARC files (plain or gzipped) and extract from the HTML of each response record. The filename column holds the TREC ID of the page, or its URI if it has none.");
+        options.addOption(
+                "P",
+                "prechunked",
+                true,
+                "Read sentences that are already tokenized, POS tagged and chunked, in the given format: opennlp (one sentence per line, e.g. \"[NP JFK/NNP] [VP was/VBD elected/VBN] ./.\") or conll (one \"token POS chunk\" line per token, with a blank line after each sentence). The OpenNLP models are not loaded.");
+        options.addOption(
+                "C",
+                "chunk-cache",
+                true,
+                "Keep the chunks of the sentences in the given file, and reuse them when the same sentences are chunked by the same models again, e.g. in a later run with other extractor settings.");
+        options.addOption(
+                "D",
+                "dedup",
+                true,
+                "Suppress repeated sentences, like boilerplate, before chunking them: skip drops the copies of the sentences seen recently, and reemit writes the rows of the first copy again for them, without chunking or extracting. reemit keeps the rows of the last --dedup-size distinct sentences in memory. (Default is to extract from every copy.)");
+        options.addOption("S", "dedup-size", true,
+                "Number of distinct sentences remembered by --dedup, each with its rows for reemit (default: 100000)");
+        options.addOption(
+                "j",
+                "stats-json",
+                true,
+                "Write the latency percentiles of each stage of the pipeline (tokenizing, tagging, chunking or parsing pre-chunked sentences, relation and argument extraction, confidence and normalization), the numbers of sentences and extractions, and the candidates each mapper of the extractor drops and the time it takes, to the given file as JSON, every --stats-interval seconds and at the end.");
+        options.addOption("i", "stats-interval", true,
+                "Number of seconds between the writes of --stats-json (default: 10)");
+        options.addOption("J", "jmx", false,
+                "Register the metrics written by --stats-json as JMX MBeans under edu.washington.cs.knowitall.reverb.");
+        options.addOption("T", "threads", true,
+                "Number of threads extracting from WARC pages or pre-chunked sentences (default: number of processors)");
+        options.addOption(
+                "O",
+                "output-format",
+                true,
+                "Output format: tsv (default), or binary, which writes each sentence once and can be converted to tsv with BinaryExtractionReader.");
+        options.addOption(
+                "c",
+                "columns",
+                true,
+                "Comma-separated list of the tsv output columns to write, by name (e.g. arg1,rel,arg2,conf,rel_normalized) or number. The confidence and the normalized fields are only computed if their columns are written. (Default is all of them.)");
 
         CommandLineParser parser = new PosixParser();
 
@@ -134,6 +223,10 @@ public class CommandLineReVerb {
                     + e.getMessage());
             usage(options);
             return;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage(options);
+            return;
         } catch (IOException e) {
             System.err.println("Encountered IOException: " + e.getMessage());
             return;
@@ -150,9 +243,11 @@ public class CommandLineReVerb {
 
     private static void printOutputFormatHelp() {
         System.out.println("Output Columns:");
-        for (int i = 0; i < colNames.length; i++) {
+        Column[] columns = Column.values();
+        for (int i = 0; i < columns.length; i++) {
             int j = i + 1;
-            System.out.println("    " + j + ". " + colNames[i]);
+            System.out.println("    " + j + ". " + columns[i].getDescription()
+                    + " (" + columns[i].getName() + ")");
         }
     }
 
@@ -188,37 +283,96 @@ public class CommandLineReVerb {
 
         useArgLearner = params.hasOption("argLearner");
 
+        warc = params.hasOption("warc");
+        if (params.hasOption("prechunked")) {
+            prechunkedFormat = parsePrechunkedFormat(params
+                    .getOptionValue("prechunked"));
+            if (warc || stripHtml) {
+                throw new IllegalArgumentException(
+                        "Pre-chunked input cannot be read as WARC or HTML");
+            }
+        }
+        numThreads = Integer.parseInt(params.getOptionValue("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException(
+                    "The number of threads must be positive: " + numThreads);
+        }
+
         normalizer = new BinaryExtractionNormalizer();
 
+        if (params.hasOption("stats-json")) {
+            statsFile = new File(params.getOptionValue("stats-json"));
+            statsInterval = Integer.parseInt(params.getOptionValue(
+                    "stats-interval", String.valueOf(statsInterval)));
+            if (statsInterval <= 0) {
+                throw new IllegalArgumentException(
+                        "The stats interval must be positive: " + statsInterval);
+            }
+        }
+        // the stages are only timed if their times are reported
+        boolean jmx = params.hasOption("jmx");
+        if (timing || statsFile != null || jmx) {
+            metrics = new PipelineMetrics();
+        }
+        if (jmx) {
+            try {
+                metrics.registerMBeans();
+            } catch (JMException e) {
+                message("Could not register the metrics with JMX: "
+                        + e.getMessage());
+            }
+        }
+
+        if (params.hasOption("dedup")) {
+            dedupSize = Integer.parseInt(params.getOptionValue("dedup-size",
+                    String.valueOf(dedupSize)));
+            String policy = params.getOptionValue("dedup");
+            if (policy.equals("skip")) {
+                duplicateFilter = new DuplicateSentenceFilter(dedupSize);
+            } else if (policy.equals("reemit")) {
+                sentenceRows = new FingerprintCache<List<Row>>(dedupSize);
+            } else {
+                throw new IllegalArgumentException("Unknown dedup policy: "
+                        + policy);
+            }
+        }
+
         try {
 
+            createSink(params.getOptionValue("output-format", "tsv"),
+                    params.getOptionValue("columns"));
+
             if (useArgLearner) {
                 messageInc("Initializing ReVerb+ArgLearner extractor...");
-                extractor = new R2A2();
-                message("Done.");
-                messageInc("Initializing confidence function...");
-                confFunc = new ConfidenceMetric();
-                message("Done.");
             } else {
                 messageInc("Initializing ReVerb extractor...");
-                extractor = new ReVerbExtractor(minFreq, useSynLexConstraints,
-                        mergeOverlapRels, allowUnary);
-                message("Done.");
+            }
+            extractor = createExtractor();
+            message("Done.");
+            if (needConf) {
                 messageInc("Initializing confidence function...");
-                confFunc = new ReVerbOpenNlpConfFunction();
+                confFunc = createConfFunc();
                 message("Done.");
             }
 
-            if (filterPronouns) {
-                extractor.getArgument1Extractor().addMapper(
-                        new PronounArgumentFilter());
-                extractor.getArgument2Extractor().addMapper(
-                        new PronounArgumentFilter());
+            if (prechunkedFormat == null) {
+                messageInc("Initializing NLP tools...");
+                DefaultObjects.initializeNlpTools();
+                message("Done.");
             }
 
-            messageInc("Initializing NLP tools...");
-            DefaultObjects.initializeNlpTools();
-            message("Done.");
+            if (params.hasOption("chunk-cache")) {
+                if (prechunkedFormat != null) {
+                    throw new IllegalArgumentException(
+                            "Pre-chunked input is not chunked, so it cannot be cached");
+                }
+                messageInc("Opening chunk cache...");
+                chunkCache = new ChunkCache(new File(
+                        params.getOptionValue("chunk-cache")));
+                chunkerVersion = DefaultObjects.getChunkerModelVersion();
+                message("Done (" + chunkCache.size() + " sentences).");
+            }
 
         } catch (ConfidenceFunctionException e) {
             throw new ExtractorException(e);
@@ -228,28 +382,136 @@ public class CommandLineReVerb {
 
     }
 
+    private static PreChunkedSentenceReader.Format parsePrechunkedFormat(
+            String format) {
+        try {
+            return PreChunkedSentenceReader.Format.valueOf(format
+                    .toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    "Unknown pre-chunked format: " + format);
+        }
+    }
+
+    private void createSink(String format, String columnList)
+            throws IOException {
+        if (format.equals("tsv")) {
+            List<Column> columns = columnList == null ? Arrays.asList(Column
+                    .values()) : Column.parseList(columnList);
+            TsvExtractionSink tsvSink = new TsvExtractionSink(
+                    new OutputStreamWriter(System.out), columns, normalizer);
+            needConf = tsvSink.isSelected(Column.CONF);
+            needArg1Norm = tsvSink.isSelected(Column.ARG1_NORMALIZED);
+            needRelNorm = tsvSink.isSelected(Column.REL_NORMALIZED);
+            needArg2Norm = tsvSink.isSelected(Column.ARG2_NORMALIZED);
+            sink = tsvSink;
+        } else if (format.equals("binary")) {
+            if (columnList != null) {
+                throw new IllegalArgumentException(
+                        "Columns can only be selected for tsv output");
+            }
+            sink = new BinaryExtractionSink(System.out, normalizer);
+        } else {
+            throw new IllegalArgumentException("Unknown output format: "
+                    + format);
+        }
+    }
+
+    private ReVerbRelationExtractor createExtractor() throws IOException,
+            ExtractorException {
+        ReVerbRelationExtractor extractor;
+        if (useArgLearner) {
+            extractor = new R2A2();
+        } else {
+            extractor = new ReVerbExtractor(minFreq, useSynLexConstraints,
+                    mergeOverlapRels, allowUnary);
+        }
+        if (metrics != null) {
+            extractor.setMetrics(metrics);
+        }
+        if (filterPronouns) {
+            extractor.getArgument1Extractor().addMapper(
+                    new PronounArgumentFilter());
+            extractor.getArgument2Extractor().addMapper(
+                    new PronounArgumentFilter());
+        }
+        if (metrics != null) {
+            extractor.instrumentMappers(metrics);
+        }
+        return extractor;
+    }
+
+    private SentenceExtractor createSentenceExtractor() throws IOException {
+        if (warc || stripHtml) {
+            return DefaultObjects.getDefaultHtmlSentenceExtractor();
+        } else {
+            return DefaultObjects.getDefaultSentenceExtractor();
+        }
+    }
+
+    private SentenceChunker createChunker() throws IOException {
+        OpenNlpSentenceChunker openNlpChunker = new OpenNlpSentenceChunker();
+        if (metrics != null) {
+            openNlpChunker.setMetrics(metrics);
+        }
+        SentenceChunker chunker = openNlpChunker;
+        if (chunkCache != null) {
+            chunker = new CachingSentenceChunker(chunker, chunkCache,
+                    chunkerVersion);
+        }
+        return chunker;
+    }
+
+    private ConfidenceFunction createConfFunc()
+            throws ConfidenceFunctionException, IOException {
+        if (useArgLearner) {
+            return new ConfidenceMetric();
+        } else {
+            return new ReVerbOpenNlpConfFunction();
+        }
+    }
+
     public void runExtractor() throws IOException, ExtractorException {
 
         message("Starting extraction.");
 
         startAtTime = System.currentTimeMillis();
-        if (dataStdin) {
-            extractFromStdin();
-        } else {
-            while (haveNextFile()) {
-                try {
-                    extractFromNextFile();
-                } catch (ExtractorException e) {
-                    message("Error during extraction: " + e.getMessage());
-                } catch (IOException e) {
-                    message("Error reading file: " + e.getMessage());
+        ScheduledExecutorService statsWriter = startStatsWriter();
+        try {
+            if (warc) {
+                extractFromWarcs();
+            } else if (prechunkedFormat != null) {
+                extractFromPrechunked();
+            } else if (dataStdin) {
+                extractFromStdin();
+            } else {
+                while (haveNextFile()) {
+                    try {
+                        extractFromNextFile();
+                    } catch (ExtractorException e) {
+                        message("Error during extraction: " + e.getMessage());
+                    } catch (IOException e) {
+                        message("Error reading file: " + e.getMessage());
+                    }
+                    numFiles++;
                 }
-                numFiles++;
+            }
+        } finally {
+            sink.flush();
+            if (chunkCache != null) {
+                chunkCache.close();
+            }
+            if (statsWriter != null) {
+                statsWriter.shutdownNow();
+                writeStats();
             }
         }
 
         message("Done with extraction.");
         summary();
+        if (timing) {
+            mapperSummary();
+        }
     }
 
     private void summary() {
@@ -259,19 +521,107 @@ public class CommandLineReVerb {
         messageInc(numExtrs + " extractions, ");
         messageInc(numSents + " sentences, ");
         messageInc(numFiles + " files, ");
+        if (warc) {
+            messageInc(numPages + " pages, ");
+        }
         message(runTimeSecs + " seconds");
+        if (chunkCache != null) {
+            message("Chunk cache: " + chunkCache.getHits() + " hits, "
+                    + chunkCache.getMisses() + " misses");
+        }
+        if (duplicateFilter != null) {
+            message("Duplicate sentences: "
+                    + duplicateFilter.getNumDuplicates() + " skipped");
+        } else if (sentenceRows != null) {
+            message("Duplicate sentences: " + sentenceRows.getHits()
+                    + " re-emitted");
+        }
+        if (prechunkedFormat != null) {
+            message("Unparsable sentences: " + numUnparsed + " skipped");
+        }
+        if (metrics != null) {
+            DecimalFormat fmt = new DecimalFormat("#.##");
+            StringBuilder caches = new StringBuilder("Stem caches: ");
+            for (Map.Entry<String, StemCache> entry : metrics.getStemCaches()
+                    .entrySet()) {
+                StemCache cache = entry.getValue();
+                if (caches.length() > "Stem caches: ".length()) {
+                    caches.append(", ");
+                }
+                caches.append(entry.getKey() + " "
+                        + fmt.format(100 * cache.getHitRate()) + "% hits of "
+                        + (cache.getHits() + cache.getMisses()) + " lookups");
+            }
+            message(caches.toString());
+        }
 
         if (timing) {
             DecimalFormat fmt = new DecimalFormat("#.##");
 
             messageInc("Timing: ");
             messageInc("chunking: "
-                    + fmt.format(chunkTime / 1000.0 / 1000.0 / 1000.0) + " s, ");
+                    + fmt.format(totalSeconds(Stage.TOKENIZE, Stage.TAG,
+                            Stage.CHUNK, Stage.PARSE)) + " s, ");
             messageInc("extraction: "
-                    + fmt.format(extractTime / 1000.0 / 1000.0 / 1000.0)
+                    + fmt.format(totalSeconds(Stage.RELATION, Stage.ARGUMENT))
                     + " s, ");
             messageInc("confidence: "
-                    + fmt.format(confTime / 1000.0 / 1000.0 / 1000.0) + " s");
+                    + fmt.format(totalSeconds(Stage.CONFIDENCE)) + " s");
+        }
+    }
+
+    // the time spent in the given stages, by all threads
+    private double totalSeconds(Stage... stages) {
+        long nanos = 0;
+        for (Stage stage : stages) {
+            nanos += metrics.getHistogram(stage).getTotal();
+        }
+        return nanos / 1000.0 / 1000.0 / 1000.0;
+    }
+
+    private void mapperSummary() {
+        DecimalFormat fmt = new DecimalFormat("#.##");
+        message("");
+        message("Mappers:");
+        for (MapperStats stats : metrics.getMapperStats()) {
+            message("    " + stats.getName() + ": " + stats.getInputs()
+                    + " in, " + stats.getOutputs() + " out ("
+                    + fmt.format(stats.getDroppedPercent()) + "% dropped), "
+                    + fmt.format(stats.getTotalMillis()) + " ms");
+        }
+    }
+
+    /*
+     * Writes the metrics to the stats file every statsInterval seconds, on a
+     * daemon thread, so a failed run still exits.
+     */
+    private ScheduledExecutorService startStatsWriter() {
+        if (statsFile == null) {
+            return null;
+        }
+        ScheduledExecutorService statsWriter = Executors
+                .newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "stats-json");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        statsWriter.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                writeStats();
+            }
+        }, statsInterval, statsInterval, TimeUnit.SECONDS);
+        return statsWriter;
+    }
+
+    private synchronized void writeStats() {
+        try {
+            metrics.writeJson(statsFile);
+        } catch (IOException e) {
+            message("Could not write stats: " + e.getMessage());
         }
     }
 
@@ -308,103 +658,453 @@ public class CommandLineReVerb {
         currentFile = f.getAbsolutePath();
         BufferedReader in = new BufferedReader(new InputStreamReader(
                 new FileInputStream(f)));
-        ChunkedSentenceReader reader = getSentenceReader(in);
         message("Extracting from " + f);
-        extractFromSentReader(reader);
+        extractFromText(in);
     }
 
     private void extractFromStdin() throws IOException, ExtractorException {
         currentFile = "stdin";
         BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
-        ChunkedSentenceReader reader = getSentenceReader(in);
-        extractFromSentReader(reader);
+        extractFromText(in);
     }
 
-    private ChunkedSentenceReader getSentenceReader(BufferedReader in)
+    /*
+     * Text is extracted from by a single worker, a sentence at a time, and
+     * the rows of each sentence are printed as soon as they are extracted.
+     */
+    private void extractFromText(BufferedReader in) throws IOException,
+            ExtractorException {
+        if (textWorker == null) {
+            textWorker = new ExtractionWorker(extractor, confFunc, normalizer);
+        }
+        try {
+            Iterator<String> sentences = new SentenceBlocksIterator(
+                    new TextBlockIterator(in), textWorker.sentExtractor);
+            while (sentences.hasNext()) {
+                PageResult result = new PageResult(currentFile);
+                textWorker.extractSentence(sentences.next(), result);
+                printResult(result);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /*
+     * In WARC and pre-chunked mode, pages and batches of sentences are
+     * extracted from by a pool of threads, each with its own
+     * ExtractionWorker, since the OpenNLP tools, the parsers and the ReVerb
+     * extractor cannot be shared. R2A2 and ConfidenceMetric can, so they are.
+     * The rows are printed in the order of the pages and batches.
+     */
+    private BlockingQueue<ExtractionWorker> createWorkers()
+            throws IOException, ExtractorException {
+        BlockingQueue<ExtractionWorker> workers;
+        workers = new ArrayBlockingQueue<ExtractionWorker>(numThreads);
+        messageInc("Initializing " + numThreads + " extraction threads...");
+        workers.add(new ExtractionWorker(extractor, confFunc,
+                new BinaryExtractionNormalizer()));
+        for (int i = 1; i < numThreads; i++) {
+            try {
+                workers.add(useArgLearner ? new ExtractionWorker(extractor,
+                        confFunc, new BinaryExtractionNormalizer())
+                        : new ExtractionWorker(createExtractor(),
+                                needConf ? createConfFunc() : null,
+                                new BinaryExtractionNormalizer()));
+            } catch (ConfidenceFunctionException e) {
+                throw new ExtractorException(e);
+            }
+        }
+        message("Done.");
+        return workers;
+    }
+
+    private void extractFromWarcs() throws IOException, ExtractorException {
+        BlockingQueue<ExtractionWorker> workers = createWorkers();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            if (dataStdin) {
+                currentFile = "stdin";
+                extractFromWarc(new WarcRecordReader(System.in), executor,
+                        workers);
+            } else {
+                while (haveNextFile()) {
+                    File f = getNextFile();
+                    currentFile = f.getAbsolutePath();
+                    message("Extracting from " + f);
+                    try {
+                        extractFromWarc(new WarcRecordReader(f, 0,
+                                Long.MAX_VALUE), executor, workers);
+                    } catch (IOException e) {
+                        message("Error reading file: " + e.getMessage());
+                    }
+                    numFiles++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void extractFromWarc(WarcRecordReader reader,
+            ExecutorService executor,
+            final BlockingQueue<ExtractionWorker> workers)
             throws IOException {
-        if (stripHtml) {
-            return DefaultObjects.getDefaultSentenceReaderHtml(in);
+        // pages being extracted from, in order
+        Queue<Future<PageResult>> pending = new LinkedList<Future<PageResult>>();
+        try {
+            WarcRecord record;
+            while ((record = reader.read()) != null) {
+                if (!"response".equals(record.getType())) {
+                    continue;
+                }
+                final WarcRecord page = record;
+                final String name = getPageName(page);
+                pending.add(executor.submit(new Callable<PageResult>() {
+                    @Override
+                    public PageResult call() throws Exception {
+                        ExtractionWorker worker = workers.take();
+                        try {
+                            return worker.extract(name,
+                                    page.getPayloadString());
+                        } finally {
+                            workers.add(worker);
+                        }
+                    }
+                }));
+                if (pending.size() > 4 * numThreads) {
+                    printPage(pending.remove());
+                }
+            }
+            while (!pending.isEmpty()) {
+                printPage(pending.remove());
+            }
+        } finally {
+            for (Future<PageResult> future : pending) {
+                future.cancel(true);
+            }
+            reader.close();
+        }
+    }
+
+    private void extractFromPrechunked() throws IOException,
+            ExtractorException {
+        BlockingQueue<ExtractionWorker> workers = createWorkers();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            if (dataStdin) {
+                currentFile = "stdin";
+                extractFromPrechunked(new BufferedReader(new InputStreamReader(
+                        System.in)), executor, workers);
+            } else {
+                while (haveNextFile()) {
+                    File f = getNextFile();
+                    currentFile = f.getAbsolutePath();
+                    message("Extracting from " + f);
+                    try {
+                        extractFromPrechunked(new BufferedReader(
+                                new InputStreamReader(new FileInputStream(f))),
+                                executor, workers);
+                    } catch (IOException e) {
+                        message("Error reading file: " + e.getMessage());
+                    }
+                    numFiles++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /*
+     * The sentences are read here, and parsed and extracted from by the
+     * workers, BATCH_SIZE at a time.
+     */
+    private void extractFromPrechunked(BufferedReader in,
+            ExecutorService executor,
+            BlockingQueue<ExtractionWorker> workers) throws IOException {
+        PreChunkedSentenceReader reader = new PreChunkedSentenceReader(in,
+                prechunkedFormat);
+        // batches being extracted from, in order
+        Queue<Future<PageResult>> pending = new LinkedList<Future<PageResult>>();
+        try {
+            List<String> batch = new ArrayList<String>(BATCH_SIZE);
+            int numRead = 0;
+            String sent;
+            while ((sent = reader.readSentence()) != null) {
+                batch.add(sent);
+                numRead++;
+                if (batch.size() == BATCH_SIZE) {
+                    pending.add(submitBatch(batch, numRead - batch.size(),
+                            executor, workers));
+                    batch = new ArrayList<String>(BATCH_SIZE);
+                    if (pending.size() > 4 * numThreads) {
+                        printPage(pending.remove());
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                pending.add(submitBatch(batch, numRead - batch.size(),
+                        executor, workers));
+            }
+            while (!pending.isEmpty()) {
+                printPage(pending.remove());
+            }
+        } finally {
+            for (Future<PageResult> future : pending) {
+                future.cancel(true);
+            }
+            in.close();
+        }
+    }
+
+    private Future<PageResult> submitBatch(final List<String> batch,
+            final int numBefore, ExecutorService executor,
+            final BlockingQueue<ExtractionWorker> workers) {
+        final String name = currentFile;
+        return executor.submit(new Callable<PageResult>() {
+            @Override
+            public PageResult call() throws Exception {
+                ExtractionWorker worker = workers.take();
+                try {
+                    return worker.extractPrechunked(name, numBefore, batch);
+                } finally {
+                    workers.add(worker);
+                }
+            }
+        });
+    }
+
+    private String getPageName(WarcRecord page) {
+        if (page.getTrecId() != null) {
+            return page.getTrecId();
+        } else if (page.getTargetUri() != null) {
+            return page.getTargetUri();
         } else {
-            return DefaultObjects.getDefaultSentenceReader(in);
+            return currentFile + "@" + page.getOffset();
         }
     }
 
-    private double getConf(ChunkedBinaryExtraction extr) {
+    private void printPage(Future<PageResult> future) throws IOException {
+        PageResult result;
         try {
-            return confFunc.getConf(extr);
-        } catch (ConfidenceFunctionException e) {
-            System.err.println("Could not compute confidence for " + extr
-                    + ": " + e.getMessage());
-            return 0;
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting");
+        } catch (ExecutionException e) {
+            message("Error during extraction: " + e.getCause().getMessage());
+            return;
         }
+        printResult(result);
     }
 
-    private void extractFromSentReader(ChunkedSentenceReader reader)
-            throws ExtractorException {
-        long start;
+    private void printResult(PageResult result) throws IOException {
+        // the sentences of a page are numbered from 1, and the others from
+        // the last sentence before them
+        int before = numSents;
+        int firstSentNum = warc ? 0 : before;
+        for (Row row : result.rows) {
+            sink.write(result.name, firstSentNum + row.sentNum, row.extr,
+                    row.conf);
+        }
+        if (warc) {
+            numPages++;
+        }
+        numSents += result.numSents;
+        numExtrs += result.rows.size();
+        numUnparsed += result.numUnparsed;
+        if (metrics != null) {
+            metrics.addSentences(result.numSents);
+            metrics.addExtractions(result.rows.size());
+        }
+        if (numSents / messageEvery > before / messageEvery) {
+            summary();
+        }
+    }
+
+    /*
+     * The rows extracted from a page or batch.
+     */
+    private static class PageResult {
+        final String name;
+        final List<Row> rows = new ArrayList<Row>();
+        int numSents = 0;
+        // the number of sentences in the input before the page or batch, and
+        // the number read from it so far, including the skipped ones
+        final int numBefore;
+        int numRead = 0;
+        // the pre-chunked sentences that could not be parsed
+        int numUnparsed = 0;
+
+        PageResult(String name) {
+            this(name, 0);
+        }
+
+        PageResult(String name, int numBefore) {
+            this.name = name;
+            this.numBefore = numBefore;
+        }
+    }
+
+    private static class Row {
+        final int sentNum;
+        final ChunkedBinaryExtraction extr;
+        final double conf;
+
+        Row(int sentNum, ChunkedBinaryExtraction extr, double conf) {
+            this.sentNum = sentNum;
+            this.extr = extr;
+            this.conf = conf;
+        }
+    }
+
+    /*
+     * Extracts from the HTML of one page at a time, or a sentence of text,
+     * with its own sentence extractor and chunker, or from one batch of
+     * pre-chunked sentences at a time, with its own parser.
+     */
+    private class ExtractionWorker {
+        private final SentenceExtractor sentExtractor;
+        private final SentenceChunker chunker;
+        private final ChunkedSentenceParser parser;
+        private final ReVerbRelationExtractor extractor;
+        private final ConfidenceFunction confFunc;
+        private final BinaryExtractionNormalizer normalizer;
+
+        ExtractionWorker(ReVerbRelationExtractor extractor,
+                ConfidenceFunction confFunc,
+                BinaryExtractionNormalizer normalizer) throws IOException {
+            if (prechunkedFormat == null) {
+                this.sentExtractor = createSentenceExtractor();
+                this.chunker = createChunker();
+                this.parser = null;
+            } else {
+                this.sentExtractor = null;
+                this.chunker = null;
+                this.parser = prechunkedFormat.createParser();
+            }
+            this.extractor = extractor;
+            this.confFunc = confFunc;
+            this.normalizer = normalizer;
+        }
+
+        PageResult extract(String name, String html)
+                throws ExtractorException {
+            PageResult result = new PageResult(name);
+            for (String sentence : sentExtractor.extract(html)) {
+                extractSentence(sentence, result);
+            }
+            return result;
+        }
+
+        PageResult extractPrechunked(String name, int numBefore,
+                List<String> sentences) throws ExtractorException {
+            PageResult result = new PageResult(name, numBefore);
+            for (String sentence : sentences) {
+                extractSentence(sentence, result);
+            }
+            return result;
+        }
 
-        ChunkedSentenceIterator sentenceIt = reader.iterator();
+        /*
+         * Adds the rows of a sentence to the result, unless it is a
+         * duplicate to skip. The rows of a duplicate to re-emit are copied
+         * from its first copy. Duplicates are counted either way, so the
+         * sentences are numbered as they would be without --dedup.
+         */
+        void extractSentence(String sentence, PageResult result)
+                throws ExtractorException {
+            result.numRead++;
+            if (duplicateFilter != null && !duplicateFilter.doFilter(sentence)) {
+                result.numSents++;
+                return;
+            }
+            long fingerprint = 0;
+            if (sentenceRows != null) {
+                fingerprint = FingerprintCache.fingerprint(sentence);
+                List<Row> rows = sentenceRows.get(fingerprint);
+                if (rows != null) {
+                    result.numSents++;
+                    for (Row row : rows) {
+                        result.rows.add(new Row(result.numSents, row.extr,
+                                row.conf));
+                    }
+                    return;
+                }
+            }
 
-        while (sentenceIt.hasNext()) {
-            // get the next chunked sentence
-            ChunkedSentence sent = sentenceIt.next();
-            chunkTime += sentenceIt.getLastComputeTime();
+            ChunkedSentence sent;
+            try {
+                if (parser != null) {
+                    long start = System.nanoTime();
+                    sent = parser.parseSentence(sentence);
+                    if (metrics != null) {
+                        metrics.record(Stage.PARSE, System.nanoTime() - start);
+                    }
+                } else {
+                    sent = chunker.chunkSentence(sentence);
+                }
+            } catch (java.text.ParseException e) {
+                result.numUnparsed++;
+                message("Skipping sentence "
+                        + (result.numBefore + result.numRead) + " of "
+                        + result.name + ": " + e.getMessage());
+                return;
+            } catch (ChunkerException e) {
+                return;
+            }
+
+            int first = result.rows.size();
+            extract(sent, result);
+            if (sentenceRows != null) {
+                sentenceRows.put(fingerprint, new ArrayList<Row>(result.rows
+                        .subList(first, result.rows.size())));
+            }
+        }
 
-            numSents++;
+        private void extract(ChunkedSentence sent, PageResult result)
+                throws ExtractorException {
+            result.numSents++;
 
-            // make the extractions
-            start = System.nanoTime();
             Iterable<ChunkedBinaryExtraction> extractions = extractor
                     .extract(sent);
-            extractTime += System.nanoTime() - start;
-
             for (ChunkedBinaryExtraction extr : extractions) {
-                numExtrs++;
-
-                // run the confidence function
-                start = System.nanoTime();
-                double conf = getConf(extr);
-                confTime += System.nanoTime() - start;
-
-                NormalizedBinaryExtraction extrNorm = normalizer
-                        .normalize(extr);
-                printExtr(extrNorm, conf);
-            }
-            if (numSents % messageEvery == 0)
-                summary();
-        }
-    }
-
-    private void printExtr(NormalizedBinaryExtraction extr, double conf) {
-        String arg1 = extr.getArgument1().toString();
-        String rel = extr.getRelation().toString();
-        String arg2 = extr.getArgument2().toString();
-
-        ChunkedSentence sent = extr.getSentence();
-        String toks = sent.getTokensAsString();
-        String pos = sent.getPosTagsAsString();
-        String chunks = sent.getChunkTagsAsString();
-        String arg1Norm = extr.getArgument1Norm().toString();
-        String relNorm = extr.getRelationNorm().toString();
-        String arg2Norm = extr.getArgument2Norm().toString();
-
-        Range arg1Range = extr.getArgument1().getRange();
-        Range relRange = extr.getRelation().getRange();
-        Range arg2Range = extr.getArgument2().getRange();
-        String a1s = String.valueOf(arg1Range.getStart());
-        String a1e = String.valueOf(arg1Range.getEnd());
-        String rs = String.valueOf(relRange.getStart());
-        String re = String.valueOf(relRange.getEnd());
-        String a2s = String.valueOf(arg2Range.getStart());
-        String a2e = String.valueOf(arg2Range.getEnd());
-
-        String row = Joiner.on("\t").join(
-                new String[] { currentFile, String.valueOf(numSents), arg1,
-                        rel, arg2, a1s, a1e, rs, re, a2s, a2e,
-                        String.valueOf(conf), toks, pos, chunks, arg1Norm,
-                        relNorm, arg2Norm });
-
-        System.out.println(row);
+                double conf = Double.NaN;
+                if (needConf) {
+                    long start = System.nanoTime();
+                    conf = getConf(confFunc, extr);
+                    if (metrics != null) {
+                        metrics.record(Stage.CONFIDENCE, System.nanoTime()
+                                - start);
+                    }
+                }
+
+                // normalize here rather than in the sink, in parallel, and
+                // only the fields the sink writes
+                if (needArg1Norm || needRelNorm || needArg2Norm) {
+                    long start = System.nanoTime();
+                    extr = normalizer.normalize(extr, needArg1Norm,
+                            needRelNorm, needArg2Norm);
+                    if (metrics != null) {
+                        metrics.record(Stage.NORMALIZATION, System.nanoTime()
+                                - start);
+                    }
+                }
+                result.rows.add(new Row(result.numSents, extr, conf));
+            }
+        }
+    }
+
+    private static double getConf(ConfidenceFunction confFunc,
+            ChunkedBinaryExtraction extr) {
+        try {
+            return confFunc.getConf(extr);
+        } catch (ConfidenceFunctionException e) {
+            System.err.println("Could not compute confidence for " + extr
+                    + ": " + e.getMessage());
+            return 0;
+        }
     }
 
 }
@@ -0,0 +1,339 @@
+package edu.washington.cs.knowitall.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+import edu.washington.cs.knowitall.extractor.conf.ConfidenceFunction;
+import edu.washington.cs.knowitall.extractor.conf.ConfidenceFunctionException;
+import edu.washington.cs.knowitall.extractor.conf.ReVerbOpenNlpConfFunction;
+import edu.washington.cs.knowitall.io.BinaryExtractionReader;
+import edu.washington.cs.knowitall.io.BinaryExtractionSink;
+import edu.washington.cs.knowitall.io.ExtractionSink;
+import edu.washington.cs.knowitall.io.SentenceExtractions;
+import edu.washington.cs.knowitall.io.TsvExtractionReader;
+import edu.washington.cs.knowitall.io.TsvExtractionSink;
+import edu.washington.cs.knowitall.io.TsvExtractionSink.Column;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+import edu.washington.cs.knowitall.normalization.BinaryExtractionNormalizer;
+
+/**
+ * Rescores the output of {@link CommandLineReVerb} with another confidence
+ * model, like one trained by <code>ReVerbOpenNlpClassifierTrainer</code>,
+ * without extracting from the sentences again. The sentences and extractions
+ * are rebuilt from the tsv or binary output, whose format is detected, and
+ * the new confidences are computed by a pool of threads. Run with -h to see
+ * the usage information.
+ */
+public class CommandLineRescorer {
+
+    private static final String NAME = "CommandLineRescorer";
+
+    // the number of sentences given to a thread at a time
+    private static final int BATCH_SIZE = 256;
+
+    private ExtractionSink sink;
+    private BlockingQueue<ConfidenceFunction> confFuncs;
+    private List<Column> inputColumns = Arrays.asList(Column.values());
+    private File modelFile;
+    private Queue<String> fileArgs = new LinkedList<String>();
+
+    private boolean quiet = false;
+    private int numThreads = 1;
+
+    private long startAtTime;
+    private int numSents = 0;
+    private int numExtrs = 0;
+    private int numFiles = 0;
+
+    public static void main(String[] args) {
+
+        Options options = new Options();
+        options.addOption("h", "help", false, "Print help and exit");
+        options.addOption("q", "quiet", false,
+                "Quiet mode (don't print messages to standard error)");
+        options.addOption(
+                "m",
+                "model",
+                true,
+                "Gzipped confidence model to score the extractions with, as written by ReVerbOpenNlpClassifierTrainer (default: the model of ReVerb)");
+        options.addOption(
+                "I",
+                "input-columns",
+                true,
+                "Comma-separated list of the columns of the tsv input, if it was written with --columns. It must include the file name, sentence number, offsets and sentence columns.");
+        options.addOption("T", "threads", true,
+                "Number of threads computing confidences (default: number of processors)");
+        options.addOption("O", "output-format", true,
+                "Output format: tsv (default) or binary");
+        options.addOption("c", "columns", true,
+                "Comma-separated list of the tsv output columns to write, as for CommandLineReVerb (default is all of them)");
+
+        CommandLineParser parser = new PosixParser();
+
+        try {
+
+            CommandLine params = parser.parse(options, args);
+            if (params.hasOption("h")) {
+                usage(options);
+                return;
+            } else {
+                CommandLineRescorer rescorer = new CommandLineRescorer(params);
+                rescorer.run();
+            }
+
+        } catch (ParseException e) {
+            System.err.println("Could not parse command line arguments: "
+                    + e.getMessage());
+            usage(options);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage(options);
+        } catch (IOException e) {
+            System.err.println("Encountered IOException: " + e.getMessage());
+        }
+    }
+
+    public static void usage(Options options) {
+        HelpFormatter help = new HelpFormatter();
+        help.printHelp(String.format("%s [OPTIONS] [FILES]", NAME), options);
+    }
+
+    public CommandLineRescorer(CommandLine params) throws IOException {
+        quiet = params.hasOption("quiet");
+        for (String arg : params.getArgs()) {
+            fileArgs.add(arg);
+        }
+        if (params.hasOption("model")) {
+            modelFile = new File(params.getOptionValue("model"));
+        }
+        if (params.hasOption("input-columns")) {
+            inputColumns = Column.parseList(params
+                    .getOptionValue("input-columns"));
+        }
+        numThreads = Integer.parseInt(params.getOptionValue("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException(
+                    "The number of threads must be positive: " + numThreads);
+        }
+        createSink(params.getOptionValue("output-format", "tsv"),
+                params.getOptionValue("columns"));
+
+        // each thread has its own confidence function, since they cannot be
+        // shared
+        messageInc("Initializing " + numThreads + " confidence functions...");
+        confFuncs = new ArrayBlockingQueue<ConfidenceFunction>(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            confFuncs.add(createConfFunc());
+        }
+        message("Done.");
+    }
+
+    private void createSink(String format, String columnList)
+            throws IOException {
+        BinaryExtractionNormalizer normalizer =
+                new BinaryExtractionNormalizer();
+        if (format.equals("tsv")) {
+            List<Column> columns = columnList == null ? Arrays.asList(Column
+                    .values()) : Column.parseList(columnList);
+            sink = new TsvExtractionSink(new OutputStreamWriter(System.out),
+                    columns, normalizer);
+        } else if (format.equals("binary")) {
+            if (columnList != null) {
+                throw new IllegalArgumentException(
+                        "Columns can only be selected for tsv output");
+            }
+            sink = new BinaryExtractionSink(System.out, normalizer);
+        } else {
+            throw new IllegalArgumentException("Unknown output format: "
+                    + format);
+        }
+    }
+
+    private ConfidenceFunction createConfFunc() throws IOException {
+        if (modelFile != null) {
+            return new ReVerbOpenNlpConfFunction(modelFile);
+        } else {
+            return new ReVerbOpenNlpConfFunction();
+        }
+    }
+
+    public void run() throws IOException {
+        message("Starting rescoring.");
+        startAtTime = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            if (fileArgs.isEmpty()) {
+                rescore(System.in, executor);
+            } else {
+                while (!fileArgs.isEmpty()) {
+                    File f = new File(fileArgs.remove());
+                    message("Rescoring " + f);
+                    try {
+                        rescore(new FileInputStream(f), executor);
+                    } catch (IOException e) {
+                        message("Error reading file: " + e.getMessage());
+                    }
+                    numFiles++;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            sink.flush();
+        }
+        message("Done with rescoring.");
+        long runTimeSecs = (System.currentTimeMillis() - startAtTime) / 1000;
+        message("Summary: " + numExtrs + " extractions, " + numSents
+                + " sentences, " + numFiles + " files, " + runTimeSecs
+                + " seconds");
+    }
+
+    /*
+     * The sentences are read here, and rescored by the pool of threads,
+     * BATCH_SIZE at a time. The batches are written in order.
+     */
+    private void rescore(InputStream stream, ExecutorService executor)
+            throws IOException {
+        InputStream in = new BufferedInputStream(stream);
+        BinaryExtractionReader binaryReader = null;
+        TsvExtractionReader tsvReader = null;
+        if (BinaryExtractionReader.isBinary(in)) {
+            binaryReader = new BinaryExtractionReader(in);
+        } else {
+            tsvReader = new TsvExtractionReader(new InputStreamReader(in),
+                    inputColumns);
+        }
+
+        // batches being rescored, in order
+        Queue<Future<List<SentenceExtractions<?>>>> pending =
+                new LinkedList<Future<List<SentenceExtractions<?>>>>();
+        try {
+            List<SentenceExtractions<?>> batch =
+                    new ArrayList<SentenceExtractions<?>>(BATCH_SIZE);
+            SentenceExtractions<?> sentExtrs;
+            while ((sentExtrs = binaryReader != null ? binaryReader.read()
+                    : tsvReader.read()) != null) {
+                batch.add(sentExtrs);
+                if (batch.size() == BATCH_SIZE) {
+                    pending.add(submitBatch(batch, executor));
+                    batch = new ArrayList<SentenceExtractions<?>>(BATCH_SIZE);
+                    if (pending.size() > 4 * numThreads) {
+                        writeBatch(pending.remove());
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                pending.add(submitBatch(batch, executor));
+            }
+            while (!pending.isEmpty()) {
+                writeBatch(pending.remove());
+            }
+        } finally {
+            for (Future<List<SentenceExtractions<?>>> future : pending) {
+                future.cancel(true);
+            }
+            in.close();
+        }
+    }
+
+    private Future<List<SentenceExtractions<?>>> submitBatch(
+            final List<SentenceExtractions<?>> batch,
+            ExecutorService executor) {
+        return executor.submit(new Callable<List<SentenceExtractions<?>>>() {
+            @Override
+            public List<SentenceExtractions<?>> call() throws Exception {
+                ConfidenceFunction confFunc = confFuncs.take();
+                try {
+                    List<SentenceExtractions<?>> result =
+                            new ArrayList<SentenceExtractions<?>>(batch.size());
+                    for (SentenceExtractions<?> sentExtrs : batch) {
+                        result.add(rescoreSentence(sentExtrs, confFunc));
+                    }
+                    return result;
+                } finally {
+                    confFuncs.add(confFunc);
+                }
+            }
+        });
+    }
+
+    private void writeBatch(Future<List<SentenceExtractions<?>>> future)
+            throws IOException {
+        List<SentenceExtractions<?>> batch;
+        try {
+            batch = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rescoring");
+        } catch (ExecutionException e) {
+            message("Error during rescoring: " + e.getCause().getMessage());
+            return;
+        }
+        for (SentenceExtractions<?> sentExtrs : batch) {
+            sentExtrs.writeTo(sink);
+            numSents++;
+            numExtrs += sentExtrs.getExtractions().size();
+        }
+    }
+
+    private static <E extends ChunkedBinaryExtraction>
+            SentenceExtractions<E> rescoreSentence(
+                    SentenceExtractions<E> sentExtrs,
+                    ConfidenceFunction confFunc) {
+        List<E> extrs = sentExtrs.getExtractions();
+        double[] confs = new double[extrs.size()];
+        for (int i = 0; i < confs.length; i++) {
+            confs[i] = getConf(confFunc, extrs.get(i));
+        }
+        return new SentenceExtractions<E>(sentExtrs.getFileName(),
+                sentExtrs.getSentenceNumber(), sentExtrs.getSentence(), extrs,
+                confs);
+    }
+
+    private static double getConf(ConfidenceFunction confFunc,
+            ChunkedBinaryExtraction extr) {
+        try {
+            return confFunc.getConf(extr);
+        } catch (ConfidenceFunctionException e) {
+            System.err.println("Could not compute confidence for " + extr
+                    + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private void message(String msg) {
+        if (!quiet) {
+            System.err.println(msg);
+        }
+    }
+
+    private void messageInc(String msg) {
+        if (!quiet) {
+            System.err.print(msg);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package edu.washington.cs.knowitall.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import opennlp.tools.chunker.Chunker;
 import opennlp.tools.chunker.ChunkerME;
@@ -76,6 +78,39 @@ public class DefaultObjects {
                 getResourceAsStream(sentDetectorModelFile)));
     }
 
+    /**
+     * @return a version string of the default tokenizer, POS tagger and
+     *         chunker models, which is a hash of their contents
+     * @throws IOException
+     *             if unable to read the models.
+     */
+    public static String getChunkerModelVersion() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        for (String model : new String[] { tokenizerModelFile,
+                taggerModelFile, chunkerModelFile }) {
+            InputStream in = getResourceAsStream(model);
+            try {
+                int n;
+                while ((n = in.read(buffer)) >= 0) {
+                    digest.update(buffer, 0, n);
+                }
+            } finally {
+                in.close();
+            }
+        }
+        StringBuilder version = new StringBuilder("opennlp-");
+        for (byte b : digest.digest()) {
+            version.append(String.format("%02x", b));
+        }
+        return version.toString();
+    }
+
     public static void addDefaultSentenceFilters(SentenceExtractor extractor) {
         if (BRACKETS_REMOVER == null)
             BRACKETS_REMOVER = new BracketsRemover();
@@ -92,6 +127,7 @@ public class DefaultObjects {
     public static SentenceExtractor getDefaultSentenceExtractor()
             throws IOException {
         SentenceExtractor extractor = new SentenceExtractor();
+        extractor.setWindowSize(SentenceExtractor.DEFAULT_WINDOW_SIZE);
         addDefaultSentenceFilters(extractor);
         return extractor;
     }
@@ -99,6 +135,7 @@ public class DefaultObjects {
     public static HtmlSentenceExtractor getDefaultHtmlSentenceExtractor()
             throws IOException {
         HtmlSentenceExtractor extractor = new HtmlSentenceExtractor();
+        extractor.setWindowSize(SentenceExtractor.DEFAULT_WINDOW_SIZE);
         addDefaultSentenceFilters(extractor);
         return extractor;
     }
@@ -0,0 +1,142 @@
+package edu.washington.cs.knowitall.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded map from the 64-bit fingerprints of strings, like sentences, to
+ * values, which evicts the least recently used entries once it is full. The
+ * map is split into segments by fingerprint, each with its own lock, so that
+ * it can be shared by several threads. The lookups that find a value and
+ * those that do not are counted.
+ *
+ * @param <V>
+ */
+public class FingerprintCache<V> {
+
+    private static final int NUM_SEGMENTS = 16;
+
+    private final Segment<V>[] segments;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxSize
+     *            the maximum number of entries
+     */
+    public FingerprintCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException(
+                    "Fingerprint cache size must be positive: " + maxSize);
+        }
+        @SuppressWarnings("unchecked")
+        Segment<V>[] segments = (Segment<V>[]) new Segment<?>[NUM_SEGMENTS];
+        this.segments = segments;
+        for (int i = 0; i < NUM_SEGMENTS; i++) {
+            segments[i] = new Segment<V>(Math.max(1, maxSize / NUM_SEGMENTS));
+        }
+    }
+
+    /**
+     * @param s
+     * @return a 64-bit fingerprint of <code>s</code>, the FNV-1a hash of its
+     *         characters with the final mix of MurmurHash3
+     */
+    public static long fingerprint(String s) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * @param fingerprint
+     * @return the value of <code>fingerprint</code>, or null if it has none
+     */
+    public V get(long fingerprint) {
+        Segment<V> segment = segmentFor(fingerprint);
+        V value;
+        synchronized (segment) {
+            value = segment.get(fingerprint);
+        }
+        (value == null ? misses : hits).incrementAndGet();
+        return value;
+    }
+
+    /**
+     * Sets the value of <code>fingerprint</code>, replacing any value it had.
+     *
+     * @param fingerprint
+     * @param value
+     */
+    public void put(long fingerprint, V value) {
+        Segment<V> segment = segmentFor(fingerprint);
+        synchronized (segment) {
+            segment.put(fingerprint, value);
+        }
+    }
+
+    /**
+     * Sets the value of <code>fingerprint</code>, unless it has one.
+     *
+     * @param fingerprint
+     * @param value
+     * @return the value <code>fingerprint</code> had, or null if it had none
+     */
+    public V putIfAbsent(long fingerprint, V value) {
+        Segment<V> segment = segmentFor(fingerprint);
+        V old;
+        synchronized (segment) {
+            old = segment.get(fingerprint);
+            if (old == null) {
+                segment.put(fingerprint, value);
+            }
+        }
+        (old == null ? misses : hits).incrementAndGet();
+        return old;
+    }
+
+    /**
+     * @return the number of lookups that found a value
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that did not find a value
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private Segment<V> segmentFor(long fingerprint) {
+        return segments[(int) (fingerprint >>> 60) & (NUM_SEGMENTS - 1)];
+    }
+
+    private static class Segment<V> extends LinkedHashMap<Long, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, V> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package edu.washington.cs.knowitall.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A <code>Reader</code> that converts HTML to plain text in a single pass over
+ * the underlying reader. Tags that break the flow of text (paragraphs, list
+ * items, table cells and so on) become line breaks, the contents of scripts,
+ * styles, forms and the like are removed, and all other tags are dropped.
+ * Whitespace is collapsed to single spaces, consecutive line breaks to one,
+ * and semicolons become line breaks. HTML entities are left as they are.
+ *
+ * If the text is a quoted CSV field, it is unquoted with
+ * <code>StringEscapeUtils.unescapeCsv</code> before the semicolons become line
+ * breaks, as {@link HtmlUtils} always did. Whether it is one is only known at
+ * the end, so a text that starts with a double quote is held back until then.
+ *
+ * Tags are matched the way {@link HtmlUtils} always has: a tag is a
+ * <code>&lt;</code> followed by anything but <code>&lt;</code> up to the next
+ * <code>&gt;</code>, tag names are matched as case-insensitive prefixes, and
+ * removed content ends at the next closing tag of the same name. If there is
+ * none, the opening tag is just a line break; in that case the rest of the
+ * document is buffered while looking for it.
+ */
+public class HtmlTextReader extends Reader {
+
+    private static final String[] BREAK_TAGS = { "blockquote", "br",
+            "center", "dd", "div", "dt", "fieldset", "h\\d", "hr", "img",
+            "input", "isindex", "li", "noframes", "noscript", "p", "pre", "q",
+            "table", "td", "textarea", "th", "xmp" };
+
+    private static final String[] REMOVE_TAGS = { "applet", "form", "head",
+            "iframe", "legend", "map", "object", "script", "select", "style",
+            "title" };
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private boolean eof = false;
+
+    private final StringBuilder out = new StringBuilder();
+    private int outPos = 0;
+
+    private final RemoveStage removeStage;
+    private final TextStage textStage;
+
+    public HtmlTextReader(Reader in) {
+        this.in = in;
+        textStage = new TextStage();
+        removeStage = new RemoveStage(new BreakStage(new StripStage(
+                textStage)));
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while ((out.length() - outPos < len || textStage.quoted) && !eof) {
+            int n = in.read(buffer, 0, buffer.length);
+            if (n == -1) {
+                eof = true;
+                removeStage.end();
+            }
+            for (int i = 0; i < n; i++) {
+                // whitespace is normalized first, so line breaks in the
+                // stages below are always breaks in the text
+                removeStage.put(isWhitespace(buffer[i]) ? ' ' : buffer[i]);
+            }
+        }
+        int n = Math.min(len, out.length() - outPos);
+        if (n == 0) {
+            return -1;
+        }
+        out.getChars(outPos, outPos + n, cbuf, off);
+        outPos += n;
+        if (outPos == out.length()) {
+            out.setLength(0);
+            outPos = 0;
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /*
+     * The conversion is a pipeline of stages, each doing what one of the
+     * passes over the document in HtmlUtils used to do: remove content, turn
+     * tags into line breaks, strip the other tags, and collapse whitespace.
+     * A stage passes characters on to the next one as soon as it can.
+     */
+    private static abstract class Stage {
+        abstract void put(char c);
+
+        void end() {
+        }
+    }
+
+    /*
+     * A stage that finds tags: a < followed by anything but < up to the next
+     * >. Everything else is passed on as it is.
+     */
+    private static abstract class TagStage extends Stage {
+        final Stage next;
+        // the text after the < of the current tag
+        final StringBuilder tag = new StringBuilder();
+        boolean inTag = false;
+
+        TagStage(Stage next) {
+            this.next = next;
+        }
+
+        @Override
+        void put(char c) {
+            if (!inTag) {
+                if (c == '<') {
+                    inTag = true;
+                    tag.setLength(0);
+                } else {
+                    next.put(c);
+                }
+            } else if (c == '>') {
+                inTag = false;
+                handleTag(tag);
+            } else if (c == '<') {
+                // the previous < did not start a tag
+                passOn(tag, false);
+                tag.setLength(0);
+            } else {
+                tag.append(c);
+            }
+        }
+
+        @Override
+        void end() {
+            if (inTag) {
+                inTag = false;
+                passOn(tag, false);
+            }
+            next.end();
+        }
+
+        abstract void handleTag(StringBuilder tag);
+
+        void passOn(CharSequence tag, boolean closed) {
+            next.put('<');
+            for (int i = 0; i < tag.length(); i++) {
+                next.put(tag.charAt(i));
+            }
+            if (closed) {
+                next.put('>');
+            }
+        }
+    }
+
+    /*
+     * Replaces an opening remove tag and everything up to the next closing
+     * tag of the same name with a line break. If there is no closing tag, the
+     * opening tag is passed on and the content after it is handled again.
+     */
+    private static class RemoveStage extends TagStage {
+        private String openingTag;
+        private String name;
+        private String closingTag;
+        private int matched;
+        private final StringBuilder removed = new StringBuilder();
+        // the tags known to have no closing tag in the rest of the input
+        private final Set<String> unclosed = new HashSet<String>();
+
+        RemoveStage(Stage next) {
+            super(next);
+        }
+
+        @Override
+        void put(char c) {
+            if (closingTag == null) {
+                super.put(c);
+                return;
+            }
+            removed.append(c);
+            char lower = toLowerCase(c);
+            if (lower == closingTag.charAt(matched)) {
+                matched++;
+            } else {
+                // < only appears at the start of the closing tag
+                matched = lower == '<' ? 1 : 0;
+            }
+            if (matched == closingTag.length()) {
+                closingTag = null;
+                removed.setLength(0);
+                next.put('\n');
+            }
+        }
+
+        @Override
+        void handleTag(StringBuilder tag) {
+            name = startsWithTag(tag, 0, REMOVE_TAGS);
+            if (name == null || unclosed.contains(name)) {
+                passOn(tag, true);
+            } else {
+                openingTag = tag.toString();
+                closingTag = "</" + name + ">";
+                matched = 0;
+            }
+        }
+
+        @Override
+        void end() {
+            while (closingTag != null) {
+                unclosed.add(name);
+                closingTag = null;
+                passOn(openingTag, true);
+                String content = removed.toString();
+                removed.setLength(0);
+                for (int i = 0; i < content.length(); i++) {
+                    put(content.charAt(i));
+                }
+            }
+            super.end();
+        }
+    }
+
+    /*
+     * Replaces break tags, and the remove tags that are left, with a line
+     * break.
+     */
+    private static class BreakStage extends TagStage {
+        BreakStage(Stage next) {
+            super(next);
+        }
+
+        @Override
+        void handleTag(StringBuilder tag) {
+            int start = tag.length() > 0 && tag.charAt(0) == '/' ? 1 : 0;
+            if (startsWithTag(tag, start, BREAK_TAGS) != null
+                    || startsWithTag(tag, start, REMOVE_TAGS) != null) {
+                next.put('\n');
+            } else {
+                passOn(tag, true);
+            }
+        }
+    }
+
+    /*
+     * Drops the other tags, along with any line breaks that ended up inside
+     * them.
+     */
+    private static class StripStage extends TagStage {
+        StripStage(Stage next) {
+            super(next);
+        }
+
+        @Override
+        void handleTag(StringBuilder tag) {
+        }
+    }
+
+    /*
+     * Collapses spaces and line breaks, unquotes a quoted CSV field and
+     * writes the text.
+     */
+    private class TextStage extends Stage {
+        // the last character written, before semicolons became line breaks
+        private char last = 0;
+        private boolean started = false;
+        // whether the text starts with a double quote
+        boolean quoted = false;
+        // the double quotes after the first one
+        private int quotes = 0;
+        // whether there is a comma or a line break after the first quote
+        private boolean commaOrBreak = false;
+
+        @Override
+        void put(char c) {
+            if (!started) {
+                started = true;
+                quoted = c == '"';
+            } else if (c == '"') {
+                quotes++;
+            } else if (c == ',' || c == '\n') {
+                commaOrBreak = true;
+            }
+            if (c == ' ' || c == '\n') {
+                if (last != c) {
+                    out.append(c);
+                    last = c;
+                }
+            } else {
+                out.append(c == ';' ? '\n' : c);
+                last = c;
+            }
+        }
+
+        /*
+         * Unquotes the text the way unescapeCsv does: if it is surrounded by
+         * double quotes, and there is a comma, a double quote or a line break
+         * between them, the quotes are removed and "" becomes ".
+         */
+        @Override
+        void end() {
+            if (!quoted) {
+                return;
+            }
+            quoted = false;
+            if (out.length() >= 2 && last == '"'
+                    && (commaOrBreak || quotes > 1)) {
+                String field = out.substring(1, out.length() - 1).replace(
+                        "\"\"", "\"");
+                out.setLength(0);
+                out.append(field);
+            }
+        }
+    }
+
+    // returns the tag name that the text starts with at the given index
+    private static String startsWithTag(CharSequence s, int start,
+            String[] names) {
+        for (String name : names) {
+            if (name.equals("h\\d")) {
+                if (s.length() >= start + 2
+                        && toLowerCase(s.charAt(start)) == 'h'
+                        && s.charAt(start + 1) >= '0'
+                        && s.charAt(start + 1) <= '9') {
+                    return name;
+                }
+            } else if (startsWith(s, start, name)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(CharSequence s, int start, String name) {
+        if (s.length() < start + name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (toLowerCase(s.charAt(start + i)) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // tags are matched ignoring ASCII case only, like the regex (?i) flag
+    private static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    // the characters matched by \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+                || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,245 @@
+package edu.washington.cs.knowitall.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * A HyperLogLog sketch, which estimates the number of distinct strings added
+ * to it in a fixed amount of memory. With a precision of <code>p</code>, the
+ * sketch has <code>2^p</code> registers and a standard error of about
+ * <code>1.04 / sqrt(2^p)</code>; small counts are estimated by linear counting
+ * and are nearly exact.
+ *
+ * A sketch starts out sparse, keeping only its non-zero registers, and
+ * switches to one byte per register once that is smaller. Sketches with the
+ * same precision can be merged, which gives the sketch of the union of their
+ * strings.
+ */
+public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+    public static final int DEFAULT_PRECISION = 12;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final int precision;
+    private final int numRegisters;
+
+    // the dense registers, or null while the sketch is sparse
+    private byte[] registers;
+
+    // the non-zero registers of a sparse sketch, sorted by register, with the
+    // register in the high bits and its value in the low 8 bits
+    private int[] sparse;
+    private int sparseSize;
+
+    /**
+     * Constructs an empty sketch with the default precision.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructs an empty sketch with <code>2^precision</code> registers.
+     *
+     * @param precision
+     *            between {@link #MIN_PRECISION} and {@link #MAX_PRECISION}
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between "
+                    + MIN_PRECISION + " and " + MAX_PRECISION + ": "
+                    + precision);
+        }
+        this.precision = precision;
+        this.numRegisters = 1 << precision;
+        this.sparse = new int[4];
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Adds a string to the sketch.
+     */
+    public void add(String string) {
+        addHash(HASH.hashString(string, UTF8).asLong());
+    }
+
+    /**
+     * Adds an item to the sketch by its 64-bit hash.
+     */
+    public void addHash(long hash) {
+        int register = (int) (hash >>> (64 - precision));
+        long rest = hash << precision;
+        int value = rest == 0 ? 64 - precision + 1 : Long
+                .numberOfLeadingZeros(rest) + 1;
+        update(register, value);
+    }
+
+    private void update(int register, int value) {
+        if (registers != null) {
+            if (registers[register] < value) {
+                registers[register] = (byte) value;
+            }
+            return;
+        }
+
+        int i = Arrays.binarySearch(sparse, 0, sparseSize, register << 8);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        if (i < sparseSize && sparse[i] >>> 8 == register) {
+            if ((sparse[i] & 0xff) < value) {
+                sparse[i] = register << 8 | value;
+            }
+            return;
+        }
+
+        // sparse registers take four bytes each, dense ones a single byte
+        if (sparseSize + 1 > numRegisters / 4) {
+            toDense();
+            update(register, value);
+            return;
+        }
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, sparse.length * 2);
+        }
+        System.arraycopy(sparse, i, sparse, i + 1, sparseSize - i);
+        sparse[i] = register << 8 | value;
+        sparseSize++;
+    }
+
+    private void toDense() {
+        registers = new byte[numRegisters];
+        for (int i = 0; i < sparseSize; i++) {
+            registers[sparse[i] >>> 8] = (byte) (sparse[i] & 0xff);
+        }
+        sparse = null;
+        sparseSize = 0;
+    }
+
+    /**
+     * Merges another sketch into this one.
+     *
+     * @throws IllegalArgumentException
+     *             if the sketches have different precisions
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException(
+                    "Cannot merge sketches with precisions " + precision
+                            + " and " + other.precision);
+        }
+        if (other.registers != null) {
+            if (registers == null) {
+                toDense();
+            }
+            for (int i = 0; i < numRegisters; i++) {
+                if (registers[i] < other.registers[i]) {
+                    registers[i] = other.registers[i];
+                }
+            }
+        } else {
+            for (int i = 0; i < other.sparseSize; i++) {
+                update(other.sparse[i] >>> 8, other.sparse[i] & 0xff);
+            }
+        }
+    }
+
+    /**
+     * @return the estimated number of distinct strings added to the sketch
+     */
+    public long cardinality() {
+        double sum = 0;
+        int zeros = 0;
+        if (registers != null) {
+            for (int i = 0; i < numRegisters; i++) {
+                sum += 1.0 / (1L << registers[i]);
+                if (registers[i] == 0) {
+                    zeros++;
+                }
+            }
+        } else {
+            zeros = numRegisters - sparseSize;
+            sum = zeros;
+            for (int i = 0; i < sparseSize; i++) {
+                sum += 1.0 / (1L << (sparse[i] & 0xff));
+            }
+        }
+
+        double estimate = alpha() * numRegisters * numRegisters / sum;
+        if (estimate <= 2.5 * numRegisters && zeros > 0) {
+            // linear counting is more accurate for small cardinalities
+            estimate = numRegisters * Math.log((double) numRegisters / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    private double alpha() {
+        switch (numRegisters) {
+        case 16:
+            return 0.673;
+        case 32:
+            return 0.697;
+        case 64:
+            return 0.709;
+        default:
+            return 0.7213 / (1 + 1.079 / numRegisters);
+        }
+    }
+
+    /**
+     * @return the approximate number of bytes of memory used by the sketch
+     */
+    public int sizeInBytes() {
+        return 32 + (registers != null ? registers.length : 4 * sparse.length);
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeByte(precision);
+        if (registers != null) {
+            out.writeBoolean(true);
+            out.write(registers);
+        } else {
+            out.writeBoolean(false);
+            out.writeInt(sparseSize);
+            for (int i = 0; i < sparseSize; i++) {
+                out.writeInt(sparse[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a sketch written by {@link #write(DataOutputStream)}.
+     */
+    public static HyperLogLog read(DataInputStream in) throws IOException {
+        HyperLogLog sketch = new HyperLogLog(in.readByte());
+        if (in.readBoolean()) {
+            sketch.registers = new byte[sketch.numRegisters];
+            in.readFully(sketch.registers);
+            sketch.sparse = null;
+        } else {
+            int size = in.readInt();
+            if (size > sketch.numRegisters / 4) {
+                throw new IOException("Invalid sparse sketch size: " + size);
+            }
+            sketch.sparse = new int[Math.max(size, 4)];
+            for (int i = 0; i < size; i++) {
+                sketch.sparse[i] = in.readInt();
+            }
+            sketch.sparseSize = size;
+        }
+        return sketch;
+    }
+}
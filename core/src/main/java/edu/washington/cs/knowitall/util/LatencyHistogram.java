@@ -0,0 +1,163 @@
+package edu.washington.cs.knowitall.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds, in the manner of HdrHistogram:
+ * values below <code>2^SUB_BITS</code> are counted exactly, and larger ones
+ * in buckets that double in width with each power of two, each split into
+ * <code>2^(SUB_BITS - 1)</code> sub-buckets. A percentile is thus within
+ * 1/64 of the true value, whatever its magnitude, and the histogram takes a
+ * fixed 30 KB.
+ *
+ * Values are recorded without locking, so one histogram can be shared by
+ * the threads of a pipeline. A percentile read while values are recorded
+ * may miss the latest ones.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT / 2;
+    private static final int NUM_BUCKETS = SUB_COUNT + (63 - SUB_BITS)
+            * HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a latency. Negative latencies, which <code>System.nanoTime</code>
+     * should not give, are recorded as 0.
+     *
+     * @param nanos
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long m;
+        while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) {
+            // another thread raised the max, so compare with it
+        }
+    }
+
+    /**
+     * @return the number of latencies recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the sum of the latencies recorded, in nanoseconds
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * @return the largest latency recorded, in nanoseconds, or 0 if there
+     *         are none
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile
+     *            between 0 and 100
+     * @return the latency, in nanoseconds, that the given percentage of the
+     *         recorded latencies are at most, or 0 if there are none. It is
+     *         the upper end of the bucket the percentile falls in, so it may
+     *         be over the true value by up to 1/64 of it.
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException(
+                    "Percentile must be between 0 and 100: " + percentile);
+        }
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        // the count was incremented before the bucket was
+        return max.get();
+    }
+
+    /**
+     * Clears the histogram. Latencies recorded while it is cleared may be
+     * partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? 0 : total.get() / (double) n / 1e6;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return getPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getP90Millis() {
+        return getPercentile(90) / 1e6;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return getPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return getPercentile(99.9) / 1e6;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return max.get() / 1e6;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        // the shift that leaves the top SUB_BITS bits of the value
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        int sub = (int) (value >>> shift) - HALF_COUNT;
+        return SUB_COUNT + (shift - 1) * HALF_COUNT + sub;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_COUNT) / HALF_COUNT + 1;
+        long sub = (bucket - SUB_COUNT) % HALF_COUNT + HALF_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,21 @@
+package edu.washington.cs.knowitall.util;
+
+/**
+ * The JMX view of a {@link LatencyHistogram}, in milliseconds.
+ */
+public interface LatencyHistogramMBean {
+
+    public long getCount();
+
+    public double getMeanMillis();
+
+    public double getP50Millis();
+
+    public double getP90Millis();
+
+    public double getP99Millis();
+
+    public double getP999Millis();
+
+    public double getMaxMillis();
+}
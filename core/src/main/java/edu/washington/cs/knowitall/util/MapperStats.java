@@ -0,0 +1,87 @@
+package edu.washington.cs.knowitall.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The selectivity and cost of a mapper: the number of times it was applied,
+ * the numbers of objects that went into and came out of it, and the time it
+ * took. The stats of the copies of a mapper in different threads are kept
+ * together, by the name of the mapper.
+ */
+public class MapperStats implements MapperStatsMBean {
+
+    private final String name;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong inputs = new AtomicLong();
+    private final AtomicLong outputs = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+
+    /**
+     * @param name
+     *            the name of the mapper, prefixed with the list it is in
+     */
+    public MapperStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records an application of the mapper.
+     *
+     * @param numIn
+     *            the number of objects that went in
+     * @param numOut
+     *            the number of objects that came out
+     * @param time
+     *            the time it took, in nanoseconds
+     */
+    public void record(int numIn, int numOut, long time) {
+        calls.incrementAndGet();
+        inputs.addAndGet(numIn);
+        outputs.addAndGet(numOut);
+        nanos.addAndGet(time);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.get();
+    }
+
+    @Override
+    public long getInputs() {
+        return inputs.get();
+    }
+
+    @Override
+    public long getOutputs() {
+        return outputs.get();
+    }
+
+    /**
+     * @return the time taken by the mapper, in nanoseconds
+     */
+    public long getNanos() {
+        return nanos.get();
+    }
+
+    @Override
+    public double getDroppedPercent() {
+        long in = inputs.get();
+        return in == 0 ? 0 : 100.0 * (in - outputs.get()) / in;
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return nanos.get() / 1e6;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long n = calls.get();
+        return n == 0 ? 0 : nanos.get() / (double) n / 1e3;
+    }
+}
@@ -0,0 +1,21 @@
+package edu.washington.cs.knowitall.util;
+
+/**
+ * The JMX view of a {@link MapperStats}.
+ */
+public interface MapperStatsMBean {
+
+    public String getName();
+
+    public long getCalls();
+
+    public long getInputs();
+
+    public long getOutputs();
+
+    public double getDroppedPercent();
+
+    public double getTotalMillis();
+
+    public double getMeanMicros();
+}
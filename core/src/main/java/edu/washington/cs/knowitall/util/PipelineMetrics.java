@@ -0,0 +1,347 @@
+package edu.washington.cs.knowitall.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import edu.washington.cs.knowitall.normalization.StemCache;
+
+/**
+ * The metrics of an extraction pipeline: a {@link LatencyHistogram} for each
+ * {@link Stage}, the numbers of sentences and extractions, the
+ * {@link MapperStats} of the mappers of the extractors, if they are
+ * instrumented, and the hit rates of the shared {@link StemCache}s of the
+ * normalizers. The chunker and the extractors record their stages if they
+ * are given a <code>PipelineMetrics</code>, and the driver of the pipeline
+ * counts the sentences and extractions. The metrics can be shared by the
+ * threads of a pipeline.
+ *
+ * The metrics can be registered as JMX MBeans, under the domain
+ * {@link #DOMAIN}, and written as JSON.
+ */
+public class PipelineMetrics implements PipelineMetricsMBean {
+
+    public static final String DOMAIN = "edu.washington.cs.knowitall.reverb";
+
+    /**
+     * The timed stages of the pipeline.
+     */
+    public enum Stage {
+        /** Tokenizing a sentence with OpenNLP */
+        TOKENIZE("tokenize"),
+        /** POS tagging a sentence with OpenNLP */
+        TAG("tag"),
+        /** Chunking a tagged sentence with OpenNLP */
+        CHUNK("chunk"),
+        /** Parsing a sentence that is already tokenized, tagged and chunked */
+        PARSE("parse"),
+        /** Extracting the relations of a sentence, with their mappers */
+        RELATION("relation"),
+        /** Extracting the arguments of all the relations of a sentence */
+        ARGUMENT("argument"),
+        /** Computing the confidence of an extraction */
+        CONFIDENCE("confidence"),
+        /** Normalizing an extraction */
+        NORMALIZATION("normalization");
+
+        private final String name;
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the name of the stage in JSON and JMX
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final Map<Stage, LatencyHistogram> histograms =
+            new EnumMap<Stage, LatencyHistogram>(Stage.class);
+    private final AtomicLong sentences = new AtomicLong();
+    private final AtomicLong extractions = new AtomicLong();
+    private final long startTime = System.currentTimeMillis();
+    // by name, in the order the mappers were instrumented
+    private final Map<String, MapperStats> mapperStats =
+            new LinkedHashMap<String, MapperStats>();
+    private final Map<String, StemCache> stemCaches =
+            new LinkedHashMap<String, StemCache>();
+
+    private final List<ObjectName> registered = new ArrayList<ObjectName>();
+
+    public PipelineMetrics() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+        stemCaches.put("morpha", StemCache.morpha());
+        stemCaches.put("morphaStemmer", StemCache.morphaStemmer());
+    }
+
+    /**
+     * Records the latency of a stage.
+     *
+     * @param stage
+     * @param nanos
+     */
+    public void record(Stage stage, long nanos) {
+        histograms.get(stage).record(nanos);
+    }
+
+    /**
+     * @param stage
+     * @return the latencies of the stage
+     */
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    /**
+     * @param name
+     *            the name of a mapper, prefixed with the list it is in
+     * @return the stats of the mapper, which are created, and registered
+     *         with JMX if these metrics are, the first time they are asked
+     *         for
+     */
+    public synchronized MapperStats getMapperStats(String name) {
+        MapperStats stats = mapperStats.get(name);
+        if (stats == null) {
+            stats = new MapperStats(name);
+            mapperStats.put(name, stats);
+            if (!registered.isEmpty()) {
+                try {
+                    register(ManagementFactory.getPlatformMBeanServer(),
+                            mapperObjectName(name), stats);
+                } catch (JMException e) {
+                    // the stats are still written as JSON
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @return the stats of the instrumented mappers, in the order they were
+     *         instrumented
+     */
+    public synchronized List<MapperStats> getMapperStats() {
+        return new ArrayList<MapperStats>(mapperStats.values());
+    }
+
+    /**
+     * @return the shared stem caches of the normalizers, by name. Their
+     *         statistics cover all the lookups made in this JVM.
+     */
+    public Map<String, StemCache> getStemCaches() {
+        return Collections.unmodifiableMap(stemCaches);
+    }
+
+    /**
+     * @param n
+     *            the number of sentences extracted from
+     */
+    public void addSentences(long n) {
+        sentences.addAndGet(n);
+    }
+
+    /**
+     * @param n
+     *            the number of extractions made
+     */
+    public void addExtractions(long n) {
+        extractions.addAndGet(n);
+    }
+
+    @Override
+    public long getSentences() {
+        return sentences.get();
+    }
+
+    @Override
+    public long getExtractions() {
+        return extractions.get();
+    }
+
+    @Override
+    public double getUptimeSeconds() {
+        return (System.currentTimeMillis() - startTime) / 1000.0;
+    }
+
+    @Override
+    public double getSentencesPerSecond() {
+        double uptime = getUptimeSeconds();
+        return uptime > 0 ? sentences.get() / uptime : 0;
+    }
+
+    /**
+     * Registers these metrics, the histogram of each stage, the stats of each
+     * mapper and the stem caches with the platform MBean server. They replace the metrics
+     * registered before under the same names.
+     *
+     * @throws JMException
+     */
+    public synchronized void registerMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        register(server, new ObjectName(DOMAIN + ":type=PipelineMetrics"),
+                this);
+        for (Stage stage : Stage.values()) {
+            register(server, new ObjectName(DOMAIN
+                    + ":type=LatencyHistogram,stage=" + stage.getName()),
+                    histograms.get(stage));
+        }
+        for (MapperStats stats : mapperStats.values()) {
+            register(server, mapperObjectName(stats.getName()), stats);
+        }
+        for (Map.Entry<String, StemCache> cache : stemCaches.entrySet()) {
+            register(server, new ObjectName(DOMAIN + ":type=StemCache,name="
+                    + cache.getKey()), cache.getValue());
+        }
+    }
+
+    private static ObjectName mapperObjectName(String name)
+            throws JMException {
+        return new ObjectName(DOMAIN + ":type=Mapper,name="
+                + ObjectName.quote(name));
+    }
+
+    private void register(MBeanServer server, ObjectName name, Object mbean)
+            throws JMException {
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(mbean, name);
+        registered.add(name);
+    }
+
+    /**
+     * Unregisters the MBeans registered by {@link #registerMBeans()}.
+     *
+     * @throws JMException
+     */
+    public synchronized void unregisterMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        }
+        registered.clear();
+    }
+
+    /**
+     * Writes the metrics as a JSON object, with the uptime, the numbers of
+     * sentences and extractions, the count, mean, 50th, 90th, 99th and
+     * 99.9th percentiles and max of each stage, in milliseconds, the hits,
+     * misses and hit rate of each stem cache, and the stats of each
+     * instrumented mapper.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void writeJson(Writer out) throws IOException {
+        out.write("{\n");
+        out.write("  \"uptime_seconds\": " + format(getUptimeSeconds())
+                + ",\n");
+        out.write("  \"sentences\": " + getSentences() + ",\n");
+        out.write("  \"extractions\": " + getExtractions() + ",\n");
+        out.write("  \"stages\": {");
+        Stage[] stages = Stage.values();
+        for (int i = 0; i < stages.length; i++) {
+            LatencyHistogram histogram = histograms.get(stages[i]);
+            out.write(i == 0 ? "\n" : ",\n");
+            out.write("    \"" + stages[i].getName() + "\": {");
+            out.write("\"count\": " + histogram.getCount());
+            out.write(", \"mean_ms\": " + format(histogram.getMeanMillis()));
+            out.write(", \"p50_ms\": " + format(histogram.getP50Millis()));
+            out.write(", \"p90_ms\": " + format(histogram.getP90Millis()));
+            out.write(", \"p99_ms\": " + format(histogram.getP99Millis()));
+            out.write(", \"p999_ms\": " + format(histogram.getP999Millis()));
+            out.write(", \"max_ms\": " + format(histogram.getMaxMillis()));
+            out.write("}");
+        }
+        out.write("\n  },\n");
+        out.write("  \"stem_caches\": {");
+        boolean first = true;
+        for (Map.Entry<String, StemCache> entry : stemCaches.entrySet()) {
+            StemCache cache = entry.getValue();
+            out.write(first ? "\n" : ",\n");
+            first = false;
+            out.write("    \"" + entry.getKey() + "\": {");
+            out.write("\"hits\": " + cache.getHits());
+            out.write(", \"misses\": " + cache.getMisses());
+            out.write(", \"hit_rate\": " + format(cache.getHitRate()));
+            out.write(", \"size\": " + cache.getSize());
+            out.write("}");
+        }
+        out.write("\n  },\n");
+        out.write("  \"mappers\": [");
+        List<MapperStats> mappers = getMapperStats();
+        for (int i = 0; i < mappers.size(); i++) {
+            MapperStats stats = mappers.get(i);
+            out.write(i == 0 ? "\n" : ",\n");
+            out.write("    {\"name\": \"" + escape(stats.getName()) + "\"");
+            out.write(", \"calls\": " + stats.getCalls());
+            out.write(", \"inputs\": " + stats.getInputs());
+            out.write(", \"outputs\": " + stats.getOutputs());
+            out.write(", \"total_ms\": " + format(stats.getTotalMillis()));
+            out.write(", \"mean_us\": " + format(stats.getMeanMicros()));
+            out.write("}");
+        }
+        out.write(mappers.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Writes the metrics as JSON to a file. They are written to a temporary
+     * file next to it first, and renamed, so a reader of the file never sees
+     * them half written.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void writeJson(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            Writer out = new OutputStreamWriter(new FileOutputStream(tmp),
+                    "UTF-8");
+            try {
+                writeJson(out);
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(file)) {
+                // renameTo does not replace the file everywhere
+                if (!file.delete() || !tmp.renameTo(file)) {
+                    throw new IOException("Could not rename " + tmp + " to "
+                            + file);
+                }
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.US, "%.3f", value);
+    }
+}
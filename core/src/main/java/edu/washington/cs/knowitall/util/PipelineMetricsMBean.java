@@ -0,0 +1,16 @@
+package edu.washington.cs.knowitall.util;
+
+/**
+ * The JMX view of the counters of a {@link PipelineMetrics}. The latencies of
+ * each stage are MBeans of their own.
+ */
+public interface PipelineMetricsMBean {
+
+    public long getSentences();
+
+    public long getExtractions();
+
+    public double getUptimeSeconds();
+
+    public double getSentencesPerSecond();
+}
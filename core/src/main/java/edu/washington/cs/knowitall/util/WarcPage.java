@@ -43,7 +43,7 @@ public class WarcPage {
     }
 
     public void addLine(String line) {
-        lines.append("\n" + line);
+        lines.append('\n').append(line);
     }
 
     public void setWARC_Target_URI(String wARC_Target_URI) {
@@ -6,6 +6,10 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Iterator;
 
+/**
+ * Reads the pages of an uncompressed WARC/0.18 file line by line. See
+ * {@link WarcRecordReader} for WARC/1.0, compressed files and byte offsets.
+ */
 public class WarcReader implements Iterable<WarcPage> {
     private final BufferedReader in;
     protected long serialNumber;
@@ -0,0 +1,151 @@
+package edu.washington.cs.knowitall.util;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A record of a WARC file, as read by {@link WarcRecordReader}: its version
+ * line, its headers and the bytes of its content block.
+ */
+public class WarcRecord {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Pattern CHARSET = Pattern.compile(
+            "(?i)charset=[\"']?([\\w.:-]+)");
+
+    private final long offset;
+    private final String version;
+    private final Map<String, String> headers;
+    private final byte[] content;
+
+    /**
+     * @param offset
+     *            the byte offset of the record in its file, see
+     *            {@link #getOffset()}
+     * @param version
+     *            the version line, for example <code>WARC/1.0</code>
+     * @param headers
+     *            the headers, looked up by name ignoring case
+     * @param content
+     *            the content block
+     */
+    public WarcRecord(long offset, String version,
+            Map<String, String> headers, byte[] content) {
+        this.offset = offset;
+        this.version = version;
+        this.headers = headers;
+        this.content = content;
+    }
+
+    /**
+     * @return the byte offset in the file of the gzip member the record
+     *         starts in, or of the record itself if the file is not
+     *         compressed
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the value of the named header, or null if the record does not
+     *         have it
+     */
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * @return the WARC-Type header, for example <code>response</code>
+     */
+    public String getType() {
+        return getHeader("WARC-Type");
+    }
+
+    public String getTargetUri() {
+        return getHeader("WARC-Target-URI");
+    }
+
+    /**
+     * @return the WARC-TREC-ID header of the ClueWeb collections
+     */
+    public String getTrecId() {
+        return getHeader("WARC-TREC-ID");
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * @return the index in the content where the payload starts: after the
+     *         HTTP headers of a response, or 0 if the content does not start
+     *         with an HTTP status line
+     */
+    public int getPayloadOffset() {
+        if (!startsWith(content, 0, "HTTP/")) {
+            return 0;
+        }
+        for (int i = 0; i < content.length - 1; i++) {
+            if (content[i] == '\n') {
+                if (content[i + 1] == '\n') {
+                    return i + 2;
+                } else if (content[i + 1] == '\r' && i + 2 < content.length
+                        && content[i + 2] == '\n') {
+                    return i + 3;
+                }
+            }
+        }
+        return content.length;
+    }
+
+    /**
+     * @return the payload decoded with the charset of its HTTP Content-Type
+     *         header, or as UTF-8 if there is none or it is not supported
+     */
+    public String getPayloadString() {
+        int start = getPayloadOffset();
+        Charset charset = UTF8;
+        if (start > 0) {
+            String httpHeaders = new String(content, 0, start,
+                    Charset.forName("ISO-8859-1"));
+            Matcher m = CHARSET.matcher(httpHeaders);
+            if (m.find()) {
+                try {
+                    charset = Charset.forName(m.group(1));
+                } catch (IllegalArgumentException e) {
+                    // keep UTF-8
+                }
+            }
+        }
+        return new String(content, start, content.length - start, charset);
+    }
+
+    private static boolean startsWith(byte[] bytes, int start, String prefix) {
+        if (bytes.length < start + prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[start + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return version + " " + getType() + " " + getTargetUri() + " @"
+                + offset;
+    }
+}
@@ -0,0 +1,503 @@
+package edu.washington.cs.knowitall.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Reads the records of a WARC file (WARC/1.0, or the WARC/0.18 of ClueWeb09),
+ * plain or compressed as one or more concatenated gzip members, as is usual
+ * for CommonCrawl with one member per record. Content blocks are read as
+ * bytes, using the Content-Length of each record.
+ *
+ * Each record knows its byte offset in the file. A compressed file can be
+ * split at member boundaries with {@link #findSplits(File, int)}, and the
+ * splits read by separate readers, for example in separate threads; records
+ * belong to the split their gzip member starts in.
+ */
+public class WarcRecordReader implements Iterable<WarcRecord>, Closeable {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private final InputStream in;
+    private final long end;
+
+    // the raw bytes read from the input
+    private final byte[] raw = new byte[64 * 1024];
+    private int rawPos = 0;
+    private int rawLimit = 0;
+    // the offset in the file of raw[0]
+    private long rawOffset;
+    private boolean rawEof = false;
+
+    private final boolean gzip;
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private boolean inMember = false;
+    private boolean dataEof = false;
+
+    // the decompressed bytes, where records are parsed
+    private byte[] data = new byte[64 * 1024];
+    private int dataPos = 0;
+    private int dataLimit = 0;
+    // the file offsets of the gzip members (or of the uncompressed input) in
+    // data, and the indices in data where they start
+    private long[] memberOffsets = new long[4];
+    private int[] memberStarts = new int[4];
+    private int numMembers = 0;
+
+    /**
+     * Reads all records of the stream, which starts at offset 0 of its file.
+     */
+    public WarcRecordReader(InputStream in) throws IOException {
+        this(in, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads the records of a file that start before <code>end</code>, from
+     * <code>start</code> on. If the file is compressed, <code>start</code>
+     * must be the start of a gzip member, like the offsets returned by
+     * {@link #findSplits(File, int)}.
+     */
+    public WarcRecordReader(File file, long start, long end)
+            throws IOException {
+        this(open(file, start), start, end);
+    }
+
+    private static InputStream open(File file, long start) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            in.getChannel().position(start);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    private WarcRecordReader(InputStream in, long start, long end)
+            throws IOException {
+        this.in = in;
+        this.rawOffset = start;
+        this.end = end;
+        fillRaw(2);
+        gzip = rawLimit >= 2
+                && ((raw[0] & 0xff) | (raw[1] & 0xff) << 8) == GZIP_MAGIC;
+        if (!gzip) {
+            addMember(start);
+        }
+    }
+
+    /**
+     * @return the next record, or null if there are no more records
+     * @throws IOException
+     *             if the input cannot be read or is not a valid WARC file
+     */
+    public WarcRecord read() throws IOException {
+        // skip the blank lines between records, and anything else up to the
+        // next version line
+        String version;
+        int start;
+        long offset;
+        while (true) {
+            if (!available(1)) {
+                return null;
+            }
+            start = dataPos;
+            offset = offsetOf(start);
+            if (!gzip && offset >= end) {
+                return null;
+            }
+            version = readLine();
+            if (version.startsWith("WARC/")) {
+                break;
+            }
+        }
+
+        Map<String, String> headers = new TreeMap<String, String>(
+                String.CASE_INSENSITIVE_ORDER);
+        String line;
+        while ((line = readLine()).length() > 0) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim(), line.substring(
+                        colon + 1).trim());
+            }
+        }
+
+        String length = headers.get("Content-Length");
+        int contentLength;
+        try {
+            contentLength = Integer.parseInt(length);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid Content-Length in record at offset "
+                    + offset + ": " + length);
+        }
+        if (contentLength < 0 || !available(contentLength)) {
+            throw new EOFException("Truncated record at offset " + offset);
+        }
+        byte[] content = Arrays.copyOfRange(data, dataPos, dataPos
+                + contentLength);
+        dataPos += contentLength;
+        return new WarcRecord(offset, version, headers, content);
+    }
+
+    /**
+     * @return an iterator over the records; it throws an
+     *         <code>IllegalStateException</code> if a record cannot be read
+     */
+    @Override
+    public Iterator<WarcRecord> iterator() {
+        return new AbstractIterator<WarcRecord>() {
+            @Override
+            protected WarcRecord computeNext() {
+                try {
+                    WarcRecord record = read();
+                    return record != null ? record : endOfData();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+
+    /**
+     * Finds where to split a compressed WARC file into about
+     * <code>numSplits</code> parts of the same size. A file that is not
+     * compressed is not split. Each part of the file is scanned once for the
+     * start of a member, so a part without one is merged into the split
+     * before it.
+     *
+     * @return the offsets where the splits start, the first of which is 0;
+     *         each split ends where the next one starts
+     * @throws IOException
+     */
+    public static List<Long> findSplits(File file, int numSplits)
+            throws IOException {
+        List<Long> splits = new ArrayList<Long>();
+        splits.add(0L);
+        if (!isMemberStart(file, 0)) {
+            return splits;
+        }
+        long length = file.length();
+        for (int i = 1; i < numSplits; i++) {
+            long split = findMemberStart(file, length * i / numSplits, length
+                    * (i + 1) / numSplits);
+            if (split >= 0) {
+                splits.add(split);
+            }
+        }
+        return splits;
+    }
+
+    // returns the first offset from start until end where a gzip member with
+    // a WARC record starts, or -1 if there is none
+    private static long findMemberStart(File file, long start, long end)
+            throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            in.getChannel().position(start);
+            byte[] buffer = new byte[64 * 1024];
+            long bufferOffset = start;
+            int n;
+            int carried = 0;
+            while (bufferOffset < end
+                    && (n = in.read(buffer, carried, buffer.length - carried)) > 0) {
+                n += carried;
+                for (int i = 0; i + 2 < n && bufferOffset + i < end; i++) {
+                    if (buffer[i] == (byte) 0x1f && buffer[i + 1] == (byte) 0x8b
+                            && buffer[i + 2] == 8
+                            && isMemberStart(file, bufferOffset + i)) {
+                        return bufferOffset + i;
+                    }
+                }
+                // keep the last bytes, which may be the start of a header
+                carried = Math.min(2, n);
+                System.arraycopy(buffer, n - carried, buffer, 0, carried);
+                bufferOffset += n - carried;
+            }
+            return -1;
+        } finally {
+            in.close();
+        }
+    }
+
+    // checks that a gzip member starts at the offset and starts a record
+    private static boolean isMemberStart(File file, long offset) {
+        try {
+            InputStream in = new GZIPInputStream(open(file, offset));
+            try {
+                byte[] magic = new byte[5];
+                int n = 0;
+                while (n < magic.length) {
+                    int read = in.read(magic, n, magic.length - n);
+                    if (read < 0) {
+                        return false;
+                    }
+                    n += read;
+                }
+                return new String(magic, UTF8).equals("WARC/");
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private long offsetOf(int index) {
+        int member = numMembers - 1;
+        while (member > 0 && memberStarts[member] > index) {
+            member--;
+        }
+        if (gzip) {
+            return memberOffsets[member];
+        } else {
+            return memberOffsets[member] + index - memberStarts[member];
+        }
+    }
+
+    private void addMember(long offset) {
+        if (numMembers == memberOffsets.length) {
+            memberOffsets = Arrays.copyOf(memberOffsets, numMembers * 2);
+            memberStarts = Arrays.copyOf(memberStarts, numMembers * 2);
+        }
+        memberOffsets[numMembers] = offset;
+        memberStarts[numMembers] = dataLimit;
+        numMembers++;
+    }
+
+    // reads a line of data, without its line break
+    private String readLine() throws IOException {
+        // the length of the line so far; filling the buffer can move the data
+        int length = 0;
+        while (true) {
+            while (dataPos + length < dataLimit
+                    && data[dataPos + length] != '\n') {
+                length++;
+            }
+            if (dataPos + length < dataLimit || !available(length + 1)) {
+                break;
+            }
+        }
+        int i = dataPos + length;
+        int lineEnd = Math.min(i, dataLimit);
+        int next = Math.min(i + 1, dataLimit);
+        if (lineEnd > dataPos && data[lineEnd - 1] == '\r') {
+            lineEnd--;
+        }
+        String line = new String(data, dataPos, lineEnd - dataPos, UTF8);
+        dataPos = next;
+        return line;
+    }
+
+    // makes sure that n bytes of data are available, unless the input ends
+    private boolean available(int n) throws IOException {
+        while (dataLimit - dataPos < n) {
+            if (dataEof) {
+                return false;
+            }
+            if (data.length - dataLimit < 16 * 1024
+                    || data.length - dataPos < n) {
+                compact(n);
+            }
+            fillData();
+        }
+        return true;
+    }
+
+    // moves the unread data to the start of the buffer, and grows the buffer
+    // if it cannot hold n more bytes
+    private void compact(int n) {
+        int shift = dataPos;
+        int size = dataLimit - dataPos;
+        if (Math.max(n, size) + 16 * 1024 > data.length) {
+            byte[] bigger = new byte[Math.max(data.length * 2, n + 16 * 1024)];
+            System.arraycopy(data, dataPos, bigger, 0, size);
+            data = bigger;
+        } else {
+            System.arraycopy(data, dataPos, data, 0, size);
+        }
+        dataPos = 0;
+        dataLimit = size;
+
+        // forget the members before the unread data, except the one it
+        // starts in
+        int first = 0;
+        while (first + 1 < numMembers && memberStarts[first + 1] <= shift) {
+            first++;
+        }
+        for (int i = first; i < numMembers; i++) {
+            memberOffsets[i - first] = memberOffsets[i];
+            memberStarts[i - first] = memberStarts[i] - shift;
+            if (memberStarts[i - first] < 0) {
+                // uncompressed offsets are counted from the member start
+                if (!gzip) {
+                    memberOffsets[i - first] -= memberStarts[i - first];
+                }
+                memberStarts[i - first] = 0;
+            }
+        }
+        numMembers -= first;
+    }
+
+    // adds at least one byte of data, or sets dataEof
+    private void fillData() throws IOException {
+        if (!gzip) {
+            if (rawPos == rawLimit && !fillRaw(1)) {
+                dataEof = true;
+                return;
+            }
+            int n = Math.min(rawLimit - rawPos, data.length - dataLimit);
+            System.arraycopy(raw, rawPos, data, dataLimit, n);
+            rawPos += n;
+            dataLimit += n;
+            return;
+        }
+
+        while (true) {
+            if (!inMember && !startMember()) {
+                dataEof = true;
+                return;
+            }
+            if (inflater.needsInput()) {
+                if (rawPos == rawLimit && !fillRaw(1)) {
+                    throw new EOFException("Truncated gzip member at offset "
+                            + memberOffsets[numMembers - 1]);
+                }
+                inflater.setInput(raw, rawPos, rawLimit - rawPos);
+                rawPos = rawLimit;
+            }
+            int n;
+            try {
+                n = inflater.inflate(data, dataLimit, data.length - dataLimit);
+            } catch (DataFormatException e) {
+                throw new IOException("Invalid gzip member at offset "
+                        + memberOffsets[numMembers - 1] + ": "
+                        + e.getMessage());
+            }
+            crc.update(data, dataLimit, n);
+            dataLimit += n;
+            if (inflater.finished()) {
+                rawPos -= inflater.getRemaining();
+                endMember();
+            }
+            if (n > 0) {
+                return;
+            }
+        }
+    }
+
+    // reads the header of the next gzip member, if there is one that starts
+    // before the end
+    private boolean startMember() throws IOException {
+        if (!fillRaw(2)
+                || ((raw[rawPos] & 0xff) | (raw[rawPos + 1] & 0xff) << 8) != GZIP_MAGIC) {
+            // anything after the last member is ignored, like GZIPInputStream
+            return false;
+        }
+        long offset = rawOffset + rawPos;
+        if (offset >= end) {
+            return false;
+        }
+        rawPos += 2;
+        if (rawByte() != 8) {
+            throw new IOException("Unsupported compression method at offset "
+                    + offset);
+        }
+        int flags = rawByte();
+        for (int i = 0; i < 6; i++) {
+            rawByte();
+        }
+        if ((flags & 4) != 0) {
+            int extra = rawByte() | rawByte() << 8;
+            for (int i = 0; i < extra; i++) {
+                rawByte();
+            }
+        }
+        if ((flags & 8) != 0) {
+            while (rawByte() != 0) {
+            }
+        }
+        if ((flags & 16) != 0) {
+            while (rawByte() != 0) {
+            }
+        }
+        if ((flags & 2) != 0) {
+            rawByte();
+            rawByte();
+        }
+        addMember(offset);
+        inflater.reset();
+        crc.reset();
+        inMember = true;
+        return true;
+    }
+
+    private void endMember() throws IOException {
+        long expectedCrc = 0;
+        for (int i = 0; i < 4; i++) {
+            expectedCrc |= (long) rawByte() << (8 * i);
+        }
+        long size = 0;
+        for (int i = 0; i < 4; i++) {
+            size |= (long) rawByte() << (8 * i);
+        }
+        if (expectedCrc != crc.getValue()
+                || size != (inflater.getBytesWritten() & 0xffffffffL)) {
+            throw new IOException("Corrupt gzip member at offset "
+                    + memberOffsets[numMembers - 1]);
+        }
+        inMember = false;
+    }
+
+    private int rawByte() throws IOException {
+        if (rawPos == rawLimit && !fillRaw(1)) {
+            throw new EOFException("Truncated gzip header or trailer");
+        }
+        return raw[rawPos++] & 0xff;
+    }
+
+    // makes sure that n raw bytes are available, unless the input ends
+    private boolean fillRaw(int n) throws IOException {
+        if (rawLimit - rawPos >= n) {
+            return true;
+        }
+        System.arraycopy(raw, rawPos, raw, 0, rawLimit - rawPos);
+        rawOffset += rawPos;
+        rawLimit -= rawPos;
+        rawPos = 0;
+        while (rawLimit < n && !rawEof) {
+            int read = in.read(raw, rawLimit, raw.length - rawLimit);
+            if (read < 0) {
+                rawEof = true;
+            } else {
+                rawLimit += read;
+            }
+        }
+        return rawLimit >= n;
+    }
+}
@@ -0,0 +1,55 @@
+package edu.washington.cs.knowitall.argumentidentifier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.extractor.conf.classifier.DoubleFeatures;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
+
+public class Arg1LocationFeatureGeneratorTest {
+
+    private static double d(boolean b) {
+        return b ? 1.0 : 0.0;
+    }
+
+    @Test
+    public void testSweepMatchesPatternExtractor() {
+        Arg1LocationFeatureGenerator generator = new Arg1LocationFeatureGenerator();
+        PatternExtractor patterns = new PatternExtractor();
+
+        for (ChunkedSentence sent : TestSentences.chunkAll(TestSentences.SADDAM,
+                TestSentences.MARLOWE)) {
+            for (int start = 1; start < sent.getLength(); start++) {
+                ChunkedExtraction extr = new ChunkedExtraction(sent, new Range(start, 1));
+                Arg1LocationFeatureGenerator.CandidateSweep sweep = generator.sweep(extr);
+                for (int k = start - 1; k >= 0; k--) {
+                    if (!sent.getChunkTag(k).equals("B-NP")) {
+                        continue;
+                    }
+                    sweep.advance();
+                    assertEquals(k, sweep.getCurrent());
+
+                    DoubleFeatures features = sweep.getFeatures();
+                    assertEquals(d(patterns.simpleSubj(extr, k)), features.get("simple_subj"), 0.0);
+                    assertEquals(d(patterns.quotesSubj(extr, k)), features.get("quotes_subj"), 0.0);
+                    assertEquals(d(patterns.relSubj(extr, k)), features.get("relative_subj"), 0.0);
+                    assertEquals(d(patterns.matchesVerbConjSimple(extr, k)), features.get("verb_conj"), 0.0);
+                    assertEquals(d(patterns.matchesAppositiveClause(extr, k)), features.get("app"), 0.0);
+                    assertEquals(d(patterns.getCapitalized(extr, k)), features.get("capitalized"), 0.0);
+                    assertEquals(patterns.getPunctuationCount(extr, k), features.get("punct_count"), 0.0);
+                    assertEquals(patterns.getInterveningNPCount(extr, k), features.get("intervening_np_count"), 0.0);
+                    assertEquals(patterns.getNPCountBefore(extr, k), features.get("np_count_before"), 0.0);
+                    assertEquals(d(patterns.wordBeforePredIsConj(extr, k)), features.get("word_before_pred_conj"), 0.0);
+                    assertEquals(d(patterns.getInterveningConj(extr, k)), features.get("intervening_and"), 0.0);
+                    assertEquals(d(patterns.wordAfterIsVP(extr, k)), features.get("word_after_vp"), 0.0);
+                    assertEquals(d(patterns.wordBeforeIsVP(extr, k)), features.get("word_before_vp"), 0.0);
+                }
+                assertFalse(sweep.advance());
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package edu.washington.cs.knowitall.argumentidentifier;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.ChunkedSentenceToken;
+
+public class PatternExtractorTest {
+
+    private static final String[] ARG1_PATTERNS = { "between_commas",
+            "double_np", "list_1", "list_3", "obj", "subj_simple", "app_1" };
+    private static final String[] ARG2_PATTERNS = { "vbg_1", "relclause1",
+            "app_1", "adj_relation", "nested_relation1", "double_np1" };
+
+    private static void assertSameAsUncached(PatternExtractor patterns,
+            ChunkedSentence sent, int start, int end) {
+        Range range = new Range(start, end - start);
+        for (String type : ARG1_PATTERNS) {
+            assertEquals(patterns.match(
+                    ChunkedSentenceToken.tokenize(sent, range), type, true),
+                    patterns.matches(sent, start, end, type, true));
+        }
+        for (String type : ARG2_PATTERNS) {
+            assertEquals(patterns.match(
+                    ChunkedSentenceToken.tokenize(sent, range), type, false),
+                    patterns.matches(
+                            ChunkedSentenceToken.tokenize(sent, range),
+                            type, false));
+        }
+    }
+
+    @Test
+    public void testRememberedMatchesAreTheSameAsUncachedMatches() {
+        PatternExtractor patterns = new PatternExtractor();
+        List<ChunkedSentence> sents = TestSentences.chunkAll(
+                TestSentences.SADDAM, TestSentences.JORDAN);
+
+        // each range is checked twice in a row, once before and once after
+        // its results are remembered, and going back to a sentence checks
+        // that the results of the other sentence are not used for it
+        for (int round = 0; round < 2; round++) {
+            for (ChunkedSentence sent : sents) {
+                for (int repeat = 0; repeat < 2; repeat++) {
+                    for (int start = 0; start < sent.getLength(); start++) {
+                        for (int end = start; end <= sent.getLength(); end++) {
+                            assertSameAsUncached(patterns, sent, start, end);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
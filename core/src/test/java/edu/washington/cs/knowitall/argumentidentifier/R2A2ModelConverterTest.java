@@ -0,0 +1,112 @@
+package edu.washington.cs.knowitall.argumentidentifier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.washington.cs.knowitall.extractor.conf.classifier.DecisionTree;
+import edu.washington.cs.knowitall.extractor.conf.classifier.DoubleFeatures;
+import edu.washington.cs.knowitall.extractor.conf.classifier.LogisticRegression;
+import edu.washington.cs.knowitall.util.BinaryModels;
+
+public class R2A2ModelConverterTest {
+
+    private static final String[] BOOLEAN_FEATURES = { "app", "capitalized",
+            "intervening_and", "quotes_subj", "relative_subj", "simple_subj",
+            "verb_conj", "which_who", "word_after_vp",
+            "word_before_pred_conj", "word_before_vp" };
+    private static final String[] COUNT_FEATURES = { "intervening_np_count",
+            "np_count_before", "punct_count" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private R2A2ModelConverter converter;
+
+    @Before
+    public void setUp() throws Exception {
+        converter = new R2A2ModelConverter(null);
+        converter.convertAll(folder.getRoot());
+    }
+
+    private File binary(String name) {
+        return new File(folder.getRoot(), name + BinaryModels.SUFFIX);
+    }
+
+    @Test
+    public void testCRFRoundTrip() throws Exception {
+        for (String name : new String[] { "arg1substructure-model",
+                "arg2substructure-model" }) {
+            LinearChainCRF expected = converter.convertCRF(name);
+            LinearChainCRF crf = LinearChainCRF.read(BinaryModels
+                    .load(binary(name).toURI().toURL()));
+            assertEquals(expected.numFeatures(), crf.numFeatures());
+
+            Random random = new Random(0);
+            for (int n = 0; n < 100; n++) {
+                int[][] input = new int[1 + random.nextInt(30)][];
+                for (int i = 0; i < input.length; i++) {
+                    input[i] = new int[random.nextInt(40)];
+                    int index = 0;
+                    for (int j = 0; j < input[i].length; j++) {
+                        index += 1 + random.nextInt(crf.numFeatures()
+                                / input[i].length - 1);
+                        input[i][j] = index;
+                    }
+                }
+                ViterbiConfidenceLattice expectedLattice = new ViterbiConfidenceLattice(
+                        expected, input);
+                ViterbiConfidenceLattice lattice = new ViterbiConfidenceLattice(
+                        crf, input);
+                assertArrayEquals(expectedLattice.getOutput(),
+                        lattice.getOutput());
+                assertEquals(expectedLattice.getConfidence(),
+                        lattice.getConfidence(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testDecisionTreeRoundTrip() throws Exception {
+        DecisionTree expected = DecisionTree.fromModel(getClass().getResource(
+                "/r2a2-arg1loc.tree"));
+        DecisionTree tree = DecisionTree.fromBinary(BinaryModels
+                .load(binary("r2a2-arg1loc.tree").toURI().toURL()));
+
+        Random random = new Random(0);
+        for (int n = 0; n < 1000; n++) {
+            DoubleFeatures features = new DoubleFeatures();
+            for (String feature : BOOLEAN_FEATURES) {
+                features.put(feature, (double) random.nextInt(2));
+            }
+            for (String feature : COUNT_FEATURES) {
+                features.put(feature, (double) random.nextInt(5));
+            }
+            assertEquals(expected.classify(features), tree.classify(features));
+        }
+    }
+
+    @Test
+    public void testLogisticRegressionRoundTrip() throws Exception {
+        InputStream in = getClass().getResourceAsStream("/r2a2-conf.weights");
+        Map<String, Double> expected;
+        try {
+            expected = LogisticRegression.buildFeatureWeightMap(in);
+        } finally {
+            in.close();
+        }
+        Map<String, Double> weights = LogisticRegression
+                .readBinaryFeatureWeightMap(BinaryModels.load(binary(
+                        "r2a2-conf.weights").toURI().toURL()));
+        assertEquals(expected, weights);
+    }
+}
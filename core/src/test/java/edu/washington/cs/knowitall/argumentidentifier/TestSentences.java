@@ -0,0 +1,55 @@
+package edu.washington.cs.knowitall.argumentidentifier;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+
+/**
+ * Hand tagged and chunked sentences for the tests of the argument
+ * identifier and R2A2. Each has a relative clause, commas or a possessive
+ * that the arg1 and arg2 patterns look at.
+ */
+public class TestSentences {
+
+    public static final String[] SADDAM = {
+        "Eager to prove to Iraqis that Saddam was in custody , the military also showed video of the ousted leader , haggard and gray-bearded , as a military doctor examined him .",
+        "NNP TO VB TO NNP IN NNP VBD IN NN , DT NN RB VBD NN IN DT VBN NN , JJ CC JJ , IN DT JJ NN VBD PRP .",
+        "B-NP B-VP I-VP B-PP B-NP B-SBAR B-NP B-VP B-PP B-NP O B-NP I-NP B-ADVP B-VP B-NP I-NP I-NP I-NP I-NP I-NP I-NP I-NP I-NP O B-PP B-NP I-NP I-NP B-VP B-NP O",
+    };
+
+    public static final String[] MARLOWE = {
+        "It 's a known fact that Marlowe was stabbed to death , but the how 's and why 's are largely unknown to historians .",
+        "PRP VBZ DT VBN NN IN NNP VBD VBN TO NN , CC DT WRB POS CC WRB POS VBP RB JJ TO NNS .",
+        "B-NP B-VP B-NP I-NP I-NP B-SBAR B-NP B-VP I-VP B-PP B-NP O O B-NP I-NP I-NP O B-ADVP B-NP B-VP B-ADJP I-ADJP B-PP B-NP O",
+    };
+
+    public static final String[] JORDAN = {
+        "Michael Jordan , who was born in Brooklyn , played basketball for the Chicago Bulls .",
+        "NNP NNP , WP VBD VBN IN NNP , VBD NN IN DT NNP NNPS .",
+        "B-NP I-NP O B-NP B-VP I-VP B-PP B-NP O B-VP B-NP B-PP B-NP I-NP I-NP O",
+    };
+
+    /**
+     * @param sentence
+     *            the tokens, POS tags and chunk tags of a sentence, each
+     *            space separated
+     * @return a new chunked sentence
+     */
+    public static ChunkedSentence chunk(String[] sentence) {
+        return new ChunkedSentence(sentence[0].split(" "),
+                sentence[1].split(" "), sentence[2].split(" "));
+    }
+
+    /**
+     * @param sentences
+     * @return a new chunked sentence for each of the sentences
+     */
+    public static List<ChunkedSentence> chunkAll(String[]... sentences) {
+        ChunkedSentence[] sents = new ChunkedSentence[sentences.length];
+        for (int i = 0; i < sentences.length; i++) {
+            sents[i] = chunk(sentences[i]);
+        }
+        return Arrays.asList(sents);
+    }
+}
@@ -0,0 +1,81 @@
+package edu.washington.cs.knowitall.argumentidentifier;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ObjectInputStream;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import cc.mallet.fst.CRF;
+import cc.mallet.fst.confidence.ViterbiConfidenceEstimator;
+import cc.mallet.types.FeatureVector;
+import cc.mallet.types.FeatureVectorSequence;
+import cc.mallet.types.Instance;
+import cc.mallet.types.Sequence;
+import edu.washington.cs.knowitall.commonlib.ResourceUtils;
+
+public class ViterbiConfidenceLatticeTest {
+
+    private static CRF crf;
+    private static LinearChainCRF linearChainCRF;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        ObjectInputStream in = new ObjectInputStream(ResourceUtils.loadResource(
+                "arg1substructure-model", ViterbiConfidenceLatticeTest.class));
+        try {
+            crf = (CRF) in.readObject();
+        } finally {
+            in.close();
+        }
+        linearChainCRF = LinearChainCRF.fromCRF(crf);
+    }
+
+    private static int[][] toFeatureIndices(FeatureVectorSequence input) {
+        int[][] indices = new int[input.size()][];
+        for (int i = 0; i < input.size(); i++) {
+            FeatureVector fv = input.get(i);
+            indices[i] = new int[fv.numLocations()];
+            for (int l = 0; l < fv.numLocations(); l++) {
+                indices[i][l] = fv.indexAtLocation(l);
+            }
+        }
+        return indices;
+    }
+
+    private static FeatureVectorSequence randomInput(Random random, int length) {
+        int numFeatures = crf.getInputAlphabet().size();
+        FeatureVector[] fvs = new FeatureVector[length];
+        for (int i = 0; i < length; i++) {
+            int[] indices = new int[1 + random.nextInt(40)];
+            for (int j = 0; j < indices.length; j++) {
+                indices[j] = random.nextInt(numFeatures);
+            }
+            fvs[i] = new FeatureVector(crf.getInputAlphabet(), indices);
+        }
+        return new FeatureVectorSequence(fvs);
+    }
+
+    @Test
+    public void testMatchesMallet() {
+        ViterbiConfidenceEstimator estimator = new ViterbiConfidenceEstimator(crf);
+        Random random = new Random(0);
+        for (int n = 0; n < 200; n++) {
+            FeatureVectorSequence input = randomInput(random, 1 + random.nextInt(30));
+            Sequence<?> expectedOutput = crf.transduce(input);
+            double expectedConf = estimator.estimateConfidenceFor(
+                    new Instance(input, null, null, null), new String[] { "B-ARG" },
+                    new String[] { "I-ARG" });
+
+            ViterbiConfidenceLattice lattice = new ViterbiConfidenceLattice(
+                    linearChainCRF, toFeatureIndices(input));
+            assertEquals(expectedOutput.size(), lattice.getOutput().length);
+            for (int i = 0; i < expectedOutput.size(); i++) {
+                assertEquals(expectedOutput.get(i), lattice.getOutput()[i]);
+            }
+            assertEquals(expectedConf, lattice.getConfidence(), 0.0);
+        }
+    }
+}
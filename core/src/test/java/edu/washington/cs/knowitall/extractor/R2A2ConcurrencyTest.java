@@ -0,0 +1,79 @@
+package edu.washington.cs.knowitall.extractor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import edu.washington.cs.knowitall.argumentidentifier.ConfidenceMetric;
+import edu.washington.cs.knowitall.argumentidentifier.TestSentences;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+
+public class R2A2ConcurrencyTest {
+
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 25;
+
+    private static List<String> extractAll(R2A2 extractor,
+            ConfidenceMetric conf, List<ChunkedSentence> sents)
+            throws Exception {
+        List<String> results = new ArrayList<String>();
+        for (ChunkedSentence sent : sents) {
+            for (ChunkedBinaryExtraction extr : extractor.extract(sent)) {
+                results.add(String.format("(%s, %s, %s) %s",
+                        extr.getArgument1(), extr.getRelation(),
+                        extr.getArgument2(), conf.getConf(extr)));
+            }
+        }
+        return results;
+    }
+
+    /*
+     * The threads start together on a fresh extractor, so that they race
+     * through its lazy initialization. The expected results come from a
+     * sequential run of another extractor afterwards, so that nothing is
+     * initialized before the threads start.
+     */
+    @Test
+    public void testSharedExtractorMatchesSequentialRun() throws Exception {
+        final R2A2 extractor = new R2A2();
+        final ConfidenceMetric conf = new ConfidenceMetric();
+        final List<ChunkedSentence> sents = TestSentences.chunkAll(
+                TestSentences.SADDAM, TestSentences.MARLOWE,
+                TestSentences.JORDAN);
+
+        List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < THREADS * ROUNDS; i++) {
+                futures.add(executor.submit(new Callable<List<String>>() {
+                    public List<String> call() throws Exception {
+                        start.await();
+                        return extractAll(extractor, conf, sents);
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<List<String>> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<String> expected = extractAll(new R2A2(),
+                new ConfidenceMetric(), sents);
+        for (Future<List<String>> future : futures) {
+            assertEquals(expected, future.get());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package edu.washington.cs.knowitall.extractor.mapper;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import edu.washington.cs.knowitall.util.MapperStats;
+import edu.washington.cs.knowitall.util.PipelineMetrics;
+
+public class MapperListTest {
+
+    private static class EvenFilter extends FilterMapper<Integer> {
+        public boolean doFilter(Integer i) {
+            return i % 2 == 0;
+        }
+    }
+
+    private static MapperList<Integer> createList() {
+        MapperList<Integer> nested = new MapperList<Integer>();
+        FilterMapper<Integer> small = new FilterMapper<Integer>() {
+            public boolean doFilter(Integer i) {
+                return i < 6;
+            }
+        };
+        small.setName("SmallFilter");
+        nested.addMapper(small);
+
+        MapperList<Integer> list = new MapperList<Integer>();
+        list.addMapper(new EvenFilter());
+        list.addMapper(nested);
+        return list;
+    }
+
+    @Test
+    public void testDefaultName() {
+        assertEquals("MapperListTest$EvenFilter", new EvenFilter().getName());
+    }
+
+    @Test
+    public void testInstrumentRecordsEachMapper() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        MapperList<Integer> list = createList();
+        list.instrument(metrics, "test");
+        List<Integer> input = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8);
+        assertEquals(Arrays.asList(2, 4), Lists.newArrayList(list.map(input)));
+        assertEquals(Arrays.asList(2, 4), Lists.newArrayList(list.map(input)));
+
+        List<MapperStats> stats = metrics.getMapperStats();
+        assertEquals(2, stats.size());
+        assertEquals("test/MapperListTest$EvenFilter", stats.get(0).getName());
+        assertEquals(2, stats.get(0).getCalls());
+        assertEquals(16, stats.get(0).getInputs());
+        assertEquals(8, stats.get(0).getOutputs());
+        assertEquals(50.0, stats.get(0).getDroppedPercent(), 0.0);
+        assertEquals("test/SmallFilter", stats.get(1).getName());
+        assertEquals(8, stats.get(1).getInputs());
+        assertEquals(4, stats.get(1).getOutputs());
+    }
+
+    @Test
+    public void testInstrumentIncludesLaterMappers() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        MapperList<Integer> list = new MapperList<Integer>();
+        list.instrument(metrics, "test");
+        list.addMapper(new EvenFilter());
+        Lists.newArrayList(list.map(Arrays.asList(1, 2, 3)));
+        assertEquals(3, metrics.getMapperStats(
+                "test/MapperListTest$EvenFilter").getInputs());
+    }
+}
@@ -0,0 +1,162 @@
+package edu.washington.cs.knowitall.extractor.mapper;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.io.BinaryExtractionSink;
+import edu.washington.cs.knowitall.io.ExtractionSink;
+import edu.washington.cs.knowitall.io.TsvExtractionSink;
+import edu.washington.cs.knowitall.io.TsvExtractionSink.Column;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedArgumentExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
+import edu.washington.cs.knowitall.normalization.BinaryExtractionNormalizer;
+import edu.washington.cs.knowitall.util.HyperLogLog;
+
+public class RelationDictionaryBuilderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RelationDictionaryBuilder builder(long maxMemory) {
+        return new RelationDictionaryBuilder(10, maxMemory, folder.getRoot());
+    }
+
+    // adds "rel i" with i distinct arguments, each of them twice
+    private static void addAll(RelationDictionaryBuilder builder, int from,
+            int to) throws Exception {
+        for (int i = from; i < to; i++) {
+            for (int j = 0; j < 2 * i; j++) {
+                builder.add("rel " + i, "arg " + j / 2);
+            }
+        }
+    }
+
+    private static RelationDictionary dictionary(
+            RelationDictionaryBuilder builder, int minFreq) throws Exception {
+        StringWriter out = new StringWriter();
+        builder.writeDictionary(out, minFreq);
+        return RelationDictionary.fromText(new ByteArrayInputStream(out
+                .toString().getBytes("UTF-8")));
+    }
+
+    // the counts are the estimates of a single sketch of all the arguments
+    private static void assertCounts(RelationDictionary dict, int from, int to) {
+        assertEquals(to - from, dict.size());
+        for (int i = from; i < to; i++) {
+            HyperLogLog sketch = new HyperLogLog(10);
+            for (int j = 0; j < i; j++) {
+                sketch.add("arg " + j);
+            }
+            assertEquals(sketch.cardinality(), dict.getFrequency("rel " + i));
+        }
+    }
+
+    @Test
+    public void testCountsInMemory() throws Exception {
+        RelationDictionaryBuilder builder = builder(1L << 30);
+        addAll(builder, 0, 60);
+        builder.add("", "arg");
+        assertCounts(dictionary(builder, 1), 1, 60);
+    }
+
+    @Test
+    public void testCountsWithSpilledRuns() throws Exception {
+        RelationDictionaryBuilder builder = builder(2000);
+        addAll(builder, 0, 60);
+        addAll(builder, 30, 60);
+        assertCounts(dictionary(builder, 20), 20, 60);
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testShardsAreMerged() throws Exception {
+        File[] shards = new File[3];
+        for (int s = 0; s < shards.length; s++) {
+            RelationDictionaryBuilder builder = builder(3000);
+            addAll(builder, 20 * s, 20 * s + 30);
+            shards[s] = folder.newFile("shard" + s);
+            builder.writeSketches(new FileOutputStream(shards[s]));
+        }
+        RelationDictionaryBuilder builder = builder(1L << 30);
+        for (File shard : shards) {
+            builder.addSketches(shard);
+        }
+        addAll(builder, 70, 75);
+        assertCounts(dictionary(builder, 1), 1, 75);
+    }
+
+    @Test
+    public void testRelationsAreNormalized() throws Exception {
+        ChunkedSentence sent = new ChunkedSentence(
+                "Jordan was born in New York".split(" "),
+                "NNP VBD VBN IN NNP NNP".split(" "),
+                "B-NP B-VP I-VP B-PP B-NP I-NP".split(" "));
+        RelationDictionaryBuilder builder = builder(1L << 30);
+        builder.add(new ChunkedExtraction(sent, new Range(1, 3)), "new york");
+        builder.add("bear in", "brooklyn");
+        StringWriter out = new StringWriter();
+        builder.writeDictionary(out, 1);
+        assertEquals("2\tbear in", out.toString().trim());
+    }
+
+    private static void write(ExtractionSink sink, int sentNum,
+            String words, String posTags, String chunkTags, Range arg2Range)
+            throws Exception {
+        ChunkedSentence sent = new ChunkedSentence(words.split(" "), posTags
+                .split(" "), chunkTags.split(" "));
+        ChunkedExtraction rel = new ChunkedExtraction(sent, new Range(1, 3));
+        sink.write("doc", sentNum, new ChunkedBinaryExtraction(rel,
+                new ChunkedArgumentExtraction(sent, new Range(0, 1), rel),
+                new ChunkedArgumentExtraction(sent, arg2Range, rel)), 0.5);
+    }
+
+    private static void writeExtractions(ExtractionSink sink) throws Exception {
+        write(sink, 1, "Jordan was born in New York", "NNP VBD VBN IN NNP NNP",
+                "B-NP B-VP I-VP B-PP B-NP I-NP", new Range(4, 2));
+        write(sink, 2, "Smith was born in Paris", "NNP VBD VBN IN NNP",
+                "B-NP B-VP I-VP B-PP B-NP", new Range(4, 1));
+        sink.close();
+    }
+
+    private static String dictionaryOf(byte[] output, List<Column> columns)
+            throws Exception {
+        RelationDictionaryBuilder builder = new RelationDictionaryBuilder();
+        builder.addReVerbOutput(new ByteArrayInputStream(output), columns);
+        StringWriter out = new StringWriter();
+        builder.writeDictionary(out, 1);
+        return out.toString().trim();
+    }
+
+    @Test
+    public void testReadsSelectedColumns() throws Exception {
+        List<Column> columns = Column
+                .parseList("sentence_words,sentence_pos_tags,sentence_chunk_tags,"
+                        + "filename,sentence_number,arg1_start,arg1_end,"
+                        + "rel_start,rel_end,arg2_start,arg2_end");
+        StringWriter out = new StringWriter();
+        writeExtractions(new TsvExtractionSink(out, columns,
+                new BinaryExtractionNormalizer()));
+        assertEquals("2\tbear in", dictionaryOf(out.toString().getBytes(
+                "UTF-8"), columns));
+    }
+
+    @Test
+    public void testReadsBinaryOutput() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeExtractions(new BinaryExtractionSink(out));
+        assertEquals("2\tbear in", dictionaryOf(out.toByteArray(), null));
+    }
+}
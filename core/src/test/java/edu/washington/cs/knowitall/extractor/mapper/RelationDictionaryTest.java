@@ -0,0 +1,71 @@
+package edu.washington.cs.knowitall.extractor.mapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class RelationDictionaryTest {
+
+    private static final String TEXT = "120\tbe bear in\n" + "35\tplay for\n"
+            + "20\tbe capital of\n" + "19\tfly over\n" + "not a line\n"
+            + "12\tbe born in\n" + "50\tcafé in\n" + "15\tbeé at\n"
+            + "40\tplay for\n";
+
+    private static RelationDictionary fromText(String text) throws Exception {
+        return RelationDictionary.fromText(new ByteArrayInputStream(text
+                .getBytes("UTF-8")));
+    }
+
+    @Test
+    public void testFrequencies() throws Exception {
+        RelationDictionary dict = fromText(TEXT);
+        assertEquals(7, dict.size());
+        assertEquals(120, dict.getFrequency("be bear in"));
+        assertEquals(40, dict.getFrequency("play for"));
+        assertEquals(20, dict.getFrequency("be capital of"));
+        assertEquals(50, dict.getFrequency("café in"));
+        assertEquals(15, dict.getFrequency("beé at"));
+        assertEquals(0, dict.getFrequency("be"));
+        assertEquals(0, dict.getFrequency("play for the"));
+        assertEquals(0, dict.getFrequency(""));
+    }
+
+    @Test
+    public void testThresholds() throws Exception {
+        RelationDictionary dict = fromText(TEXT);
+        assertTrue(dict.contains("be capital of", 20));
+        assertFalse(dict.contains("be capital of", 21));
+        assertFalse(dict.contains("fly over", 20));
+        assertTrue(dict.contains("fly over", 10));
+        assertFalse(dict.contains("swim across", 0));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        Map<String, Integer> relations = new HashMap<String, Integer>();
+        for (int i = 0; i < 1000; i++) {
+            relations.put("rel " + Integer.toString(i * 7919, 36) + " ü"
+                    + i, i + 1);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RelationDictionary.write(relations, new DataOutputStream(bytes));
+        RelationDictionary dict = RelationDictionary.read(ByteBuffer
+                .wrap(bytes.toByteArray()));
+
+        assertEquals(relations.size(), dict.size());
+        for (Map.Entry<String, Integer> entry : relations.entrySet()) {
+            assertEquals(entry.getValue().intValue(),
+                    dict.getFrequency(entry.getKey()));
+        }
+        assertEquals(0, dict.getFrequency("rel"));
+    }
+}
@@ -0,0 +1,223 @@
+package edu.washington.cs.knowitall.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedArgumentExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
+import edu.washington.cs.knowitall.normalization.NormalizedBinaryExtraction;
+import edu.washington.cs.knowitall.normalization.NormalizedField;
+
+public class BinaryExtractionReaderTest {
+
+    private static NormalizedBinaryExtraction extraction(ChunkedSentence sent,
+            Range arg1Range, Range relRange, String relText, Range arg2Range,
+            double arg2Conf) throws Exception {
+        ChunkedExtraction rel = relText == null ? new ChunkedExtraction(sent,
+                relRange) : new ChunkedExtraction(sent, relRange, relText);
+        ChunkedArgumentExtraction arg1 = new ChunkedArgumentExtraction(sent,
+                arg1Range, rel);
+        ChunkedArgumentExtraction arg2 = new ChunkedArgumentExtraction(sent,
+                arg2Range, rel, arg2Conf);
+        ChunkedBinaryExtraction extr = new ChunkedBinaryExtraction(rel, arg1,
+                arg2);
+        return new NormalizedBinaryExtraction(extr, normalized(arg1),
+                normalized(rel), normalized(arg2));
+    }
+
+    private static NormalizedField normalized(ChunkedExtraction field)
+            throws Exception {
+        String[] tokens = field.getTokens().toArray(new String[0]);
+        tokens[0] = tokens[0].toLowerCase();
+        return new NormalizedField(field, tokens, field.getPosTags().toArray(
+                new String[0]));
+    }
+
+    private static void write(ExtractionSink sink) throws Exception {
+        ChunkedSentence sent1 = new ChunkedSentence(new String[] { "Smith",
+                "was", "born", "in", "Z\u00fcrich", "." }, new String[] { "NNP",
+                "VBD", "VBN", "IN", "NNP", "." }, new String[] { "B-NP", "O",
+                "O", "O", "B-NP", "O" });
+        ChunkedSentence sent2 = new ChunkedSentence(new String[] { "Jones",
+                "invented", "the", "stopwatch" }, new String[] { "NNP", "VBD",
+                "DT", "NN" }, new String[] { "B-NP", "O", "B-NP", "I-NP" });
+        sink.write("doc1", 1, extraction(sent1, new Range(0, 1), new Range(1,
+                3), null, new Range(4, 1), .5), 0.75);
+        sink.write("doc1", 1, extraction(sent1, new Range(0, 1), new Range(1,
+                2), "was born", new Range(4, 1), 0.25), 0.5);
+        sink.write("doc1", 2, extraction(sent2, new Range(0, 1), new Range(1,
+                1), null, new Range(2, 2), .5), 0.125);
+        sink.write("doc2", 1, extraction(sent2, new Range(0, 1), new Range(1,
+                1), "invent", new Range(2, 2), .5), 1.0 / 3);
+    }
+
+    private static byte[] writeBinary() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryExtractionSink sink = new BinaryExtractionSink(bytes);
+        write(sink);
+        sink.close();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testSameAsTsv() throws Exception {
+        StringWriter expected = new StringWriter();
+        TsvExtractionSink tsv = new TsvExtractionSink(expected);
+        write(tsv);
+        tsv.close();
+
+        StringWriter actual = new StringWriter();
+        tsv = new TsvExtractionSink(actual);
+        BinaryExtractionReader reader = new BinaryExtractionReader(
+                new ByteArrayInputStream(writeBinary()));
+        int numSents = 0;
+        SentenceExtractions<NormalizedBinaryExtraction> sentExtrs;
+        while ((sentExtrs = reader.read()) != null) {
+            sentExtrs.writeTo(tsv);
+            numSents++;
+        }
+        reader.close();
+        tsv.close();
+
+        assertEquals(3, numSents);
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void testExtractions() throws Exception {
+        BinaryExtractionReader reader = new BinaryExtractionReader(
+                new ByteArrayInputStream(writeBinary()));
+        SentenceExtractions<NormalizedBinaryExtraction> sentExtrs = reader
+                .read();
+        assertEquals("doc1", sentExtrs.getFileName());
+        assertEquals(1, sentExtrs.getSentenceNumber());
+        assertEquals(Arrays.asList("B-NP", "O", "O", "O", "B-NP", "O"),
+                sentExtrs.getSentence().getChunkTags());
+        NormalizedBinaryExtraction extr = sentExtrs.getExtractions().get(1);
+        assertEquals("was born", extr.getRelation().getText());
+        assertEquals(0.25, extr.getArgument2().getConfidence(), 0);
+        assertEquals(extr.getRelation(), extr.getArgument1().getRelation());
+        assertEquals(0.5, sentExtrs.getConf(1), 0);
+        assertEquals("smith", extr.getArgument1Norm().toString());
+        reader.close();
+    }
+
+    @Test
+    public void testArgumentTextAndConf() throws Exception {
+        ChunkedSentence sent = new ChunkedSentence(new String[] { "Smith",
+                "was", "born", "in", "Zurich" }, new String[] { "NNP", "VBD",
+                "VBN", "IN", "NNP" }, new String[] { "B-NP", "O", "O", "O",
+                "B-NP" });
+        ChunkedExtraction rel = new ChunkedExtraction(sent, new Range(1, 3));
+        ChunkedArgumentExtraction arg1 = new ChunkedArgumentExtraction(sent,
+                new Range(0, 1), rel);
+        ChunkedArgumentExtraction arg2 = new ChunkedArgumentExtraction(sent,
+                new Range(4, 1), rel, "Z\u00fcrich", 0.875);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryExtractionSink sink = new BinaryExtractionSink(bytes);
+        sink.write("doc1", 1, new NormalizedBinaryExtraction(
+                new ChunkedBinaryExtraction(rel, arg1, arg2), normalized(arg1),
+                normalized(rel), normalized(arg2)), 0.75);
+        sink.close();
+
+        BinaryExtractionReader reader = new BinaryExtractionReader(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        ChunkedArgumentExtraction read = reader.read().getExtractions().get(0)
+                .getArgument2();
+        assertEquals("Z\u00fcrich", read.getText());
+        assertEquals(0.875, read.getConfidence(), 0);
+        reader.close();
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BinaryExtractionSink(bytes).close();
+        assertNull(new BinaryExtractionReader(new ByteArrayInputStream(bytes
+                .toByteArray())).read());
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        byte[] bytes = writeBinary();
+        BinaryExtractionReader reader = new BinaryExtractionReader(
+                new ByteArrayInputStream(Arrays.copyOf(bytes,
+                        bytes.length - 3)));
+        try {
+            while (reader.read() != null) {
+            }
+            fail();
+        } catch (IOException e) {
+        }
+    }
+
+    /*
+     * A record whose length is too short to hold its fields is corrupt,
+     * rather than read past its end.
+     */
+    @Test(expected = IOException.class)
+    public void testRecordTooShort() throws Exception {
+        byte[] bytes = writeBinary();
+        int pos = 8;
+        int length = 0;
+        for (int shift = 0;; shift += 7) {
+            int b = bytes[pos++];
+            length |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        ByteArrayOutputStream shortened = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(shortened);
+        out.write(bytes, 0, 8);
+        BinaryExtractionFormat.writeVarInt(out, length - 5);
+        out.write(bytes, pos, length - 5);
+        out.close();
+        new BinaryExtractionReader(new ByteArrayInputStream(shortened
+                .toByteArray())).read();
+    }
+
+    @Test
+    public void testIsBinary() throws Exception {
+        InputStream in = new ByteArrayInputStream(writeBinary());
+        assertTrue(BinaryExtractionReader.isBinary(in));
+        // the stream is left at the start
+        assertEquals(3, countSentences(new BinaryExtractionReader(in)));
+        assertFalse(BinaryExtractionReader.isBinary(new ByteArrayInputStream(
+                "doc1\t1\tSmith".getBytes())));
+        assertFalse(BinaryExtractionReader.isBinary(new ByteArrayInputStream(
+                new byte[0])));
+    }
+
+    private static int countSentences(BinaryExtractionReader reader)
+            throws IOException {
+        int numSents = 0;
+        while (reader.read() != null) {
+            numSents++;
+        }
+        reader.close();
+        return numSents;
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotBinary() throws Exception {
+        new BinaryExtractionReader(new ByteArrayInputStream(
+                "filename\tsentence number".getBytes()));
+    }
+}
@@ -0,0 +1,156 @@
+package edu.washington.cs.knowitall.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.nlp.CachingSentenceChunker;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.ChunkerException;
+import edu.washington.cs.knowitall.nlp.SentenceChunker;
+
+public class ChunkCacheTest {
+
+    private File file;
+
+    /*
+     * Splits sentences on spaces, counting them.
+     */
+    private static class CountingChunker implements SentenceChunker {
+        int numChunked = 0;
+
+        @Override
+        public ChunkedSentence chunkSentence(String sent)
+                throws ChunkerException {
+            numChunked++;
+            String[] tokens = sent.split(" ");
+            String[] tags = new String[tokens.length];
+            Arrays.fill(tags, "O");
+            try {
+                return new ChunkedSentence(tokens, tags, tags);
+            } catch (Exception e) {
+                throw new ChunkerException(e);
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("chunks", ".cache");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static byte[] key(int i) {
+        byte[] key = new byte[ChunkCache.KEY_LENGTH];
+        key[0] = (byte) i;
+        key[ChunkCache.KEY_LENGTH - 1] = (byte) i;
+        return key;
+    }
+
+    private static ChunkedSentence sentence() throws Exception {
+        return new ChunkedSentence(new Range[] { new Range(0, 5),
+                new Range(6, 5) }, new String[] { "Smith", "slept" },
+                new String[] { "NNP", "VBD" }, new String[] { "B-NP", "O" });
+    }
+
+    @Test
+    public void testPutGet() throws Exception {
+        ChunkCache cache = new ChunkCache(file);
+        cache.put(key(1), sentence());
+        assertEquals(sentence().getChunkTags(), cache.get(key(1))
+                .getChunkTags());
+        assertNull(cache.get(key(2)));
+        cache.close();
+
+        cache = new ChunkCache(file);
+        assertEquals(1, cache.size());
+        ChunkedSentence sent = cache.get(key(1));
+        assertEquals(sentence().getTokens(), sent.getTokens());
+        assertEquals(sentence().getPosTags(), sent.getPosTags());
+        assertEquals(sentence().getOffsets(), sent.getOffsets());
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        cache.close();
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        ChunkCache cache = new ChunkCache(file);
+        cache.put(key(1), sentence());
+        cache.put(key(2), sentence());
+        cache.close();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 3);
+        raf.close();
+
+        cache = new ChunkCache(file);
+        assertEquals(1, cache.size());
+        assertNull(cache.get(key(2)));
+        cache.put(key(2), sentence());
+        cache.close();
+        cache = new ChunkCache(file);
+        assertEquals(sentence().getTokens(), cache.get(key(2)).getTokens());
+        cache.close();
+    }
+
+    @Test
+    public void testCorrupt() throws Exception {
+        ChunkCache cache = new ChunkCache(file);
+        cache.put(key(1), sentence());
+        cache.close();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(raf.length() - 8);
+        raf.write('x');
+        raf.close();
+
+        cache = new ChunkCache(file);
+        assertNull(cache.get(key(1)));
+        cache.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testInUse() throws Exception {
+        ChunkCache cache = new ChunkCache(file);
+        try {
+            new ChunkCache(file);
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testCachingSentenceChunker() throws Exception {
+        CountingChunker chunker = new CountingChunker();
+        ChunkCache cache = new ChunkCache(file);
+        SentenceChunker caching = new CachingSentenceChunker(chunker, cache,
+                "v1");
+        caching.chunkSentence("Smith slept");
+        ChunkedSentence sent = caching.chunkSentence("Smith slept");
+        assertEquals(Arrays.asList("Smith", "slept"), sent.getTokens());
+        assertEquals(1, chunker.numChunked);
+        caching.chunkSentence("Jones slept");
+        assertEquals(2, chunker.numChunked);
+
+        // another version of the models chunks the sentences again
+        caching = new CachingSentenceChunker(chunker, cache, "v2");
+        caching.chunkSentence("Smith slept");
+        assertEquals(3, chunker.numChunked);
+        assertSame(cache, ((CachingSentenceChunker) caching).getCache());
+        cache.close();
+    }
+}
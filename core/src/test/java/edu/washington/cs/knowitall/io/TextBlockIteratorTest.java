@@ -0,0 +1,116 @@
+package edu.washington.cs.knowitall.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class TextBlockIteratorTest {
+
+    /*
+     * How TextBlockIterator used to build blocks, one line at a time.
+     */
+    private static List<String> oldBlocks(Iterator<String> lineIter,
+            String blockBreak, int maxBlockSize) {
+        List<String> blocks = new ArrayList<String>();
+        while (lineIter.hasNext()) {
+            String line = lineIter.next().replaceAll("\\xa0", " ").trim();
+            StringBuffer buf = new StringBuffer(line).append(" ");
+            int linesRead = 0;
+            while (lineIter.hasNext() && !line.equals(blockBreak)
+                    && linesRead < maxBlockSize) {
+                line = lineIter.next().replaceAll("\\xa0", " ").trim();
+                buf.append(line).append(" ");
+                linesRead++;
+            }
+            blocks.add(buf.toString().trim());
+        }
+        return blocks;
+    }
+
+    private static List<String> lines(String text) {
+        List<String> lines = new ArrayList<String>();
+        Iterator<String> it = new BufferedReaderIterator(new StringReader(
+                text));
+        while (it.hasNext()) {
+            lines.add(it.next());
+        }
+        return lines;
+    }
+
+    private static List<String> newBlocks(TextBlockReader reader)
+            throws Exception {
+        List<String> blocks = new ArrayList<String>();
+        CharSequence block;
+        while ((block = reader.readBlock()) != null) {
+            blocks.add(block.toString());
+        }
+        return blocks;
+    }
+
+    @Test
+    public void testBlocks() {
+        String text = "  First\u00a0line \r\nsecond line\n\n\n"
+                + "\u00a0\t\nthird\rfourth\r\n";
+        assertEquals(Arrays.asList("First line second line", "", "",
+                "third fourth"), Lists.newArrayList(new TextBlockIterator(
+                new BufferedReader(new StringReader(text)))));
+        assertEquals(Arrays.asList("a b <p>", "c"),
+                Lists.newArrayList(new TextBlockIterator(Arrays.asList("a",
+                        "b", " <p> ", "c"), "<p>")));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertNull(new TextBlockReader(new StringReader("")).readBlock());
+        assertEquals(Arrays.asList(""), Lists.newArrayList(
+                new TextBlockIterator(new BufferedReader(new StringReader(
+                        "\n")))));
+    }
+
+    @Test
+    public void testLongLines() throws Exception {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            line.append("w").append(i % 10).append(' ');
+        }
+        String text = line + "\n\n" + line + "\r" + line;
+        assertEquals(oldBlocks(lines(text).iterator(), "", 10000),
+                newBlocks(new TextBlockReader(new StringReader(text))));
+    }
+
+    @Test
+    public void testSameAsLineByLine() throws Exception {
+        String[] pieces = { "word", " ", "\t", "\u00a0", "\n", "\r", "\r\n",
+                "\n\n", "<p>", "\u0001", "." };
+        Random random = new Random(0);
+        for (int n = 0; n < 2000; n++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int i = 0; i < length; i++) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            String blockBreak = random.nextBoolean() ? "" : "<p>";
+            int maxBlockSize = random.nextInt(4);
+            List<String> lines = lines(text.toString());
+
+            List<String> expected = oldBlocks(lines.iterator(), blockBreak,
+                    maxBlockSize);
+            assertEquals(expected, newBlocks(new TextBlockReader(
+                    new StringReader(text.toString()), blockBreak,
+                    maxBlockSize + 1)));
+            assertEquals(expected, newBlocks(new TextBlockReader(
+                    lines.iterator(), blockBreak, maxBlockSize + 1)));
+        }
+    }
+}
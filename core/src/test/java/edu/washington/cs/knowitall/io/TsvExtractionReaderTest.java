@@ -0,0 +1,145 @@
+package edu.washington.cs.knowitall.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.io.TsvExtractionSink.Column;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedArgumentExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
+
+public class TsvExtractionReaderTest {
+
+    private static ChunkedBinaryExtraction extraction(ChunkedSentence sent,
+            Range arg1Range, Range relRange, String relText, Range arg2Range) {
+        ChunkedExtraction rel = relText == null ? new ChunkedExtraction(sent,
+                relRange) : new ChunkedExtraction(sent, relRange, relText);
+        return new ChunkedBinaryExtraction(rel, new ChunkedArgumentExtraction(
+                sent, arg1Range, rel), new ChunkedArgumentExtraction(sent,
+                arg2Range, rel));
+    }
+
+    private static String writeTsv() throws Exception {
+        ChunkedSentence sent1 = new ChunkedSentence(new String[] { "Smith",
+                "was", "born", "in", "Paris", "." }, new String[] { "NNP",
+                "VBD", "VBN", "IN", "NNP", "." }, new String[] { "B-NP", "O",
+                "O", "O", "B-NP", "O" });
+        ChunkedSentence sent2 = new ChunkedSentence(new String[] { "Jones",
+                "invented", "the", "stopwatches" }, new String[] { "NNP",
+                "VBD", "DT", "NNS" }, new String[] { "B-NP", "O", "B-NP",
+                "I-NP" });
+        StringWriter out = new StringWriter();
+        TsvExtractionSink sink = new TsvExtractionSink(out);
+        sink.write("doc1", 1, extraction(sent1, new Range(0, 1), new Range(1,
+                3), null, new Range(4, 1)), 0.75);
+        sink.write("doc1", 1, extraction(sent1, new Range(0, 1), new Range(1,
+                2), "was born", new Range(4, 1)), 0.5);
+        sink.write("doc1", 2, extraction(sent2, new Range(0, 1), new Range(1,
+                1), null, new Range(2, 2)), 0.125);
+        sink.write("doc2", 1, extraction(sent2, new Range(0, 1), new Range(1,
+                1), "invent", new Range(2, 2)), 1.0 / 3);
+        sink.close();
+        return out.toString();
+    }
+
+    @Test
+    public void testSameAsTsv() throws Exception {
+        String tsv = writeTsv();
+        StringWriter out = new StringWriter();
+        TsvExtractionSink sink = new TsvExtractionSink(out);
+        TsvExtractionReader reader = new TsvExtractionReader(new StringReader(
+                tsv));
+        int numSents = 0;
+        SentenceExtractions<ChunkedBinaryExtraction> sentExtrs;
+        while ((sentExtrs = reader.read()) != null) {
+            sentExtrs.writeTo(sink);
+            numSents++;
+        }
+        reader.close();
+        sink.close();
+
+        assertEquals(3, numSents);
+        assertEquals(tsv, out.toString());
+    }
+
+    @Test
+    public void testExtractions() throws Exception {
+        TsvExtractionReader reader = new TsvExtractionReader(new StringReader(
+                writeTsv()));
+        SentenceExtractions<ChunkedBinaryExtraction> sentExtrs = reader
+                .read();
+        assertEquals("doc1", sentExtrs.getFileName());
+        assertEquals(1, sentExtrs.getSentenceNumber());
+        assertEquals(Arrays.asList("B-NP", "O", "O", "O", "B-NP", "O"),
+                sentExtrs.getSentence().getChunkTags());
+        assertEquals(2, sentExtrs.getExtractions().size());
+        ChunkedBinaryExtraction extr = sentExtrs.getExtractions().get(1);
+        assertSame(sentExtrs.getSentence(), extr.getSentence());
+        assertEquals("was born", extr.getRelation().getText());
+        assertEquals(new Range(4, 1), extr.getArgument2().getRange());
+        assertEquals(extr.getRelation(), extr.getArgument1().getRelation());
+        assertEquals(0.5, sentExtrs.getConf(1), 0);
+
+        // the same words in another file are another sentence
+        assertEquals(2, reader.read().getSentenceNumber());
+        assertEquals("doc2", reader.read().getFileName());
+        assertNull(reader.read());
+        reader.close();
+    }
+
+    @Test
+    public void testSelectedColumns() throws Exception {
+        StringBuilder tsv = new StringBuilder();
+        for (String line : writeTsv().split("\n")) {
+            String[] row = line.split("\t");
+            tsv.append(row[0] + "\t" + row[1] + "\t" + row[4] + "\t"
+                    + row[5] + "\t" + row[6] + "\t" + row[7] + "\t" + row[8]
+                    + "\t" + row[9] + "\t" + row[10] + "\t" + row[12] + "\t"
+                    + row[13] + "\t" + row[14] + "\n");
+        }
+        TsvExtractionReader reader = new TsvExtractionReader(new StringReader(
+                tsv.toString()), Column
+                .parseList("1,2,5,6,7,8,9,10,11,13,14,15"));
+        SentenceExtractions<ChunkedBinaryExtraction> sentExtrs = reader
+                .read();
+        ChunkedBinaryExtraction extr = sentExtrs.getExtractions().get(1);
+        assertEquals("was born", extr.getRelation().getText());
+        assertEquals("Paris", extr.getArgument2().getText());
+        assertEquals(0, sentExtrs.getConf(0), 0);
+        reader.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingColumn() {
+        new TsvExtractionReader(new StringReader(""), Column
+                .parseList("arg1,rel,arg2,conf"));
+    }
+
+    @Test
+    public void testMalformed() throws Exception {
+        String tsv = writeTsv();
+        try {
+            new TsvExtractionReader(new StringReader(tsv.replace("\t0.75\t",
+                    "\t"))).read();
+            fail();
+        } catch (IOException e) {
+        }
+        try {
+            new TsvExtractionReader(new StringReader(tsv.replace(
+                    "doc1\t1\tSmith", "doc1\tone\tSmith"))).read();
+            fail();
+        } catch (IOException e) {
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package edu.washington.cs.knowitall.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.washington.cs.knowitall.commonlib.Range;
+import edu.washington.cs.knowitall.io.TsvExtractionSink.Column;
+import edu.washington.cs.knowitall.nlp.ChunkedSentence;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedArgumentExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedBinaryExtraction;
+import edu.washington.cs.knowitall.nlp.extraction.ChunkedExtraction;
+import edu.washington.cs.knowitall.normalization.BinaryExtractionNormalizer;
+import edu.washington.cs.knowitall.normalization.NormalizedBinaryExtraction;
+import edu.washington.cs.knowitall.normalization.NormalizedField;
+
+public class TsvExtractionSinkTest {
+
+    /*
+     * Fails if a field is normalized.
+     */
+    private static class NoNormalizer extends BinaryExtractionNormalizer {
+        @Override
+        public NormalizedField normalizeArgument(ChunkedExtraction arg) {
+            throw new AssertionError("normalized " + arg);
+        }
+
+        @Override
+        public NormalizedField normalizeRelation(ChunkedExtraction rel) {
+            throw new AssertionError("normalized " + rel);
+        }
+    }
+
+    /*
+     * Counts the fields it normalizes.
+     */
+    private static class CountingNormalizer extends BinaryExtractionNormalizer {
+        int numArgs = 0;
+        int numRels = 0;
+
+        @Override
+        public NormalizedField normalizeArgument(ChunkedExtraction arg) {
+            numArgs++;
+            return super.normalizeArgument(arg);
+        }
+
+        @Override
+        public NormalizedField normalizeRelation(ChunkedExtraction rel) {
+            numRels++;
+            return super.normalizeRelation(rel);
+        }
+    }
+
+    private static ChunkedBinaryExtraction extraction() throws Exception {
+        ChunkedSentence sent = new ChunkedSentence(new String[] { "Jones",
+                "invented", "the", "stopwatches" }, new String[] { "NNP",
+                "VBD", "DT", "NNS" }, new String[] { "B-NP", "O", "B-NP",
+                "I-NP" });
+        ChunkedExtraction rel = new ChunkedExtraction(sent, new Range(1, 1));
+        return new ChunkedBinaryExtraction(rel, new ChunkedArgumentExtraction(
+                sent, new Range(0, 1), rel), new ChunkedArgumentExtraction(
+                sent, new Range(2, 2), rel));
+    }
+
+    private static String write(String columns,
+            BinaryExtractionNormalizer normalizer) throws Exception {
+        StringWriter out = new StringWriter();
+        TsvExtractionSink sink = new TsvExtractionSink(out,
+                Column.parseList(columns), normalizer);
+        sink.write("doc", 3, extraction(), 0.5);
+        sink.close();
+        return out.toString().trim();
+    }
+
+    @Test
+    public void testAllColumns() throws Exception {
+        StringWriter out = new StringWriter();
+        TsvExtractionSink sink = new TsvExtractionSink(out);
+        sink.write("doc", 3, extraction(), 0.5);
+        sink.close();
+        assertEquals("doc\t3\tJones\tinvented\tthe stopwatches\t0\t1\t1\t2"
+                + "\t2\t4\t0.5\tJones invented the stopwatches"
+                + "\tNNP VBD DT NNS\tB-NP O B-NP I-NP\tjones\tinvent"
+                + "\tthe stopwatches", out.toString().trim());
+    }
+
+    @Test
+    public void testSelectedColumns() throws Exception {
+        assertEquals("the stopwatches\tJones\t0.5", write("arg2,arg1,conf",
+                new NoNormalizer()));
+        assertEquals("doc\t3\tB-NP O B-NP I-NP", write(
+                "1, sentence-number,Sentence_Chunk_Tags", new NoNormalizer()));
+        assertEquals("invented\tinvent", write("rel,rel_normalized",
+                new BinaryExtractionNormalizer()));
+    }
+
+    /*
+     * The fields are normalized ahead of the sink, as CommandLineReVerb does
+     * in its threads, but only those with selected columns.
+     */
+    @Test
+    public void testNormalizeSelected() throws Exception {
+        List<Column> columns = Column.parseList("arg1,rel,arg2,conf,"
+                + "rel_normalized");
+        CountingNormalizer normalizer = new CountingNormalizer();
+        NormalizedBinaryExtraction extr = normalizer.normalize(extraction(),
+                columns.contains(Column.ARG1_NORMALIZED), columns
+                        .contains(Column.REL_NORMALIZED), columns
+                        .contains(Column.ARG2_NORMALIZED));
+        StringWriter out = new StringWriter();
+        TsvExtractionSink sink = new TsvExtractionSink(out, columns,
+                normalizer);
+        sink.write("doc", 3, extr, 0.5);
+        sink.close();
+        assertEquals("Jones\tinvented\tthe stopwatches\t0.5\tinvent", out
+                .toString().trim());
+        assertEquals(0, normalizer.numArgs);
+        assertEquals(1, normalizer.numRels);
+    }
+
+    @Test
+    public void testParseList() {
+        assertEquals(Arrays.asList(Column.ARG1, Column.REL_NORMALIZED,
+                Column.FILENAME), Column.parseList("3,rel normalized,1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownColumn() {
+        Column.parseList("arg1,arg3");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testColumnOutOfRange() {
+        Column.parseList("19");
+    }
+}
@@ -6,6 +6,13 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -60,4 +67,78 @@ public class ChunkedDocumentReaderTest {
         assertEquals(2, doc.getSentences().size());
     }
 
+    private static List<String> tokens(Iterable<ChunkedSentence> sents) {
+        List<String> tokens = new ArrayList<String>();
+        for (ChunkedSentence sent : sents) {
+            tokens.add(sent.getTokensAsString() + "/"
+                    + sent.getChunkTagsAsString());
+        }
+        return tokens;
+    }
+
+    private static List<ChunkedSentence> sentences(
+            Iterator<ChunkedDocumentSentence> it, String id) {
+        List<ChunkedSentence> sents = new ArrayList<ChunkedSentence>();
+        while (it.hasNext()) {
+            ChunkedDocumentSentence sent = it.next();
+            assertEquals(id, sent.getDocumentId());
+            assertEquals(sents.size() + 1, sent.getSentenceNumber());
+            sents.add(sent.getSentence());
+        }
+        return sents;
+    }
+
+    @Test
+    public void testReadSentences() throws Exception {
+        ChunkedDocument doc = reader.readDocument(docStr, "myDoc");
+        assertEquals(tokens(doc), tokens(sentences(reader.readSentences(
+                docStream, "myDoc"), "myDoc")));
+
+        File temp = folder.newFile("tmp");
+        FileWriter w = new FileWriter(temp);
+        w.write(docStr);
+        w.close();
+        assertEquals(tokens(doc), tokens(sentences(reader.readSentences(temp),
+                temp.getAbsolutePath())));
+    }
+
+    private static String longDocument() {
+        StringBuilder longDoc = new StringBuilder("<html><body>");
+        for (int i = 0; i < 50; i++) {
+            longDoc.append("<p>Paragraph ").append(i).append(
+                    " was written by Smith. It was read by many people in Seattle.</p>\n");
+        }
+        return longDoc.append("</body></html>").toString();
+    }
+
+    @Test
+    public void testReadLongDocumentInputStream() throws Exception {
+        String longDoc = longDocument();
+        assertEquals(tokens(reader.readDocument(longDoc, "long")),
+                tokens(reader.readDocument(new ByteArrayInputStream(longDoc
+                        .getBytes()), "long")));
+    }
+
+    @Test
+    public void testReadSentencesInParallel() throws Exception {
+        String longDoc = longDocument();
+        List<String> expected = tokens(sentences(reader.readSentences(
+                new StringReader(longDoc), "long"), "long"));
+        assertEquals(100, expected.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ChunkedDocumentReader parallelReader = new ChunkedDocumentReader();
+            parallelReader.setParallelChunkers(executor, Arrays.asList(
+                    new OpenNlpSentenceChunker(), new OpenNlpSentenceChunker()));
+            assertEquals(expected, tokens(sentences(parallelReader
+                    .readSentences(new StringReader(longDoc),
+                            "long"), "long")));
+            assertEquals(expected, tokens(parallelReader.readDocument(
+                    longDoc, "long")));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
 }
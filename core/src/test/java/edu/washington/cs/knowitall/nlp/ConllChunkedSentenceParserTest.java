@@ -0,0 +1,54 @@
+package edu.washington.cs.knowitall.nlp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.ParseException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ConllChunkedSentenceParserTest {
+
+    @Test
+    public void testParseSentence() throws Exception {
+        String sentStr = "JFK NNP B-NP\n" + "was VBD B-VP\n"
+                + "elected\tVBN\tI-VP\n" + "president NN B-NP O\n"
+                + "of IN B-PP\n" + "the DT B-NP\n" + "club NN I-NP\n"
+                + ". . O\n";
+        ConllChunkedSentenceParser parser = new ConllChunkedSentenceParser();
+        ChunkedSentence sent = parser.parseSentence(sentStr);
+        assertEquals(Arrays.asList("JFK", "was", "elected", "president",
+                "of", "the", "club", "."), sent.getTokens());
+        assertEquals(Arrays.asList("NNP", "VBD", "VBN", "NN", "IN", "DT",
+                "NN", "."), sent.getPosTags());
+        assertEquals(Arrays.asList("B-NP", "B-VP", "I-VP", "B-NP", "I-NP",
+                "I-NP", "I-NP", "O"), sent.getChunkTags());
+
+        parser.attachOfs(false);
+        sent = parser.parseSentence(sentStr);
+        assertEquals(Arrays.asList("B-NP", "B-VP", "I-VP", "B-NP", "O",
+                "B-NP", "I-NP", "O"), sent.getChunkTags());
+    }
+
+    @Test
+    public void testIob1() throws Exception {
+        ChunkedSentence sent = new ConllChunkedSentenceParser()
+                .parseSentence("-DOCSTART- -X- O\n\nSmith NNP I-NP\n"
+                        + "slept VBD I-VP\n" + "today NN I-NP\n"
+                        + "tonight NN B-NP\n");
+        assertEquals(Arrays.asList("Smith", "slept", "today", "tonight"),
+                sent.getTokens());
+        assertEquals(Arrays.asList("B-NP", "B-VP", "B-NP", "B-NP"), sent
+                .getChunkTags());
+    }
+
+    @Test(expected = ParseException.class)
+    public void testMissingColumn() throws Exception {
+        new ConllChunkedSentenceParser().parseSentence("JFK NNP B-NP\nwas VBD\n");
+    }
+
+    @Test(expected = ParseException.class)
+    public void testEmpty() throws Exception {
+        new ConllChunkedSentenceParser().parseSentence("\n");
+    }
+}
@@ -44,4 +44,20 @@ public class OpenNlpChunkedSentenceParserTest {
 
     }
 
+    @Test
+    public void testBracketsAndSpaces() throws Exception {
+        String sentStr = "[NP Smith/NNP ]  [VP said/VBD] [/-LRB- [NP it/PRP] ]/-RRB- ";
+        ChunkedSentence sent = new OpenNlpChunkedSentenceParser()
+                .parseSentence(sentStr);
+        assertArrayEquals(new String[] { "Smith", "said", "[", "it", "]" },
+                sent.getTokens().toArray());
+        assertArrayEquals(new String[] { "B-NP", "B-VP", "O", "B-NP", "O" },
+                sent.getChunkTags().toArray());
+    }
+
+    @Test(expected = java.text.ParseException.class)
+    public void testMissingTag() throws Exception {
+        new OpenNlpChunkedSentenceParser().parseSentence("[NP Smith] slept/VBD");
+    }
+
 }
@@ -0,0 +1,54 @@
+package edu.washington.cs.knowitall.nlp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.washington.cs.knowitall.nlp.PreChunkedSentenceReader.Format;
+
+public class PreChunkedSentenceReaderTest {
+
+    private static List<String> readTokens(String input, Format format) {
+        List<String> sents = new ArrayList<String>();
+        for (ChunkedSentence sent : new PreChunkedSentenceReader(
+                new BufferedReader(new StringReader(input)), format)) {
+            sents.add(sent.getTokensAsString());
+        }
+        return sents;
+    }
+
+    @Test
+    public void testOpenNlp() {
+        String input = "[NP JFK/NNP] [VP was/VBD elected/VBN] ./.\n" + "\n"
+                + "malformed\n" + "[NP He/PRP ] [VP won/VBD] ./.\n";
+        List<String> expected = new ArrayList<String>();
+        expected.add("JFK was elected .");
+        expected.add("He won .");
+        assertEquals(expected, readTokens(input, Format.OPENNLP));
+    }
+
+    @Test
+    public void testConll() throws Exception {
+        String input = "-DOCSTART- -X- O\n" + "\n" + "JFK NNP B-NP\n"
+                + "won VBD B-VP\n" + "\n" + "\n" + "He PRP B-NP\n"
+                + "-DOCSTART- -X- O\n" + "She PRP B-NP\n" + "won VBD B-VP";
+        List<String> expected = new ArrayList<String>();
+        expected.add("JFK won");
+        expected.add("He");
+        expected.add("She won");
+        assertEquals(expected, readTokens(input, Format.CONLL));
+
+        PreChunkedSentenceReader reader = new PreChunkedSentenceReader(
+                new BufferedReader(new StringReader(input)), Format.CONLL);
+        assertEquals("JFK NNP B-NP\nwon VBD B-VP\n", reader.readSentence());
+        reader.readSentence();
+        reader.readSentence();
+        assertNull(reader.readSentence());
+    }
+}
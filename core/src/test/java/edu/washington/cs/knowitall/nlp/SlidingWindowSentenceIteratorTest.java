@@ -0,0 +1,96 @@
+package edu.washington.cs.knowitall.nlp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Random;
+
+import opennlp.tools.sentdetect.SentenceDetector;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import edu.washington.cs.knowitall.util.DefaultObjects;
+
+public class SlidingWindowSentenceIteratorTest {
+
+    private static SentenceDetector detector;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        detector = DefaultObjects.getDefaultSentenceDetector();
+    }
+
+    private static final String[] WORDS = { "the", "Mr.", "Smith", "went",
+            "to", "Washington", "D.C.", "in", "1999.", "He", "said", "\"no.\"",
+            "U.S.", "3.5", "e.g.", "It", "rained!", "Why?", "...", "(see",
+            "p.", "4).", "Dr.", "a", "b.", "etc.", "Yes?!", "-" };
+    private static final String[] SPACES = { " ", " ", " ", "  ", "\t", "\n",
+            "\u00a0" };
+
+    private static String randomText(Random random, int numWords) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < numWords; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            text.append(SPACES[random.nextInt(SPACES.length)]);
+        }
+        return text.toString();
+    }
+
+    private static void assertSameSentences(String text, int windowSize) {
+        assertEquals(Arrays.asList(detector.sentDetect(text)),
+                Lists.newArrayList(new SlidingWindowSentenceIterator(detector,
+                        text, windowSize)));
+        assertEquals(Arrays.asList(detector.sentDetect(text)),
+                Lists.newArrayList(new SlidingWindowSentenceIterator(detector,
+                        new TrickleReader(text), windowSize)));
+    }
+
+    /*
+     * Returns a few characters from each read.
+     */
+    private static class TrickleReader extends Reader {
+        private final Reader in;
+
+        TrickleReader(String text) {
+            this.in = new StringReader(text);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return in.read(cbuf, off, Math.min(len, 7));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void testSameAsWholeText() {
+        Random random = new Random(0);
+        for (int i = 0; i < 200; i++) {
+            String text = randomText(random, random.nextInt(300));
+            for (int windowSize : new int[] { 1, 20, 100, 1000 }) {
+                assertSameSentences(text, windowSize);
+            }
+        }
+    }
+
+    @Test
+    public void testEdges() {
+        assertSameSentences("", 10);
+        assertSameSentences("   ", 10);
+        assertSameSentences(" One. Two. ", 1);
+        StringBuilder longSentence = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longSentence.append("word ");
+        }
+        assertSameSentences("First. " + longSentence + ". Last.", 50);
+    }
+}
@@ -0,0 +1,70 @@
+package edu.washington.cs.knowitall.normalization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import edu.washington.cs.knowitall.morpha.MorphaStemmer;
+
+public class StemCacheTest {
+
+    private static class CountingStemCache extends StemCache {
+        final AtomicInteger computed = new AtomicInteger();
+
+        CountingStemCache(int maximumSize) {
+            super(maximumSize);
+        }
+
+        @Override
+        protected String computeStem(String token, String posTag) {
+            computed.incrementAndGet();
+            if (token.equals("fail")) {
+                throw new IllegalStateException();
+            } else if (token.equals("unknown")) {
+                return null;
+            }
+            return token + "/" + posTag;
+        }
+    }
+
+    @Test
+    public void testStemsAreComputedOnce() {
+        CountingStemCache cache = new CountingStemCache(100);
+        assertEquals("shoes/NNS", cache.stem("Shoes", "NNS"));
+        assertEquals("shoes/NNS", cache.stem("shoes", "NNS"));
+        assertEquals("shoes/VBZ", cache.stem("shoes", "VBZ"));
+        assertEquals(2, cache.computed.get());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(2, cache.stats().missCount());
+    }
+
+    @Test
+    public void testFailuresAndNulls() {
+        CountingStemCache cache = new CountingStemCache(100);
+        assertEquals("fail", cache.stem("FAIL", "NN"));
+        assertNull(cache.stem("unknown", "NN"));
+        assertNull(cache.stem("unknown", "NN"));
+        assertEquals(2, cache.computed.get());
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        CountingStemCache cache = new CountingStemCache(10);
+        for (int i = 0; i < 1000; i++) {
+            cache.stem("token" + i, "NN");
+        }
+        assertTrue(cache.size() <= 10);
+    }
+
+    @Test
+    public void testSharedCachesStemLikeMorpha() {
+        assertEquals("shoe", StemCache.morpha().stem("shoes", "NNS"));
+        assertEquals("be", StemCache.morpha().stem("Was", "VBD"));
+        assertEquals(MorphaStemmer.stemToken("running", "VBG"), StemCache
+                .morphaStemmer().stem("Running", "VBG"));
+    }
+}
@@ -62,4 +62,21 @@ public class VerbalRelationNormalizerTest {
 		assertNorm("be source of", "is an excellent source of", "VBZ DT JJ NN IN");
 	}
 
+	@Test
+	public void testNormalizedExtractionsAreRemembered() throws Exception {
+		List<String> tokens = Arrays.asList("are high in".split(" "));
+		List<String> posTags = Arrays.asList("VBZ JJ IN".split(" "));
+		List<String> npChunkTags = Arrays.asList("O O O".split(" "));
+		ChunkedSentence sent = new ChunkedSentence(tokens, posTags, npChunkTags);
+		ChunkedExtraction extr = new ChunkedExtraction(sent, new Range(0, 3));
+
+		VerbalRelationNormalizer stripping = new VerbalRelationNormalizer();
+		stripping.stripBeAdj(true);
+
+		NormalizedField normField = extr.getNormalized(normalizer);
+		assertEquals("be high in", normField.toString());
+		assertSame(normField, extr.getNormalized(normalizer));
+		assertEquals("be in", extr.getNormalized(stripping).toString());
+	}
+
 }
\ No newline at end of file
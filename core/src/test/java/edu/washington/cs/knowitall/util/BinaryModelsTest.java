@@ -0,0 +1,78 @@
+package edu.washington.cs.knowitall.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BinaryModelsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private URL writeSource(String contents) throws IOException {
+        File file = new File(folder.getRoot(), "model");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(contents.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return file.toURI().toURL();
+    }
+
+    private URL writeBinary(int version, long sourceKey)
+            throws IOException {
+        File file = new File(folder.getRoot(), "model" + BinaryModels.SUFFIX);
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            out.writeInt(BinaryModels.MAGIC);
+            out.writeInt(version);
+            BinaryModels.writeString(out, "test");
+            out.writeLong(sourceKey);
+        } finally {
+            out.close();
+        }
+        return file.toURI().toURL();
+    }
+
+    @Test
+    public void testUpToDate() throws IOException {
+        URL source = writeSource("weights");
+        URL binary = writeBinary(BinaryModels.VERSION,
+                BinaryModels.sourceKey(source));
+        assertTrue(BinaryModels.isUpToDate(binary, source));
+        assertTrue(BinaryModels.isUpToDate(binary, null));
+    }
+
+    @Test
+    public void testSourceChanged() throws IOException {
+        URL binary = writeBinary(BinaryModels.VERSION,
+                BinaryModels.sourceKey(writeSource("weights")));
+        URL source = writeSource("new weights");
+        assertFalse(BinaryModels.isUpToDate(binary, source));
+    }
+
+    @Test
+    public void testNoSource() throws IOException {
+        URL source = writeSource("weights");
+        URL binary = writeBinary(BinaryModels.VERSION, BinaryModels.NO_SOURCE);
+        assertTrue(BinaryModels.isUpToDate(binary, source));
+    }
+
+    @Test
+    public void testOldVersion() throws IOException {
+        URL source = writeSource("weights");
+        URL binary = writeBinary(BinaryModels.VERSION - 1,
+                BinaryModels.sourceKey(source));
+        assertFalse(BinaryModels.isUpToDate(binary, source));
+    }
+}
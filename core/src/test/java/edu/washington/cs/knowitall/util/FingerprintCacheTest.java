@@ -0,0 +1,61 @@
+package edu.washington.cs.knowitall.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.washington.cs.knowitall.extractor.mapper.DuplicateSentenceFilter;
+
+public class FingerprintCacheTest {
+
+    @Test
+    public void testFingerprint() {
+        assertEquals(FingerprintCache.fingerprint("A sentence."),
+                FingerprintCache.fingerprint(new String("A sentence.")));
+        assertFalse(FingerprintCache.fingerprint("A sentence.") == FingerprintCache
+                .fingerprint("A sentence!"));
+    }
+
+    @Test
+    public void testGetCountsHitsAndMisses() {
+        FingerprintCache<String> cache = new FingerprintCache<String>(100);
+        assertNull(cache.get(1L));
+        cache.put(1L, "one");
+        assertEquals("one", cache.get(1L));
+        assertEquals("one", cache.putIfAbsent(1L, "uno"));
+        assertEquals("one", cache.get(1L));
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        // the fingerprints fall in the same segment, which holds 2 of them
+        FingerprintCache<String> cache = new FingerprintCache<String>(32);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.get(1L);
+        cache.put(3L, "three");
+        assertEquals("one", cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals("three", cache.get(3L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new FingerprintCache<String>(0);
+    }
+
+    @Test
+    public void testDuplicateSentenceFilter() {
+        DuplicateSentenceFilter filter = new DuplicateSentenceFilter(100);
+        assertTrue(filter.doFilter("Home | About | Contact"));
+        assertTrue(filter.doFilter("Obama was born in Hawaii."));
+        assertFalse(filter.doFilter("Home | About | Contact"));
+        assertEquals(1, filter.getNumDuplicates());
+        assertEquals(2, filter.getNumKept());
+    }
+}
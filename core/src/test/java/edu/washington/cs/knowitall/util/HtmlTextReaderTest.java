@@ -0,0 +1,154 @@
+package edu.washington.cs.knowitall.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.junit.Test;
+
+public class HtmlTextReaderTest {
+
+    private static final String[] BREAK_TAGS = { "blockquote", "br",
+            "center", "dd", "div", "dt", "fieldset", "h\\d", "hr", "img",
+            "input", "isindex", "li", "noframes", "noscript", "p", "pre", "q",
+            "table", "td", "textarea", "th", "xmp" };
+    private static final String[] REMOVE_TAGS = { "applet", "form", "head",
+            "iframe", "legend", "map", "object", "script", "select", "style",
+            "title" };
+
+    /*
+     * The regular expressions HtmlUtils used to remove HTML with, one pass
+     * over the whole document after another.
+     */
+    private static String removeHtmlWithRegexes(String content) {
+        content = content.replaceAll("\\s+", " ");
+        for (String tag : REMOVE_TAGS) {
+            content = Pattern.compile(
+                    "(?is)<" + tag + "[^<]*?>.*?</" + tag + ">")
+                    .matcher(content).replaceAll("\n");
+        }
+        for (String tag : REMOVE_TAGS) {
+            content = Pattern.compile("(?i)</?" + tag + "[^<]*?>")
+                    .matcher(content).replaceAll("\n");
+        }
+        for (String tag : BREAK_TAGS) {
+            content = Pattern.compile("(?i)</?" + tag + "[^<]*?>")
+                    .matcher(content).replaceAll("\n");
+        }
+        content = content.replaceAll("<[^<]*?>", "");
+        content = StringEscapeUtils.unescapeCsv(content);
+        content = content.replaceAll("  +", " ");
+        content = content.replaceAll("\n\n+", "\n");
+        return content.replace(';', '\n');
+    }
+
+    private static String read(String html, int chunk) throws Exception {
+        HtmlTextReader in = new HtmlTextReader(new StringReader(html));
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[chunk];
+        int n;
+        while ((n = in.read(buffer, 0, chunk)) != -1) {
+            text.append(buffer, 0, n);
+        }
+        in.close();
+        return text.toString();
+    }
+
+    @Test
+    public void testExamples() throws Exception {
+        String[] examples = {
+                "<html><HEAD><title>x</title></head><body><H1>Title</h1>\n\n"
+                        + " <p class=\"a\">Some <b>text</b>  here.</p><br/>"
+                        + "<br/>Another line;<script>var x = '<p>';</script>"
+                        + " b</body></html>",
+                "<table><tr><td>1</td> <td>2</td></tr></table>",
+                "a < b and c", "a < b and c > d", "a < b <p> c > d",
+                "<p <script>x</script> > y", "<<p>>", "" };
+        for (String html : examples) {
+            assertEquals(html, removeHtmlWithRegexes(html), HtmlUtils
+                    .removeHtml(html));
+        }
+        assertEquals("a\n", HtmlUtils.removeHtml("a<ScRiPt>x</SCRIPT>"));
+        assertEquals("\nstill here\n and here", HtmlUtils
+                .removeHtml("<style>still here<p> and here"));
+    }
+
+    /*
+     * A quoted document is unquoted as a CSV field before semicolons become
+     * line breaks, so "a;b" keeps its quotes.
+     */
+    @Test
+    public void testQuoted() throws Exception {
+        String[] examples = { "\"a;b\"", "\"a  ;  b\"", "\"a,  b;c\"",
+                "\"a  \"\"b\"\"   c\"", "\"a<p>b\"", "\"a<b>;</b>b\"",
+                "\"<p>\"", "\";\"", "\"\"", "\"", "\"a\"  ", "  \"a,b\"",
+                "\"a,b\";" };
+        for (String html : examples) {
+            assertEquals(html, removeHtmlWithRegexes(html), HtmlUtils
+                    .removeHtml(html));
+            assertEquals(html, removeHtmlWithRegexes(html), read(html, 1));
+        }
+        assertEquals("\"a\nb\"", HtmlUtils.removeHtml("\"a;b\""));
+        assertEquals("a, b\nc", HtmlUtils.removeHtml("\"a,  b;c\""));
+    }
+
+    /*
+     * Random documents without tags nested in unfinished tags, like
+     * <p<br>>: HtmlUtils applied its patterns in no particular order, so
+     * whether those became line breaks varied.
+     */
+    private static String randomHtml(Random random) {
+        String[] pieces = { " < ", ">", "/", " ", "  ", "\n", "\t", ";", "a",
+                "\"", ",", "Word", "text", "p", "h1", "H2", "br", "li", "link", "td",
+                "class=\"x\"", "<p>", "</p>", "<br/>", "<b>", "</b>",
+                "<DIV>", "<img src=a>", "< p>", "<pre>", "<h3>", "<hr>" };
+        String removeTag = REMOVE_TAGS[random.nextInt(REMOVE_TAGS.length)];
+        // quoted documents are unquoted as CSV fields
+        StringBuilder html = new StringBuilder(random.nextBoolean() ? "x"
+                : "\"");
+        int length = random.nextInt(100);
+        for (int i = 0; i < length; i++) {
+            if (random.nextInt(8) == 0) {
+                String tag = random.nextBoolean() ? removeTag : removeTag
+                        .toUpperCase();
+                html.append(random.nextBoolean() ? "<" + tag + ">" : "</"
+                        + tag + ">");
+            } else {
+                html.append(pieces[random.nextInt(pieces.length)]);
+            }
+        }
+        if (html.charAt(0) == '"' && random.nextBoolean()) {
+            html.append('"');
+        }
+        return html.toString();
+    }
+
+    @Test
+    public void testSameAsRegexes() throws Exception {
+        Random random = new Random(0);
+        for (int n = 0; n < 5000; n++) {
+            String html = randomHtml(random);
+            String expected = removeHtmlWithRegexes(html);
+            assertEquals(html, expected, read(html, 1 + random.nextInt(16)));
+            assertEquals(html, expected, read(html, 4096));
+        }
+    }
+
+    @Test
+    public void testLines() throws Exception {
+        BufferedReader in = new BufferedReader(new HtmlTextReader(
+                new StringReader("<ul><li>one</li><li>two; three</li></ul>")));
+        List<String> lines = new ArrayList<String>();
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            lines.add(line.trim());
+        }
+        assertEquals("[, one, two, three]", lines
+                .toString());
+    }
+}
@@ -0,0 +1,87 @@
+package edu.washington.cs.knowitall.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import org.junit.Test;
+
+public class HyperLogLogTest {
+
+    private static HyperLogLog sketch(int precision, int from, int to) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for (int i = from; i < to; i++) {
+            sketch.add("arg " + i);
+        }
+        return sketch;
+    }
+
+    private static HyperLogLog roundTrip(HyperLogLog sketch) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.write(new DataOutputStream(bytes));
+        return HyperLogLog.read(new DataInputStream(new ByteArrayInputStream(
+                bytes.toByteArray())));
+    }
+
+    private static void assertWithin(double error, long expected, long actual) {
+        assertTrue("expected " + expected + " but was " + actual,
+                Math.abs(actual - expected) <= error * expected);
+    }
+
+    @Test
+    public void testSmallCountsAreNearlyExact() {
+        assertEquals(0, new HyperLogLog().cardinality());
+        for (int n : new int[] { 1, 5, 20, 100 }) {
+            HyperLogLog sketch = sketch(12, 0, n);
+            // adding the same strings again does not change the count
+            sketch.merge(sketch(12, 0, n));
+            assertWithin(0.02, n, sketch.cardinality());
+        }
+    }
+
+    @Test
+    public void testLargeCounts() {
+        for (int n : new int[] { 1000, 10000, 200000 }) {
+            // three times the standard error of 1.6%
+            assertWithin(0.05, n, sketch(12, 0, n).cardinality());
+        }
+    }
+
+    @Test
+    public void testMergeIsUnion() throws Exception {
+        for (int n : new int[] { 10, 300, 5000 }) {
+            HyperLogLog merged = sketch(10, 0, n);
+            merged.merge(sketch(10, n / 2, 2 * n));
+            HyperLogLog union = sketch(10, 0, 2 * n);
+            assertEquals(union.cardinality(), merged.cardinality());
+            assertEquals(union.cardinality(), roundTrip(merged).cardinality());
+
+            // merging a dense sketch into a sparse one
+            HyperLogLog sparse = sketch(10, 0, 3);
+            sparse.merge(union);
+            assertEquals(sketch(10, 0, 2 * n).cardinality(),
+                    sparse.cardinality());
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (int n : new int[] { 0, 7, 3000 }) {
+            HyperLogLog sketch = sketch(8, 0, n);
+            HyperLogLog read = roundTrip(sketch);
+            assertEquals(sketch.cardinality(), read.cardinality());
+            read.add("another");
+            sketch.add("another");
+            assertEquals(sketch.cardinality(), read.cardinality());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentPrecisions() {
+        new HyperLogLog(10).merge(new HyperLogLog(11));
+    }
+}
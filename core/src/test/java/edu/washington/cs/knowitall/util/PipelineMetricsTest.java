@@ -0,0 +1,81 @@
+package edu.washington.cs.knowitall.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import edu.washington.cs.knowitall.normalization.StemCache;
+import edu.washington.cs.knowitall.util.PipelineMetrics.Stage;
+
+public class PipelineMetricsTest {
+
+    @Test
+    public void testWriteJson() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.addSentences(3);
+        metrics.addExtractions(5);
+        metrics.record(Stage.TAG, 1500000);
+        metrics.getMapperStats("arg1/StopListFilter").record(4, 3, 2000);
+        StringWriter out = new StringWriter();
+        metrics.writeJson(out);
+        String json = out.toString();
+        assertTrue(json.contains("\"sentences\": 3,"));
+        assertTrue(json.contains("\"extractions\": 5,"));
+        assertTrue(json.contains("\"tag\": {\"count\": 1, \"mean_ms\": 1.500"));
+        assertTrue(json.contains("\"normalization\": {\"count\": 0,"));
+        assertTrue(json.contains("{\"name\": \"arg1/StopListFilter\", "
+                + "\"calls\": 1, \"inputs\": 4, \"outputs\": 3"));
+        assertTrue(json.contains("\"morpha\": {\"hits\": "));
+        assertTrue(json.contains("\"morphaStemmer\": {\"hits\": "));
+    }
+
+    @Test
+    public void testStemCacheMBean() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.registerMBeans();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName morpha = new ObjectName(PipelineMetrics.DOMAIN
+                + ":type=StemCache,name=morpha");
+        try {
+            long lookups = (Long) server.getAttribute(morpha, "Hits")
+                    + (Long) server.getAttribute(morpha, "Misses");
+            StemCache.morpha().stem("Running", "VBG");
+            StemCache.morpha().stem("running", "VBG");
+            assertEquals(lookups + 2, (Long) server.getAttribute(morpha,
+                    "Hits") + (Long) server.getAttribute(morpha, "Misses"));
+            assertTrue((Long) server.getAttribute(morpha, "Hits") > 0);
+        } finally {
+            metrics.unregisterMBeans();
+        }
+        assertFalse(server.isRegistered(morpha));
+    }
+
+    @Test
+    public void testRegisterMBeans() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.record(Stage.CHUNK, 3000000);
+        metrics.registerMBeans();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName chunk = new ObjectName(PipelineMetrics.DOMAIN
+                + ":type=LatencyHistogram,stage=chunk");
+        try {
+            assertEquals(1L, server.getAttribute(chunk, "Count"));
+            assertEquals(3.0, (Double) server.getAttribute(chunk,
+                    "P99Millis"), 0.05);
+            // registering other metrics replaces these
+            new PipelineMetrics().registerMBeans();
+            assertEquals(0L, server.getAttribute(chunk, "Count"));
+        } finally {
+            metrics.unregisterMBeans();
+        }
+        assertFalse(server.isRegistered(chunk));
+    }
+}
@@ -0,0 +1,213 @@
+package edu.washington.cs.knowitall.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WarcRecordReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] record(String version, int i, byte[] content)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String headers = version + "\r\n" + "WARC-Type: response\r\n"
+                + "WARC-Target-URI: http://example.org/" + i + "\r\n"
+                + "WARC-TREC-ID: clueweb-" + i + "\r\n"
+                + "Content-Type: application/http; msgtype=response\r\n"
+                + "Content-Length: " + content.length + "\r\n\r\n";
+        out.write(headers.getBytes("UTF-8"));
+        out.write(content);
+        out.write("\r\n\r\n".getBytes("UTF-8"));
+        return out.toByteArray();
+    }
+
+    private static byte[] content(Random random, int i) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/html; "
+                + "charset=ISO-8859-1\r\n\r\n<html>page " + i
+                + " café\r\nWARC/1.0\r\n").getBytes("ISO-8859-1"));
+        byte[] bytes = new byte[random.nextInt(3000)];
+        random.nextBytes(bytes);
+        out.write(bytes);
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(bytes);
+        gzip.close();
+        return out.toByteArray();
+    }
+
+    /*
+     * Writes n records, each compressed as its own gzip member or all of them
+     * uncompressed, and returns the contents and offsets of the records.
+     */
+    private File write(int n, boolean compress, List<byte[]> contents,
+            List<Long> offsets) throws IOException {
+        Random random = new Random(n);
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        long offset = 0;
+        for (int i = 0; i < n; i++) {
+            byte[] content = content(random, i);
+            byte[] record = record(i % 2 == 0 ? "WARC/1.0" : "WARC/0.18", i,
+                    content);
+            if (compress) {
+                record = gzip(record);
+            }
+            contents.add(content);
+            offsets.add(offset);
+            out.write(record);
+            offset += record.length;
+        }
+        out.close();
+        return file;
+    }
+
+    private static List<WarcRecord> readAll(WarcRecordReader reader)
+            throws IOException {
+        List<WarcRecord> records = new ArrayList<WarcRecord>();
+        for (WarcRecord record : reader) {
+            records.add(record);
+        }
+        reader.close();
+        return records;
+    }
+
+    private void assertRecords(List<WarcRecord> records, int first,
+            List<byte[]> contents, List<Long> offsets) {
+        for (int i = 0; i < records.size(); i++) {
+            WarcRecord record = records.get(i);
+            int j = first + i;
+            assertEquals(j % 2 == 0 ? "WARC/1.0" : "WARC/0.18",
+                    record.getVersion());
+            assertEquals("response", record.getType());
+            assertEquals("http://example.org/" + j, record.getTargetUri());
+            assertEquals("clueweb-" + j, record.getHeader("warc-trec-id"));
+            assertArrayEquals(contents.get(j), record.getContent());
+            assertEquals(offsets.get(j).longValue(), record.getOffset());
+            assertTrue(record.getPayloadString().startsWith(
+                    "<html>page " + j + " café\r\nWARC/1.0"));
+        }
+    }
+
+    @Test
+    public void testUncompressed() throws Exception {
+        List<byte[]> contents = new ArrayList<byte[]>();
+        List<Long> offsets = new ArrayList<Long>();
+        File file = write(50, false, contents, offsets);
+        List<WarcRecord> records = readAll(new WarcRecordReader(file, 0,
+                Long.MAX_VALUE));
+        assertEquals(50, records.size());
+        assertRecords(records, 0, contents, offsets);
+        assertEquals(1, WarcRecordReader.findSplits(file, 4).size());
+    }
+
+    @Test
+    public void testGzipMembers() throws Exception {
+        List<byte[]> contents = new ArrayList<byte[]>();
+        List<Long> offsets = new ArrayList<Long>();
+        File file = write(50, true, contents, offsets);
+        List<WarcRecord> records = readAll(new WarcRecordReader(
+                new FileInputStream(file)));
+        assertEquals(50, records.size());
+        assertRecords(records, 0, contents, offsets);
+    }
+
+    @Test
+    public void testSingleGzipMember() throws Exception {
+        List<byte[]> contents = new ArrayList<byte[]>();
+        List<Long> offsets = new ArrayList<Long>();
+        File file = write(20, false, contents, offsets);
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        in.read(bytes);
+        in.close();
+        List<WarcRecord> records = readAll(new WarcRecordReader(
+                new ByteArrayInputStream(gzip(bytes))));
+        assertEquals(20, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertArrayEquals(contents.get(i), records.get(i).getContent());
+            assertEquals(0, records.get(i).getOffset());
+        }
+    }
+
+    @Test
+    public void testSplits() throws Exception {
+        List<byte[]> contents = new ArrayList<byte[]>();
+        List<Long> offsets = new ArrayList<Long>();
+        File file = write(200, true, contents, offsets);
+        List<Long> splits = WarcRecordReader.findSplits(file, 7);
+        assertEquals(7, splits.size());
+
+        int read = 0;
+        for (int s = 0; s < splits.size(); s++) {
+            assertTrue(offsets.contains(splits.get(s)));
+            long end = s + 1 < splits.size() ? splits.get(s + 1)
+                    : Long.MAX_VALUE;
+            List<WarcRecord> records = readAll(new WarcRecordReader(file,
+                    splits.get(s), end));
+            assertTrue(records.size() > 0);
+            assertRecords(records, read, contents, offsets);
+            read += records.size();
+        }
+        assertEquals(200, read);
+    }
+
+    @Test
+    public void testMoreSplitsThanMembers() throws Exception {
+        List<byte[]> contents = new ArrayList<byte[]>();
+        List<Long> offsets = new ArrayList<Long>();
+        File file = write(3, true, contents, offsets);
+        List<Long> splits = WarcRecordReader.findSplits(file, 50);
+        assertTrue(splits.size() <= 3);
+        int read = 0;
+        for (int s = 0; s < splits.size(); s++) {
+            assertTrue(offsets.contains(splits.get(s)));
+            long end = s + 1 < splits.size() ? splits.get(s + 1)
+                    : Long.MAX_VALUE;
+            List<WarcRecord> records = readAll(new WarcRecordReader(file,
+                    splits.get(s), end));
+            assertRecords(records, read, contents, offsets);
+            read += records.size();
+        }
+        assertEquals(3, read);
+    }
+
+    @Test
+    public void testEmptyAndJunk() throws Exception {
+        assertNull(new WarcRecordReader(new ByteArrayInputStream(new byte[0]))
+                .read());
+        byte[] record = record("WARC/1.0", 0, "abc".getBytes("UTF-8"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("junk\r\n\r\n".getBytes("UTF-8"));
+        out.write(record);
+        WarcRecordReader reader = new WarcRecordReader(
+                new ByteArrayInputStream(out.toByteArray()));
+        WarcRecord first = reader.read();
+        assertEquals("abc", new String(first.getContent(), "UTF-8"));
+        assertEquals(8, first.getOffset());
+        assertEquals(0, first.getPayloadOffset());
+        assertNull(reader.read());
+    }
+}